@@ -82,7 +82,8 @@ public class CorantConfig implements Config, Serializable {
 
   public Object getConvertedValue(String propertyName, Type type, String defaultRawValue,
       String unconfiguredValue) {
-    Object result = configConversion.convert(configSources.get().getValue(propertyName), type);
+    Object result =
+        configSources.get().getConvertedValue(propertyName, type, configConversion::convert);
     if (result == null && defaultRawValue != null && !defaultRawValue.equals(unconfiguredValue)) {
       result = configConversion.convert(defaultRawValue, type);
     }
@@ -103,20 +104,20 @@ public class CorantConfig implements Config, Serializable {
   public <T> Optional<T> getOptionalValue(String propertyName, Class<T> propertyType) {
     logger.finer(() -> String.format("Retrieve optional config property key [%s] type [%s]",
         propertyName, propertyType.getName()));
-    return Optional.ofNullable(forceCast(
-        configConversion.convert(configSources.get().getValue(propertyName), propertyType)));
+    return Optional.ofNullable(forceCast(configSources.get().getConvertedValue(propertyName,
+        propertyType, configConversion::convert)));
   }
 
   public <T> Optional<T> getOptionalValue(String propertyName,
       javax.enterprise.util.TypeLiteral<T> propertyType) {
-    T value = forceCast(configConversion.convert(configSources.get().getValue(propertyName),
-        propertyType.getType()));
+    T value = forceCast(configSources.get().getConvertedValue(propertyName,
+        propertyType.getType(), configConversion::convert));
     return Optional.ofNullable(value);
   }
 
   public <T> Optional<T> getOptionalValue(String propertyName, TypeLiteral<T> propertyType) {
-    T value = forceCast(configConversion.convert(configSources.get().getValue(propertyName),
-        propertyType.getType()));
+    T value = forceCast(configSources.get().getConvertedValue(propertyName,
+        propertyType.getType(), configConversion::convert));
     return Optional.ofNullable(value);
   }
 
@@ -137,8 +138,8 @@ public class CorantConfig implements Config, Serializable {
   public <T> T getValue(String propertyName, Class<T> propertyType) {
     logger.fine(() -> String.format("Retrieve config property key [%s] type [%s]", propertyName,
         propertyType.getName()));
-    T value = forceCast(
-        configConversion.convert(configSources.get().getValue(propertyName), propertyType));
+    T value = forceCast(configSources.get().getConvertedValue(propertyName, propertyType,
+        configConversion::convert));
     if (value == null) {
       throw new NoSuchElementException(
           String.format("Config property name [%s] type [%s] not found! %n [%s]", propertyName,
@@ -148,8 +149,8 @@ public class CorantConfig implements Config, Serializable {
   }
 
   public <T> T getValue(String propertyName, TypeLiteral<T> propertyType) {
-    T value = forceCast(configConversion.convert(configSources.get().getValue(propertyName),
-        propertyType.getType()));
+    T value = forceCast(configSources.get().getConvertedValue(propertyName,
+        propertyType.getType(), configConversion::convert));
     if (value == null) {
       throw new NoSuchElementException(
           String.format("Config property name [%s] type [%s] not found! %n [%s]", propertyName,
@@ -171,6 +172,7 @@ public class CorantConfig implements Config, Serializable {
     for (;;) {
       CorantConfigSources oldConfigSources = this.configSources.get();
       if (this.configSources.compareAndSet(oldConfigSources, configSources)) {
+        oldConfigSources.close();
         return;
       }
     }
@@ -21,16 +21,29 @@ import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Objects.areEqual;
 import static org.corant.shared.util.Objects.defaultObject;
+import static org.corant.shared.util.Primitives.isPrimitiveWrapper;
 import static org.corant.shared.util.Strings.defaultString;
 import static org.corant.shared.util.Strings.strip;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.corant.config.expression.ConfigELProcessor;
 import org.corant.config.source.MicroprofileConfigSources;
 import org.corant.config.spi.ConfigAdjuster;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.normal.Names;
 import org.corant.shared.normal.Names.ConfigNames;
 import org.corant.shared.ubiquity.Mutable.MutableBoolean;
@@ -49,6 +62,19 @@ import org.eclipse.microprofile.config.spi.ConfigSource;
  * <p>
  * This class is used to organize and aggregate all configuration resources according to the
  * microprofile specification and provide a unified interface to caller.
+ * <p>
+ * If the value cache is enabled by {@link ConfigNames#CFG_VALUE_CACHE_ENABLE} (default is false)
+ * and all configuration resources are {@link ObservableConfigSource}, the expanded values and the
+ * converted values of immutable types are cached by property name and type, the caches are
+ * lock-free for reading and are invalidated when any configuration resource reports a change. The
+ * values that contain EL expressions are not cached since the expressions may be evaluated to
+ * different values.
+ * <p>
+ * Note: The system properties configuration resource is only notified by
+ * {@link org.corant.shared.util.Systems#setProperty(String, String)}, the values changed with
+ * {@link System#setProperty(String, String)} or {@link System#setProperties(java.util.Properties)}
+ * are not observed, so the cached values may become stale; enable the value cache only if the
+ * system properties are not changed at runtime or are changed through {@code Systems}.
  *
  * @author bingo 下午6:04:42
  *
@@ -67,6 +93,10 @@ public class CorantConfigSources {
   protected final String[] profilePrefixs;
   protected final ConfigELProcessor elProcessor;
   protected final boolean expressionsEnabled;
+  protected final Map<String, CachedValue> resolvedValues;
+  protected final Map<String, Map<Type, CachedValue>> convertedValues;
+  protected final Consumer<Set<String>> changeListener = names -> invalidate();
+  protected final AtomicLong version = new AtomicLong();
 
   /**
    * Build an instance
@@ -77,6 +107,20 @@ public class CorantConfigSources {
    */
   protected CorantConfigSources(List<CorantConfigSource> sources, boolean expressionsEnabled,
       String[] profiles) {
+    this(sources, expressionsEnabled, profiles, false);
+  }
+
+  /**
+   * Build an instance
+   *
+   * @param sources the processed configuration resources.
+   * @param expressionsEnabled whether to enable the el expression.
+   * @param profiles the parsed profiles.
+   * @param valueCacheEnabled whether to enable the value cache, the cache is used only if all the
+   *        configuration resources are observable.
+   */
+  protected CorantConfigSources(List<CorantConfigSource> sources, boolean expressionsEnabled,
+      String[] profiles, boolean valueCacheEnabled) {
     this.sources = sources;
     this.profiles = defaultObject(profiles, Strings.EMPTY_ARRAY);
     this.expressionsEnabled = expressionsEnabled;
@@ -88,6 +132,16 @@ public class CorantConfigSources {
       profilePrefixs = Strings.EMPTY_ARRAY;
     }
     elProcessor = new ConfigELProcessor(this::retrieveValue);
+    if (valueCacheEnabled && sources.stream()
+        .allMatch(cs -> cs.getDelegate() instanceof ObservableConfigSource)) {
+      resolvedValues = new ConcurrentHashMap<>();
+      convertedValues = new ConcurrentHashMap<>();
+      sources.forEach(cs -> ((ObservableConfigSource) cs.getDelegate())
+          .addChangeListener(changeListener));
+    } else {
+      resolvedValues = null;
+      convertedValues = null;
+    }
   }
 
   /**
@@ -101,6 +155,7 @@ public class CorantConfigSources {
     shouldNotNull(originalSources, "The config sources can not null!");
     MutableObject<String[]> profiles = new MutableObject<>(Strings.EMPTY_ARRAY);
     MutableBoolean enableExpressions = MutableBoolean.of(true);
+    MutableBoolean enableValueCache = MutableBoolean.of(false);
     List<Pair<String, ConfigSource>> profileSources = new ArrayList<>(originalSources.size());
     // collect the profile and source
     originalSources.stream().sorted(CONFIG_SOURCE_COMPARATOR.reversed()).forEachOrdered(cs -> {
@@ -117,6 +172,10 @@ public class CorantConfigSources {
       if (expressionEnabled != null) {
         enableExpressions.set(toBoolean(expressionEnabled));
       }
+      String valueCacheEnabled = cs.getValue(ConfigNames.CFG_VALUE_CACHE_ENABLE);
+      if (valueCacheEnabled != null) {
+        enableValueCache.set(toBoolean(valueCacheEnabled));
+      }
     });
     final ConfigAdjuster configAdjuster = ConfigAdjuster.resolve(classLoader);
     List<CorantConfigSource> sources = new ArrayList<>(originalSources.size());
@@ -144,7 +203,8 @@ public class CorantConfigSources {
     }
     // sorting the collected sources
     sources.sort(CONFIG_SOURCE_COMPARATOR);
-    return new CorantConfigSources(sources, enableExpressions.get(), profiles.get());
+    return new CorantConfigSources(sources, enableExpressions.get(), profiles.get(),
+        enableValueCache.get());
   }
 
   static String resolveSourceProfile(String sourceName) {
@@ -162,6 +222,36 @@ public class CorantConfigSources {
     return isEmpty(name) ? null : strip(name);
   }
 
+  /**
+   * Returns the converted value of the given property name and type, the converted values of the
+   * immutable types are cached if the value cache is enabled.
+   *
+   * @param propertyName the config property name
+   * @param type the target type
+   * @param converter the converter use to convert the expanded value to the target type
+   */
+  public Object getConvertedValue(String propertyName, Type type,
+      BiFunction<String, Type, Object> converter) {
+    if (convertedValues == null || !isImmutableType(type)) {
+      return converter.apply(getValue(propertyName), type);
+    }
+    final long currentVersion = version.get();
+    Map<Type, CachedValue> values = convertedValues.get(propertyName);
+    CachedValue cached = values == null ? null : values.get(type);
+    if (cached != null && cached.version == currentVersion) {
+      return cached.value;
+    }
+    MutableBoolean evaluated = MutableBoolean.of(false);
+    Object value = converter.apply(resolveValue(retrieveValue(propertyName), evaluated), type);
+    if (!evaluated.get()) {
+      if (values == null) {
+        values = convertedValues.computeIfAbsent(propertyName, k -> new ConcurrentHashMap<>());
+      }
+      values.put(type, new CachedValue(value, currentVersion));
+    }
+    return value;
+  }
+
   public ConfigValue getConfigValue(String propertyName, String defaultValue) {
     Pair<ConfigSource, String> val = getSourceAndValue(propertyName);
     if (!val.isEmpty()) {
@@ -192,7 +282,31 @@ public class CorantConfigSources {
    * @return getValue
    */
   public String getValue(String propertyName) {
-    return resolveValue(retrieveValue(propertyName));
+    if (resolvedValues == null) {
+      return resolveValue(retrieveValue(propertyName));
+    }
+    final long currentVersion = version.get();
+    CachedValue cached = resolvedValues.get(propertyName);
+    if (cached != null && cached.version == currentVersion) {
+      return (String) cached.value;
+    }
+    MutableBoolean evaluated = MutableBoolean.of(false);
+    String value = resolveValue(retrieveValue(propertyName), evaluated);
+    if (!evaluated.get()) {
+      resolvedValues.put(propertyName, new CachedValue(value, currentVersion));
+    }
+    return value;
+  }
+
+  /**
+   * Invalidate the cached values, it is called when any configuration resource reports a change.
+   */
+  public void invalidate() {
+    if (resolvedValues != null) {
+      version.incrementAndGet();
+      resolvedValues.clear();
+      convertedValues.clear();
+    }
   }
 
   /**
@@ -203,6 +317,18 @@ public class CorantConfigSources {
     return expressionsEnabled;
   }
 
+  /**
+   * Unregister the change listener from the configuration resources, it is called when this
+   * instance is replaced.
+   */
+  protected void close() {
+    if (resolvedValues != null) {
+      sources.forEach(cs -> ((ObservableConfigSource) cs.getDelegate())
+          .removeChangeListener(changeListener));
+      invalidate();
+    }
+  }
+
   /**
    * Returns the processed value of the EL expression
    */
@@ -247,6 +373,20 @@ public class CorantConfigSources {
     return Pair.empty();
   }
 
+  /**
+   * Returns whether the values of the given type are immutable and can be cached.
+   */
+  protected boolean isImmutableType(Type type) {
+    if (!(type instanceof Class)) {
+      return false;
+    }
+    Class<?> cls = (Class<?>) type;
+    return cls.isPrimitive() || isPrimitiveWrapper(cls) || cls.isEnum() || cls == String.class
+        || cls == BigDecimal.class || cls == BigInteger.class || cls == Class.class
+        || cls == Locale.class || Charset.class.isAssignableFrom(cls)
+        || cls.getName().startsWith("java.time.");
+  }
+
   protected String normalizeName(final String name) {
     int i = profilePrefixs.length;
     while (--i >= 0) {
@@ -268,10 +408,45 @@ public class CorantConfigSources {
     return value;
   }
 
+  /**
+   * Returns the expanded value and marks whether any EL expression was evaluated
+   */
+  protected String resolveValue(String value, MutableBoolean evaluated) {
+    if (expressionsEnabled) {
+      return CorantConfigResolver.resolveValue(value, (e, k) -> {
+        if (e) {
+          evaluated.set(true);
+          return evaluateValue(k);
+        }
+        return retrieveValue(k);
+      });
+    }
+    return value;
+  }
+
   /**
    * Return the profiled value if necessary
    */
   protected String retrieveValue(String propertyName) {
     return getSourceAndValue(propertyName).getValue();
   }
+
+  /**
+   * corant-config
+   * <p>
+   * The cached value with the cache version when it was resolved.
+   *
+   * @author bingo 下午5:12:40
+   *
+   */
+  protected static class CachedValue {
+
+    final Object value;
+    final long version;
+
+    protected CachedValue(Object value, long version) {
+      this.value = value;
+      this.version = version;
+    }
+  }
 }
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.util.Iterables;
 import org.eclipse.microprofile.config.spi.ConfigSource;
 
@@ -59,7 +60,7 @@ public class ApplicationAdjustConfigSourceProvider extends ApplicationConfigSour
    * @author bingo 下午8:56:38
    *
    */
-  private static final class AdjustConfigSource implements ConfigSource {
+  private static final class AdjustConfigSource implements ObservableConfigSource {
     private final Properties props;
 
     /**
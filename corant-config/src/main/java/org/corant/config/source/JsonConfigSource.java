@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.Collections;
 import java.util.Map;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.resource.URLResource;
 import org.corant.shared.util.Services;
@@ -30,7 +31,8 @@ import org.corant.shared.util.Services;
  * @author bingo 上午10:10:55
  *
  */
-public class JsonConfigSource extends AbstractCorantConfigSource {
+public class JsonConfigSource extends AbstractCorantConfigSource
+    implements ObservableConfigSource {
 
   private static final long serialVersionUID = 4384365167157384602L;
 
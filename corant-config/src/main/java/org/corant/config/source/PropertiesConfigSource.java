@@ -22,6 +22,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.resource.Resource;
 
@@ -31,7 +32,8 @@ import org.corant.shared.resource.Resource;
  * @author bingo 下午5:19:11
  *
  */
-public class PropertiesConfigSource extends AbstractCorantConfigSource {
+public class PropertiesConfigSource extends AbstractCorantConfigSource
+    implements ObservableConfigSource {
 
   private static final long serialVersionUID = -9141492489031571885L;
 
@@ -18,8 +18,8 @@ import java.io.Serializable;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.util.Systems;
-import org.eclipse.microprofile.config.spi.ConfigSource;
 
 /**
  * corant-config
@@ -27,7 +27,7 @@ import org.eclipse.microprofile.config.spi.ConfigSource;
  * @author bingo 上午11:04:36
  *
  */
-public class SystemEnvironmentConfigSource implements ConfigSource, Serializable {
+public class SystemEnvironmentConfigSource implements ObservableConfigSource, Serializable {
 
   private static final long serialVersionUID = -2548484846997245188L;
 
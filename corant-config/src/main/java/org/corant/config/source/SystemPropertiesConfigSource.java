@@ -15,6 +15,7 @@ package org.corant.config.source;
 
 import static org.corant.shared.normal.Priorities.ConfigPriorities.SYSTEM_PROPERTIES_ORDINAL;
 import static org.corant.shared.util.Maps.toMap;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -22,8 +23,11 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.util.Systems;
-import org.eclipse.microprofile.config.spi.ConfigSource;
 
 /**
  * corant-config
@@ -31,10 +35,36 @@ import org.eclipse.microprofile.config.spi.ConfigSource;
  * @author bingo 上午11:04:36
  *
  */
-public class SystemPropertiesConfigSource implements ConfigSource, Serializable {
+public class SystemPropertiesConfigSource
+    implements ObservableConfigSource, AutoCloseable, Serializable {
 
   private static final long serialVersionUID = -8695390762272664908L;
 
+  protected final transient CopyOnWriteArrayList<Consumer<Set<String>>> listeners =
+      new CopyOnWriteArrayList<>();
+
+  protected final transient BiConsumer<String, String> systemPropertyListener =
+      (name, value) -> listeners.forEach(listener -> listener.accept(Collections.singleton(name)));
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Note: Only the system properties set through {@link Systems#setProperty(String, String)} are
+   * notified.
+   */
+  @Override
+  public void addChangeListener(Consumer<Set<String>> listener) {
+    if (listeners.addIfAbsent(listener)) {
+      Systems.addPropertyChangeListener(systemPropertyListener);
+    }
+  }
+
+  @Override
+  public void close() {
+    listeners.clear();
+    Systems.removePropertyChangeListener(systemPropertyListener);
+  }
+
   @Override
   public String getName() {
     return "System.properties";
@@ -69,4 +99,16 @@ public class SystemPropertiesConfigSource implements ConfigSource, Serializable
     return Systems.getProperty(s);
   }
 
+  @Override
+  public void removeChangeListener(Consumer<Set<String>> listener) {
+    listeners.remove(listener);
+    if (listeners.isEmpty()) {
+      Systems.removePropertyChangeListener(systemPropertyListener);
+    }
+  }
+
+  private Object readResolve() throws ObjectStreamException {
+    return new SystemPropertiesConfigSource();
+  }
+
 }
@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.resource.Resource;
 
@@ -31,7 +32,8 @@ import org.corant.shared.resource.Resource;
  * @author bingo 上午10:11:23
  *
  */
-public class XmlConfigSource extends AbstractCorantConfigSource {
+public class XmlConfigSource extends AbstractCorantConfigSource
+    implements ObservableConfigSource {
 
   private static final long serialVersionUID = -6510093356770922600L;
 
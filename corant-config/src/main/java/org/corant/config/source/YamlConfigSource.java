@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
+import org.corant.config.spi.ObservableConfigSource;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.resource.Resource;
 import org.yaml.snakeyaml.LoaderOptions;
@@ -30,7 +31,8 @@ import org.yaml.snakeyaml.constructor.Constructor;
  * @author bingo 上午10:10:30
  *
  */
-public class YamlConfigSource extends AbstractCorantConfigSource {
+public class YamlConfigSource extends AbstractCorantConfigSource
+    implements ObservableConfigSource {
 
   private static final long serialVersionUID = 8099900233760280030L;
 
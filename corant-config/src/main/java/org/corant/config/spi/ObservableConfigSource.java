@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.config.spi;
+
+import java.util.Set;
+import java.util.function.Consumer;
+import org.eclipse.microprofile.config.spi.ConfigSource;
+
+/**
+ * corant-config
+ * <p>
+ * A config source that reports its property changes, the config caches the resolved and converted
+ * property values only if all config sources are observable.
+ * <p>
+ * Note: The default implementation does nothing, which means that the config source is immutable,
+ * the mutable config source must notify the registered listeners when its properties change.
+ *
+ * @author bingo 下午5:06:18
+ *
+ */
+public interface ObservableConfigSource extends ConfigSource {
+
+  /**
+   * Register a change listener, the listener is invoked with the changed property names, the empty
+   * names means that all properties may have changed.
+   *
+   * @param listener the change listener
+   */
+  default void addChangeListener(Consumer<Set<String>> listener) {}
+
+  /**
+   * Unregister the given change listener.
+   *
+   * @param listener the change listener
+   */
+  default void removeChangeListener(Consumer<Set<String>> listener) {}
+}
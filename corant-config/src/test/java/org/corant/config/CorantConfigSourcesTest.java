@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.config;
+
+import static org.corant.shared.util.Lists.listOf;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.corant.config.source.SystemPropertiesConfigSource;
+import org.corant.config.spi.ObservableConfigSource;
+import org.corant.shared.normal.Names.ConfigNames;
+import org.corant.shared.util.Systems;
+import org.eclipse.microprofile.config.spi.ConfigSource;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-config
+ *
+ * @author bingo 下午5:30:16
+ *
+ */
+public class CorantConfigSourcesTest extends TestCase {
+
+  @Test
+  public void testObservableSourcesValueCache() {
+    TestObservableConfigSource source = new TestObservableConfigSource();
+    source.properties.put(ConfigNames.CFG_VALUE_CACHE_ENABLE, "true");
+    source.properties.put("test.name", "corant");
+    source.properties.put("test.port", "8080");
+    source.properties.put("test.url", "http://${test.name}:${test.port}");
+    CorantConfigSources sources = CorantConfigSources.of(listOf(source), getClassLoader());
+    assertEquals("http://corant:8080", sources.getValue("test.url"));
+    assertEquals(8080, sources.getConvertedValue("test.port", Integer.class, this::convert));
+    source.properties.put("test.port", "9090");
+    // not notified, the cached values are returned
+    assertEquals("http://corant:8080", sources.getValue("test.url"));
+    assertEquals(8080, sources.getConvertedValue("test.port", Integer.class, this::convert));
+    source.fireChanged("test.port");
+    assertEquals("http://corant:9090", sources.getValue("test.url"));
+    assertEquals(9090, sources.getConvertedValue("test.port", Integer.class, this::convert));
+    assertNull(sources.getValue("test.absent"));
+    source.properties.put("test.absent", "present");
+    source.fireChanged("test.absent");
+    assertEquals("present", sources.getValue("test.absent"));
+    sources.close();
+    assertTrue(source.listeners.isEmpty());
+  }
+
+  @Test
+  public void testSystemPropertiesValueCache() {
+    String key = "corant.config.test.value-cache";
+    TestObservableConfigSource source = new TestObservableConfigSource();
+    source.properties.put(ConfigNames.CFG_VALUE_CACHE_ENABLE, "true");
+    SystemPropertiesConfigSource systemSource = new SystemPropertiesConfigSource();
+    List<ConfigSource> list = listOf(source, systemSource);
+    CorantConfigSources sources = CorantConfigSources.of(list, getClassLoader());
+    try {
+      assertNull(sources.getValue(key));
+      Systems.setProperty(key, "changed");
+      assertEquals("changed", sources.getValue(key));
+    } finally {
+      sources.close();
+      systemSource.close();
+    }
+  }
+
+  @Test
+  public void testUnobservableSourcesWithoutCache() {
+    TestConfigSource source = new TestConfigSource();
+    source.properties.put("test.name", "corant");
+    CorantConfigSources sources = CorantConfigSources.of(listOf(source), getClassLoader());
+    assertEquals("corant", sources.getValue("test.name"));
+    source.properties.put("test.name", "changed");
+    assertEquals("changed", sources.getValue("test.name"));
+  }
+
+  @Test
+  public void testValueCacheDisabled() {
+    TestObservableConfigSource source = new TestObservableConfigSource();
+    source.properties.put(ConfigNames.CFG_VALUE_CACHE_ENABLE, "false");
+    source.properties.put("test.name", "corant");
+    CorantConfigSources sources = CorantConfigSources.of(listOf(source), getClassLoader());
+    assertEquals("corant", sources.getValue("test.name"));
+    source.properties.put("test.name", "changed");
+    assertEquals("changed", sources.getValue("test.name"));
+  }
+
+  @Test
+  public void testValueCacheDisabledByDefault() {
+    String key = "corant.config.test.value-cache-default";
+    TestObservableConfigSource source = new TestObservableConfigSource();
+    SystemPropertiesConfigSource systemSource = new SystemPropertiesConfigSource();
+    List<ConfigSource> list = listOf(source, systemSource);
+    CorantConfigSources sources = CorantConfigSources.of(list, getClassLoader());
+    try {
+      assertNull(sources.getValue(key));
+      System.setProperty(key, "changed");
+      assertEquals("changed", sources.getValue(key));
+    } finally {
+      System.clearProperty(key);
+      sources.close();
+      systemSource.close();
+    }
+  }
+
+  Object convert(String value, java.lang.reflect.Type type) {
+    return value == null ? null : Integer.valueOf(value);
+  }
+
+  ClassLoader getClassLoader() {
+    return CorantConfigSourcesTest.class.getClassLoader();
+  }
+
+  static class TestConfigSource implements ConfigSource {
+
+    final Map<String, String> properties = new HashMap<>();
+    final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+    @Override
+    public String getName() {
+      return "test-source";
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return properties;
+    }
+
+    @Override
+    public Set<String> getPropertyNames() {
+      return properties.keySet();
+    }
+
+    @Override
+    public String getValue(String propertyName) {
+      return properties.get(propertyName);
+    }
+
+    void fireChanged(String name) {
+      listeners.forEach(l -> l.accept(Collections.singleton(name)));
+    }
+  }
+
+  static class TestObservableConfigSource extends TestConfigSource
+      implements ObservableConfigSource {
+
+    @Override
+    public void addChangeListener(Consumer<Set<String>> listener) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(Consumer<Set<String>> listener) {
+      listeners.remove(listener);
+    }
+  }
+}
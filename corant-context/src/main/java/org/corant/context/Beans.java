@@ -13,6 +13,7 @@
  */
 package org.corant.context;
 
+import static org.corant.config.Configs.getValue;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Classes.getUserClass;
 import static org.corant.shared.util.Empties.isEmpty;
@@ -20,8 +21,12 @@ import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Objects.forceCast;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -52,6 +57,14 @@ import org.jboss.weld.util.reflection.ParameterizedTypeImpl;
  * <p>
  * A convenient context bean object retrieval class for retrieving bean instances
  *
+ * <p>
+ * Note: The contextual references of the normal scoped beans and the {@link Singleton} beans
+ * retrieved by {@link #resolve(Class, Annotation...)} and {@link #resolve(TypeLiteral, Annotation...)}
+ * are cached by bean type and qualifiers, since the references of these beans are stable during
+ * the life of the container. The cache is cleared when the container starts or shuts down, and can
+ * be disabled by setting the configuration property
+ * {@code corant.context.bean-resolution-cache.enable} to false.
+ *
  * @author bingo 下午2:22:40
  *
  */
@@ -62,6 +75,21 @@ public class Beans {
   public static final String JAKARTA_EJB_STATELESS = "jakarta.ejb.Stateless";
   public static final String JAKARTA_EJB_SINGLETON = "jakarta.ejb.Singleton";
 
+  static final boolean RESOLUTION_CACHE_ENABLED =
+      getValue("corant.context.bean-resolution-cache.enable", Boolean.class, Boolean.TRUE);
+
+  static final Object UNCACHEABLE = new Object();
+
+  static final Map<Object, Object> resolutionCache = new ConcurrentHashMap<>();
+
+  /**
+   * Clear the cached contextual references of the resolved beans, it is called when the container
+   * starts or shuts down.
+   */
+  public static void clearResolutionCache() {
+    resolutionCache.clear();
+  }
+
   public static <T> T create(Class<T> clazz, Annotation... qualifiers) {
     if (clazz != null && CDIs.isEnabled()) {
       BeanManager bm = CDI.current().getBeanManager();
@@ -354,7 +382,8 @@ public class Beans {
    * @param qualifiers the bean qualifiers that use to resolve
    */
   public static <T> T resolve(Class<T> instanceClass, Annotation... qualifiers) {
-    return select(instanceClass, qualifiers).get();
+    T cached = resolveCached(shouldNotNull(instanceClass), qualifiers);
+    return cached != null ? cached : select(instanceClass, qualifiers).get();
   }
 
   /**
@@ -397,7 +426,8 @@ public class Beans {
    * @param qualifiers the bean qualifiers that use to resolve
    */
   public static <T> T resolve(TypeLiteral<T> instanceType, Annotation... qualifiers) {
-    return select(instanceType, qualifiers).get();
+    T cached = resolveCached(shouldNotNull(instanceType).getType(), qualifiers);
+    return cached != null ? cached : select(instanceType, qualifiers).get();
   }
 
   /**
@@ -603,4 +633,82 @@ public class Beans {
     }
     return false;
   }
+
+  /**
+   * Returns the cached contextual reference of the normal scoped or {@link Singleton} bean that
+   * matches the given type and qualifiers, or null if the bean can't be cached or resolved, in that
+   * case the caller should resolve it through {@link Instance}.
+   *
+   * @param <T> the bean type
+   * @param type the bean type to be resolved
+   * @param qualifiers the bean qualifiers
+   */
+  static <T> T resolveCached(Type type, Annotation... qualifiers) {
+    if (!RESOLUTION_CACHE_ENABLED) {
+      return null;
+    }
+    final Object key = isEmpty(qualifiers) ? type : new ResolutionKey(type, qualifiers);
+    Object reference = resolutionCache.get(key);
+    if (reference == null) {
+      if (!CDIs.isEnabled()) {
+        throw new IllegalStateException("Unable to access CDI, the CDI container may be closed.");
+      }
+      BeanManager bm = CDI.current().getBeanManager();
+      Set<Bean<?>> beans = bm.getBeans(type, qualifiers);
+      Bean<?> bean = isEmpty(beans) ? null : bm.resolve(beans);
+      if (bean == null) {
+        // let the caller report the unsatisfied resolution
+        return null;
+      }
+      Class<? extends Annotation> scope = bean.getScope();
+      if (bm.isNormalScope(scope) || Singleton.class.equals(scope)) {
+        reference = bm.getReference(bean, type, bm.createCreationalContext(bean));
+      } else {
+        reference = UNCACHEABLE;
+      }
+      Object existing = resolutionCache.putIfAbsent(key, reference);
+      if (existing != null) {
+        reference = existing;
+      }
+    }
+    return reference == UNCACHEABLE ? null : forceCast(reference);
+  }
+
+  /**
+   * corant-context
+   * <p>
+   * The bean resolution cache key composed of the bean type and qualifiers.
+   *
+   * @author bingo 下午3:18:26
+   *
+   */
+  static final class ResolutionKey {
+
+    final Type type;
+    final Annotation[] qualifiers;
+    final int hash;
+
+    ResolutionKey(Type type, Annotation[] qualifiers) {
+      this.type = type;
+      this.qualifiers = qualifiers.clone();
+      hash = 31 * Objects.hashCode(type) + Arrays.hashCode(this.qualifiers);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ResolutionKey)) {
+        return false;
+      }
+      ResolutionKey other = (ResolutionKey) obj;
+      return Objects.equals(type, other.type) && Arrays.equals(qualifiers, other.qualifiers);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context;
+
+import java.util.logging.Logger;
+import javax.annotation.Priority;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.BeforeShutdown;
+import javax.enterprise.inject.spi.Extension;
+import org.corant.shared.normal.Priorities;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * Invalidate the bean resolution cache of {@link Beans} when the container starts or shuts down.
+ *
+ * @author bingo 下午3:26:40
+ *
+ */
+public class BeansExtension implements Extension {
+
+  static final Logger logger = Logger.getLogger(BeansExtension.class.getName());
+
+  void onBeforeBeanDiscovery(
+      @Observes @Priority(Priorities.FRAMEWORK_HIGHER) BeforeBeanDiscovery event) {
+    Beans.clearResolutionCache();
+  }
+
+  void onBeforeShutdown(@Observes @Priority(Priorities.FRAMEWORK_LOWER) BeforeShutdown event) {
+    Beans.clearResolutionCache();
+    logger.fine(() -> "Clear bean resolution cache.");
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.command;
+
+import static java.util.Collections.singletonList;
+import java.util.List;
+
+/**
+ * corant-context
+ * <p>
+ * A command handler that can handle a batch of commands at once, it is used by
+ * {@link CommandPipeline} to coalesce the commands of the same handler, for example, to write audit
+ * logs with batched inserts.
+ *
+ * @author bingo 下午4:12:20
+ *
+ */
+public interface BatchCommandHandler<C> extends CommandHandler<C> {
+
+  @Override
+  default Object handle(C command) {
+    List<?> results = handleBatch(singletonList(command));
+    return results == null || results.isEmpty() ? null : results.get(0);
+  }
+
+  /**
+   * Handle the given commands and return the results in the same order as the given commands, the
+   * returned list may be null or shorter than the given commands, in that case the missing results
+   * are considered null.
+   *
+   * @param commands the commands to be handled, the list is not empty
+   * @return the handle results
+   */
+  List<?> handleBatch(List<C> commands);
+}
@@ -14,11 +14,17 @@
 package org.corant.context.command;
 
 import static org.corant.shared.util.Classes.getUserClass;
+import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
-import static org.corant.shared.util.Empties.sizeOf;
 import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.Dependent;
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.AmbiguousResolutionException;
 import javax.enterprise.inject.Any;
@@ -41,6 +47,12 @@ import javax.inject.Singleton;
  * re-implement the {@link #resolve(Object, Annotation...)} method to enable it to face more complex
  * application scenarios, for example, it can support the inheritance relationship of command object
  * types, etc.
+ * <p>
+ * The resolved command handler beans are kept in a command class to handler reference table, the
+ * table of the commands without additional qualifiers is precomputed after the resolver is
+ * constructed, only the handler beans are resolved there and no handler is instantiated. The
+ * contextual references of the normal scoped or {@link Singleton} handlers are obtained on first
+ * use and then reused, the other handlers are created on each resolution.
  *
  * @see CommandExtension#arrange(javax.enterprise.inject.spi.ProcessAnnotatedType)
  *
@@ -60,6 +72,8 @@ public class CommandHandlerResolver {
   @Any
   protected Instance<CommandValidator> validators;
 
+  protected final Map<Object, HandlerReference> handlers = new ConcurrentHashMap<>();
+
   /**
    * Returns the appropriate command handler with the given command and handler qualifiers.
    *
@@ -68,64 +82,215 @@ public class CommandHandlerResolver {
    * @param qualifiers the command handler bean additional qualifiers
    */
   public <C> CommandHandler<C> resolve(C cmd, Annotation... qualifiers) {
+    return resolveHandlerReference(cmd, qualifiers).get(beanManager);
+  }
+
+  @SuppressWarnings("unchecked")
+  protected <C> CommandHandler<C> resolve(Class<? extends CommandHandler<?>> handlerClass,
+      Annotation... qualifiers) {
+    Bean<?> bean = resolveBean(handlerClass, qualifiers);
+    if (bean != null) {
+      CreationalContext<?> context = beanManager.createCreationalContext(bean);
+      return context != null
+          ? (CommandHandler<C>) handlerClass
+              .cast(beanManager.getReference(bean, handlerClass, context))
+          : null;
+    }
+    return null;
+  }
+
+  protected Bean<?> resolveBean(Class<? extends CommandHandler<?>> handlerClass,
+      Annotation... qualifiers) {
+    Set<Bean<?>> beans = beanManager.getBeans(handlerClass, qualifiers);
+    if (isNotEmpty(beans)) {
+      if (beans.size() > 1) {
+        beans =
+            beans.stream().filter(b -> (b.getBeanClass().equals(handlerClass) || b.isAlternative()))
+                .collect(Collectors.toSet());
+      }
+      if (isNotEmpty(beans)) {
+        return beanManager.resolve(beans);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Validates the given command and returns the resolved command handler bean reference of the
+   * given command and handler qualifiers without creating the handler instance.
+   *
+   * @param cmd the commands object
+   * @param qualifiers the command handler bean additional qualifiers
+   */
+  protected HandlerReference resolveHandlerReference(Object cmd, Annotation... qualifiers) {
     if (cmd == null) {
       throw new UnsatisfiedResolutionException("Can't resolve command handler for null command!");
     }
     if (validators.isResolvable()) {
       validators.get().validate(cmd);
     }
+    final Class<?> cmdClass = cmd.getClass();
+    final Object key = isEmpty(qualifiers) ? cmdClass : new HandlerKey(cmdClass, qualifiers);
+    HandlerReference reference = handlers.get(key);
+    if (reference == null) {
+      reference = resolveReference(cmdClass, qualifiers);
+      if (reference == null) {
+        throw new UnsatisfiedResolutionException(
+            "Can't resolve command handler for " + cmd.getClass());
+      }
+      HandlerReference existing = handlers.putIfAbsent(key, reference);
+      if (existing != null) {
+        reference = existing;
+      }
+    }
+    return reference;
+  }
+
+  /**
+   * Resolve the command handler bean reference of the given command class and qualifiers, returns
+   * null if not found.
+   *
+   * @param cmdClass the command class
+   * @param qualifiers the command handler bean additional qualifiers
+   */
+  protected HandlerReference resolveReference(Class<?> cmdClass, Annotation... qualifiers) {
     Set<Class<? extends CommandHandler<?>>> handlerClasses =
-        extension.getCommandHandlerTypes(cmd.getClass());
-    CommandHandler<C> handler = null;
-    int size = sizeOf(handlerClasses);
-    if (size == 1) {
-      handler = resolve(handlerClasses.iterator().next(), qualifiers);
-    } else if (size > 1) {
+        extension.getCommandHandlerTypes(cmdClass);
+    Class<? extends CommandHandler<?>> resolvedClass = null;
+    Bean<?> resolvedBean = null;
+    if (isNotEmpty(handlerClasses)) {
       for (Class<? extends CommandHandler<?>> handlerClass : handlerClasses) {
-        CommandHandler<C> resolvedHandler = resolve(handlerClass, qualifiers);
-        if (resolvedHandler != null) {
-          if (handler == null) {
-            handler = resolvedHandler;
-          } else if (!getUserClass(resolvedHandler.getClass())
-              .equals(getUserClass(handler.getClass()))) {
+        Bean<?> bean = resolveBean(handlerClass, qualifiers);
+        if (bean != null) {
+          if (resolvedBean == null) {
+            resolvedClass = handlerClass;
+            resolvedBean = bean;
+          } else if (!getUserClass(bean.getBeanClass())
+              .equals(getUserClass(resolvedBean.getBeanClass()))) {
             // Filter @Specializes
-            throw new AmbiguousResolutionException("Can't resolve command handler for "
-                + cmd.getClass() + " and ambiguous handlers " + String.join(",",
+            throw new AmbiguousResolutionException("Can't resolve command handler for " + cmdClass
+                + " and ambiguous handlers " + String.join(",",
                     handlerClasses.stream().map(Class::getName).toArray(String[]::new)));
           }
         }
       }
     }
-    if (handler != null) {
-      return handler;
+    return resolvedBean != null ? new HandlerReference(resolvedClass, resolvedBean, beanManager)
+        : null;
+  }
+
+  /**
+   * Precompute the command class to command handler reference table for all commands without
+   * additional qualifiers, the commands that can't be resolved here will be resolved and reported
+   * on first use.
+   */
+  @PostConstruct
+  protected void onPostConstruct() {
+    for (Class<?> cmdClass : extension.getCommands()) {
+      try {
+        HandlerReference reference = resolveReference(cmdClass);
+        if (reference != null) {
+          handlers.putIfAbsent(cmdClass, reference);
+        }
+      } catch (RuntimeException e) {
+        // Noop! resolve and report it when it is used
+      }
+    }
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    handlers.clear();
+  }
+
+  /**
+   * corant-context
+   * <p>
+   * The command handler table key composed of the command class and handler qualifiers.
+   *
+   * @author bingo 下午3:40:12
+   *
+   */
+  protected static final class HandlerKey {
+
+    final Class<?> commandClass;
+    final Annotation[] qualifiers;
+    final int hash;
+
+    HandlerKey(Class<?> commandClass, Annotation[] qualifiers) {
+      this.commandClass = commandClass;
+      this.qualifiers = qualifiers.clone();
+      hash = 31 * commandClass.hashCode() + Arrays.hashCode(this.qualifiers);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof HandlerKey)) {
+        return false;
+      }
+      HandlerKey other = (HandlerKey) obj;
+      return commandClass.equals(other.commandClass) && Arrays.equals(qualifiers, other.qualifiers);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
     }
-    throw new UnsatisfiedResolutionException("Can't resolve command handler for " + cmd.getClass());
   }
 
-  @SuppressWarnings("unchecked")
-  protected <C> CommandHandler<C> resolve(Class<? extends CommandHandler<?>> handlerClass,
-      Annotation... qualifiers) {
-    CommandHandler<C> handler = null;
-    Set<Bean<?>> beans = beanManager.getBeans(handlerClass, qualifiers);
-    if (isNotEmpty(beans)) {
-      if (beans.size() > 1) {
-        beans =
-            beans.stream().filter(b -> (b.getBeanClass().equals(handlerClass) || b.isAlternative()))
-                .collect(Collectors.toSet());
+  /**
+   * corant-context
+   * <p>
+   * The resolved command handler bean, the contextual reference of the normal scoped or
+   * {@link Singleton} handler is obtained on first use and kept, if it fails, it's retried on the
+   * next use; the other handlers are created on each use.
+   *
+   * @author bingo 下午3:42:36
+   *
+   */
+  protected static final class HandlerReference {
+
+    final Class<? extends CommandHandler<?>> handlerClass;
+    final Bean<?> bean;
+    final boolean reusable;
+    volatile Object reference;
+
+    HandlerReference(Class<? extends CommandHandler<?>> handlerClass, Bean<?> bean,
+        BeanManager beanManager) {
+      this.handlerClass = handlerClass;
+      this.bean = bean;
+      Class<? extends Annotation> scope = bean.getScope();
+      reusable = beanManager.isNormalScope(scope) || Singleton.class.equals(scope);
+    }
+
+    /**
+     * Creates a command handler instance with the given creational context, the caller owns the
+     * instance and should release the creational context if the handler is {@link Dependent}.
+     */
+    @SuppressWarnings("unchecked")
+    <C> CommandHandler<C> create(BeanManager beanManager, CreationalContext<?> context) {
+      return (CommandHandler<C>) handlerClass
+          .cast(beanManager.getReference(bean, handlerClass, context));
+    }
+
+    @SuppressWarnings("unchecked")
+    <C> CommandHandler<C> get(BeanManager beanManager) {
+      if (!reusable) {
+        return create(beanManager, beanManager.createCreationalContext(bean));
       }
-      if (isNotEmpty(beans)) {
-        Bean<?> bean = beanManager.resolve(beans);
-        if (bean != null) {
-          CreationalContext<?> context = beanManager.createCreationalContext(bean);
-          handler =
-              context != null
-                  ? (CommandHandler<C>) handlerClass
-                      .cast(beanManager.getReference(bean, handlerClass, context))
-                  : null;
+      Object resolved = reference;
+      if (resolved == null) {
+        synchronized (this) {
+          if ((resolved = reference) == null) {
+            reference = resolved =
+                create(beanManager, beanManager.createCreationalContext(bean));
+          }
         }
       }
+      return (CommandHandler<C>) resolved;
     }
-    return handler;
   }
-
 }
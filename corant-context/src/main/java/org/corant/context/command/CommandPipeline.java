@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.command;
+
+import static java.util.Collections.singletonList;
+import static org.corant.config.Configs.getValue;
+import static org.corant.context.Beans.findNamed;
+import static org.corant.context.Beans.resolve;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.defaultObject;
+import static org.corant.shared.util.Objects.forceCast;
+import static org.corant.shared.util.Strings.isBlank;
+import java.lang.annotation.Annotation;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import org.corant.context.command.CommandHandlerResolver.HandlerReference;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.ubiquity.Tuple.Pair;
+
+/**
+ * corant-context
+ * <p>
+ * An asynchronous command pipeline, the commands are queued in a bounded queue (lane) per command
+ * handler bean and handler qualifiers, and drained by at most one task of the executor service per
+ * lane at a time. The handler of a lane is resolved once when the lane is created, if the handler
+ * is {@link Dependent} the instance is owned by the lane and destroyed when the pipeline is closed.
+ * If the handler is a {@link BatchCommandHandler}, the queued commands are coalesced into batches of
+ * at most max batch size commands, the drain task waits at most max linger time for a batch to be
+ * filled; otherwise the commands are handled one by one. Each submitted command gets a
+ * {@link CompletionStage} that is completed with its handle result. When the queue of a lane is
+ * full, the {@link RejectionPolicy} is applied.
+ * <p>
+ * The CDI managed pipeline instance (see {@link Commander#pipeline()}) is configured with the
+ * following configuration properties:
+ *
+ * <pre>
+ * corant.context.command.pipeline.executor-name     the managed executor name, default is the default executor
+ * corant.context.command.pipeline.queue-capacity    the queue capacity per lane, default is 1024
+ * corant.context.command.pipeline.max-batch-size    the max batch size, default is 256
+ * corant.context.command.pipeline.max-linger        the max linger time, default is 5ms
+ * corant.context.command.pipeline.rejection-policy  the rejection policy, default is ABORT
+ * </pre>
+ * <p>
+ * Note: The commands of the same lane are handled in submission order, except the commands
+ * that are handled in the caller thread by the {@link RejectionPolicy#CALLER_RUNS} policy.
+ *
+ * @author bingo 下午4:20:36
+ *
+ */
+@ApplicationScoped
+public class CommandPipeline {
+
+  protected static final Logger logger = Logger.getLogger(CommandPipeline.class.getName());
+
+  protected final Map<Pair<Bean<?>, List<Annotation>>, Lane> lanes = new ConcurrentHashMap<>();
+
+  protected ExecutorService executor;
+  protected int queueCapacity;
+  protected int maxBatchSize;
+  protected long maxLingerNanos;
+  protected RejectionPolicy rejectionPolicy;
+  protected volatile boolean closed;
+
+  /**
+   * Create a command pipeline
+   *
+   * @param executor the executor service use to drain the queues
+   * @param queueCapacity the queue capacity per handler type
+   * @param maxBatchSize the max batch size of {@link BatchCommandHandler}
+   * @param maxLinger the max time to wait for a batch to be filled
+   * @param rejectionPolicy the rejection policy applied when the queue is full
+   */
+  public CommandPipeline(ExecutorService executor, int queueCapacity, int maxBatchSize,
+      Duration maxLinger, RejectionPolicy rejectionPolicy) {
+    this.executor = shouldNotNull(executor);
+    this.queueCapacity = Math.max(queueCapacity, 1);
+    this.maxBatchSize = Math.max(maxBatchSize, 1);
+    maxLingerNanos = Math.max(defaultObject(maxLinger, Duration.ZERO).toNanos(), 0L);
+    this.rejectionPolicy = defaultObject(rejectionPolicy, RejectionPolicy.ABORT);
+  }
+
+  protected CommandPipeline() {}
+
+  /**
+   * Close the pipeline, the queued commands that have not been drained are completed exceptionally
+   * with {@link RejectedExecutionException} and the dependent handlers of the lanes are destroyed.
+   * The commands submitted after the pipeline is closed are completed exceptionally with
+   * {@link RejectedExecutionException} too.
+   */
+  public void close() {
+    closed = true;
+    lanes.values().forEach(Lane::close);
+    lanes.clear();
+  }
+
+  /**
+   * Submit a command to the pipeline and return the command execution completion stage.
+   *
+   * @param <R> the command handle result type
+   * @param <C> the command type
+   * @param cmd the command object
+   * @param qualifiers the command handler bean additional qualifiers
+   */
+  public <R, C> CompletionStage<R> submit(C cmd, Annotation... qualifiers) {
+    final Submission submission = new Submission(cmd);
+    if (closed) {
+      submission.future.completeExceptionally(
+          new RejectedExecutionException("The command pipeline was closed!"));
+      return forceCast(submission.future);
+    }
+    final CommandHandlerResolver resolver = resolve(CommandHandlerResolver.class);
+    final HandlerReference reference = resolver.resolveHandlerReference(cmd, qualifiers);
+    final Pair<Bean<?>, List<Annotation>> key = Pair.of(reference.bean, Arrays.asList(qualifiers));
+    final Lane lane = lanes.computeIfAbsent(key, k -> new Lane(reference, resolver.beanManager));
+    if (closed) {
+      // the lane may be created after the lanes were closed
+      lanes.remove(key, lane);
+      lane.close();
+      submission.future.completeExceptionally(
+          new RejectedExecutionException("The command pipeline was closed!"));
+      return forceCast(submission.future);
+    }
+    if (lane.queue.offer(submission)) {
+      lane.queued();
+    } else {
+      reject(lane, submission);
+    }
+    return forceCast(submission.future);
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    String executorName = getValue("corant.context.command.pipeline.executor-name", String.class);
+    executor = isBlank(executorName) ? resolve(ExecutorService.class)
+        : findNamed(ExecutorService.class, executorName)
+            .orElseThrow(() -> new CorantRuntimeException(
+                "Can't find the command pipeline executor named %s.", executorName));
+    queueCapacity = Math.max(
+        getValue("corant.context.command.pipeline.queue-capacity", Integer.class, 1024), 1);
+    maxBatchSize = Math.max(
+        getValue("corant.context.command.pipeline.max-batch-size", Integer.class, 256), 1);
+    maxLingerNanos = Math.max(getValue("corant.context.command.pipeline.max-linger",
+        Duration.class, Duration.ofMillis(5)).toNanos(), 0L);
+    rejectionPolicy = getValue("corant.context.command.pipeline.rejection-policy",
+        RejectionPolicy.class, RejectionPolicy.ABORT);
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    close();
+  }
+
+  protected void reject(Lane lane, Submission submission) {
+    switch (rejectionPolicy) {
+      case BLOCK:
+        try {
+          lane.queue.put(submission);
+          lane.queued();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          submission.future.completeExceptionally(e);
+        }
+        break;
+      case CALLER_RUNS:
+        lane.handle(singletonList(submission));
+        break;
+      case DISCARD_OLDEST:
+        do {
+          Submission oldest = lane.queue.poll();
+          if (oldest != null) {
+            oldest.future.completeExceptionally(new RejectedExecutionException(
+                "The command was discarded from the pipeline of " + lane.handlerClass));
+          }
+        } while (!lane.queue.offer(submission));
+        lane.queued();
+        break;
+      default:
+        submission.future.completeExceptionally(new RejectedExecutionException(
+            "The command was rejected, the pipeline of " + lane.handlerClass + " is full"));
+        break;
+    }
+  }
+
+  /**
+   * corant-context
+   * <p>
+   * The policy applied when the queue of a handler type is full.
+   *
+   * @author bingo 下午4:22:10
+   *
+   */
+  public enum RejectionPolicy {
+    /**
+     * Complete the command exceptionally with {@link RejectedExecutionException}.
+     */
+    ABORT,
+    /**
+     * Block the caller until the queue has space.
+     */
+    BLOCK,
+    /**
+     * Handle the command in the caller thread.
+     */
+    CALLER_RUNS,
+    /**
+     * Discard the oldest queued command, it is completed exceptionally with
+     * {@link RejectedExecutionException}, and then enqueue the command.
+     */
+    DISCARD_OLDEST
+  }
+
+  /**
+   * corant-context
+   * <p>
+   * The bounded command queue of a handler bean and handler qualifiers.
+   *
+   * @author bingo 下午4:25:02
+   *
+   */
+  protected class Lane implements Runnable {
+
+    final Class<?> handlerClass;
+    final CommandHandler<Object> handler;
+    final CreationalContext<?> dependentContext;
+    final BlockingQueue<Submission> queue;
+    final AtomicBoolean draining = new AtomicBoolean();
+    final AtomicBoolean released = new AtomicBoolean();
+
+    protected Lane(HandlerReference reference, BeanManager beanManager) {
+      handlerClass = reference.bean.getBeanClass();
+      if (Dependent.class.equals(reference.bean.getScope())) {
+        dependentContext = beanManager.createCreationalContext(reference.bean);
+        handler = reference.create(beanManager, dependentContext);
+      } else {
+        dependentContext = null;
+        handler = reference.get(beanManager);
+      }
+      queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public void run() {
+      do {
+        List<Submission> batch;
+        while (!(batch = collect()).isEmpty()) {
+          handle(batch);
+        }
+        draining.set(false);
+      } while (!closed && !queue.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    protected void close() {
+      clear();
+      if (dependentContext != null && released.compareAndSet(false, true)) {
+        dependentContext.release();
+      }
+    }
+
+    protected void clear() {
+      List<Submission> pending = new ArrayList<>();
+      queue.drainTo(pending);
+      pending.forEach(s -> s.future.completeExceptionally(
+          new RejectedExecutionException("The command pipeline was closed!")));
+    }
+
+    protected List<Submission> collect() {
+      List<Submission> batch = new ArrayList<>();
+      if (closed) {
+        return batch;
+      }
+      if (!(handler instanceof BatchCommandHandler)) {
+        Submission submission = queue.poll();
+        if (submission != null) {
+          batch.add(submission);
+        }
+        return batch;
+      }
+      queue.drainTo(batch, maxBatchSize);
+      if (!batch.isEmpty() && batch.size() < maxBatchSize && maxLingerNanos > 0) {
+        final long deadline = System.nanoTime() + maxLingerNanos;
+        try {
+          long remaining;
+          while (batch.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+            Submission submission = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (submission == null) {
+              break;
+            }
+            batch.add(submission);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return batch;
+    }
+
+    protected void handle(List<Submission> batch) {
+      if (handler instanceof BatchCommandHandler) {
+        List<Object> commands = new ArrayList<>(batch.size());
+        batch.forEach(s -> commands.add(s.command));
+        try {
+          List<?> results = ((BatchCommandHandler<Object>) handler).handleBatch(commands);
+          int size = results == null ? 0 : results.size();
+          for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(i < size ? results.get(i) : null);
+          }
+        } catch (Throwable t) {
+          batch.forEach(s -> s.future.completeExceptionally(t));
+        }
+      } else {
+        for (Submission submission : batch) {
+          try {
+            submission.future.complete(handler.handle(submission.command));
+          } catch (Throwable t) {
+            submission.future.completeExceptionally(t);
+          }
+        }
+      }
+    }
+
+    /**
+     * Schedule the draining after a command was queued, if the pipeline was closed meanwhile the
+     * lane may have been cleared before the command was queued, so clear it again.
+     */
+    protected void queued() {
+      if (closed) {
+        clear();
+      } else {
+        schedule();
+      }
+    }
+
+    protected void schedule() {
+      if (draining.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          draining.set(false);
+          logger.log(Level.WARNING, e,
+              () -> String.format("Can't drain the command pipeline of %s.", handlerClass));
+          clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午4:26:48
+   *
+   */
+  protected static class Submission {
+
+    final Object command;
+    final CompletableFuture<Object> future = new CompletableFuture<>();
+
+    protected Submission(Object command) {
+      this.command = command;
+    }
+  }
+}
@@ -133,6 +133,16 @@ public class Commander {
     return new AsyncCommandExecutor(executorService);
   }
 
+  /**
+   * Returns the CDI managed command pipeline that queues the commands per handler type and
+   * dispatches them in batches to the {@link BatchCommandHandler}.
+   *
+   * @see CommandPipeline
+   */
+  public static CommandPipeline pipeline() {
+    return resolve(CommandPipeline.class);
+  }
+
   /**
    * Returns an AsyncCommandExecutor that use managed executor service to accept or apply a
    * commands.
@@ -55,14 +55,23 @@ public class ContextualInvocationHandler extends ProxyInvocationHandler {
     return super.hashCode();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the method has no interceptors and has an implementation, the implementation is invoked
+   * directly without creating the interceptor invocation context.
+   */
   @Override
   public Object invoke(Object target, Method method, Object[] args) throws Throwable {
     List<InterceptorInvocation> interceptorInvocations = interceptorChains.get(method);
+    MethodInvoker methodInvoker = invokers.get(method);
     if (isNotEmpty(interceptorInvocations)) {
-      return new InvocationContextImpl(clazz, target, method, invokers.get(method), args,
+      return new InvocationContextImpl(clazz, target, method, methodInvoker, args,
           interceptorInvocations).proceed();
+    } else if (methodInvoker != null) {
+      return methodInvoker.invoke(target, args);
     } else {
-      return new InvocationContextImpl(clazz, target, method, invokers.get(method), args,
+      return new InvocationContextImpl(clazz, target, method, null, args,
           Collections.emptyList()).proceed();
     }
   }
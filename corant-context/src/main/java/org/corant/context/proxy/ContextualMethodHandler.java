@@ -15,11 +15,13 @@ package org.corant.context.proxy;
 
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Objects.defaultObject;
+import static org.corant.shared.util.Primitives.wrap;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -31,6 +33,7 @@ import java.util.Set;
 import java.util.function.Predicate;
 import org.corant.context.Beans;
 import org.corant.shared.util.Methods.MethodSignature;
+import org.corant.shared.util.Objects;
 
 /**
  * corant-context
@@ -48,7 +51,8 @@ public class ContextualMethodHandler implements Serializable {
 
   protected Annotation[] qualifiers;
   protected Class<?> clazz;
-  protected transient Method method; // ?? use java.lang.invoke.MethodHandle
+  protected transient Method method;
+  protected transient volatile MethodHandle methodHandle;
   protected MethodSignature methodSignature;
 
   public ContextualMethodHandler(Method method, Annotation... qualifiers) {
@@ -152,9 +156,56 @@ public class ContextualMethodHandler implements Serializable {
     return prime * result + (method == null ? 0 : method.hashCode());
   }
 
+  /**
+   * Resolve the contextual bean instance and invoke the method through a method handle that bound
+   * at the first invocation, the exception thrown by the method is wrapped into an
+   * {@link InvocationTargetException} like {@link Method#invoke(Object, Object...)}, the errors
+   * are thrown as is.
+   *
+   * @param parameters the method parameters
+   * @throws IllegalAccessException if the method can't be accessed
+   * @throws IllegalArgumentException if the resolved instance or the parameters don't match the
+   *         method
+   * @throws InvocationTargetException if the underlying method throws an exception
+   */
   public Object invoke(Object... parameters)
       throws IllegalAccessException, InvocationTargetException {
-    return method.invoke(Beans.resolve(clazz, qualifiers), parameters);
+    MethodHandle handle = methodHandle;
+    if (handle == null) {
+      methodHandle = handle = MethodInvoker.spread(method);
+    }
+    final Object instance = Beans.resolve(clazz, qualifiers);
+    final Object[] arguments = parameters == null ? Objects.EMPTY_ARRAY : parameters;
+    checkArguments(instance, arguments);
+    try {
+      return handle.invokeExact(instance, arguments);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  /**
+   * Checks the invocation target and arguments before invoking the method handle, so that the
+   * {@link ClassCastException} or {@link IllegalArgumentException} thrown by the adapted method
+   * handle are not mistaken for the exceptions thrown by the method.
+   */
+  protected void checkArguments(Object instance, Object[] arguments) {
+    if (!Modifier.isStatic(method.getModifiers())
+        && !method.getDeclaringClass().isInstance(instance)) {
+      throw new IllegalArgumentException("The object is not an instance of declaring class");
+    }
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    if (parameterTypes.length != arguments.length) {
+      throw new IllegalArgumentException("Wrong number of arguments");
+    }
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (arguments[i] == null ? parameterTypes[i].isPrimitive()
+          : !wrap(parameterTypes[i]).isInstance(arguments[i])) {
+        throw new IllegalArgumentException("Argument type mismatch");
+      }
+    }
   }
 
   private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -13,6 +13,12 @@
  */
 package org.corant.context.proxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
 /**
  * corant-context
  *
@@ -24,5 +30,39 @@ package org.corant.context.proxy;
  */
 @FunctionalInterface
 public interface MethodInvoker {
+
+  /**
+   * Returns a method handle of the given method that adapted to the type (Object,Object[])Object,
+   * the first argument is the invocation target, it is ignored if the method is static, the
+   * trailing array argument is spread into the method parameters. If the method is not accessible
+   * it will be set accessible.
+   *
+   * @param method the method to unreflect
+   * @throws IllegalAccessException if the method can't be accessed
+   */
+  static MethodHandle spread(Method method) throws IllegalAccessException {
+    method.setAccessible(true);
+    MethodHandle handle = MethodHandles.lookup().unreflect(method);
+    if (Modifier.isStatic(method.getModifiers())) {
+      return MethodHandles.dropArguments(
+          handle.asFixedArity().asSpreader(Object[].class, method.getParameterCount())
+              .asType(MethodType.methodType(Object.class, Object[].class)),
+          0, Object.class);
+    }
+    return spread(handle, method.getParameterCount());
+  }
+
+  /**
+   * Adapts the given instance method handle to the type (Object,Object[])Object, the trailing
+   * array argument is spread into the method parameters.
+   *
+   * @param handle the method handle which the first parameter is the invocation target
+   * @param parameterCount the number of the method parameters excluding the target
+   */
+  static MethodHandle spread(MethodHandle handle, int parameterCount) {
+    return handle.asFixedArity().asSpreader(Object[].class, parameterCount)
+        .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+  }
+
   Object invoke(Object target, Object[] args);
 }
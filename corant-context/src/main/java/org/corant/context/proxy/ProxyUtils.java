@@ -37,6 +37,7 @@ import javax.enterprise.inject.spi.InterceptionType;
 import javax.enterprise.inject.spi.Interceptor;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.util.Classes;
+import org.corant.shared.util.Objects;
 
 /**
  * corant-context
@@ -179,25 +180,29 @@ public class ProxyUtils {
    */
   public static Object invokeDefaultMethod(Object target, Method method, Object[] args) {
     try {
+      // the cached handle is spread and adapted to (Object,Object[])Object
+      final Object[] arguments = args == null ? Objects.EMPTY_ARRAY : args;
       return defaultMethodHandleCache.computeIfAbsent(method, m -> {
         try {
+          MethodHandle handle;
           if (Classes.CLASS_VERSION <= 52) {
             Class<?> declaringClass = method.getDeclaringClass();
             Constructor<MethodHandles.Lookup> constructor =
                 MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
             constructor.setAccessible(true);
-            return constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE)
+            handle = constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE)
                 .in(declaringClass).unreflectSpecial(method, declaringClass);
           } else {
             MethodType methodType =
                 MethodType.methodType(method.getReturnType(), method.getParameterTypes());
-            return MethodHandles.lookup().findSpecial(method.getDeclaringClass(), method.getName(),
-                methodType, method.getDeclaringClass());
+            handle = MethodHandles.lookup().findSpecial(method.getDeclaringClass(),
+                method.getName(), methodType, method.getDeclaringClass());
           }
+          return MethodInvoker.spread(handle, method.getParameterCount());
         } catch (Throwable e) {
           throw new CorantRuntimeException(e);
         }
-      }).bindTo(target).invokeWithArguments(args);
+      }).invokeExact(target, arguments);
     } catch (Throwable e) {
       throw new CorantRuntimeException(e);
     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context;
+
+import static java.util.Collections.singletonList;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.literal.NamedLiteral;
+import javax.inject.Singleton;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午3:02:51
+ *
+ */
+public class BeansTest extends TestCase {
+
+  StubBeanManager beanManager;
+
+  @Test
+  public void testResolveCached() {
+    beanManager.register(SingletonBean.class, Singleton.class, SingletonBean::new,
+        singletonList(SingletonBean.class));
+    beanManager.register(ScopedBean.class, ApplicationScoped.class, ScopedBean::new,
+        singletonList(ScopedBean.class));
+    SingletonBean bean = Beans.resolve(SingletonBean.class);
+    assertSame(bean, Beans.resolve(SingletonBean.class));
+    assertSame(Beans.resolveCached(ScopedBean.class), Beans.resolveCached(ScopedBean.class));
+    assertEquals(2, beanManager.getReferences());
+    // the cache is cleared when the container starts or shuts down
+    Beans.clearResolutionCache();
+    assertNotSame(bean, Beans.resolve(SingletonBean.class));
+    assertEquals(3, beanManager.getReferences());
+  }
+
+  @Test
+  public void testResolveCachedQualified() {
+    beanManager.register(SingletonBean.class, Singleton.class, SingletonBean::new,
+        singletonList(SingletonBean.class));
+    beanManager.register(SingletonBean.class, Singleton.class, SingletonBean::new,
+        singletonList(SingletonBean.class), NamedLiteral.of("q"));
+    SingletonBean named = Beans.resolveCached(SingletonBean.class, NamedLiteral.of("q"));
+    assertNotNull(named);
+    assertSame(named, Beans.resolveCached(SingletonBean.class, NamedLiteral.of("q")));
+    assertNotSame(named, Beans.resolveCached(SingletonBean.class));
+    assertNull(Beans.resolveCached(SingletonBean.class, NamedLiteral.of("x")));
+  }
+
+  @Test
+  public void testResolveUncacheable() {
+    beanManager.register(DependentBean.class, Dependent.class, DependentBean::new,
+        singletonList(DependentBean.class));
+    // the dependent beans and the unsatisfied beans are resolved by the caller
+    assertNull(Beans.resolveCached(DependentBean.class));
+    assertNull(Beans.resolveCached(DependentBean.class));
+    assertNull(Beans.resolveCached(SingletonBean.class));
+    assertEquals(0, beanManager.getReferences());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    beanManager = new StubBeanManager();
+    StubCDI.install(beanManager.get());
+    Beans.clearResolutionCache();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    Beans.clearResolutionCache();
+  }
+
+  static class DependentBean {
+  }
+
+  static class ScopedBean {
+  }
+
+  static class SingletonBean {
+  }
+}
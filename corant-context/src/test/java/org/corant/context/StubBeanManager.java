@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context;
+
+import static java.util.Arrays.asList;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.AmbiguousResolutionException;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+/**
+ * corant-context
+ * <p>
+ * A minimal bean manager for the unit tests, it resolves the registered beans by type and exactly
+ * the same qualifiers, treats {@link ApplicationScoped} as the only normal scope and counts the
+ * contextual references it creates.
+ *
+ * @author bingo 下午2:18:44
+ *
+ */
+public class StubBeanManager {
+
+  protected final Map<Bean<?>, Supplier<?>> factories = new HashMap<>();
+  protected final Map<Bean<?>, Set<Type>> types = new HashMap<>();
+  protected final Map<Bean<?>, Set<Annotation>> qualifiers = new HashMap<>();
+  protected final AtomicInteger references = new AtomicInteger();
+  protected final BeanManager beanManager = (BeanManager) Proxy.newProxyInstance(
+      StubBeanManager.class.getClassLoader(), new Class<?>[] {BeanManager.class},
+      (p, m, args) -> {
+        switch (m.getName()) {
+          case "getBeans":
+            return getBeans((Type) args[0], (Annotation[]) args[1]);
+          case "resolve":
+            return resolve((Set<?>) args[0]);
+          case "isNormalScope":
+            return ApplicationScoped.class.equals(args[0]);
+          case "createCreationalContext":
+            return Proxy.newProxyInstance(StubBeanManager.class.getClassLoader(),
+                new Class<?>[] {CreationalContext.class}, (cp, cm, cargs) -> null);
+          case "getReference":
+            Object reference = factories.get(args[0]).get();
+            references.incrementAndGet();
+            return reference;
+          default:
+            throw new UnsupportedOperationException(m.getName());
+        }
+      });
+
+  public BeanManager get() {
+    return beanManager;
+  }
+
+  public int getReferences() {
+    return references.get();
+  }
+
+  /**
+   * Register a bean with the given bean class, scope, reference factory, bean types and qualifiers.
+   */
+  public Bean<?> register(Class<?> beanClass, Class<? extends Annotation> scope,
+      Supplier<?> factory, Collection<Type> beanTypes, Annotation... beanQualifiers) {
+    Bean<?> bean = (Bean<?>) Proxy.newProxyInstance(StubBeanManager.class.getClassLoader(),
+        new Class<?>[] {Bean.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getBeanClass":
+              return beanClass;
+            case "getScope":
+              return scope;
+            case "isAlternative":
+              return false;
+            case "hashCode":
+              return System.identityHashCode(p);
+            case "equals":
+              return p == args[0];
+            case "toString":
+              return "Bean " + beanClass.getSimpleName();
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+    factories.put(bean, factory);
+    types.put(bean, new HashSet<>(beanTypes));
+    qualifiers.put(bean, new HashSet<>(asList(beanQualifiers)));
+    return bean;
+  }
+
+  protected Set<Bean<?>> getBeans(Type type, Annotation... required) {
+    Set<Bean<?>> beans = new LinkedHashSet<>();
+    types.forEach((b, t) -> {
+      Set<Annotation> given = required == null ? new HashSet<>() : new HashSet<>(asList(required));
+      if (t.contains(type) && qualifiers.get(b).equals(given)) {
+        beans.add(b);
+      }
+    });
+    return beans;
+  }
+
+  protected Bean<?> resolve(Set<?> beans) {
+    if (beans.isEmpty()) {
+      return null;
+    }
+    if (beans.size() > 1) {
+      throw new AmbiguousResolutionException(beans.toString());
+    }
+    return (Bean<?>) beans.iterator().next();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context;
+
+import java.lang.annotation.Annotation;
+import java.util.Iterator;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.util.TypeLiteral;
+
+/**
+ * corant-context
+ * <p>
+ * A CDI stub that only provides the bean manager, use {@link #install(BeanManager)} to make it the
+ * current CDI of the unit tests.
+ *
+ * @author bingo 下午3:08:27
+ *
+ */
+public class StubCDI extends CDI<Object> {
+
+  final BeanManager beanManager;
+
+  public StubCDI(BeanManager beanManager) {
+    this.beanManager = beanManager;
+  }
+
+  public static void install(BeanManager beanManager) {
+    final StubCDI cdi = new StubCDI(beanManager);
+    CDI.setCDIProvider(() -> cdi);
+  }
+
+  @Override
+  public void destroy(Object instance) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Object get() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BeanManager getBeanManager() {
+    return beanManager;
+  }
+
+  @Override
+  public boolean isAmbiguous() {
+    return false;
+  }
+
+  @Override
+  public boolean isUnsatisfied() {
+    return false;
+  }
+
+  @Override
+  public Iterator<Object> iterator() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Instance<Object> select(Annotation... qualifiers) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public <U> Instance<U> select(Class<U> subtype, Annotation... qualifiers) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public <U> Instance<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+    throw new UnsupportedOperationException();
+  }
+}
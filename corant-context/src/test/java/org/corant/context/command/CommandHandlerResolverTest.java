@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.command;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.AmbiguousResolutionException;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.enterprise.inject.literal.NamedLiteral;
+import javax.inject.Singleton;
+import org.corant.context.StubBeanManager;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午2:36:12
+ *
+ */
+public class CommandHandlerResolverTest extends TestCase {
+
+  StubBeanManager beanManager;
+  CommandExtension extension;
+  CommandHandlerResolver resolver;
+  final AtomicBoolean failing = new AtomicBoolean(true);
+
+  @Test
+  public void testAmbiguousHandlersReportedOnUse() {
+    register(CmdB.class, OtherHandlerB.class, Dependent.class);
+    resolver.onPostConstruct();
+    assertNotNull(resolver.resolve(new CmdA()));
+    try {
+      resolver.resolve(new CmdB());
+      fail();
+    } catch (AmbiguousResolutionException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDependentHandlersCreatedOnEachUse() {
+    resolver.onPostConstruct();
+    CommandHandler<CmdB> first = resolver.resolve(new CmdB());
+    CommandHandler<CmdB> second = resolver.resolve(new CmdB());
+    assertNotSame(first, second);
+    assertEquals(2, beanManager.getReferences());
+  }
+
+  @Test
+  public void testFailingHandlerDoesNotBreakOthers() {
+    resolver.onPostConstruct();
+    try {
+      resolver.resolve(new CmdC());
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertNotNull(resolver.resolve(new CmdA()));
+    // the reference is obtained again once the handler can be created
+    failing.set(false);
+    CommandHandler<CmdC> handler = resolver.resolve(new CmdC());
+    assertSame(handler, resolver.resolve(new CmdC()));
+  }
+
+  @Test
+  public void testQualifiedHandlers() {
+    beanManager.register(HandlerA.class, Singleton.class, HandlerA::new,
+        singletonList(HandlerA.class), NamedLiteral.of("q"));
+    resolver.onPostConstruct();
+    try {
+      resolver.resolve(new CmdB(), NamedLiteral.of("q"));
+      fail();
+    } catch (UnsatisfiedResolutionException e) {
+      // expected
+    }
+    CommandHandler<CmdA> handler = resolver.resolve(new CmdA(), NamedLiteral.of("q"));
+    assertSame(handler, resolver.resolve(new CmdA(), NamedLiteral.of("q")));
+    assertNotSame(handler, resolver.resolve(new CmdA()));
+    assertEquals(4, resolver.handlers.size());
+  }
+
+  @Test
+  public void testTablePrecomputedWithoutInstantiation() {
+    resolver.onPostConstruct();
+    assertEquals(3, resolver.handlers.size());
+    assertTrue(resolver.handlers.keySet()
+        .containsAll(new HashSet<>(asList(CmdA.class, CmdB.class, CmdC.class))));
+    assertEquals(0, beanManager.getReferences());
+    CommandHandler<CmdA> handler = resolver.resolve(new CmdA());
+    assertSame(handler, resolver.resolve(new CmdA()));
+    assertEquals(1, beanManager.getReferences());
+    try {
+      resolver.resolve(new Object());
+      fail();
+    } catch (UnsatisfiedResolutionException e) {
+      // expected
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected void setUp() throws Exception {
+    beanManager = new StubBeanManager();
+    extension = new CommandExtension();
+    register(CmdA.class, HandlerA.class, Singleton.class);
+    register(CmdB.class, HandlerB.class, Dependent.class);
+    register(CmdC.class, HandlerC.class, ApplicationScoped.class);
+    resolver = new CommandHandlerResolver();
+    resolver.beanManager = beanManager.get();
+    resolver.extension = extension;
+    resolver.validators = (Instance<CommandValidator>) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {Instance.class}, (p, m, args) -> {
+          if ("isResolvable".equals(m.getName())) {
+            return false;
+          }
+          throw new UnsupportedOperationException(m.getName());
+        });
+  }
+
+  void register(Class<?> cmdClass, Class<? extends CommandHandler<?>> handlerClass,
+      Class<? extends Annotation> scope) {
+    extension.commandAndHandler.computeIfAbsent(cmdClass, k -> new HashSet<>()).add(handlerClass);
+    beanManager.register(handlerClass, scope, () -> {
+      try {
+        if (handlerClass == HandlerC.class && failing.get()) {
+          throw new IllegalStateException("Can't create handler");
+        }
+        return handlerClass.getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(e);
+      }
+    }, singletonList(handlerClass));
+  }
+
+  static class CmdA {
+  }
+
+  static class CmdB {
+  }
+
+  static class CmdC {
+  }
+
+  static class HandlerA implements CommandHandler<CmdA> {
+    @Override
+    public Object handle(CmdA command) {
+      return "A";
+    }
+  }
+
+  static class HandlerB implements CommandHandler<CmdB> {
+    @Override
+    public Object handle(CmdB command) {
+      return "B";
+    }
+  }
+
+  static class HandlerC implements CommandHandler<CmdC> {
+    @Override
+    public Object handle(CmdC command) {
+      return "C";
+    }
+  }
+
+  static class OtherHandlerB implements CommandHandler<CmdB> {
+    @Override
+    public Object handle(CmdB command) {
+      return "B2";
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.command;
+
+import static java.util.Collections.singletonList;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.enterprise.inject.Instance;
+import javax.inject.Singleton;
+import org.corant.context.Beans;
+import org.corant.context.StubBeanManager;
+import org.corant.context.StubCDI;
+import org.corant.context.command.CommandPipeline.RejectionPolicy;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午4:06:18
+ *
+ */
+public class CommandPipelineTest extends TestCase {
+
+  static final long TIMEOUT_SECONDS = 10;
+
+  final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+  final List<String> threads = new CopyOnWriteArrayList<>();
+  volatile CountDownLatch gate = new CountDownLatch(0);
+  volatile CountDownLatch entered = new CountDownLatch(1);
+  ExecutorService executor;
+
+  static Object await(CompletableFuture<?> future) throws Exception {
+    return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  static void assertRejected(CompletableFuture<?> future) throws Exception {
+    try {
+      await(future);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test
+  public void testBatching() throws Exception {
+    CommandPipeline pipeline = pipeline(1024, 4, RejectionPolicy.ABORT);
+    gate = new CountDownLatch(1);
+    List<CompletableFuture<Object>> futures = new ArrayList<>();
+    futures.add(submit(pipeline, new BatchCmd(0)));
+    assertTrue(entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    for (int i = 1; i < 11; i++) {
+      futures.add(submit(pipeline, new BatchCmd(i)));
+    }
+    gate.countDown();
+    for (int i = 0; i < futures.size(); i++) {
+      assertEquals(i * 10, await(futures.get(i)));
+    }
+    // the first command was drained alone, the queued ones are coalesced in submission order
+    List<Integer> handled = new ArrayList<>();
+    for (List<Integer> batch : batches) {
+      assertTrue(batch.size() <= 4);
+      handled.addAll(batch);
+    }
+    assertEquals(singletonList(0), batches.get(0));
+    assertTrue(batches.size() <= 4);
+    for (int i = 0; i < handled.size(); i++) {
+      assertEquals(Integer.valueOf(i), handled.get(i));
+    }
+    pipeline.close();
+  }
+
+  @Test
+  public void testConcurrentSubmitAndClose() throws Exception {
+    ExecutorService submitters = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 50; round++) {
+        CommandPipeline pipeline = pipeline(8, 4, RejectionPolicy.BLOCK);
+        List<CompletableFuture<Object>> futures = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+          final int base = t * 1000;
+          tasks.add(submitters.submit(() -> {
+            started.countDown();
+            for (int i = 0; i < 200; i++) {
+              Object cmd = i % 2 == 0 ? new Cmd(base + i) : new BatchCmd(base + i);
+              futures.add(submit(pipeline, cmd));
+            }
+          }));
+        }
+        started.await();
+        pipeline.close();
+        for (Future<?> task : tasks) {
+          task.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertTrue(pipeline.lanes.isEmpty());
+        // every command is either handled or rejected, none is left pending
+        for (CompletableFuture<Object> future : futures) {
+          try {
+            await(future);
+          } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+          } catch (TimeoutException e) {
+            fail("A command was left pending in round " + round);
+          }
+        }
+      }
+    } finally {
+      submitters.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRejectionPolicies() throws Exception {
+    // ABORT
+    CommandPipeline pipeline = blocked(RejectionPolicy.ABORT);
+    CompletableFuture<Object> q1 = submit(pipeline, new Cmd(1));
+    CompletableFuture<Object> q2 = submit(pipeline, new Cmd(2));
+    assertRejected(submit(pipeline, new Cmd(3)));
+    gate.countDown();
+    assertEquals(10, await(q1));
+    assertEquals(20, await(q2));
+    pipeline.close();
+    // CALLER_RUNS
+    pipeline = blocked(RejectionPolicy.CALLER_RUNS);
+    submit(pipeline, new Cmd(1));
+    submit(pipeline, new Cmd(2));
+    threads.clear();
+    assertEquals(30, await(submit(pipeline, new Cmd(3))));
+    assertEquals(singletonList(Thread.currentThread().getName()), threads);
+    gate.countDown();
+    pipeline.close();
+    // DISCARD_OLDEST
+    pipeline = blocked(RejectionPolicy.DISCARD_OLDEST);
+    q1 = submit(pipeline, new Cmd(1));
+    q2 = submit(pipeline, new Cmd(2));
+    CompletableFuture<Object> q3 = submit(pipeline, new Cmd(3));
+    assertRejected(q1);
+    gate.countDown();
+    assertEquals(20, await(q2));
+    assertEquals(30, await(q3));
+    pipeline.close();
+    // BLOCK
+    final CommandPipeline blocking = blocked(RejectionPolicy.BLOCK);
+    submit(blocking, new Cmd(1));
+    submit(blocking, new Cmd(2));
+    CompletableFuture<CompletableFuture<Object>> blocked =
+        CompletableFuture.supplyAsync(() -> submit(blocking, new Cmd(3)));
+    Thread.sleep(50);
+    assertFalse(blocked.isDone());
+    gate.countDown();
+    assertEquals(30, await(blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)));
+    blocking.close();
+  }
+
+  @Test
+  public void testSubmitAfterClose() throws Exception {
+    CommandPipeline pipeline = blocked(RejectionPolicy.ABORT);
+    CompletableFuture<Object> queued = submit(pipeline, new Cmd(1));
+    pipeline.close();
+    assertRejected(queued);
+    // doesn't throw, returns a failed stage
+    assertRejected(submit(pipeline, new Cmd(2)));
+    assertRejected(submit(pipeline, new BatchCmd(3)));
+    assertTrue(pipeline.lanes.isEmpty());
+    gate.countDown();
+  }
+
+  /**
+   * Returns a pipeline with queue capacity 2, the lane of {@link Cmd} is blocked in handling the
+   * first command until the gate is opened.
+   */
+  CommandPipeline blocked(RejectionPolicy policy) throws Exception {
+    CommandPipeline pipeline = pipeline(2, 4, policy);
+    gate = new CountDownLatch(1);
+    entered = new CountDownLatch(1);
+    submit(pipeline, new Cmd(0));
+    assertTrue(entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    return pipeline;
+  }
+
+  CommandPipeline pipeline(int capacity, int maxBatchSize, RejectionPolicy policy) {
+    return new CommandPipeline(executor, capacity, maxBatchSize, Duration.ofMillis(1), policy);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected void setUp() throws Exception {
+    executor = Executors.newFixedThreadPool(4);
+    StubBeanManager beanManager = new StubBeanManager();
+    CommandExtension extension = new CommandExtension();
+    extension.commandAndHandler.put(Cmd.class, new HashSet<>(singletonList(CmdHandler.class)));
+    extension.commandAndHandler.put(BatchCmd.class,
+        new HashSet<>(singletonList(BatchCmdHandler.class)));
+    CommandHandlerResolver resolver = new CommandHandlerResolver();
+    resolver.beanManager = beanManager.get();
+    resolver.extension = extension;
+    resolver.validators = (Instance<CommandValidator>) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {Instance.class}, (p, m, args) -> {
+          if ("isResolvable".equals(m.getName())) {
+            return false;
+          }
+          throw new UnsupportedOperationException(m.getName());
+        });
+    beanManager.register(CommandHandlerResolver.class, Singleton.class, () -> resolver,
+        singletonList(CommandHandlerResolver.class));
+    beanManager.register(CmdHandler.class, Singleton.class, () -> new CmdHandler(this),
+        singletonList(CmdHandler.class));
+    beanManager.register(BatchCmdHandler.class, Singleton.class, () -> new BatchCmdHandler(this),
+        singletonList(BatchCmdHandler.class));
+    StubCDI.install(beanManager.get());
+    Beans.clearResolutionCache();
+  }
+
+  CompletableFuture<Object> submit(CommandPipeline pipeline, Object cmd) {
+    return pipeline.<Object, Object>submit(cmd).toCompletableFuture();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    gate.countDown();
+    executor.shutdownNow();
+    Beans.clearResolutionCache();
+  }
+
+  void pass() {
+    entered.countDown();
+    try {
+      gate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  static class BatchCmd {
+    final int value;
+
+    BatchCmd(int value) {
+      this.value = value;
+    }
+  }
+
+  static class BatchCmdHandler implements BatchCommandHandler<BatchCmd> {
+    final CommandPipelineTest test;
+
+    BatchCmdHandler(CommandPipelineTest test) {
+      this.test = test;
+    }
+
+    @Override
+    public List<?> handleBatch(List<BatchCmd> commands) {
+      test.pass();
+      List<Integer> values = new ArrayList<>();
+      List<Integer> results = new ArrayList<>();
+      for (BatchCmd cmd : commands) {
+        values.add(cmd.value);
+        results.add(cmd.value * 10);
+      }
+      test.batches.add(values);
+      return results;
+    }
+  }
+
+  static class Cmd {
+    final int value;
+
+    Cmd(int value) {
+      this.value = value;
+    }
+  }
+
+  static class CmdHandler implements CommandHandler<Cmd> {
+    final CommandPipelineTest test;
+
+    CmdHandler(CommandPipelineTest test) {
+      this.test = test;
+    }
+
+    @Override
+    public Object handle(Cmd command) {
+      test.threads.add(Thread.currentThread().getName());
+      if (command.value == 0) {
+        test.pass();
+      }
+      return command.value * 10;
+    }
+  }
+}
@@ -17,6 +17,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -30,6 +35,10 @@ import org.jboss.jandex.Indexer;
 
 /**
  * corant-devops-maven-jandex
+ * <p>
+ * Build the jandex index of the classes and the resource index of all the files in the build
+ * output directory, the jandex index is used by the CDI container to discover the beans and the
+ * resource index is used by the class path resource scanner in index mode.
  *
  * @author bingo 下午3:55:35
  *
@@ -37,6 +46,9 @@ import org.jboss.jandex.Indexer;
 @Mojo(name = "jandex", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, threadSafe = true)
 public class Jandexer extends AbstractMojo {
 
+  public static final String JANDEX_INDEX = "META-INF/jandex.idx";
+  public static final String RESOURCE_INDEX = "META-INF/corant-resources.idx";
+
   @Parameter(defaultValue = "${project}", readonly = true)
   protected MavenProject project;
 
@@ -53,12 +65,17 @@ public class Jandexer extends AbstractMojo {
       return;
     }
     final Indexer indexer = new Indexer();
+    final List<String> resources = new ArrayList<>();
     final DirectoryScanner scanner = new DirectoryScanner();
     getLog().debug(
         "(corant) start index classes files with jandex, the directory is " + clsDir.getPath());
     scanner.setBasedir(clsDir);
     scanner.scan();
     for (final String file : scanner.getIncludedFiles()) {
+      final String resource = file.replace(File.separatorChar, '/');
+      if (!JANDEX_INDEX.equals(resource) && !RESOURCE_INDEX.equals(resource)) {
+        resources.add(resource);
+      }
       if (file.endsWith(".class")) {
         try (FileInputStream fis = new FileInputStream(new File(clsDir, file))) {
           getLog().debug("(corant) indexing file " + file);
@@ -68,7 +85,7 @@ public class Jandexer extends AbstractMojo {
         }
       }
     }
-    File idxFile = new File(clsDir, "META-INF/jandex.idx");
+    File idxFile = new File(clsDir, JANDEX_INDEX);
     idxFile.getParentFile().mkdirs();
     getLog().info("(corant) building index file: " + idxFile.getPath() + " with jandex.");
     try (FileOutputStream indexOut = new FileOutputStream(idxFile)) {
@@ -77,6 +94,19 @@ public class Jandexer extends AbstractMojo {
     } catch (IOException e) {
       getLog().warn(e);
     }
+    // the index files are class path resources too, list them like the other build outputs
+    if (idxFile.isFile()) {
+      resources.add(JANDEX_INDEX);
+    }
+    resources.add(RESOURCE_INDEX);
+    File resIdxFile = new File(clsDir, RESOURCE_INDEX);
+    getLog().info("(corant) building resource index file: " + resIdxFile.getPath());
+    Collections.sort(resources);
+    try {
+      Files.write(resIdxFile.toPath(), resources, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      getLog().warn(e);
+    }
   }
 
 }
@@ -21,10 +21,15 @@ import static org.corant.shared.util.MBeans.registerToMBean;
 import static org.corant.shared.util.Objects.max;
 import static org.corant.shared.util.Strings.EMPTY;
 import static org.corant.shared.util.Strings.NEWLINE;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.net.URL;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -54,6 +59,7 @@ import org.corant.kernel.spi.CorantBootHandler;
 import org.corant.kernel.util.CommandLine;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.normal.Defaults;
+import org.corant.shared.resource.ClassPathResourceScanner;
 import org.corant.shared.ubiquity.Configurator;
 import org.corant.shared.ubiquity.Sortable;
 import org.corant.shared.util.Annotations;
@@ -62,6 +68,7 @@ import org.corant.shared.util.Launches;
 import org.corant.shared.util.Services;
 import org.corant.shared.util.StopWatch;
 import org.corant.shared.util.Strings;
+import org.corant.shared.util.Systems;
 import org.corant.shared.util.Threads;
 
 /**
@@ -83,6 +90,13 @@ import org.corant.shared.util.Threads;
  * </ul>
  *
  * <p>
+ * If the arguments contain {@link #USE_BUILD_INDEX_CMD}, the class path resource scanners read the
+ * build-time resource index generated by the corant jandex maven plugin of each class path entry
+ * instead of walking it, the entries without the index are still scanned. On the CDI side the
+ * argument only reports the bean archives without the jandex index, since Weld already discovers
+ * the beans with the jandex index of each bean archive by default when jandex is present.
+ *
+ * <p>
  * In most circumstances the static {@link #startup(Class, String[])} method can be called directly
  * from your {@literal main} method to bootstrap your application:
  *
@@ -152,6 +166,8 @@ public class Corant implements AutoCloseable {
   public static final String DISABLE_AFTER_STARTED_HANDLER_CMD = "-disable_after_started_handler";
   public static final String DISABLE_AFTER_STOPPED_HANDLER_CMD = "-disable_after_stopped_handler";
   public static final String REGISTER_TO_MBEAN_CMD = "-register_to_mbean";
+  public static final String USE_BUILD_INDEX_CMD = "-use_build_index";
+  public static final String JANDEX_INDEX = "META-INF/jandex.idx";
   public static final String APP_NAME = applicationName();
   public static final String POWER_MBEAN_NAME = APP_NAME + ":type=kernel,name=Power";
 
@@ -662,6 +678,9 @@ public class Corant implements AutoCloseable {
       if (CommandLine.parse(ENABLE_ACCESS_WARNINGS, arguments) != null) {
         LoggerFactory.disableAccessWarnings();
       }
+      if (isUseBuildIndex()) {
+        Systems.setProperty(ClassPathResourceScanner.USE_RESOURCE_INDEX_PROPERTY, "true");
+      }
       invokeBootHandlerBeforeStart();
       stopWatch.stop(t -> {
         Defaults.CORANT_VERSION.ifPresent(v -> logInfo("Corant Version: %s", v));
@@ -686,6 +705,9 @@ public class Corant implements AutoCloseable {
       if (beanClasses != null) {
         initializer.addBeanClasses(beanClasses);
       }
+      if (isUseBuildIndex()) {
+        logIndexedArchives();
+      }
       if (preInitializer != null) {
         preInitializer.accept(initializer);
       }
@@ -701,6 +723,26 @@ public class Corant implements AutoCloseable {
     }
   }
 
+  boolean isUseBuildIndex() {
+    return CommandLine.parse(USE_BUILD_INDEX_CMD, arguments) != null;
+  }
+
+  void logIndexedArchives() throws IOException {
+    Set<String> indexed = new HashSet<>();
+    for (URL url : Collections.list(classLoader.getResources(JANDEX_INDEX))) {
+      indexed.add(url.toExternalForm().replace(JANDEX_INDEX, EMPTY));
+    }
+    int unindexed = 0;
+    for (URL url : Collections.list(classLoader.getResources("META-INF/beans.xml"))) {
+      if (!indexed.contains(url.toExternalForm().replace("META-INF/beans.xml", EMPTY))) {
+        unindexed++;
+        log(Level.FINE, null, "The bean archive %s has no build index.", url);
+      }
+    }
+    logInfo("Boot with build index, %s archives are indexed, %s bean archives will be scanned.",
+        indexed.size(), unindexed);
+  }
+
   void registerMBean() {
     if (CommandLine.parse(REGISTER_TO_MBEAN_CMD, arguments) == null) {
       return;
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import static org.corant.shared.util.Empties.isEmpty;
+import static org.corant.shared.util.Objects.forceCast;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.corant.shared.conversion.Converter;
+import org.corant.shared.conversion.Converters;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.util.Conversions;
+import org.corant.shared.util.Primitives;
+
+/**
+ * corant-modules-datasource-shared
+ * <p>
+ * A row mapper that writes the column values of the result set directly into the instances of the
+ * given bean class without the intermediate row map stage.
+ * <p>
+ * The writable properties of the bean class (the public single argument setters and the non-static
+ * non-final fields of the class hierarchy) are resolved once per bean class and bound to method
+ * handles, the column labels are matched with the property names case-insensitively. For each
+ * column set of the result set a mapping plan is built once, it contains the property writer and
+ * the {@link DbUtilBasicFieldProcessor} of each column, the {@link Converter} of each column is
+ * looked up with the first value class and cached in the plan. The unmapped columns are ignored.
+ * <p>
+ * Note: The bean class must have a no-argument constructor, the column value is written to the
+ * property as is if it is an instance of the property type otherwise it is converted, the null
+ * value is not written to a primitive property.
+ *
+ * @author bingo 下午5:06:12
+ *
+ */
+public class DbUtilBeanRowMapper<T> {
+
+  protected static final Map<Class<?>, DbUtilBeanRowMapper<?>> mappers =
+      new ConcurrentHashMap<>();
+
+  protected final Class<T> beanClass;
+  protected final MethodHandle constructor;
+  protected final Map<String, PropertyWriter> writers;
+  protected final Map<String, ColumnPlan> plans = new ConcurrentHashMap<>();
+
+  protected DbUtilBeanRowMapper(Class<T> beanClass) {
+    this.beanClass = beanClass;
+    constructor = resolveConstructor(beanClass);
+    writers = resolveWriters(beanClass);
+  }
+
+  public static <T> DbUtilBeanRowMapper<T> of(Class<T> beanClass) {
+    return forceCast(mappers.computeIfAbsent(beanClass, DbUtilBeanRowMapper::new));
+  }
+
+  public Class<T> getBeanClass() {
+    return beanClass;
+  }
+
+  /**
+   * Returns a handler that maps the first row of the result set to a bean or null if there are no
+   * rows.
+   */
+  public ResultSetHandler<T> handler() {
+    return rs -> rs.next() ? toBean(rs, resolvePlan(rs.getMetaData())) : null;
+  }
+
+  /**
+   * Returns a handler that maps all rows of the result set to a bean list
+   */
+  public ResultSetHandler<List<T>> listHandler() {
+    return rs -> {
+      List<T> results = new ArrayList<>();
+      if (rs.next()) {
+        ColumnPlan plan = resolvePlan(rs.getMetaData());
+        do {
+          results.add(toBean(rs, plan));
+        } while (rs.next());
+      }
+      return results;
+    };
+  }
+
+  /**
+   * Resolve the mapping plan of the given result set metadata, the plans are cached by the column
+   * labels.
+   *
+   * @param rsmd the result set metadata
+   * @throws SQLException if a database access error occurs
+   */
+  public ColumnPlan resolvePlan(ResultSetMetaData rsmd) throws SQLException {
+    final int cols = rsmd.getColumnCount();
+    final String[] labels = new String[cols];
+    final int[] types = new int[cols];
+    final StringBuilder key = new StringBuilder();
+    for (int i = 0; i < cols; i++) {
+      String label = rsmd.getColumnLabel(i + 1);
+      if (isEmpty(label)) {
+        label = rsmd.getColumnName(i + 1);
+      }
+      labels[i] = label;
+      types[i] = rsmd.getColumnType(i + 1);
+      key.append(label).append(':').append(types[i]).append(',');
+    }
+    return plans.computeIfAbsent(key.toString(), k -> new ColumnPlan(labels, types, writers));
+  }
+
+  /**
+   * Map the current row of the result set to a bean with the given plan.
+   *
+   * @param rs the result set positioned at the row
+   * @param plan the plan resolved from the result set metadata
+   * @throws SQLException if a database access error occurs
+   */
+  public T toBean(ResultSet rs, ColumnPlan plan) throws SQLException {
+    final T bean = newInstance();
+    final ColumnSlot[] slots = plan.slots;
+    for (int i = 0; i < slots.length; i++) {
+      ColumnSlot slot = slots[i];
+      if (slot != null) {
+        Object value = slot.processor != null ? slot.processor.convert(rs, i + 1)
+            : rs.getObject(i + 1);
+        if (value != null || !slot.writer.primitive) {
+          slot.write(bean, value);
+        }
+      }
+    }
+    return bean;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected T newInstance() {
+    try {
+      return (T) constructor.invoke();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new CorantRuntimeException(t);
+    }
+  }
+
+  protected MethodHandle resolveConstructor(Class<T> beanClass) {
+    try {
+      Constructor<T> ctor = beanClass.getDeclaredConstructor();
+      ctor.setAccessible(true);
+      return MethodHandles.lookup().unreflectConstructor(ctor)
+          .asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new CorantRuntimeException(e, "The bean class %s must have a no-argument constructor",
+          beanClass.getName());
+    }
+  }
+
+  protected Map<String, PropertyWriter> resolveWriters(Class<T> beanClass) {
+    final Map<String, PropertyWriter> resolved = new HashMap<>();
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      Class<?> current = beanClass;
+      while (current != null && current != Object.class) {
+        for (Field field : current.getDeclaredFields()) {
+          int mod = field.getModifiers();
+          String name = field.getName().toLowerCase(Locale.ROOT);
+          if (!Modifier.isStatic(mod) && !Modifier.isFinal(mod) && !field.isSynthetic()
+              && !resolved.containsKey(name)) {
+            field.setAccessible(true);
+            resolved.put(name, new PropertyWriter(field.getType(), lookup.unreflectSetter(field)));
+          }
+        }
+        current = current.getSuperclass();
+      }
+      // the setters take precedence over the fields
+      for (Method method : beanClass.getMethods()) {
+        String name = method.getName();
+        if (name.length() > 3 && name.startsWith("set") && method.getParameterCount() == 1
+            && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()) {
+          resolved.put(name.substring(3).toLowerCase(Locale.ROOT),
+              new PropertyWriter(method.getParameterTypes()[0], lookup.unreflect(method)));
+        }
+      }
+    } catch (IllegalAccessException | RuntimeException e) {
+      throw new CorantRuntimeException(e, "Can't resolve the properties of the bean class %s",
+          beanClass.getName());
+    }
+    return resolved;
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   * <p>
+   * The mapping plan of a column set, each column slot is null if the column is not mapped.
+   *
+   * @author bingo 下午5:21:40
+   *
+   */
+  public static class ColumnPlan {
+
+    protected final ColumnSlot[] slots;
+
+    protected ColumnPlan(String[] labels, int[] types, Map<String, PropertyWriter> writers) {
+      slots = new ColumnSlot[labels.length];
+      for (int i = 0; i < labels.length; i++) {
+        PropertyWriter writer = writers.get(labels[i].toLowerCase(Locale.ROOT));
+        if (writer != null) {
+          DbUtilBasicFieldProcessor processor = null;
+          for (DbUtilBasicFieldProcessor fp : DbUtilBasicRowProcessor.FIELD_PROCESSORS) {
+            if (fp.supports(labels[i], types[i])) {
+              processor = fp;
+              break;
+            }
+          }
+          slots[i] = new ColumnSlot(writer, processor);
+        }
+      }
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   * <p>
+   * The column slot, the converter is looked up with the class of the first value and replaced if
+   * the subsequent value class changes.
+   *
+   * @author bingo 下午5:25:03
+   *
+   */
+  protected static class ColumnSlot {
+
+    protected final PropertyWriter writer;
+    protected final DbUtilBasicFieldProcessor processor;
+    protected volatile ColumnConverter converter;
+
+    protected ColumnSlot(PropertyWriter writer, DbUtilBasicFieldProcessor processor) {
+      this.writer = writer;
+      this.processor = processor;
+    }
+
+    protected Object convert(Object value) {
+      final Class<?> valueClass = value.getClass();
+      if (writer.type.isAssignableFrom(valueClass)) {
+        return value;
+      }
+      ColumnConverter cc = converter;
+      if (cc == null || cc.sourceClass != valueClass) {
+        converter = cc = new ColumnConverter(valueClass,
+            forceCast(Converters.lookup(valueClass, writer.type).orElse(null)));
+      }
+      if (cc.converter != null) {
+        return cc.converter.convert(value, null);
+      }
+      return Conversions.toObject(value, writer.type);
+    }
+
+    protected void write(Object bean, Object value) {
+      try {
+        writer.handle.invokeExact(bean, value == null ? null : convert(value));
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new CorantRuntimeException(t);
+      }
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 下午5:27:15
+   *
+   */
+  protected static class ColumnConverter {
+
+    protected final Class<?> sourceClass;
+    protected final Converter<Object, Object> converter;
+
+    protected ColumnConverter(Class<?> sourceClass, Converter<Object, Object> converter) {
+      this.sourceClass = sourceClass;
+      this.converter = converter;
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   * <p>
+   * The property writer, the method handle type is adapted to (Object,Object)void.
+   *
+   * @author bingo 下午5:29:48
+   *
+   */
+  protected static class PropertyWriter {
+
+    protected final Class<?> type;
+    protected final boolean primitive;
+    protected final MethodHandle handle;
+
+    protected PropertyWriter(Class<?> type, MethodHandle handle) {
+      this.type = Primitives.wrap(type);
+      primitive = type.isPrimitive();
+      this.handle = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import static org.corant.shared.util.Empties.isEmpty;
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * corant-modules-datasource-shared
+ * <p>
+ * A row processor that resolves the result set metadata and the field processors once per result
+ * set and materializes each row into a compact map that backed by a shared column schema and an
+ * object array of the column values. The case-insensitive lookup of the column labels goes through
+ * the shared schema, so there is no per-row key mapping.
+ * <p>
+ * Note: The row map is mutable, since the query results may be post-processed (e.g. fetch query
+ * injections), putting a column label of the schema only replaces the column value, putting other
+ * keys or removing column labels goes to a lazily created overflow map of the row, the overflow map
+ * is keyed by the lower case keys, so the case-insensitive lookup of it is a hash lookup too.
+ *
+ * @author bingo 下午2:18:36
+ *
+ */
+public class DbUtilCompactRowProcessor extends DbUtilBasicRowProcessor {
+
+  public static final DbUtilCompactRowProcessor INST = new DbUtilCompactRowProcessor();
+
+  /**
+   * Returns a list handler that resolves the row schema once per result set.
+   */
+  public static ResultSetHandler<List<Map<String, Object>>> mapListHandler() {
+    return rs -> {
+      List<Map<String, Object>> rows = new ArrayList<>();
+      if (rs.next()) {
+        final RowSchema schema = INST.resolveSchema(rs);
+        do {
+          rows.add(INST.toMap(rs, schema));
+        } while (rs.next());
+      }
+      return rows;
+    };
+  }
+
+  /**
+   * Returns a row handler that caches the row schema of the last handled result set, it is
+   * intended for streaming a result set row by row, the returned handler should not be shared
+   * between threads.
+   */
+  public static ResultSetHandler<Map<String, Object>> streamMapHandler() {
+    return new ResultSetHandler<>() {
+      ResultSet resultSet;
+      RowSchema schema;
+
+      @Override
+      public Map<String, Object> handle(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+          return null;
+        }
+        if (resultSet != rs || schema == null) {
+          schema = INST.resolveSchema(rs);
+          resultSet = rs;
+        }
+        return INST.toMap(rs, schema);
+      }
+    };
+  }
+
+  /**
+   * Resolve the row schema of the given result set, includes the column labels and the field
+   * processors.
+   *
+   * @param rs the result set
+   * @throws SQLException if a database access error occurs
+   */
+  public RowSchema resolveSchema(ResultSet rs) throws SQLException {
+    ResultSetMetaData rsmd = rs.getMetaData();
+    int cols = rsmd.getColumnCount();
+    // the later column overwrites the previous one with the same case-insensitive label
+    Map<String, Integer> columns = new LinkedHashMap<>();
+    String[] labels = new String[cols + 1];
+    DbUtilBasicFieldProcessor[] processors = new DbUtilBasicFieldProcessor[cols + 1];
+    for (int i = 1; i <= cols; i++) {
+      String columnName = rsmd.getColumnLabel(i);
+      int type = rsmd.getColumnType(i);
+      if (isEmpty(columnName)) {
+        columnName = rsmd.getColumnName(i);
+      }
+      labels[i] = columnName;
+      for (DbUtilBasicFieldProcessor fp : FIELD_PROCESSORS) {
+        if (fp.supports(columnName, type)) {
+          processors[i] = fp;
+          break;
+        }
+      }
+      String lowerCaseName = columnName.toLowerCase(Locale.ENGLISH);
+      columns.remove(lowerCaseName);
+      columns.put(lowerCaseName, i);
+    }
+    int size = columns.size();
+    String[] names = new String[size];
+    int[] columnIndexes = new int[size];
+    DbUtilBasicFieldProcessor[] fieldProcessors = new DbUtilBasicFieldProcessor[size];
+    Map<String, Integer> indexes = new HashMap<>(size << 2);
+    int index = 0;
+    for (Map.Entry<String, Integer> column : columns.entrySet()) {
+      int ci = column.getValue();
+      names[index] = labels[ci];
+      columnIndexes[index] = ci;
+      fieldProcessors[index] = processors[ci];
+      indexes.put(column.getKey(), index);
+      indexes.putIfAbsent(labels[ci], index);
+      index++;
+    }
+    return new RowSchema(names, columnIndexes, fieldProcessors, indexes);
+  }
+
+  @Override
+  public Map<String, Object> toMap(ResultSet rs) throws SQLException {
+    return toMap(rs, resolveSchema(rs));
+  }
+
+  /**
+   * Materialize the current row of the given result set into a compact map with the given row
+   * schema.
+   *
+   * @param rs the result set
+   * @param schema the row schema resolved from the result set
+   * @throws SQLException if a database access error occurs
+   */
+  public Map<String, Object> toMap(ResultSet rs, RowSchema schema) throws SQLException {
+    final int size = schema.names.length;
+    final Object[] values = new Object[size];
+    for (int i = 0; i < size; i++) {
+      DbUtilBasicFieldProcessor fp = schema.fieldProcessors[i];
+      int ci = schema.columnIndexes[i];
+      values[i] = fp != null ? fp.convert(rs, ci) : rs.getObject(ci);
+    }
+    return new CompactRowMap(schema, values);
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   * <p>
+   * A row map backed by a shared row schema and an object array of the column values.
+   *
+   * @author bingo 下午2:26:51
+   *
+   */
+  public static class CompactRowMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 2187462137004457452L;
+
+    final RowSchema schema;
+    final Object[] values;
+    BitSet removed;
+    Map<String, Entry<String, Object>> overflow;
+
+    CompactRowMap(RowSchema schema, Object[] values) {
+      this.schema = schema;
+      this.values = values;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      int index = schema.indexOf(key);
+      if (isPresent(index)) {
+        return true;
+      }
+      return overflow != null && overflow.containsKey(overflowKey(key));
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new EntrySet();
+    }
+
+    @Override
+    public Object get(Object key) {
+      int index = schema.indexOf(key);
+      if (isPresent(index)) {
+        return values[index];
+      }
+      return overflow != null ? valueOf(overflow.get(overflowKey(key))) : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      int index = schema.indexOf(key);
+      if (isPresent(index)) {
+        Object old = values[index];
+        values[index] = value;
+        return old;
+      }
+      if (overflow == null) {
+        overflow = new LinkedHashMap<>();
+      }
+      // the latest key replaces the previous one with the same case-insensitive key
+      return valueOf(overflow.put(overflowKey(key), new SimpleEntry<>(key, value)));
+    }
+
+    @Override
+    public Object remove(Object key) {
+      int index = schema.indexOf(key);
+      if (isPresent(index)) {
+        Object old = values[index];
+        markRemoved(index);
+        return old;
+      }
+      return overflow != null ? valueOf(overflow.remove(overflowKey(key))) : null;
+    }
+
+    @Override
+    public int size() {
+      return values.length - (removed == null ? 0 : removed.cardinality())
+          + (overflow == null ? 0 : overflow.size());
+    }
+
+    boolean isPresent(int index) {
+      return index >= 0 && (removed == null || !removed.get(index));
+    }
+
+    void markRemoved(int index) {
+      values[index] = null;
+      if (removed == null) {
+        removed = new BitSet(values.length);
+      }
+      removed.set(index);
+    }
+
+    String overflowKey(Object key) {
+      return key == null ? null : key.toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    Object valueOf(Entry<String, Object> entry) {
+      return entry == null ? null : entry.getValue();
+    }
+
+    class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new Iterator<Entry<String, Object>>() {
+          int cursor = advance(0);
+          int last = -1;
+          Iterator<Entry<String, Object>> overflowIt;
+
+          @Override
+          public boolean hasNext() {
+            if (cursor < values.length) {
+              return true;
+            }
+            if (overflowIt == null && overflow != null) {
+              overflowIt = overflow.values().iterator();
+            }
+            return overflowIt != null && overflowIt.hasNext();
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            if (cursor < values.length) {
+              final int index = last = cursor;
+              cursor = advance(cursor + 1);
+              return new SimpleEntry<>(schema.names[index], values[index]) {
+                private static final long serialVersionUID = -6457361826151375512L;
+
+                @Override
+                public Object setValue(Object value) {
+                  values[index] = value;
+                  return super.setValue(value);
+                }
+              };
+            }
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            last = -1;
+            return overflowIt.next();
+          }
+
+          @Override
+          public void remove() {
+            if (last >= 0) {
+              markRemoved(last);
+              last = -1;
+            } else if (overflowIt != null) {
+              overflowIt.remove();
+            } else {
+              throw new IllegalStateException();
+            }
+          }
+
+          int advance(int from) {
+            int i = from;
+            while (i < values.length && !isPresent(i)) {
+              i++;
+            }
+            return i;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return CompactRowMap.this.size();
+      }
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   * <p>
+   * The shared row schema of a result set, includes the column labels, the column indexes, the
+   * field processors and the case-insensitive label index.
+   *
+   * @author bingo 下午2:21:07
+   *
+   */
+  public static class RowSchema implements Serializable {
+
+    private static final long serialVersionUID = -4405318921498717151L;
+
+    final String[] names;
+    final int[] columnIndexes;
+    final transient DbUtilBasicFieldProcessor[] fieldProcessors;
+    final Map<String, Integer> indexes;
+
+    RowSchema(String[] names, int[] columnIndexes, DbUtilBasicFieldProcessor[] fieldProcessors,
+        Map<String, Integer> indexes) {
+      this.names = names;
+      this.columnIndexes = columnIndexes;
+      this.fieldProcessors = fieldProcessors;
+      this.indexes = indexes;
+    }
+
+    public String[] getNames() {
+      return names.clone();
+    }
+
+    /**
+     * Returns the index of the given column label, the exact label is preferred, if not found the
+     * case-insensitive label is used, returns -1 if not found.
+     *
+     * @param key the column label
+     */
+    public int indexOf(Object key) {
+      if (key == null) {
+        return -1;
+      }
+      Integer index = indexes.get(key);
+      if (index == null) {
+        index = indexes.get(key.toString().toLowerCase(Locale.ENGLISH));
+      }
+      return index == null ? -1 : index;
+    }
+  }
+}
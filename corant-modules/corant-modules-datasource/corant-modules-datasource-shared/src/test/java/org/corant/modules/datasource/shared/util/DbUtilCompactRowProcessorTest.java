@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.corant.modules.datasource.shared.util.DbUtilCompactRowProcessor.CompactRowMap;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * @author bingo 上午11:06:48
+ *
+ */
+public class DbUtilCompactRowProcessorTest extends TestCase {
+
+  static final String[] LABELS = {"ID", "Name", "AMOUNT", "name"};
+
+  /**
+   * Returns a result set of the given rows with the columns {@link #LABELS}.
+   */
+  static ResultSet resultSet(Object[]... rows) {
+    ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+        ResultSetMetaData.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+        (p, m, args) -> {
+          switch (m.getName()) {
+            case "getColumnCount":
+              return LABELS.length;
+            case "getColumnLabel":
+            case "getColumnName":
+              return LABELS[(Integer) args[0] - 1];
+            case "getColumnType":
+              return Types.VARCHAR;
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+    int[] cursor = {-1};
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+        new Class<?>[] {ResultSet.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getMetaData":
+              return metaData;
+            case "next":
+              return ++cursor[0] < rows.length;
+            case "getObject":
+              return rows[cursor[0]][(Integer) args[0] - 1];
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  static Map<String, Object> row() throws SQLException {
+    return DbUtilCompactRowProcessor.mapListHandler()
+        .handle(resultSet(new Object[] {1L, "a", 10, "b"})).get(0);
+  }
+
+  @Test
+  public void testCaseInsensitiveGet() throws SQLException {
+    Map<String, Object> row = row();
+    assertEquals(3, row.size());
+    assertEquals(1L, row.get("ID"));
+    assertEquals(1L, row.get("id"));
+    assertEquals(1L, row.get("Id"));
+    assertTrue(row.containsKey("amount"));
+    assertFalse(row.containsKey("missing"));
+    assertNull(row.get("missing"));
+    assertNull(row.get(null));
+    // the later column overwrites the previous one with the same case-insensitive label
+    assertEquals("b", row.get("Name"));
+    assertEquals("b", row.get("NAME"));
+    Map<String, Object> expected = new LinkedHashMap<>();
+    expected.put("ID", 1L);
+    expected.put("AMOUNT", 10);
+    expected.put("name", "b");
+    assertEquals(expected, row);
+    assertEquals(expected.hashCode(), row.hashCode());
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(row.keySet()));
+  }
+
+  @Test
+  public void testEntryIterator() throws SQLException {
+    Map<String, Object> row = row();
+    row.put("Extra", 1);
+    List<String> keys = new ArrayList<>();
+    for (Iterator<Entry<String, Object>> it = row.entrySet().iterator(); it.hasNext();) {
+      Entry<String, Object> entry = it.next();
+      keys.add(entry.getKey());
+      if ("AMOUNT".equals(entry.getKey())) {
+        entry.setValue(20);
+      } else if ("name".equals(entry.getKey()) || "Extra".equals(entry.getKey())) {
+        it.remove();
+      }
+    }
+    assertEquals(List.of("ID", "AMOUNT", "name", "Extra"), keys);
+    assertEquals(2, row.size());
+    assertEquals(20, row.get("amount"));
+    assertFalse(row.containsKey("name"));
+    assertFalse(row.containsKey("extra"));
+  }
+
+  @Test
+  public void testOverflow() throws SQLException {
+    Map<String, Object> row = row();
+    assertNull(row.put("Extra", 1));
+    assertEquals(4, row.size());
+    assertEquals(1, row.get("Extra"));
+    assertEquals(1, row.get("EXTRA"));
+    assertTrue(row.containsKey("extra"));
+    // the latest key replaces the previous one with the same case-insensitive key
+    assertEquals(1, row.put("EXTRA", 2));
+    assertEquals(4, row.size());
+    assertEquals(List.of("ID", "AMOUNT", "name", "EXTRA"), new ArrayList<>(row.keySet()));
+    assertEquals(2, row.remove("extra"));
+    assertNull(row.remove("extra"));
+    assertEquals(3, row.size());
+    assertNull(row.put(null, 3));
+    assertEquals(3, row.get(null));
+  }
+
+  @Test
+  public void testPutAndRemoveColumn() throws SQLException {
+    Map<String, Object> row = row();
+    assertEquals(1L, row.put("id", 2L));
+    assertEquals(3, row.size());
+    assertEquals(2L, row.get("ID"));
+    assertEquals(List.of("ID", "AMOUNT", "name"), new ArrayList<>(row.keySet()));
+    assertEquals("b", row.remove("NAME"));
+    assertEquals(2, row.size());
+    assertFalse(row.containsKey("name"));
+    assertNull(row.get("name"));
+    // the removed column label goes to the overflow map
+    assertNull(row.put("NAME", "c"));
+    assertEquals(3, row.size());
+    assertEquals("c", row.get("name"));
+    assertEquals(List.of("ID", "AMOUNT", "NAME"), new ArrayList<>(row.keySet()));
+  }
+
+  @Test
+  public void testSharedSchema() throws SQLException {
+    List<Map<String, Object>> rows = DbUtilCompactRowProcessor.mapListHandler()
+        .handle(resultSet(new Object[] {1L, "a", 10, "b"}, new Object[] {2L, "c", null, "d"}));
+    assertEquals(2, rows.size());
+    CompactRowMap first = (CompactRowMap) rows.get(0);
+    CompactRowMap second = (CompactRowMap) rows.get(1);
+    assertSame(first.schema, second.schema);
+    assertEquals(2L, second.get("id"));
+    assertTrue(second.containsKey("amount"));
+    assertNull(second.get("amount"));
+    second.put("id", 3L);
+    assertEquals(1L, first.get("id"));
+  }
+}
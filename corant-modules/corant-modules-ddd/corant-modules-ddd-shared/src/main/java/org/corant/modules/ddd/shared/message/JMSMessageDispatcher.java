@@ -19,10 +19,12 @@ import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -33,6 +35,7 @@ import javax.enterprise.inject.literal.NamedLiteral;
 import javax.inject.Inject;
 import javax.jms.Destination;
 import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
 import javax.transaction.Transactional;
 import org.corant.modules.ddd.Message;
 import org.corant.modules.ddd.Message.BinaryMessage;
@@ -46,10 +49,15 @@ import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.service.RequiredConfiguration;
 import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
 import org.corant.shared.ubiquity.Sortable;
+import org.corant.shared.ubiquity.Tuple.Pair;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
  * corant-modules-ddd-shared
+ * <p>
+ * The JMS message dispatcher. The messages dispatched in one call share the JMS context and the
+ * producer of each broker; the JMS context is transaction scoped, so the messages are sent within
+ * the current transaction.
  *
  * @author bingo 下午12:01:54
  *
@@ -92,10 +100,36 @@ public class JMSMessageDispatcher implements MessageDispatcher {
 
   @Override
   public void accept(Message[] messages) {
+    accept(messages, null);
+  }
+
+  /**
+   * Dispatch the given messages, the additional JMS properties of each message are merged with the
+   * properties of the message destinations.
+   *
+   * @param messages the messages to dispatch
+   * @param additionalProperties the function that returns the additional JMS properties of the
+   *        given message, can be null
+   */
+  public void accept(Message[] messages,
+      Function<Message, Map<String, Object>> additionalProperties) {
+    final Map<String, Pair<JMSContext, JMSProducer>> producers = new HashMap<>();
     for (Message msg : messages) {
+      final Map<String, Object> additions =
+          additionalProperties == null ? null : additionalProperties.apply(msg);
       for (MessageDestinationMetaData dest : from(msg.getClass())) {
-        send(dest.getConnectionFactoryId(), dest.isMulticast(), dest.getName(),
-            dest.getProperties(), msg);
+        Pair<JMSContext, JMSProducer> producer =
+            producers.computeIfAbsent(dest.getConnectionFactoryId(), b -> {
+              JMSContext ctx = obtainJmsContext(b);
+              return Pair.of(ctx, ctx.createProducer());
+            });
+        Map<String, Object> properties = dest.getProperties();
+        if (isNotEmpty(additions)) {
+          properties = properties == null ? new HashMap<>() : new HashMap<>(properties);
+          properties.putAll(additions);
+        }
+        send(producer.getLeft(), producer.getRight(), dest.isMulticast(), dest.getName(),
+            properties, msg);
       }
     }
   }
@@ -103,15 +137,7 @@ public class JMSMessageDispatcher implements MessageDispatcher {
   public void send(String broker, boolean multicast, String destination,
       Map<String, Object> properties, Message message) {
     JMSContext ctx = obtainJmsContext(broker);
-    final Destination dest = resolveDestination(message, ctx, multicast, destination);
-    logger.finer(() -> String.format("Resolved JMS message destination %s for domain message %s",
-        dest, message.getClass()));
-    final javax.jms.Message jmsMsg = createJMSMessage(ctx, message);
-    if (isNotEmpty(properties)) {
-      properties.forEach(uncheckedBiConsumer(jmsMsg::setObjectProperty));
-    }
-    onPreDispatch(jmsMsg);
-    ctx.createProducer().send(dest, jmsMsg);
+    send(ctx, ctx.createProducer(), multicast, destination, properties, message);
   }
 
   protected Destination createDestination(JMSContext ctx, boolean multicast, String destination) {
@@ -181,4 +207,17 @@ public class JMSMessageDispatcher implements MessageDispatcher {
     }
     return createDestination(ctx, multicast, destination);
   }
+
+  protected void send(JMSContext ctx, JMSProducer producer, boolean multicast,
+      String destination, Map<String, Object> properties, Message message) {
+    final Destination dest = resolveDestination(message, ctx, multicast, destination);
+    logger.finer(() -> String.format("Resolved JMS message destination %s for domain message %s",
+        dest, message.getClass()));
+    final javax.jms.Message jmsMsg = createJMSMessage(ctx, message);
+    if (isNotEmpty(properties)) {
+      properties.forEach(uncheckedBiConsumer(jmsMsg::setObjectProperty));
+    }
+    onPreDispatch(jmsMsg);
+    producer.send(dest, jmsMsg);
+  }
 }
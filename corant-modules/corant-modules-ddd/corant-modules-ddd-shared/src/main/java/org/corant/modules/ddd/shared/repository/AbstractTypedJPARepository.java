@@ -19,6 +19,8 @@ import static org.corant.shared.util.Preconditions.requireNotNull;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.PostConstruct;
 import javax.persistence.Cache;
@@ -121,6 +123,11 @@ public abstract class AbstractTypedJPARepository<T extends Entity>
     return JPAQueries.query(qlString, type).entityManager(this::getEntityManager);
   }
 
+  @Override
+  public List<T> select(Collection<? extends Serializable> ids, int batchSize) {
+    return JPARepositories.select(getEntityManager(), entityClass, ids, batchSize);
+  }
+
   @SuppressWarnings("unchecked")
   @PostConstruct
   protected void onPostConstruct() {
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.repository;
+
+import static org.corant.shared.util.Classes.defaultClassLoader;
+import static org.corant.shared.util.Conversions.toObject;
+import static org.corant.shared.util.Empties.isEmpty;
+import static org.corant.shared.util.Primitives.wrap;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import org.corant.config.Configs;
+import org.corant.modules.jpa.shared.PersistenceContextInspector;
+import org.corant.shared.util.Services;
+
+/**
+ * corant-modules-ddd-shared
+ * <p>
+ * The batch operations of JPA repositories, includes multi-id loading and bulk persisting, merging
+ * and removing.
+ * <p>
+ * The multi-id loading uses chunked IN queries instead of one find per id, the ids of the entities
+ * that are already managed by the persistence context (inspected by the
+ * {@link PersistenceContextInspector} of the JPA provider if present) or contained in the second
+ * level cache are resolved without the IN queries, and the results are returned in the order of
+ * the requested ids. The bulk operations flush the entity manager every flush size operations to
+ * let the JPA provider batch the JDBC statements (the JDBC batch size must be configured in the
+ * persistence unit properties, such as {@code hibernate.jdbc.batch_size}), and if the clear size
+ * is greater than 0, clear the entity manager every clear size operations so that the persistence
+ * context doesn't grow without bound.
+ * <p>
+ * Note: Clearing the entity manager detaches all the managed entities of the persistence context,
+ * not only the entities of the bulk operation, the unflushed changes of the detached entities are
+ * lost and the detached entities are no longer the same instances as the ones later loaded by the
+ * entity manager (such as the aggregates tracked by the current unit of work). So the entity
+ * manager is not cleared by default, use a positive clear size only when the persistence context
+ * is exclusively used by the bulk operation.
+ * <p>
+ * The default sizes can be configured with the following configuration properties:
+ *
+ * <pre>
+ * corant.ddd.repository.batch-load-size   the max ids of an IN query, default is 256
+ * corant.ddd.repository.batch-flush-size  the flush interval of bulk operations, default is 64
+ * corant.ddd.repository.batch-clear-size  the clear interval of bulk operations, default is 0 (no clearing)
+ * </pre>
+ *
+ * @author bingo 下午7:02:18
+ *
+ */
+public class JPARepositories {
+
+  public static final int DEFAULT_BATCH_LOAD_SIZE =
+      Configs.getValue("corant.ddd.repository.batch-load-size", Integer.class, 256);
+
+  public static final int DEFAULT_BATCH_FLUSH_SIZE =
+      Configs.getValue("corant.ddd.repository.batch-flush-size", Integer.class, 64);
+
+  public static final int DEFAULT_BATCH_CLEAR_SIZE =
+      Configs.getValue("corant.ddd.repository.batch-clear-size", Integer.class, 0);
+
+  static final List<PersistenceContextInspector> PERSISTENCE_CONTEXT_INSPECTORS =
+      Services.selectRequired(PersistenceContextInspector.class, defaultClassLoader())
+          .collect(Collectors.toList());
+
+  private JPARepositories() {}
+
+  /**
+   * Merge the given entities, flush the entity manager every flush size entities and clear the
+   * entity manager every clear size entities, returns the merged entities in order.
+   * <p>
+   * Note: The merged entities that have been cleared are detached.
+   *
+   * @param <T> the entity type
+   * @param em the entity manager
+   * @param entities the entities to be merged
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   */
+  public static <T> List<T> mergeAll(EntityManager em, Iterable<T> entities, int flushSize,
+      int clearSize) {
+    List<T> merged = new ArrayList<>();
+    if (entities != null) {
+      BatchCounter counter = new BatchCounter(em, flushSize, clearSize);
+      for (T entity : entities) {
+        if (entity != null) {
+          merged.add(em.merge(entity));
+          counter.increment();
+        }
+      }
+      counter.complete();
+    }
+    return merged;
+  }
+
+  /**
+   * Persist the given entities, flush the entity manager every flush size entities and clear the
+   * entity manager every clear size entities.
+   * <p>
+   * Note: The persisted entities that have been cleared are detached.
+   *
+   * @param <T> the entity type
+   * @param em the entity manager
+   * @param entities the entities to be persisted
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   */
+  public static <T> void persistAll(EntityManager em, Iterable<T> entities, int flushSize,
+      int clearSize) {
+    if (entities != null) {
+      BatchCounter counter = new BatchCounter(em, flushSize, clearSize);
+      for (T entity : entities) {
+        if (entity != null) {
+          em.persist(entity);
+          counter.increment();
+        }
+      }
+      counter.complete();
+    }
+  }
+
+  /**
+   * Remove the given entities, flush the entity manager every flush size entities and clear the
+   * entity manager every clear size entities, the detached entities are merged before removing.
+   *
+   * @param <T> the entity type
+   * @param em the entity manager
+   * @param entities the entities to be removed
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   */
+  public static <T> void removeAll(EntityManager em, Iterable<T> entities, int flushSize,
+      int clearSize) {
+    if (entities != null) {
+      BatchCounter counter = new BatchCounter(em, flushSize, clearSize);
+      for (T entity : entities) {
+        if (entity != null) {
+          em.remove(em.contains(entity) ? entity : em.merge(entity));
+          counter.increment();
+        }
+      }
+      counter.complete();
+    }
+  }
+
+  /**
+   * Retrieves the entities by the given ids with chunked IN queries, the results are returned in
+   * the order of the given ids, the duplicated ids, the ids that can't be found and the ids of the
+   * entities that have been removed from the persistence context are ignored. The entities that are
+   * already managed by the persistence context or contained in the second level cache are retrieved
+   * without the IN queries. If the entity doesn't have a single id attribute, the entities are
+   * retrieved one by one.
+   *
+   * @param <T> the entity type
+   * @param em the entity manager
+   * @param entityClass the entity class
+   * @param ids the entity ids
+   * @param batchSize the max ids of an IN query
+   */
+  public static <T> List<T> select(EntityManager em, Class<T> entityClass,
+      Collection<? extends Serializable> ids, int batchSize) {
+    if (isEmpty(ids)) {
+      return new ArrayList<>();
+    }
+    Set<Object> keys = new LinkedHashSet<>(ids);
+    keys.remove(null);
+    EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+    List<T> results = new ArrayList<>(keys.size());
+    if (keys.size() == 1 || !entityType.hasSingleIdAttribute()) {
+      for (Object key : keys) {
+        T entity = em.find(entityClass, key);
+        if (entity != null) {
+          results.add(entity);
+        }
+      }
+      return results;
+    }
+    final Class<?> idType = entityType.getIdType().getJavaType();
+    final SingularAttribute<? super T, ?> idAttribute = entityType.getId(idType);
+    final Class<?> idClass = wrap(idType);
+    final PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+    final CriteriaBuilder cb = em.getCriteriaBuilder();
+    final Cache cache = em.getEntityManagerFactory().getCache();
+    final PersistenceContextInspector inspector = PERSISTENCE_CONTEXT_INSPECTORS.stream()
+        .filter(i -> i.accept(em)).findFirst().orElse(null);
+    final int size = batchSize > 0 ? batchSize : DEFAULT_BATCH_LOAD_SIZE;
+    List<Object> orderedIds = new ArrayList<>(keys.size());
+    Map<Object, T> loaded = new HashMap<>(keys.size() << 1);
+    List<Object> chunk = new ArrayList<>(Math.min(size, keys.size()));
+    for (Object key : keys) {
+      Object id = idClass.isInstance(key) ? key : toObject(key, idClass);
+      orderedIds.add(id);
+      T local = resolveLocally(em, entityClass, id, inspector, cache);
+      if (local != null) {
+        loaded.put(id, local);
+        continue;
+      }
+      chunk.add(id);
+      if (chunk.size() == size) {
+        select(em, cb, entityClass, idAttribute, chunk, util, loaded);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      select(em, cb, entityClass, idAttribute, chunk, util, loaded);
+    }
+    for (Object id : orderedIds) {
+      T entity = loaded.get(id);
+      if (entity != null) {
+        results.add(entity);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Returns the entity that is managed by the persistence context or contained in the second level
+   * cache without hitting the database, returns null if not found.
+   */
+  static <T> T resolveLocally(EntityManager em, Class<T> entityClass, Object id,
+      PersistenceContextInspector inspector, Cache cache) {
+    if (inspector != null) {
+      T managed = inspector.getManaged(em, entityClass, id);
+      if (managed != null) {
+        return managed;
+      }
+    }
+    if (cache != null && cache.contains(entityClass, id)) {
+      // the find is served by the second level cache
+      return em.find(entityClass, id);
+    }
+    return null;
+  }
+
+  static <T> void select(EntityManager em, CriteriaBuilder cb, Class<T> entityClass,
+      SingularAttribute<? super T, ?> idAttribute, List<Object> ids, PersistenceUnitUtil util,
+      Map<Object, T> loaded) {
+    CriteriaQuery<T> query = cb.createQuery(entityClass);
+    Root<T> root = query.from(entityClass);
+    query.select(root).where(root.get(idAttribute).in(ids));
+    for (T entity : em.createQuery(query).getResultList()) {
+      // the removed but not yet flushed entities may still be returned by the query
+      if (em.contains(entity)) {
+        loaded.put(util.getIdentifier(entity), entity);
+      }
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午7:10:33
+   *
+   */
+  static class BatchCounter {
+
+    final EntityManager em;
+    final int flushSize;
+    final int clearSize;
+    int count;
+    boolean dirty;
+
+    BatchCounter(EntityManager em, int flushSize, int clearSize) {
+      this.em = em;
+      this.flushSize = flushSize;
+      this.clearSize = clearSize;
+    }
+
+    void complete() {
+      if (dirty && (flushSize > 0 || clearSize > 0)) {
+        em.flush();
+      }
+    }
+
+    void increment() {
+      count++;
+      dirty = true;
+      if (clearSize > 0 && count % clearSize == 0) {
+        em.flush();
+        em.clear();
+        dirty = false;
+      } else if (flushSize > 0 && count % flushSize == 0) {
+        em.flush();
+        dirty = false;
+      }
+    }
+  }
+}
@@ -17,13 +17,13 @@ import static org.corant.shared.util.Classes.tryAsClass;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Objects.defaultObject;
 import static org.corant.shared.util.Objects.forceCast;
-import static org.corant.shared.util.Sets.linkedHashSetOf;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -38,7 +38,6 @@ import org.corant.modules.jpa.shared.JPAQueries;
 import org.corant.modules.jpa.shared.JPAQueries.AdvancedJPAQuery;
 import org.corant.modules.jpa.shared.JPAQueries.JPAQuery;
 import org.corant.modules.jpa.shared.JPAQueries.TypedJPAQuery;
-import org.corant.shared.util.Objects;
 
 /**
  * corant-modules-ddd-shared
@@ -235,6 +234,35 @@ public interface JPARepository extends Repository<Query> {
     return getEntityManager().merge(entity);
   }
 
+  /**
+   * Merge the given entities in batches with the default flush and clear intervals, by default the
+   * entity manager is not cleared.
+   *
+   * @param <T> the entity type
+   * @param entities the entities to be merged
+   * @return the merged entities
+   *
+   * @see JPARepositories#mergeAll(EntityManager, Iterable, int, int)
+   */
+  default <T> List<T> mergeAll(Iterable<T> entities) {
+    return mergeAll(entities, JPARepositories.DEFAULT_BATCH_FLUSH_SIZE,
+        JPARepositories.DEFAULT_BATCH_CLEAR_SIZE);
+  }
+
+  /**
+   * Merge the given entities in batches, flush the entity manager every flush size entities and
+   * clear the entity manager every clear size entities.
+   *
+   * @param <T> the entity type
+   * @param entities the entities to be merged
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   * @return the merged entities
+   */
+  default <T> List<T> mergeAll(Iterable<T> entities, int flushSize, int clearSize) {
+    return JPARepositories.mergeAll(getEntityManager(), entities, flushSize, clearSize);
+  }
+
   /**
    * Create name query
    *
@@ -308,6 +336,33 @@ public interface JPARepository extends Repository<Query> {
     return entity;
   }
 
+  /**
+   * Persist the given entities in batches with the default flush and clear intervals, by default the
+   * entity manager is not cleared.
+   *
+   * @param <T> the entity type
+   * @param entities the entities to be persisted
+   *
+   * @see JPARepositories#persistAll(EntityManager, Iterable, int, int)
+   */
+  default <T> void persistAll(Iterable<T> entities) {
+    persistAll(entities, JPARepositories.DEFAULT_BATCH_FLUSH_SIZE,
+        JPARepositories.DEFAULT_BATCH_CLEAR_SIZE);
+  }
+
+  /**
+   * Persist the given entities in batches, flush the entity manager every flush size entities and
+   * clear the entity manager every clear size entities.
+   *
+   * @param <T> the entity type
+   * @param entities the entities to be persisted
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   */
+  default <T> void persistAll(Iterable<T> entities, int flushSize, int clearSize) {
+    JPARepositories.persistAll(getEntityManager(), entities, flushSize, clearSize);
+  }
+
   /**
    * {@link JPAQueries#query(CriteriaQuery)}
    *
@@ -410,6 +465,33 @@ public interface JPARepository extends Repository<Query> {
     return false;
   }
 
+  /**
+   * Remove the given entities in batches with the default flush and clear intervals, by default the
+   * entity manager is not cleared.
+   *
+   * @param <T> the entity type
+   * @param entities the entities to be removed
+   *
+   * @see JPARepositories#removeAll(EntityManager, Iterable, int, int)
+   */
+  default <T> void removeAll(Iterable<T> entities) {
+    removeAll(entities, JPARepositories.DEFAULT_BATCH_FLUSH_SIZE,
+        JPARepositories.DEFAULT_BATCH_CLEAR_SIZE);
+  }
+
+  /**
+   * Remove the given entities in batches, flush the entity manager every flush size entities and
+   * clear the entity manager every clear size entities.
+   *
+   * @param <T> the entity type
+   * @param entities the entities to be removed
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   */
+  default <T> void removeAll(Iterable<T> entities, int flushSize, int clearSize) {
+    JPARepositories.removeAll(getEntityManager(), entities, flushSize, clearSize);
+  }
+
   /**
    * Retrieves the entities by primary keys
    *
@@ -422,11 +504,28 @@ public interface JPARepository extends Repository<Query> {
     if (isEmpty(ids)) {
       return new ArrayList<>();
     } else {
-      return linkedHashSetOf(ids).stream().map(i -> get(entityClass, i)).filter(Objects::isNotNull)
-          .collect(Collectors.toList());
+      return select(entityClass, Arrays.asList(ids), JPARepositories.DEFAULT_BATCH_LOAD_SIZE);
     }
   }
 
+  /**
+   * Retrieves the entities by primary keys with chunked IN queries, the results are returned in
+   * the order of the given primary keys, the duplicated keys and the keys that can't be found are
+   * ignored.
+   *
+   * @param <T> the result type
+   * @param entityClass the entity class
+   * @param ids the entity primary keys
+   * @param batchSize the max primary keys of an IN query
+   * @return entity list
+   *
+   * @see JPARepositories#select(EntityManager, Class, Collection, int)
+   */
+  default <T> List<T> select(Class<T> entityClass, Collection<? extends Serializable> ids,
+      int batchSize) {
+    return JPARepositories.select(getEntityManager(), entityClass, ids, batchSize);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   default <T> List<T> select(Query query) {
@@ -18,6 +18,9 @@ import static org.corant.shared.util.Objects.defaultObject;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -208,6 +211,21 @@ public interface TypedJPARepository<T extends Entity> extends TypedRepository<T,
     }
   }
 
+  /**
+   * Merge the given entities in batches, flush the entity manager every flush size entities and
+   * clear the entity manager every clear size entities.
+   *
+   * @param objs the entities to be merged
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   * @return the merged entities
+   *
+   * @see JPARepositories#mergeAll(EntityManager, Iterable, int, int)
+   */
+  default List<T> mergeAll(Iterable<T> objs, int flushSize, int clearSize) {
+    return JPARepositories.mergeAll(getEntityManager(), objs, flushSize, clearSize);
+  }
+
   /**
    * Returns a typed JPA query with generic type Argument.
    *
@@ -278,6 +296,20 @@ public interface TypedJPARepository<T extends Entity> extends TypedRepository<T,
     }
   }
 
+  /**
+   * Save the state of the given objects in batches, flush the entity manager every flush size
+   * entities and clear the entity manager every clear size entities.
+   *
+   * @param objs the objects to be saved
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   *
+   * @see JPARepositories#persistAll(EntityManager, Iterable, int, int)
+   */
+  default void persistAll(Iterable<T> objs, int flushSize, int clearSize) {
+    JPARepositories.persistAll(getEntityManager(), objs, flushSize, clearSize);
+  }
+
   /**
    * {@link JPAQueries#query(CriteriaQuery)}
    *
@@ -380,6 +412,20 @@ public interface TypedJPARepository<T extends Entity> extends TypedRepository<T,
     return false;
   }
 
+  /**
+   * Remove the given entities in batches, flush the entity manager every flush size entities and
+   * clear the entity manager every clear size entities.
+   *
+   * @param objs the entities to be removed
+   * @param flushSize the flush interval, less than or equal to 0 means no interval flushing
+   * @param clearSize the clear interval, less than or equal to 0 means no clearing
+   *
+   * @see JPARepositories#removeAll(EntityManager, Iterable, int, int)
+   */
+  default void removeAll(Iterable<T> objs, int flushSize, int clearSize) {
+    JPARepositories.removeAll(getEntityManager(), objs, flushSize, clearSize);
+  }
+
   /**
    * Remove the entity by id
    *
@@ -390,6 +436,32 @@ public interface TypedJPARepository<T extends Entity> extends TypedRepository<T,
     return remove(get(id));
   }
 
+  /**
+   * Retrieve the entities by the given ids, the results are returned in the order of the given ids,
+   * the duplicated ids and the ids that can't be found are ignored.
+   * <p>
+   * Note: The default implementation retrieves the entities one by one, the implementation that
+   * knows the entity class should use chunked IN queries.
+   *
+   * @param ids the entity ids
+   * @param batchSize the max ids of an IN query
+   * @return the entity list
+   *
+   * @see JPARepositories#select(EntityManager, Class, Collection, int)
+   */
+  default List<T> select(Collection<? extends Serializable> ids, int batchSize) {
+    List<T> results = new ArrayList<>();
+    if (ids != null) {
+      for (Serializable id : new LinkedHashSet<>(ids)) {
+        T entity = get(id);
+        if (entity != null) {
+          results.add(entity);
+        }
+      }
+    }
+    return results;
+  }
+
   /**
    * Retrieve objects from repository by query object
    *
@@ -402,4 +474,18 @@ public interface TypedJPARepository<T extends Entity> extends TypedRepository<T,
     return defaultObject(q.getResultList(), ArrayList::new);
   }
 
+  /**
+   * Retrieve the entities by the given ids in batches, the results are returned in the order of the
+   * given ids.
+   *
+   * @param ids the entity ids
+   * @return the entity list
+   */
+  default List<T> select(Serializable... ids) {
+    if (ids == null || ids.length == 0) {
+      return new ArrayList<>();
+    }
+    return select(Arrays.asList(ids), JPARepositories.DEFAULT_BATCH_LOAD_SIZE);
+  }
+
 }
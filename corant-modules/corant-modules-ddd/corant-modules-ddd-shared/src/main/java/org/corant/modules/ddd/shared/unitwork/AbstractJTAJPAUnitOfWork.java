@@ -49,6 +49,7 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
 
   protected final Transaction transaction;
   protected final MessageDispatcher messageDispatcher;
+  protected final MessageOutbox messageOutbox;
   protected final UnitOfWorkExtension extension;
 
   protected AbstractJTAJPAUnitOfWork(AbstractJTAJPAUnitOfWorksManager manager,
@@ -58,6 +59,7 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
     this.transaction = transaction;
     messageDispatcher = manager.getMessageDispatcher();
     messageDispatcher.prepare();
+    messageOutbox = manager.getMessageOutbox();
   }
 
   @Override
@@ -52,6 +52,10 @@ public abstract class AbstractJTAJPAUnitOfWorksManager extends AbstractJPAUnitOf
   @Any
   protected Instance<MessageDispatcher> messageDispatcher;
 
+  @Inject
+  @Any
+  protected Instance<MessageOutbox> messageOutbox;
+
   @Override
   public AbstractJTAJPAUnitOfWork getCurrentUnitOfWork() {
     try {
@@ -80,6 +84,13 @@ public abstract class AbstractJTAJPAUnitOfWorksManager extends AbstractJPAUnitOf
     return messageDispatcher.isResolvable() ? messageDispatcher.get() : MessageDispatcher.empty();
   }
 
+  /**
+   * Returns the message outbox if the outbox is enabled otherwise returns null.
+   */
+  public MessageOutbox getMessageOutbox() {
+    return messageOutbox.isResolvable() ? messageOutbox.get() : null;
+  }
+
   public TransactionManager getTransactionManager() {
     return transactionManager;
   }
@@ -90,7 +90,11 @@ public class JTARLJPAUnitOfWork extends AbstractJTAJPAUnitOfWork {
     WrappedMessage wm;
     while ((wm = messages.poll()) != null) {
       final Message msg = wm.delegate;
-      storedMessages.add(messageStorage.apply(msg));
+      if (messageOutbox != null) {
+        messageOutbox.store(this, msg);
+      } else {
+        storedMessages.add(messageStorage.apply(msg));
+      }
       sagaService.trigger(msg);// FIXME Is it right to do so?
       if (extractMessages(messages) && --cycles < 0) {
         throw new CorantRuntimeException(
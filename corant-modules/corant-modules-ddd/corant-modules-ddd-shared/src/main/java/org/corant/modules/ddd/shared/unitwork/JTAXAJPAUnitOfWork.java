@@ -54,7 +54,11 @@ public class JTAXAJPAUnitOfWork extends AbstractJTAJPAUnitOfWork {
     int cycles = MAX_CHANGES_ITERATIONS;
     WrappedMessage wm;
     while ((wm = messages.poll()) != null) {
-      messageDispatcher.accept(new Message[] {wm.delegate});
+      if (messageOutbox != null) {
+        messageOutbox.store(this, wm.delegate);
+      } else {
+        messageDispatcher.accept(new Message[] {wm.delegate});
+      }
       if (extractMessages(messages) && --cycles < 0) {
         throw new CorantRuntimeException(
             "Reach max changes iterations [%s], can't handle messages! ", MAX_CHANGES_ITERATIONS);
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.unitwork;
+
+import static java.util.Collections.singletonMap;
+import static org.corant.context.Beans.find;
+import static org.corant.shared.util.Objects.max;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.corant.context.ContainerEvents.PostContainerStartedEvent;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageDispatcher;
+import org.corant.modules.ddd.UnitOfWorksManager.UnitOfWorksListener;
+import org.corant.modules.ddd.annotation.InfrastructureServices;
+import org.corant.modules.ddd.shared.message.JMSMessageDispatcher;
+import org.corant.modules.ddd.shared.model.SnowflakeIdentifierGenerator;
+import org.corant.modules.ddd.shared.unitwork.AbstractJPAUnitOfWork.Registration;
+import org.corant.modules.jpa.shared.PersistenceService.PersistenceContextLiteral;
+import org.corant.modules.jta.shared.TransactionService;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.normal.Names;
+import org.corant.shared.service.RequiredConfiguration;
+import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
+import org.corant.shared.ubiquity.Tuple.Pair;
+import org.corant.shared.util.Serializations;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * corant-modules-ddd-shared
+ * <p>
+ * The transactional outbox of the unit of works. When enabled, the unit of work doesn't hand the
+ * collected messages to the message dispatcher, it writes them to the outbox table with the entity
+ * manager of the configured persistence unit in the same transaction, so the message broker is
+ * taken off the commit path of the business transaction.
+ * <p>
+ * The relay drains the outbox table in batches ordered by the message id, each batch is dispatched
+ * to the {@link MessageDispatcher} and deleted in one transaction. The relay is triggered after a
+ * unit of work that wrote the outbox is committed and also polls the table periodically, so the
+ * messages left by a crashed node are relayed after restart.
+ * <p>
+ * The message id is assigned when the message is written, not when the transaction commits, so a
+ * transaction that wrote a smaller id may commit after a transaction that wrote a greater one. The
+ * ids written by the unit of works that are not yet completed are kept in memory, the relay only
+ * drains the messages whose ids are less than the smallest of them (or than an id generated at the
+ * beginning of the batch if there are none), the messages behind an uncommitted one wait until it
+ * is committed or rolled back. The ids written by the other nodes are unknown to this node, so the
+ * commit order is preserved only for the messages written on the relay node.
+ * <p>
+ * The delivery is at least once; when the dispatcher is the {@link JMSMessageDispatcher}, the
+ * outbox message id is set to the deduplication property of the JMS message (default is the Artemis
+ * duplicate detection property), the broker or the consumers can use it to drop the redelivered
+ * duplicates.
+ * <p>
+ * Note: The relay preserves the order of the messages only when one relay drains the table and the
+ * messages are written on that node, use 'corant.ddd.message.outbox.relay.enable' to disable the
+ * relay on the other nodes. A message that can't be dispatched blocks the subsequent messages until
+ * it is fixed or removed manually.
+ * <p>
+ * The outbox table:
+ *
+ * <pre>
+ * CREATE TABLE DDD_MESSAGE_OUTBOX (
+ *   ID BIGINT NOT NULL PRIMARY KEY,
+ *   MESSAGE_TYPE VARCHAR(255) NOT NULL,
+ *   PAYLOAD BLOB NOT NULL,
+ *   CREATED_TIME TIMESTAMP NOT NULL
+ * )
+ * </pre>
+ *
+ * @author bingo 下午4:18:25
+ *
+ */
+@ApplicationScoped
+@InfrastructureServices
+@RequiredConfiguration(key = "corant.ddd.message.outbox.enable", predicate = ValuePredicate.EQ,
+    type = Boolean.class, value = "true")
+public class MessageOutbox implements UnitOfWorksListener {
+
+  protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  protected static final String UOW_VAR_KEY = MessageOutbox.class.getName() + ".ids";
+
+  protected final NavigableSet<Long> inflightIds = new TreeSet<>();
+  protected final AtomicBoolean signaled = new AtomicBoolean();
+
+  @Inject
+  protected UnitOfWorks unitOfWorks;
+
+  @Inject
+  protected SnowflakeIdentifierGenerator identifierGenerator;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.persistence-unit", defaultValue = " ")
+  protected String persistenceUnit;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.table", defaultValue = "DDD_MESSAGE_OUTBOX")
+  protected String table;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.dedup-property",
+      defaultValue = "_AMQ_DUPL_ID")
+  protected String dedupProperty;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.enable", defaultValue = "true")
+  protected boolean relayEnable;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.batch-size", defaultValue = "64")
+  protected int relayBatchSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.interval", defaultValue = "PT1S")
+  protected Duration relayInterval;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.termination-timeout",
+      defaultValue = "PT5S")
+  protected Duration terminationTimeout;
+
+  protected PersistenceContext persistenceContext;
+  protected String insertSql;
+  protected String selectSql;
+  protected String deleteSql;
+  protected volatile ScheduledExecutorService relayer;
+
+  @Override
+  public void onCompleted(Object registration, boolean success) {
+    if (registration instanceof Registration) {
+      Object ids = ((Registration) registration).getVariables().get(UOW_VAR_KEY);
+      if (ids instanceof Collection) {
+        synchronized (inflightIds) {
+          inflightIds.removeAll((Collection<?>) ids);
+        }
+        if (success) {
+          signal();
+        }
+      }
+    }
+  }
+
+  /**
+   * Relay the messages of the outbox table until the table is drained or the dispatching fails.
+   */
+  public void relay() {
+    signaled.set(false);
+    try {
+      int relayed;
+      do {
+        relayed = TransactionService.actuator().required().get(this::relayBatch);
+      } while (relayed >= relayBatchSize && relayer != null);
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e, () -> "Relay the outbox messages occurred error!");
+    }
+  }
+
+  /**
+   * Write the given message to the outbox table with the entity manager of the given unit of work,
+   * must be called in the transaction of the unit of work.
+   *
+   * @param uow the current unit of work
+   * @param message the message to store
+   */
+  public void store(AbstractJPAUnitOfWork uow, Message message) {
+    uow.getEntityManager(persistenceContext).createNativeQuery(insertSql)
+        .setParameter(1, acquireId(uow)).setParameter(2, message.getClass().getName())
+        .setParameter(3, Serializations.serialize(message))
+        .setParameter(4, Timestamp.from(Instant.now())).executeUpdate();
+  }
+
+  /**
+   * Generate the outbox message id and keep it as in-flight until the given unit of work is
+   * completed, the id is recorded in the unit of work variables before the message is written, so
+   * it's released even if the writing fails.
+   *
+   * @param uow the current unit of work
+   */
+  protected Long acquireId(AbstractJPAUnitOfWork uow) {
+    @SuppressWarnings("unchecked")
+    List<Long> ids = (List<Long>) uow.getVariables().get(UOW_VAR_KEY);
+    if (ids == null) {
+      uow.register(Pair.of(UOW_VAR_KEY, ids = new ArrayList<>()));
+    }
+    final Long id;
+    synchronized (inflightIds) {
+      id = identifierGenerator.generate(null);
+      inflightIds.add(id);
+    }
+    ids.add(id);
+    return id;
+  }
+
+  /**
+   * Returns the upper bound (exclusive) of the message ids that can be relayed, all the messages
+   * with smaller ids are either committed or rolled back.
+   */
+  protected long getWatermark() {
+    synchronized (inflightIds) {
+      return inflightIds.isEmpty() ? identifierGenerator.generate(null) : inflightIds.first();
+    }
+  }
+
+  protected void onPostContainerStarted(@Observes PostContainerStartedEvent e) {
+    if (relayEnable) {
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, Names.CORANT_PREFIX + "ddd-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+      });
+      final long interval = max(1L, relayInterval.toMillis());
+      executor.scheduleWithFixedDelay(this::relay, 0L, interval, TimeUnit.MILLISECONDS);
+      relayer = executor;
+      logger.info(() -> String.format("Started the outbox relay of table %s.", table));
+    }
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    persistenceContext = PersistenceContextLiteral.of(persistenceUnit.trim());
+    insertSql = "INSERT INTO " + table
+        + " (ID, MESSAGE_TYPE, PAYLOAD, CREATED_TIME) VALUES (?1, ?2, ?3, ?4)";
+    selectSql = "SELECT ID, PAYLOAD FROM " + table + " WHERE ID < ?1 ORDER BY ID";
+    deleteSql = "DELETE FROM " + table + " WHERE ID IN (:ids)";
+    relayBatchSize = max(1, relayBatchSize);
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    final ScheduledExecutorService executor = relayer;
+    if (executor != null) {
+      relayer = null;
+      try {
+        executor.shutdown();
+        if (!executor.awaitTermination(terminationTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+          logger.log(Level.WARNING, () -> "Terminate the outbox relay timeout!");
+        }
+      } catch (InterruptedException e) {
+        logger.log(Level.WARNING, e, () -> "Can not terminate the outbox relay.");
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Dispatch and delete a batch of the outbox messages in the current transaction, returns the
+   * number of the relayed messages.
+   */
+  protected int relayBatch() {
+    final EntityManager em = resolveEntityManager();
+    @SuppressWarnings("unchecked")
+    final List<Object[]> rows = em.createNativeQuery(selectSql).setParameter(1, getWatermark())
+        .setMaxResults(relayBatchSize).getResultList();
+    if (rows.isEmpty()) {
+      return 0;
+    }
+    final Message[] messages = new Message[rows.size()];
+    final List<Long> ids = new ArrayList<>(rows.size());
+    final Map<Message, String> dedupIds = new IdentityHashMap<>(rows.size());
+    for (int i = 0; i < messages.length; i++) {
+      Object[] row = rows.get(i);
+      Long id = ((Number) row[0]).longValue();
+      messages[i] = (Message) Serializations.deserialize(resolvePayload(row[1]));
+      ids.add(id);
+      dedupIds.put(messages[i], id.toString());
+    }
+    MessageDispatcher dispatcher = resolveDispatcher();
+    if (dispatcher instanceof JMSMessageDispatcher) {
+      ((JMSMessageDispatcher) dispatcher).accept(messages,
+          m -> singletonMap(dedupProperty, dedupIds.get(m)));
+    } else {
+      dispatcher.accept(messages);
+    }
+    em.createNativeQuery(deleteSql).setParameter("ids", ids).executeUpdate();
+    logger.fine(() -> String.format("Relayed %s outbox messages.", messages.length));
+    return messages.length;
+  }
+
+  protected MessageDispatcher resolveDispatcher() {
+    return find(MessageDispatcher.class).orElse(MessageDispatcher.empty());
+  }
+
+  protected EntityManager resolveEntityManager() {
+    return unitOfWorks.currentDefaultUnitOfWork()
+        .orElseThrow(() -> new CorantRuntimeException("Can't find any unit of works"))
+        .getEntityManager(persistenceContext);
+  }
+
+  protected byte[] resolvePayload(Object payload) {
+    if (payload instanceof Blob) {
+      Blob blob = (Blob) payload;
+      try {
+        return blob.getBytes(1, (int) blob.length());
+      } catch (SQLException e) {
+        throw new CorantRuntimeException(e);
+      }
+    }
+    return (byte[]) payload;
+  }
+
+  protected void signal() {
+    final ScheduledExecutorService executor = relayer;
+    if (executor != null && !signaled.getAndSet(true)) {
+      executor.execute(this::relay);
+    }
+  }
+}
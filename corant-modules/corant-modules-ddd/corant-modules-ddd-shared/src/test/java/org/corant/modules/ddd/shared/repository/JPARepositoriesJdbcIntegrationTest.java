@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeNoException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * corant-modules-ddd-shared
+ * <p>
+ * Counts the statements of the multi-id loading on the embedded H2 database with Hibernate, the
+ * driver is provided by the 'jdbc-it' profile, the tests are skipped if the driver is absent.
+ *
+ * @author bingo 下午4:38:52
+ *
+ */
+public class JPARepositoriesJdbcIntegrationTest {
+
+  static final int ROWS = 100;
+  static final int BATCH_SIZE = 32;
+
+  SessionFactory sessionFactory;
+  Statistics statistics;
+
+  @Before
+  public void setUp() {
+    try {
+      Class.forName("org.h2.Driver");
+    } catch (ClassNotFoundException e) {
+      assumeNoException(e);
+    }
+    StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+        .applySetting("hibernate.connection.url", "jdbc:h2:mem:repositories;DB_CLOSE_DELAY=-1")
+        .applySetting("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+        .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+        .applySetting("hibernate.generate_statistics", "true")
+        .applySetting("hibernate.jdbc.batch_size", "16").build();
+    sessionFactory = new MetadataSources(registry).addAnnotatedClass(Item.class).buildMetadata()
+        .buildSessionFactory();
+    statistics = sessionFactory.getStatistics();
+    EntityManager em = sessionFactory.createEntityManager();
+    em.getTransaction().begin();
+    List<Item> items = new ArrayList<>();
+    for (long i = 1; i <= ROWS; i++) {
+      items.add(new Item(i, "item-" + i));
+    }
+    JPARepositories.persistAll(em, items, 16, 0);
+    em.getTransaction().commit();
+    em.close();
+  }
+
+  @After
+  public void tearDown() {
+    if (sessionFactory != null) {
+      sessionFactory.close();
+    }
+  }
+
+  @Test
+  public void testSelectInChunks() {
+    EntityManager em = sessionFactory.createEntityManager();
+    List<Serializable> ids = new ArrayList<>();
+    for (long i = ROWS; i > 0; i--) {
+      // the ids are converted to the id attribute type
+      ids.add(i % 3 == 0 ? Long.valueOf(i) : i % 3 == 1 ? Integer.valueOf((int) i) : "" + i);
+    }
+    ids.add(ROWS + 1);
+    statistics.clear();
+    List<Item> items = JPARepositories.select(em, Item.class, ids, BATCH_SIZE);
+    assertEquals((ROWS + BATCH_SIZE) / BATCH_SIZE, statistics.getPrepareStatementCount());
+    assertEquals(ROWS, items.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(ROWS - i, items.get(i).getId());
+    }
+    // the managed entities are retrieved from the persistence context
+    statistics.clear();
+    List<Item> again = JPARepositories.select(em, Item.class, ids, BATCH_SIZE);
+    assertEquals(0, statistics.getPrepareStatementCount());
+    for (int i = 0; i < ROWS; i++) {
+      assertSame(items.get(i), again.get(i));
+    }
+    em.close();
+  }
+
+  @Test
+  public void testSelectSkipsRemoved() {
+    EntityManager em = sessionFactory.createEntityManager();
+    em.setFlushMode(FlushModeType.COMMIT);
+    em.getTransaction().begin();
+    List<Item> items = JPARepositories.select(em, Item.class, Arrays.asList(1L, 2L, 3L), 0);
+    em.remove(items.get(1));
+    statistics.clear();
+    // the removed entity is not served by the persistence context, and is excluded from the
+    // results of the IN query since the removal has not been flushed
+    List<Item> selected = JPARepositories.select(em, Item.class, Arrays.asList(1L, 2L, 3L), 0);
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(2, selected.size());
+    assertSame(items.get(0), selected.get(0));
+    assertSame(items.get(2), selected.get(1));
+    assertFalse(selected.contains(items.get(1)));
+    em.getTransaction().rollback();
+    em.close();
+  }
+
+  @Entity
+  @Table(name = "CT_REPOSITORY_ITEM")
+  public static class Item {
+
+    @Id
+    long id;
+
+    String name;
+
+    public Item() {}
+
+    Item(long id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
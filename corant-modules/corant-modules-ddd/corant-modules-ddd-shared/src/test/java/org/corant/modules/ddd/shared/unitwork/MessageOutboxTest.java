@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.unitwork;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageDispatcher;
+import org.corant.modules.ddd.shared.model.SnowflakeIdentifierGenerator;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-ddd-shared
+ * <p>
+ * Stores the messages of several unit of works into an in-memory outbox table and relays them to a
+ * stub dispatcher, the messages must be relayed in the commit order and deleted after relayed.
+ *
+ * @author bingo 下午3:26:07
+ *
+ */
+public class MessageOutboxTest extends TestCase {
+
+  final TreeMap<Long, byte[]> table = new TreeMap<>();
+  final List<Message> dispatched = new ArrayList<>();
+  final AtomicInteger signals = new AtomicInteger();
+  final EntityManager entityManager = entityManager(table);
+  MessageOutbox outbox;
+
+  static EntityManager entityManager(TreeMap<Long, byte[]> table) {
+    return (EntityManager) Proxy.newProxyInstance(MessageOutboxTest.class.getClassLoader(),
+        new Class<?>[] {EntityManager.class}, (p, m, args) -> {
+          if ("createNativeQuery".equals(m.getName())) {
+            return query(table, (String) args[0]);
+          }
+          throw new UnsupportedOperationException(m.getName());
+        });
+  }
+
+  static Query query(TreeMap<Long, byte[]> table, String sql) {
+    final Map<Object, Object> parameters = new HashMap<>();
+    final int[] maxResults = {Integer.MAX_VALUE};
+    return (Query) Proxy.newProxyInstance(MessageOutboxTest.class.getClassLoader(),
+        new Class<?>[] {Query.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "setParameter":
+              parameters.put(args[0], args[1]);
+              return p;
+            case "setMaxResults":
+              maxResults[0] = (Integer) args[0];
+              return p;
+            case "getResultList":
+              List<Object[]> rows = new ArrayList<>();
+              table.headMap((Long) parameters.get(1)).forEach((k, v) -> {
+                if (rows.size() < maxResults[0]) {
+                  rows.add(new Object[] {k, v});
+                }
+              });
+              return rows;
+            case "executeUpdate":
+              if (sql.startsWith("INSERT")) {
+                table.put((Long) parameters.get(1), (byte[]) parameters.get(3));
+                return 1;
+              }
+              int deleted = 0;
+              for (Object id : (Collection<?>) parameters.get("ids")) {
+                deleted += table.remove(id) != null ? 1 : 0;
+              }
+              return deleted;
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  @Test
+  public void testRelayInCommitOrder() {
+    StubUnitOfWork uow1 = new StubUnitOfWork(entityManager);
+    StubUnitOfWork uow2 = new StubUnitOfWork(entityManager);
+    StubMessage m1 = new StubMessage("m1");
+    StubMessage m2 = new StubMessage("m2");
+    StubMessage m3 = new StubMessage("m3");
+    outbox.store(uow1, m1);
+    outbox.store(uow2, m2);
+    outbox.store(uow2, m3);
+    assertEquals(3, table.size());
+    // the second unit of work commits first, its messages wait for the first one
+    complete(uow2, true);
+    assertEquals(1, signals.get());
+    assertEquals(0, outbox.relayBatch());
+    assertTrue(dispatched.isEmpty());
+    complete(uow1, true);
+    assertEquals(2, signals.get());
+    assertEquals(3, outbox.relayBatch());
+    assertEquals(3, dispatched.size());
+    assertEquals(m1, dispatched.get(0));
+    assertEquals(m2, dispatched.get(1));
+    assertEquals(m3, dispatched.get(2));
+    assertTrue(table.isEmpty());
+    assertEquals(0, outbox.relayBatch());
+    assertEquals(3, dispatched.size());
+  }
+
+  @Test
+  public void testRelayInBatches() {
+    outbox.relayBatchSize = 2;
+    StubUnitOfWork uow = new StubUnitOfWork(entityManager);
+    for (int i = 0; i < 5; i++) {
+      outbox.store(uow, new StubMessage("m" + i));
+    }
+    complete(uow, true);
+    assertEquals(2, outbox.relayBatch());
+    assertEquals(2, outbox.relayBatch());
+    assertEquals(1, outbox.relayBatch());
+    assertTrue(table.isEmpty());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(new StubMessage("m" + i), dispatched.get(i));
+    }
+  }
+
+  @Test
+  public void testRollbackReleasesSubsequentMessages() {
+    StubUnitOfWork uow1 = new StubUnitOfWork(entityManager);
+    StubUnitOfWork uow2 = new StubUnitOfWork(entityManager);
+    StubUnitOfWork uow3 = new StubUnitOfWork(entityManager);
+    outbox.store(uow1, new StubMessage("m1"));
+    outbox.store(uow2, new StubMessage("m2"));
+    complete(uow2, true);
+    assertEquals(0, outbox.relayBatch());
+    // the rolled back row never becomes visible
+    table.remove(table.firstKey());
+    complete(uow1, false);
+    assertEquals(1, signals.get());
+    // a unit of work that didn't write the outbox doesn't signal the relay
+    complete(uow3, true);
+    assertEquals(1, signals.get());
+    assertEquals(1, outbox.relayBatch());
+    assertEquals(new StubMessage("m2"), dispatched.get(0));
+    assertTrue(table.isEmpty());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    final AtomicLong sequence = new AtomicLong();
+    outbox = new MessageOutbox() {
+      @Override
+      protected EntityManager resolveEntityManager() {
+        return entityManager;
+      }
+
+      @Override
+      protected MessageDispatcher resolveDispatcher() {
+        return messages -> {
+          for (Message message : messages) {
+            dispatched.add(message);
+          }
+        };
+      }
+
+      @Override
+      protected void signal() {
+        signals.incrementAndGet();
+      }
+    };
+    outbox.identifierGenerator = new SnowflakeIdentifierGenerator() {
+      @Override
+      public long generate(Object object) {
+        return sequence.incrementAndGet();
+      }
+    };
+    outbox.persistenceUnit = " ";
+    outbox.table = "DDD_MESSAGE_OUTBOX";
+    outbox.relayBatchSize = 64;
+    outbox.onPostConstruct();
+  }
+
+  void complete(StubUnitOfWork uow, boolean success) {
+    uow.complete(success);
+    outbox.onCompleted(new AbstractJPAUnitOfWork.Registration(uow), success);
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午3:31:42
+   *
+   */
+  static class StubMessage implements Message {
+
+    private static final long serialVersionUID = -1482047211694385618L;
+
+    final String content;
+
+    StubMessage(String content) {
+      this.content = content;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof StubMessage && content.equals(((StubMessage) obj).content);
+    }
+
+    @Override
+    public int hashCode() {
+      return content.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return content;
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午3:33:15
+   *
+   */
+  static class StubUnitOfWork extends AbstractJPAUnitOfWork {
+
+    final EntityManager entityManager;
+
+    StubUnitOfWork(EntityManager entityManager) {
+      super(null);
+      this.entityManager = entityManager;
+    }
+
+    @Override
+    public EntityManager getEntityManager(PersistenceContext pc) {
+      return entityManager;
+    }
+
+    @Override
+    public Object getId() {
+      return this;
+    }
+  }
+}
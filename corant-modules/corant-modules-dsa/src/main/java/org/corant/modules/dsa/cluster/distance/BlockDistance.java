@@ -13,8 +13,6 @@
  */
 package org.corant.modules.dsa.cluster.distance;
 
-import static org.corant.shared.util.Assertions.shouldBeTrue;
-import static org.corant.shared.util.Empties.sizeOf;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.math3.exception.DimensionMismatchException;
@@ -31,6 +29,11 @@ public class BlockDistance implements Distance, DistanceMeasure {
 
   private static final long serialVersionUID = 8889289184485622602L;
 
+  @Override
+  public double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    return compute(f1, f2);
+  }
+
   @Override
   public double calculate(Map<Object, Double> f1, Map<Object, Double> f2,
       Map<String, Double> hints) {
@@ -51,13 +54,12 @@ public class BlockDistance implements Distance, DistanceMeasure {
 
   @Override
   public double compute(double[] a, double[] b) throws DimensionMismatchException {
+    if (a.length != b.length) {
+      throw new DimensionMismatchException(a.length, b.length);
+    }
     double sum = 0;
-    int size = sizeOf(a);
-    shouldBeTrue(size == sizeOf(b), () -> new DimensionMismatchException(a.length, b.length));
-    for (int i = 0; i < size; i++) {
-      double v1 = a[i];
-      double v2 = b[i];
-      sum += Math.abs(v1 - v2);
+    for (int i = 0; i < a.length; i++) {
+      sum += Math.abs(a[i] - b[i]);
     }
     return sum;
   }
@@ -13,9 +13,7 @@
  */
 package org.corant.modules.dsa.cluster.distance;
 
-import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Empties.isEmpty;
-import static org.corant.shared.util.Empties.sizeOf;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +32,11 @@ public class ChebychevDistance implements Distance, DistanceMeasure {
 
   private static final long serialVersionUID = -5525758252437752389L;
 
+  @Override
+  public double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    return compute(f1, f2);
+  }
+
   @Override
   public double calculate(Map<Object, Double> f1, Map<Object, Double> f2,
       Map<String, Double> hints) {
@@ -54,15 +57,14 @@ public class ChebychevDistance implements Distance, DistanceMeasure {
 
   @Override
   public double compute(double[] a, double[] b) throws DimensionMismatchException {
-    List<Double> list = new ArrayList<>();
-    int size = sizeOf(a);
-    shouldBeTrue(size == sizeOf(b), () -> new DimensionMismatchException(a.length, b.length));
-    for (int i = 0; i < size; i++) {
-      double v1 = a[i];
-      double v2 = b[i];
-      list.add(Math.abs(v1 - v2));
+    if (a.length != b.length) {
+      throw new DimensionMismatchException(a.length, b.length);
     }
-    return isEmpty(list) ? 0 : list.stream().max(Double::compare).get();
+    double max = 0;
+    for (int i = 0; i < a.length; i++) {
+      max = Math.max(max, Math.abs(a[i] - b[i]));
+    }
+    return max;
   }
 
 }
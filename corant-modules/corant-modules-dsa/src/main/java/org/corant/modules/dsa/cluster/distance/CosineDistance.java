@@ -13,16 +13,17 @@
  */
 package org.corant.modules.dsa.cluster.distance;
 
-import static org.corant.shared.util.Assertions.shouldBeTrue;
-import static org.corant.shared.util.Empties.sizeOf;
 import java.util.Map;
-import java.util.Set;
 import org.apache.commons.math3.exception.DimensionMismatchException;
 import org.apache.commons.math3.ml.distance.DistanceMeasure;
 import org.corant.shared.exception.CorantRuntimeException;
 
 /**
  * corant-modules-dsa
+ * <p>
+ * The cosine distance of two feature vectors, that is 1 minus the cosine similarity, the result
+ * ranges from 0 (same direction) to 2 (opposite direction). If one of the vectors is a zero vector
+ * the distance is 1, if both are zero vectors the distance is 0.
  *
  * @author bingo 下午1:55:18
  *
@@ -31,39 +32,61 @@ public class CosineDistance implements Distance, DistanceMeasure {
 
   private static final long serialVersionUID = 1884325108414472284L;
 
+  @Override
+  public double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    return compute(f1, f2);
+  }
+
   @Override
   public double calculate(Map<Object, Double> f1, Map<Object, Double> f2,
       Map<String, Double> hints) {
     if (f1 == null || f2 == null) {
       throw new CorantRuntimeException("Feature vectors can't be null");
     }
-    double dividend = 0;
-    double divisor = 1;
-    Set<Map.Entry<Object, Double>> entries = f1.entrySet();
-    for (Map.Entry<Object, Double> entry : entries) {
+    double dot = 0;
+    double na = 0;
+    double nb = 0;
+    for (Map.Entry<Object, Double> entry : f1.entrySet()) {
       Double v1 = entry.getValue();
-      Double v2 = f2.get(entry.getKey());
-      if (v1 != null && v2 != null) {
-        dividend = Math.pow(v1 * v2, 2);
-        divisor = Math.pow(v1, 2) + Math.pow(v2, 2);
+      if (v1 != null) {
+        na += v1 * v1;
+        Double v2 = f2.get(entry.getKey());
+        if (v2 != null) {
+          dot += v1 * v2;
+        }
+      }
+    }
+    for (Double v2 : f2.values()) {
+      if (v2 != null) {
+        nb += v2 * v2;
       }
     }
-    return dividend / divisor;
+    return distance(dot, na, nb);
   }
 
   @Override
   public double compute(double[] a, double[] b) throws DimensionMismatchException {
-    int size = sizeOf(a);
-    shouldBeTrue(size == sizeOf(b), () -> new DimensionMismatchException(a.length, b.length));
-    double dividend = 0;
-    double divisor = 1;
-    for (int i = 0; i < size; i++) {
+    if (a.length != b.length) {
+      throw new DimensionMismatchException(a.length, b.length);
+    }
+    double dot = 0;
+    double na = 0;
+    double nb = 0;
+    for (int i = 0; i < a.length; i++) {
       double v1 = a[i];
       double v2 = b[i];
-      dividend = Math.pow(v1 * v2, 2);
-      divisor = Math.pow(v1, 2) + Math.pow(v2, 2);
+      dot += v1 * v2;
+      na += v1 * v1;
+      nb += v2 * v2;
+    }
+    return distance(dot, na, nb);
+  }
+
+  protected double distance(double dot, double na, double nb) {
+    if (na == 0 || nb == 0) {
+      return na == nb ? 0 : 1;
     }
-    return dividend / divisor;
+    return 1 - dot / (Math.sqrt(na) * Math.sqrt(nb));
   }
 
 }
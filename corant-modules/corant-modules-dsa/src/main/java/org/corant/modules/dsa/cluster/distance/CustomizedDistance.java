@@ -26,6 +26,27 @@ import org.corant.shared.exception.CorantRuntimeException;
  */
 public class CustomizedDistance implements Distance {
 
+  @Override
+  public double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    if (f1 == null || f2 == null) {
+      throw new CorantRuntimeException("Feature vectors can't be null");
+    }
+    final double p = hints == null ? 1 : defaultObject(hints.get("p"), (double) 1);
+    final double q = hints == null ? 1 : defaultObject(hints.get("q"), (double) 1);
+    final int size = Math.min(f1.length, f2.length);
+    double sum = 0;
+    if (p == 1) {
+      for (int i = 0; i < size; i++) {
+        sum += Math.abs(f1[i] - f2[i]);
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        sum += Math.pow(Math.abs(f1[i] - f2[i]), p);
+      }
+    }
+    return q == 1 ? sum : Math.pow(sum, 1.0 / q);
+  }
+
   @Override
   public double calculate(Map<Object, Double> f1, Map<Object, Double> f2,
       Map<String, Double> hints) {
@@ -13,7 +13,9 @@
  */
 package org.corant.modules.dsa.cluster.distance;
 
+import java.util.HashMap;
 import java.util.Map;
+import org.corant.shared.exception.CorantRuntimeException;
 
 /**
  * corant-modules-dsa
@@ -28,5 +30,43 @@ public interface Distance {
     return calculate(f1, f2, null);
   }
 
+  /**
+   * Calculate the distance between two dense feature vectors, the two vectors must have the same
+   * dimension and use the same feature order.
+   *
+   * @param f1 the first dense feature vector
+   * @param f2 the second dense feature vector
+   * @return the distance
+   */
+  default double calculate(double[] f1, double[] f2) {
+    return calculate(f1, f2, null);
+  }
+
+  /**
+   * Calculate the distance between two dense feature vectors with hints. The default implementation
+   * converts the vectors to maps keyed by the feature index and delegates to
+   * {@link #calculate(Map, Map, Map)}, the implementations should override it with a primitive loop
+   * so that it can be compiled to tight machine code.
+   *
+   * @param f1 the first dense feature vector
+   * @param f2 the second dense feature vector
+   * @param hints the calculation hints
+   * @return the distance
+   */
+  default double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    if (f1 == null || f2 == null) {
+      throw new CorantRuntimeException("Feature vectors can't be null");
+    }
+    Map<Object, Double> m1 = new HashMap<>(f1.length << 1);
+    Map<Object, Double> m2 = new HashMap<>(f2.length << 1);
+    for (int i = 0; i < f1.length; i++) {
+      m1.put(i, f1[i]);
+    }
+    for (int i = 0; i < f2.length; i++) {
+      m2.put(i, f2[i]);
+    }
+    return calculate(m1, m2, hints);
+  }
+
   double calculate(Map<Object, Double> f1, Map<Object, Double> f2, Map<String, Double> hints);
 }
@@ -24,6 +24,16 @@ import java.util.Map;
  */
 public class MinkowskiDistance extends CustomizedDistance {
 
+  @Override
+  public double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    Map<String, Double> useHints = new HashMap<>();
+    if (hints != null) {
+      useHints.putAll(hints);
+      useHints.put("q", 1.0);
+    }
+    return super.calculate(f1, f2, useHints);
+  }
+
   @Override
   public double calculate(Map<Object, Double> f1, Map<Object, Double> f2,
       Map<String, Double> hints) {
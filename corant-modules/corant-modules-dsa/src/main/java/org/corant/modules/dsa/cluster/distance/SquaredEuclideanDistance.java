@@ -13,8 +13,6 @@
  */
 package org.corant.modules.dsa.cluster.distance;
 
-import static org.corant.shared.util.Assertions.shouldBeTrue;
-import static org.corant.shared.util.Empties.sizeOf;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.math3.exception.DimensionMismatchException;
@@ -31,6 +29,11 @@ public class SquaredEuclideanDistance implements Distance, DistanceMeasure {
 
   private static final long serialVersionUID = 6154900087539783048L;
 
+  @Override
+  public double calculate(double[] f1, double[] f2, Map<String, Double> hints) {
+    return compute(f1, f2);
+  }
+
   @Override
   public double calculate(Map<Object, Double> f1, Map<Object, Double> f2,
       Map<String, Double> hints) {
@@ -52,13 +55,13 @@ public class SquaredEuclideanDistance implements Distance, DistanceMeasure {
 
   @Override
   public double compute(double[] a, double[] b) throws DimensionMismatchException {
+    if (a.length != b.length) {
+      throw new DimensionMismatchException(a.length, b.length);
+    }
     double sum = 0;
-    int size = sizeOf(a);
-    shouldBeTrue(size == sizeOf(b), () -> new DimensionMismatchException(a.length, b.length));
-    for (int i = 0; i < size; i++) {
-      double v1 = a[i];
-      double v2 = b[i];
-      sum += Math.pow(v1 - v2, 2);
+    for (int i = 0; i < a.length; i++) {
+      double d = a[i] - b[i];
+      sum += d * d;
     }
     return sum;
   }
@@ -27,6 +27,7 @@ import org.apache.commons.math3.ml.clustering.evaluation.ClusterEvaluator;
 import org.apache.commons.math3.ml.distance.DistanceMeasure;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.corant.modules.dsa.cluster.distance.Distance;
+import org.corant.modules.dsa.cluster.kmeans.DenseKMeansClusterer.DenseKMeansResult;
 
 /**
  * corant-modules-dsa
@@ -67,6 +68,21 @@ public class Clusterers {
         epsilon, random).cluster(records);
   }
 
+  public static DenseKMeansResult denseKmeansCluster(final double[][] data, final int k,
+      final int maxIterations) {
+    return new DenseKMeansClusterer(k, maxIterations).fit(data);
+  }
+
+  public static DenseKMeansResult denseKmeansCluster(final double[][] data, final int k,
+      final int maxIterations, final Distance distance, final double tolerance, final long seed) {
+    return new DenseKMeansClusterer(k, maxIterations, distance, tolerance, seed, null).fit(data);
+  }
+
+  public static Map<Centroid, List<MapRecord>> denseKmeansCluster(final List<MapRecord> records,
+      final int k, final int maxIterations) {
+    return new DenseKMeansClusterer(k, maxIterations).fit(records);
+  }
+
   public static Map<Centroid, List<MapRecord>> kmeansCluster(List<MapRecord> mapRecords, int k,
       Distance distance, int maxIterations) {
     return DefaultKMeanClusterer.fit(mapRecords, k, distance, maxIterations);
@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.dsa.cluster.kmeans;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.defaultObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.corant.modules.dsa.cluster.distance.Distance;
+import org.corant.modules.dsa.cluster.distance.SquaredEuclideanDistance;
+
+/**
+ * corant-modules-dsa
+ * <p>
+ * A k-means clusterer that works on dense primitive feature matrices, each row of the matrix is a
+ * record and each column is a feature, use {@link FeatureDictionary} to convert the
+ * {@link MapRecord} to the matrix.
+ * <p>
+ * The initial centroids are chosen with greedy k-means++, the next centroid candidates are sampled
+ * with probability proportional to the distance between the record and its nearest chosen
+ * centroid, so the {@link SquaredEuclideanDistance} gives the classic D² weighting. In each
+ * iteration the records are assigned to their nearest centroids in parallel with a fork-join pool,
+ * each task accumulates the partial sums and counts of its records and the partial results are
+ * merged when the tasks are joined, so the records are visited once per iteration and no
+ * intermediate collection is created.
+ * The iteration terminates when no record changes its cluster, when the maximum euclidean movement
+ * of the centroids is not greater than the given tolerance, or when the maximum iterations are
+ * reached. The centroid of an empty cluster is not moved.
+ *
+ * <pre>
+ * FeatureDictionary dict = FeatureDictionary.of(records);
+ * DenseKMeansClusterer clusterer = new DenseKMeansClusterer(8, 100);
+ * DenseKMeansResult result = clusterer.fit(dict.toMatrix(records, 0));
+ * Map&lt;Centroid, List&lt;MapRecord&gt;&gt; clusters = result.toClusters(records, dict);
+ * </pre>
+ *
+ * @author bingo 下午4:35:12
+ *
+ */
+public class DenseKMeansClusterer {
+
+  public static final double DEFAULT_TOLERANCE = 1e-6;
+
+  protected final int k;
+  protected final int maxIterations;
+  protected final Distance distance;
+  protected final double tolerance;
+  protected final long seed;
+  protected final ForkJoinPool pool;
+
+  /**
+   * Create a clusterer with squared euclidean distance, default tolerance, random seed and the
+   * common fork-join pool.
+   *
+   * @param k the number of clusters
+   * @param maxIterations the maximum iterations
+   */
+  public DenseKMeansClusterer(int k, int maxIterations) {
+    this(k, maxIterations, null, DEFAULT_TOLERANCE, System.nanoTime(), null);
+  }
+
+  /**
+   * Create a clusterer
+   *
+   * @param k the number of clusters, must be greater than 1
+   * @param maxIterations the maximum iterations, must be positive
+   * @param distance the distance use to find the nearest centroid, if null the
+   *        {@link SquaredEuclideanDistance} is used
+   * @param tolerance the centroid movement tolerance, if the maximum euclidean movement of the
+   *        centroids in an iteration is not greater than it, the iteration terminates
+   * @param seed the random seed use to choose the initial centroids
+   * @param pool the fork-join pool use to assign the records, if null the common pool is used
+   */
+  public DenseKMeansClusterer(int k, int maxIterations, Distance distance, double tolerance,
+      long seed, ForkJoinPool pool) {
+    shouldBeTrue(k > 1, "It doesn't make sense to have less than or equal to 1 cluster");
+    shouldBeTrue(maxIterations > 0, "Max iterations should be a positive number");
+    this.k = k;
+    this.maxIterations = maxIterations;
+    this.distance = defaultObject(distance, SquaredEuclideanDistance::new);
+    this.tolerance = Math.max(tolerance, 0d);
+    this.seed = seed;
+    this.pool = defaultObject(pool, ForkJoinPool::commonPool);
+  }
+
+  /**
+   * Performs the k-means clustering on the given dense feature matrix.
+   *
+   * @param data the feature matrix, each row is a record, all rows must have the same dimension
+   * @return the clustering result
+   */
+  public DenseKMeansResult fit(double[][] data) {
+    shouldBeTrue(data != null && data.length > 0, "The dataset can't be empty");
+    final int n = data.length;
+    final int dimension = shouldNotNull(data[0]).length;
+    for (double[] row : data) {
+      shouldBeTrue(row != null && row.length == dimension,
+          "All records must have the same dimension %s", dimension);
+    }
+    final int useK = Math.min(k, n);
+    final int[] assignments = new int[n];
+    Arrays.fill(assignments, -1);
+    final int threshold = Math.max(1024, n / (pool.getParallelism() << 2));
+    double[][] centroids = initCentroids(data, useK);
+    int iterations = 0;
+    boolean converged = false;
+    while (iterations < maxIterations) {
+      iterations++;
+      Partial partial = pool.invoke(new AssignTask(data, centroids, assignments, 0, n, threshold));
+      if (partial.changed == 0) {
+        converged = true;
+        break;
+      }
+      double[][] relocated = new double[useK][];
+      double maxMovement = 0;
+      for (int c = 0; c < useK; c++) {
+        if (partial.counts[c] == 0) {
+          relocated[c] = centroids[c];
+          continue;
+        }
+        final double[] sum = partial.sums[c];
+        final double count = partial.counts[c];
+        final double[] centroid = new double[dimension];
+        double movement = 0;
+        for (int j = 0; j < dimension; j++) {
+          centroid[j] = sum[j] / count;
+          double d = centroid[j] - centroids[c][j];
+          movement += d * d;
+        }
+        maxMovement = Math.max(maxMovement, movement);
+        relocated[c] = centroid;
+      }
+      centroids = relocated;
+      if (maxMovement <= tolerance * tolerance) {
+        pool.invoke(new AssignTask(data, centroids, assignments, 0, n, threshold));
+        converged = true;
+        break;
+      }
+    }
+    return new DenseKMeansResult(centroids, assignments, iterations, converged);
+  }
+
+  /**
+   * Performs the k-means clustering on the given records, the records are converted to dense
+   * feature matrix with the feature dictionary built from the records, the absent features are
+   * filled with 0.
+   *
+   * @param records the records
+   * @return the clusters
+   */
+  public Map<Centroid, List<MapRecord>> fit(List<MapRecord> records) {
+    shouldBeTrue(records != null && !records.isEmpty(), "The dataset can't be empty");
+    FeatureDictionary dictionary = FeatureDictionary.of(records);
+    return fit(dictionary.toMatrix(records, 0)).toClusters(records, dictionary);
+  }
+
+  /**
+   * Choose the initial centroids with greedy k-means++, in each step several candidates are sampled
+   * and the one that minimizes the total weight is chosen.
+   *
+   * @param data the feature matrix
+   * @param useK the number of centroids
+   */
+  protected double[][] initCentroids(double[][] data, int useK) {
+    final int n = data.length;
+    final int trials = 2 + (int) Math.log(useK);
+    final SplittableRandom random = new SplittableRandom(seed);
+    final double[][] centroids = new double[useK][];
+    double[] weights = new double[n];
+    double[] candidateWeights = new double[n];
+    double[] bestWeights = new double[n];
+    centroids[0] = data[random.nextInt(n)].clone();
+    double total = 0;
+    for (int i = 0; i < n; i++) {
+      weights[i] = distance.calculate(data[i], centroids[0]);
+      total += weights[i];
+    }
+    for (int c = 1; c < useK; c++) {
+      int best = -1;
+      double bestTotal = Double.MAX_VALUE;
+      for (int t = 0; t < trials; t++) {
+        final int candidate = sample(weights, total, random);
+        final double[] point = data[candidate];
+        double candidateTotal = 0;
+        for (int i = 0; i < n; i++) {
+          candidateWeights[i] = Math.min(weights[i], distance.calculate(data[i], point));
+          candidateTotal += candidateWeights[i];
+        }
+        if (best < 0 || candidateTotal < bestTotal) {
+          best = candidate;
+          bestTotal = candidateTotal;
+          double[] temp = bestWeights;
+          bestWeights = candidateWeights;
+          candidateWeights = temp;
+        }
+      }
+      centroids[c] = data[best].clone();
+      double[] temp = weights;
+      weights = bestWeights;
+      bestWeights = temp;
+      total = bestTotal;
+    }
+    return centroids;
+  }
+
+  /**
+   * Sample a record index with probability proportional to its weight.
+   *
+   * @param weights the weights of the records
+   * @param total the total weight
+   * @param random the random
+   */
+  protected int sample(double[] weights, double total, SplittableRandom random) {
+    if (total > 0) {
+      double r = random.nextDouble() * total;
+      for (int i = 0; i < weights.length; i++) {
+        r -= weights[i];
+        if (r <= 0 && weights[i] > 0) {
+          return i;
+        }
+      }
+    }
+    return random.nextInt(weights.length);
+  }
+
+  /**
+   * corant-modules-dsa
+   * <p>
+   * The dense k-means clustering result.
+   *
+   * @author bingo 下午4:35:12
+   *
+   */
+  public static class DenseKMeansResult {
+
+    protected final double[][] centroids;
+    protected final int[] assignments;
+    protected final int iterations;
+    protected final boolean converged;
+
+    protected DenseKMeansResult(double[][] centroids, int[] assignments, int iterations,
+        boolean converged) {
+      this.centroids = centroids;
+      this.assignments = assignments;
+      this.iterations = iterations;
+      this.converged = converged;
+    }
+
+    /**
+     * Returns the cluster index of each record, the index of the array is the row index of the
+     * feature matrix.
+     */
+    public int[] getAssignments() {
+      return assignments;
+    }
+
+    /**
+     * Returns the centroids, the index of the array is the cluster index.
+     */
+    public double[][] getCentroids() {
+      return centroids;
+    }
+
+    public int getIterations() {
+      return iterations;
+    }
+
+    /**
+     * Returns whether the iteration terminated before reaching the maximum iterations.
+     */
+    public boolean isConverged() {
+      return converged;
+    }
+
+    /**
+     * Converts this result to the map of the centroids and the records, like
+     * {@link DefaultKMeanClusterer#fit(List, int, Distance, int)}.
+     *
+     * @param records the records in the same order as the feature matrix rows
+     * @param dictionary the feature dictionary that used to build the feature matrix
+     */
+    public Map<Centroid, List<MapRecord>> toClusters(List<MapRecord> records,
+        FeatureDictionary dictionary) {
+      shouldBeTrue(records.size() == assignments.length,
+          "The records size must be equal to the feature matrix rows");
+      List<List<MapRecord>> members = new ArrayList<>(centroids.length);
+      for (int c = 0; c < centroids.length; c++) {
+        members.add(new ArrayList<>());
+      }
+      int i = 0;
+      for (MapRecord record : records) {
+        members.get(assignments[i++]).add(record);
+      }
+      Map<Centroid, List<MapRecord>> clusters = new LinkedHashMap<>();
+      for (int c = 0; c < centroids.length; c++) {
+        if (!members.get(c).isEmpty()) {
+          clusters.put(new Centroid(dictionary.toMap(centroids[c])), members.get(c));
+        }
+      }
+      return clusters;
+    }
+  }
+
+  /**
+   * corant-modules-dsa
+   * <p>
+   * Assign the records of the given range to their nearest centroids and accumulate the partial
+   * sums.
+   *
+   * @author bingo 下午4:35:12
+   *
+   */
+  protected class AssignTask extends RecursiveTask<Partial> {
+
+    private static final long serialVersionUID = -2893512063716548042L;
+
+    final double[][] data;
+    final double[][] centroids;
+    final int[] assignments;
+    final int from;
+    final int to;
+    final int threshold;
+
+    AssignTask(double[][] data, double[][] centroids, int[] assignments, int from, int to,
+        int threshold) {
+      this.data = data;
+      this.centroids = centroids;
+      this.assignments = assignments;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected Partial compute() {
+      if (to - from <= threshold) {
+        return assign();
+      }
+      final int middle = (from + to) >>> 1;
+      AssignTask left = new AssignTask(data, centroids, assignments, from, middle, threshold);
+      AssignTask right = new AssignTask(data, centroids, assignments, middle, to, threshold);
+      left.fork();
+      Partial result = right.compute();
+      return result.merge(left.join());
+    }
+
+    Partial assign() {
+      final int useK = centroids.length;
+      final int dimension = centroids[0].length;
+      final Partial partial = new Partial(useK, dimension);
+      for (int i = from; i < to; i++) {
+        final double[] row = data[i];
+        int nearest = 0;
+        double minimum = Double.MAX_VALUE;
+        for (int c = 0; c < useK; c++) {
+          double d = distance.calculate(row, centroids[c]);
+          if (d < minimum) {
+            minimum = d;
+            nearest = c;
+          }
+        }
+        if (assignments[i] != nearest) {
+          assignments[i] = nearest;
+          partial.changed++;
+        }
+        final double[] sum = partial.sums[nearest];
+        for (int j = 0; j < dimension; j++) {
+          sum[j] += row[j];
+        }
+        partial.counts[nearest]++;
+      }
+      return partial;
+    }
+  }
+
+  /**
+   * corant-modules-dsa
+   * <p>
+   * The partial sums and counts of an assignment task.
+   *
+   * @author bingo 下午4:35:12
+   *
+   */
+  protected static class Partial {
+    final double[][] sums;
+    final long[] counts;
+    long changed;
+
+    Partial(int k, int dimension) {
+      sums = new double[k][dimension];
+      counts = new long[k];
+    }
+
+    Partial merge(Partial other) {
+      for (int c = 0; c < sums.length; c++) {
+        final double[] sum = sums[c];
+        final double[] otherSum = other.sums[c];
+        for (int j = 0; j < sum.length; j++) {
+          sum[j] += otherSum[j];
+        }
+        counts[c] += other.counts[c];
+      }
+      changed += other.changed;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.dsa.cluster.kmeans;
+
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * corant-modules-dsa
+ * <p>
+ * A dictionary that maps the feature names to the column indexes of the dense feature matrices,
+ * the indexes are assigned in the order in which the feature names are added.
+ *
+ * @author bingo 下午4:18:25
+ *
+ */
+public class FeatureDictionary {
+
+  protected final Map<Object, Integer> indexes = new LinkedHashMap<>();
+  protected final List<Object> names = new ArrayList<>();
+
+  public FeatureDictionary() {}
+
+  public FeatureDictionary(Iterable<?> names) {
+    if (names != null) {
+      names.forEach(this::add);
+    }
+  }
+
+  /**
+   * Build a feature dictionary from the feature names of the given records.
+   *
+   * @param records the records
+   */
+  public static FeatureDictionary of(Iterable<MapRecord> records) {
+    FeatureDictionary dictionary = new FeatureDictionary();
+    if (records != null) {
+      for (MapRecord record : records) {
+        record.getFeatures().keySet().forEach(dictionary::add);
+      }
+    }
+    return dictionary;
+  }
+
+  /**
+   * Add the given feature name to this dictionary if absent, returns the column index of the name.
+   *
+   * @param name the feature name
+   */
+  public int add(Object name) {
+    return indexes.computeIfAbsent(shouldNotNull(name), k -> {
+      names.add(k);
+      return names.size() - 1;
+    });
+  }
+
+  /**
+   * Returns the column index of the given feature name or -1 if not found.
+   *
+   * @param name the feature name
+   */
+  public int indexOf(Object name) {
+    Integer index = indexes.get(name);
+    return index == null ? -1 : index;
+  }
+
+  public Object nameOf(int index) {
+    return names.get(index);
+  }
+
+  public List<Object> names() {
+    return Collections.unmodifiableList(names);
+  }
+
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Converts the dense vector to feature map.
+   *
+   * @param vector the dense vector
+   */
+  public Map<Object, Double> toMap(double[] vector) {
+    Map<Object, Double> map = new HashMap<>(names.size() << 1);
+    for (int i = 0; i < names.size() && i < vector.length; i++) {
+      map.put(names.get(i), vector[i]);
+    }
+    return map;
+  }
+
+  /**
+   * Converts the records to dense feature matrix, each row is the feature vector of the record with
+   * the same index, the absent features are filled with the given missing value.
+   *
+   * @param records the records
+   * @param missingValue the value of the absent features
+   */
+  public double[][] toMatrix(List<MapRecord> records, double missingValue) {
+    final int dimension = names.size();
+    final double[][] matrix = new double[records.size()][];
+    int i = 0;
+    for (MapRecord record : records) {
+      matrix[i++] = toVector(record.getFeatures(), dimension, missingValue);
+    }
+    return matrix;
+  }
+
+  /**
+   * Converts the feature map to dense vector, the absent features are filled with the given missing
+   * value.
+   *
+   * @param features the feature map
+   * @param missingValue the value of the absent features
+   */
+  public double[] toVector(Map<Object, Double> features, double missingValue) {
+    return toVector(features, names.size(), missingValue);
+  }
+
+  protected double[] toVector(Map<Object, Double> features, int dimension, double missingValue) {
+    final double[] vector = new double[dimension];
+    if (missingValue != 0) {
+      Arrays.fill(vector, missingValue);
+    }
+    features.forEach((k, v) -> {
+      int index = indexOf(k);
+      if (index >= 0 && v != null) {
+        vector[index] = v;
+      }
+    });
+    return vector;
+  }
+}
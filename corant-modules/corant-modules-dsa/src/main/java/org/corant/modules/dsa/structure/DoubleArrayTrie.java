@@ -0,0 +1,592 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.dsa.structure;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * corant-modules-dsa
+ * <p>
+ * An immutable double-array trie with an Aho-Corasick automaton on top of it. The trie states are
+ * stored in a flat int array, the transition from state s with char c goes to state t = base[s] +
+ * c + 1 if check[t] == s + 1. The base, check, failure link and the nearest output of each state
+ * are interleaved in one unit of four ints, so that a transition usually touches one cache line.
+ * A key ends at the state s if the terminal unit t = base[s] exists, the base of the terminal unit
+ * holds the key id and its failure link field holds the next terminal unit along the failure
+ * links, so the outputs of the automaton need no extra arrays and the exact lookups and the
+ * multi-pattern scanning over a {@link CharSequence} need no node objects.
+ * <p>
+ * The keys are identified by their index in the natural ordering of the keys, called key id. The
+ * trie can be saved to a file with {@link #save(Path)} and loaded with {@link #map(Path)} or
+ * {@link #map(Path, IntFunction)}, the loaded trie uses the memory-mapped file directly without
+ * copying the arrays into the heap, since the values are not part of the file, the mapped trie
+ * resolves the values from the key ids with the given function.
+ *
+ * <pre>
+ * DoubleArrayTrie&lt;String&gt; trie = DoubleArrayTrie.of(words);
+ * trie.scan(text, (begin, end, value) -&gt; {
+ *   // handle hit
+ *   return true;
+ * });
+ * </pre>
+ *
+ * @author bingo 下午3:26:41
+ *
+ */
+public class DoubleArrayTrie<V> {
+
+  protected static final int MAGIC = 0x43444154;
+  protected static final int VERSION = 1;
+  protected static final int HEADER_INTS = 4;
+  protected static final int UNIT_INTS = 4;
+  protected static final int BASE = 0;
+  protected static final int CHECK = 1;
+  protected static final int FAIL = 2;
+  protected static final int HIT = 3;
+
+  protected final int size;
+  protected final int keySize;
+  // base, check, fail, hit of each state
+  protected final IntBuffer units;
+  protected final IntBuffer lengths;
+  protected final IntFunction<V> values;
+
+  protected DoubleArrayTrie(int size, int keySize, IntBuffer units, IntBuffer lengths,
+      IntFunction<V> values) {
+    this.size = size;
+    this.keySize = keySize;
+    this.units = units;
+    this.lengths = lengths;
+    this.values = values;
+  }
+
+  /**
+   * Memory-maps a trie file that saved by {@link #save(Path)}, the values of the returned trie are
+   * the key ids.
+   *
+   * @param path the trie file path
+   */
+  public static DoubleArrayTrie<Integer> map(Path path) throws IOException {
+    return map(path, Integer::valueOf);
+  }
+
+  /**
+   * Memory-maps a trie file that saved by {@link #save(Path)}.
+   *
+   * @param <V> the value type
+   * @param path the trie file path
+   * @param values the function use to resolve the value from the key id
+   */
+  public static <V> DoubleArrayTrie<V> map(Path path, IntFunction<V> values) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      shouldBeTrue(
+          buffer.remaining() >= HEADER_INTS << 2 && buffer.getInt(0) == MAGIC
+              && buffer.getInt(4) == VERSION,
+          "The file %s is not a valid double-array trie file", path);
+      final int size = buffer.getInt(8);
+      final int keySize = buffer.getInt(12);
+      shouldBeTrue(buffer.remaining() == HEADER_INTS + (long) UNIT_INTS * size + keySize << 2,
+          "The double-array trie file %s is corrupted", path);
+      int offset = HEADER_INTS << 2;
+      IntBuffer units = slice(buffer, offset, size * UNIT_INTS);
+      offset += size * UNIT_INTS << 2;
+      IntBuffer lengths = slice(buffer, offset, keySize);
+      return new DoubleArrayTrie<>(size, keySize, units, lengths, shouldNotNull(values));
+    }
+  }
+
+  /**
+   * Builds a trie from the given map, the keys can't be null or empty.
+   *
+   * @param <V> the value type
+   * @param map the keys and values
+   */
+  public static <V> DoubleArrayTrie<V> of(Map<? extends CharSequence, ? extends V> map) {
+    TreeMap<String, V> sorted = new TreeMap<>();
+    map.forEach((k, v) -> {
+      shouldBeTrue(k != null && k.length() > 0, "The key of double-array trie can't be empty");
+      sorted.put(k.toString(), v);
+    });
+    final List<V> values = new ArrayList<>(sorted.values());
+    return new Builder(sorted.keySet().toArray(new String[0])).build(values::get);
+  }
+
+  static IntBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer dup = buffer.duplicate();
+    dup.position(offset).limit(offset + (length << 2));
+    return dup.slice().asIntBuffer();
+  }
+
+  /**
+   * Returns whether the given text contains any key.
+   *
+   * @param text the text to scan
+   */
+  public boolean containsAny(CharSequence text) {
+    final boolean[] found = {false};
+    scan(text, (b, e, v) -> {
+      found[0] = true;
+      return false;
+    });
+    return found[0];
+  }
+
+  public boolean containsKey(CharSequence key) {
+    return keyIdOf(key) >= 0;
+  }
+
+  /**
+   * Returns all the key occurrences in the given text, the overlapping occurrences are included and
+   * ordered by their end positions.
+   *
+   * @param text the text to scan
+   */
+  public List<Hit<V>> findAll(CharSequence text) {
+    List<Hit<V>> hits = new ArrayList<>();
+    scan(text, (b, e, v) -> hits.add(new Hit<>(b, e, v)));
+    return hits;
+  }
+
+  /**
+   * Returns the value of the given key or null if the key not found.
+   *
+   * @param key the key
+   */
+  public V get(CharSequence key) {
+    int id = keyIdOf(key);
+    return id < 0 ? null : values.apply(id);
+  }
+
+  /**
+   * Returns the key id of the given key or -1 if the key not found.
+   *
+   * @param key the key
+   */
+  public int keyIdOf(CharSequence key) {
+    if (key == null) {
+      return -1;
+    }
+    int state = 0;
+    for (int i = 0; i < key.length(); i++) {
+      int next = units.get(state * UNIT_INTS + BASE) + key.charAt(i) + 1;
+      if (next >= size || units.get(next * UNIT_INTS + CHECK) != state + 1) {
+        return -1;
+      }
+      state = next;
+    }
+    int terminal = units.get(state * UNIT_INTS + BASE);
+    if (terminal < size && units.get(terminal * UNIT_INTS + CHECK) == state + 1) {
+      return -units.get(terminal * UNIT_INTS + BASE) - 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Saves this trie to the given file, the file can be memory-mapped by {@link #map(Path)}.
+   *
+   * @param path the file path
+   */
+  public void save(Path path) throws IOException {
+    try (OutputStream os = Files.newOutputStream(path)) {
+      save(os);
+    }
+  }
+
+  /**
+   * Writes this trie to the given output stream, the output stream is not closed.
+   *
+   * @param os the output stream
+   */
+  public void save(OutputStream os) throws IOException {
+    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    dos.writeInt(size);
+    dos.writeInt(keySize);
+    for (int i = 0, n = size * UNIT_INTS; i < n; i++) {
+      dos.writeInt(units.get(i));
+    }
+
+    for (int i = 0; i < keySize; i++) {
+      dos.writeInt(lengths.get(i));
+    }
+    dos.flush();
+  }
+
+  /**
+   * Scans the given text in a single pass and passes each key occurrence to the given handler, the
+   * overlapping occurrences are included and ordered by their end positions, the scanning stops if
+   * the handler returns false.
+   *
+   * @param text the text to scan
+   * @param handler the hit handler
+   */
+  public void scan(CharSequence text, HitHandler<V> handler) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = transition(state, text.charAt(i) + 1);
+      int terminal = units.get(state * UNIT_INTS + HIT);
+      while (terminal > 0) {
+        int unit = terminal * UNIT_INTS;
+        int id = -units.get(unit + BASE) - 1;
+        if (!handler.hit(i + 1 - lengths.get(id), i + 1, values.apply(id))) {
+          return;
+        }
+        terminal = units.get(unit + FAIL);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of keys.
+   */
+  public int size() {
+    return keySize;
+  }
+
+  protected int transition(int state, int code) {
+    int current = state;
+    while (true) {
+      int unit = current * UNIT_INTS;
+      int next = units.get(unit + BASE) + code;
+      if (next < size && units.get(next * UNIT_INTS + CHECK) == current + 1) {
+        return next;
+      }
+      if (current == 0) {
+        return 0;
+      }
+      current = units.get(unit + FAIL);
+    }
+  }
+
+  /**
+   * corant-modules-dsa
+   *
+   * @author bingo 下午3:26:41
+   *
+   */
+  public static class Hit<V> {
+
+    protected final int begin;
+    protected final int end;
+    protected final V value;
+
+    public Hit(int begin, int end, V value) {
+      this.begin = begin;
+      this.end = end;
+      this.value = value;
+    }
+
+    /**
+     * Returns the index of the first char of the occurrence, inclusive.
+     */
+    public int getBegin() {
+      return begin;
+    }
+
+    /**
+     * Returns the index after the last char of the occurrence, exclusive.
+     */
+    public int getEnd() {
+      return end;
+    }
+
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return "Hit [begin=" + begin + ", end=" + end + ", value=" + value + "]";
+    }
+  }
+
+  /**
+   * corant-modules-dsa
+   *
+   * @author bingo 下午3:26:41
+   *
+   */
+  @FunctionalInterface
+  public interface HitHandler<V> {
+
+    /**
+     * Handle a key occurrence
+     *
+     * @param begin the index of the first char of the occurrence, inclusive
+     * @param end the index after the last char of the occurrence, exclusive
+     * @param value the value of the key
+     * @return true to continue scanning, false to stop
+     */
+    boolean hit(int begin, int end, V value);
+  }
+
+  /**
+   * corant-modules-dsa
+   * <p>
+   * Builds the double-array from the sorted keys, the sibling placement follows the darts
+   * algorithm and skips the occupied slots with a union-find of the next free slot, if the siblings
+   * can't be placed after trying {@link #MAX_TRIALS} free slots they are placed after the last used
+   * slot to bound the build time of the wide nodes. Then the failure links are computed in
+   * breadth-first order.
+   *
+   * @author bingo 下午3:26:41
+   *
+   */
+  protected static class Builder {
+
+    static final int MAX_TRIALS = 8192;
+
+    final String[] keys;
+    final BitSet used = new BitSet();
+    int[] base = new int[1024];
+    int[] check = new int[1024];
+    int[] output = new int[1024];
+    // the next free slot candidate of each slot, compressed like union-find
+    int[] free = new int[1024];
+    int size = 1;
+    int nextCheckPos = 0;
+    // the trie edges: parent, child, code, depth
+    int[] edges = new int[1024];
+    int edgeSize = 0;
+    int maxDepth = 0;
+
+    Builder(String[] keys) {
+      this.keys = keys;
+      Arrays.fill(output, -1);
+      for (int i = 0; i < free.length; i++) {
+        free[i] = i;
+      }
+    }
+
+    <V> DoubleArrayTrie<V> build(IntFunction<V> values) {
+      check[0] = -1;
+      free[0] = 1;
+      if (keys.length > 0) {
+        insert(0, fetch(0, keys.length, 0), 0);
+      }
+      base = Arrays.copyOf(base, size);
+      check = Arrays.copyOf(check, size);
+      output = Arrays.copyOf(output, size);
+      int[] fail = new int[size];
+      int[] outputLink = new int[size];
+      Arrays.fill(outputLink, -1);
+      linkFailures(fail, outputLink);
+      int[] units = new int[size * UNIT_INTS];
+      for (int i = 0; i < size; i++) {
+        int unit = i * UNIT_INTS;
+        units[unit + BASE] = base[i];
+        units[unit + CHECK] = check[i];
+        if (base[i] < 0) {
+          // terminal unit, link to the next terminal unit along the failure links of its parent
+          int next = outputLink[check[i] - 1];
+          units[unit + FAIL] = next >= 0 ? base[next] : 0;
+        } else if (check[i] != 0) {
+          int hit = output[i] >= 0 ? i : outputLink[i];
+          units[unit + FAIL] = fail[i];
+          units[unit + HIT] = hit >= 0 ? base[hit] : 0;
+        }
+      }
+      int[] lengths = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        lengths[i] = keys[i].length();
+      }
+      return new DoubleArrayTrie<>(size, keys.length, IntBuffer.wrap(units),
+          IntBuffer.wrap(lengths), values);
+    }
+
+    void addEdge(int parent, int child, int code, int depth) {
+      if (edgeSize + 4 > edges.length) {
+        edges = Arrays.copyOf(edges, edges.length << 1);
+      }
+      edges[edgeSize++] = parent;
+      edges[edgeSize++] = child;
+      edges[edgeSize++] = code;
+      edges[edgeSize++] = depth;
+      maxDepth = Math.max(maxDepth, depth);
+    }
+
+    void ensure(int capacity) {
+      if (capacity > base.length) {
+        int length = Math.max(capacity, base.length << 1);
+        int old = output.length;
+        base = Arrays.copyOf(base, length);
+        check = Arrays.copyOf(check, length);
+        output = Arrays.copyOf(output, length);
+        Arrays.fill(output, old, length, -1);
+        free = Arrays.copyOf(free, length);
+        for (int i = old; i < length; i++) {
+          free[i] = i;
+        }
+      }
+    }
+
+    int nextFree(int pos) {
+      ensure(pos + 1);
+      int root = pos;
+      while (free[root] != root) {
+        root = free[root];
+        ensure(root + 1);
+      }
+      while (free[pos] != root) {
+        int next = free[pos];
+        free[pos] = root;
+        pos = next;
+      }
+      return root;
+    }
+
+    void occupy(int pos) {
+      ensure(pos + 2);
+      free[pos] = pos + 1;
+    }
+
+    List<int[]> fetch(int left, int right, int depth) {
+      // each sibling: code, left, right
+      List<int[]> siblings = new ArrayList<>();
+      int[] last = null;
+      for (int i = left; i < right; i++) {
+        String key = keys[i];
+        int code = key.length() == depth ? 0 : key.charAt(depth) + 1;
+        if (last != null && last[0] == code) {
+          last[2] = i + 1;
+        } else {
+          last = new int[] {code, i, i + 1};
+          siblings.add(last);
+        }
+      }
+      return siblings;
+    }
+
+    int findBegin(List<int[]> siblings) {
+      final int first = siblings.get(0)[0];
+      final int last = siblings.get(siblings.size() - 1)[0];
+      int pos = Math.max(first + 1, nextCheckPos) - 1;
+      int nonzero = 0;
+      int trials = 0;
+      boolean firstFree = true;
+      while (true) {
+        if (++trials > MAX_TRIALS && pos < size - 1) {
+          pos = size - 1;
+        }
+        int slot = nextFree(pos + 1);
+        nonzero += slot - pos - 1;
+        pos = slot;
+        if (firstFree) {
+          nextCheckPos = pos;
+          firstFree = false;
+        }
+        int begin = pos - first;
+        ensure(begin + last + 1);
+        if (used.get(begin)) {
+          continue;
+        }
+        boolean found = true;
+        for (int i = 1; i < siblings.size(); i++) {
+          if (check[begin + siblings.get(i)[0]] != 0) {
+            found = false;
+            break;
+          }
+        }
+        if (found) {
+          if ((double) nonzero / (pos - nextCheckPos + 1) >= 0.95) {
+            nextCheckPos = pos;
+          }
+          return begin;
+        }
+      }
+    }
+
+    void insert(int parent, List<int[]> siblings, int depth) {
+      final int begin = findBegin(siblings);
+      used.set(begin);
+      base[parent] = begin;
+      for (int[] sibling : siblings) {
+        int state = begin + sibling[0];
+        check[state] = parent + 1;
+        occupy(state);
+        size = Math.max(size, state + 1);
+      }
+      for (int[] sibling : siblings) {
+        int state = begin + sibling[0];
+        if (sibling[0] == 0) {
+          base[state] = -(sibling[1] + 1);
+          output[parent] = sibling[1];
+        } else {
+          addEdge(parent, state, sibling[0], depth + 1);
+          insert(state, fetch(sibling[1], sibling[2], depth + 1), depth + 1);
+        }
+      }
+    }
+
+    void linkFailures(int[] fail, int[] outputLink) {
+      // counting sort the edges by depth to visit the states in breadth-first order
+      final int edgeCount = edgeSize >> 2;
+      int[] starts = new int[maxDepth + 2];
+      for (int i = 0; i < edgeCount; i++) {
+        starts[edges[(i << 2) + 3] + 1]++;
+      }
+      for (int d = 1; d < starts.length; d++) {
+        starts[d] += starts[d - 1];
+      }
+      int[] order = new int[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        order[starts[edges[(i << 2) + 3]]++] = i;
+      }
+      for (int i : order) {
+        final int parent = edges[i << 2];
+        final int child = edges[(i << 2) + 1];
+        final int code = edges[(i << 2) + 2];
+        int target = 0;
+        if (parent != 0) {
+          int current = fail[parent];
+          while (true) {
+            int next = base[current] + code;
+            if (next < size && check[next] == current + 1) {
+              target = next;
+              break;
+            }
+            if (current == 0) {
+              break;
+            }
+            current = fail[current];
+          }
+        }
+        fail[child] = target;
+        outputLink[child] = output[target] >= 0 ? target : outputLink[target];
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.dsa.cluster.kmeans;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.corant.modules.dsa.cluster.distance.CosineDistance;
+import org.corant.modules.dsa.cluster.kmeans.DenseKMeansClusterer.DenseKMeansResult;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-dsa
+ *
+ * @author bingo 下午5:12:40
+ *
+ */
+public class DenseKMeansClustererTest extends TestCase {
+
+  static final int PER_GROUP = 60;
+
+  /**
+   * Asserts that the records of each group share one cluster and the groups don't share clusters.
+   */
+  static void assertSeparated(int[] assignments, int groups) {
+    Map<Integer, Integer> groupClusters = new HashMap<>();
+    for (int g = 0; g < groups; g++) {
+      int cluster = assignments[g * PER_GROUP];
+      for (int i = 0; i < PER_GROUP; i++) {
+        assertEquals("group " + g, cluster, assignments[g * PER_GROUP + i]);
+      }
+      assertNull("group " + g, groupClusters.put(cluster, g));
+    }
+  }
+
+  @Test
+  public void testCosineDistance() {
+    CosineDistance distance = new CosineDistance();
+    assertEquals(0d, distance.calculate(new double[] {1, 2, 3}, new double[] {2, 4, 6}), 1e-12);
+    assertEquals(1d, distance.calculate(new double[] {1, 0, 0}, new double[] {0, 5, 0}), 1e-12);
+    assertEquals(2d, distance.calculate(new double[] {1, 1, 0}, new double[] {-1, -1, 0}), 1e-12);
+    assertEquals(1 - Math.sqrt(0.5),
+        distance.calculate(new double[] {1, 0, 0}, new double[] {3, 3, 0}), 1e-12);
+    // the result depends on all the dimensions not only the last one
+    assertTrue(distance.calculate(new double[] {1, 0, 1}, new double[] {0, 1, 1}) > 0.4);
+    assertEquals(1d, distance.calculate(new double[] {0, 0}, new double[] {1, 1}), 1e-12);
+    assertEquals(0d, distance.calculate(new double[] {0, 0}, new double[] {0, 0}), 1e-12);
+    Map<Object, Double> m1 = new HashMap<>();
+    m1.put("x", 1d);
+    m1.put("y", 0d);
+    Map<Object, Double> m2 = new HashMap<>();
+    m2.put("x", 3d);
+    m2.put("z", 3d);
+    // the absent features are treated as zero
+    assertEquals(distance.calculate(new double[] {1, 0, 0}, new double[] {3, 0, 3}),
+        distance.calculate(m1, m2), 1e-12);
+  }
+
+  @Test
+  public void testFitByDirection() {
+    // three groups of vectors with different directions and widely varying magnitudes, the
+    // euclidean distance would group them by magnitude, the cosine distance by direction
+    Random random = new Random(7);
+    double[][] directions = {{1, 0.1, 0}, {0, 1, 0.1}, {0.1, 0, 1}};
+    double[][] data = new double[directions.length * PER_GROUP][];
+    for (int g = 0; g < directions.length; g++) {
+      for (int i = 0; i < PER_GROUP; i++) {
+        double scale = 1 + random.nextInt(100);
+        double[] row = new double[3];
+        for (int j = 0; j < 3; j++) {
+          row[j] = scale * (directions[g][j] + random.nextDouble() * 0.05);
+        }
+        data[g * PER_GROUP + i] = row;
+      }
+    }
+    DenseKMeansResult result =
+        new DenseKMeansClusterer(3, 100, new CosineDistance(), 1e-9, 11L, null).fit(data);
+    assertSeparated(result.getAssignments(), directions.length);
+  }
+
+  @Test
+  public void testFitSeparableBlobs() {
+    Random random = new Random(3);
+    double[][] centers = {{0, 0}, {50, 50}, {-50, 50}, {50, -50}};
+    double[][] data = new double[centers.length * PER_GROUP][];
+    for (int g = 0; g < centers.length; g++) {
+      for (int i = 0; i < PER_GROUP; i++) {
+        data[g * PER_GROUP + i] = new double[] {centers[g][0] + random.nextGaussian(),
+            centers[g][1] + random.nextGaussian()};
+      }
+    }
+    DenseKMeansResult result =
+        new DenseKMeansClusterer(centers.length, 100, null, 1e-9, 5L, null).fit(data);
+    assertTrue(result.isConverged());
+    assertSeparated(result.getAssignments(), centers.length);
+    for (double[] centroid : result.getCentroids()) {
+      boolean near = false;
+      for (double[] center : centers) {
+        near |= Math.abs(centroid[0] - center[0]) < 1 && Math.abs(centroid[1] - center[1]) < 1;
+      }
+      assertTrue(near);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.dsa.structure;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.corant.modules.dsa.structure.DoubleArrayTrie.Hit;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-dsa
+ *
+ * @author bingo 下午4:06:52
+ *
+ */
+public class DoubleArrayTrieTest extends TestCase {
+
+  static final String ALPHABET = "abc中文";
+
+  static List<String> naiveFindAll(Map<String, ?> map, String text) {
+    List<String> hits = new ArrayList<>();
+    for (int end = 1; end <= text.length(); end++) {
+      for (Map.Entry<String, ?> e : map.entrySet()) {
+        int begin = end - e.getKey().length();
+        if (begin >= 0 && text.startsWith(e.getKey(), begin)) {
+          hits.add(begin + ":" + end + ":" + e.getValue());
+        }
+      }
+    }
+    return hits;
+  }
+
+  static String random(Random random, int maxLength) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = random.nextInt(maxLength) + 1; i > 0; i--) {
+      sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return sb.toString();
+  }
+
+  static List<String> sorted(List<String> hits) {
+    return hits.stream().sorted(Comparator.comparing((String h) -> end(h))
+        .thenComparing(h -> Integer.parseInt(h.substring(0, h.indexOf(':')))))
+        .collect(Collectors.toList());
+  }
+
+  static int end(String hit) {
+    return Integer.parseInt(hit.split(":")[1]);
+  }
+
+  static List<String> toStrings(List<? extends Hit<?>> hits) {
+    return hits.stream().map(h -> h.getBegin() + ":" + h.getEnd() + ":" + h.getValue())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testAgainstNaiveMatcher() {
+    Random random = new Random(20230517L);
+    for (int round = 0; round < 50; round++) {
+      Map<String, Integer> map = new LinkedHashMap<>();
+      for (int i = random.nextInt(40) + 1; i > 0; i--) {
+        map.put(random(random, 5), i);
+      }
+      DoubleArrayTrie<Integer> trie = DoubleArrayTrie.of(map);
+      assertEquals(map.size(), trie.size());
+      for (Map.Entry<String, Integer> e : map.entrySet()) {
+        assertEquals(e.getKey(), e.getValue(), trie.get(e.getKey()));
+        assertTrue(trie.containsKey(e.getKey()));
+      }
+      for (int i = 0; i < 50; i++) {
+        String key = random(random, 6);
+        assertEquals(key, map.get(key), trie.get(key));
+      }
+      for (int i = 0; i < 20; i++) {
+        String text = random(random, 60);
+        List<String> expected = naiveFindAll(map, text);
+        List<String> actual = toStrings(trie.findAll(text));
+        // the hits are ordered by their end positions
+        for (int h = 1; h < actual.size(); h++) {
+          assertTrue(end(actual.get(h - 1)) <= end(actual.get(h)));
+        }
+        assertEquals(text, sorted(expected), sorted(actual));
+        assertEquals(text, !expected.isEmpty(), trie.containsAny(text));
+      }
+    }
+  }
+
+  @Test
+  public void testEdgeCases() {
+    Map<String, String> map = new TreeMap<>();
+    map.put("he", "he");
+    map.put("she", "she");
+    map.put("his", "his");
+    map.put("hers", "hers");
+    DoubleArrayTrie<String> trie = DoubleArrayTrie.of(map);
+    assertEquals(sorted(naiveFindAll(map, "ushers")), sorted(toStrings(trie.findAll("ushers"))));
+    assertNull(trie.get(""));
+    assertNull(trie.get(null));
+    assertNull(trie.get("h"));
+    assertNull(trie.get("hersh"));
+    assertTrue(trie.findAll("").isEmpty());
+    List<String> first = new ArrayList<>();
+    trie.scan("ushers", (b, e, v) -> {
+      first.add(v);
+      return false;
+    });
+    assertEquals(1, first.size());
+    try {
+      DoubleArrayTrie.of(Collections.singletonMap("", "empty"));
+      fail();
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSaveAndMap() throws Exception {
+    Random random = new Random(42L);
+    TreeMap<String, String> map = new TreeMap<>();
+    for (int i = 0; i < 500; i++) {
+      String key = random(random, 8);
+      map.put(key, key.toUpperCase());
+    }
+    DoubleArrayTrie<String> trie = DoubleArrayTrie.of(map);
+    Path path = Files.createTempFile("corant-dat", ".bin");
+    try {
+      trie.save(path);
+      List<String> keys = new ArrayList<>(map.keySet());
+      DoubleArrayTrie<Integer> ids = DoubleArrayTrie.map(path);
+      DoubleArrayTrie<String> mapped = DoubleArrayTrie.map(path, id -> map.get(keys.get(id)));
+      assertEquals(trie.size(), mapped.size());
+      for (int i = 0; i < keys.size(); i++) {
+        assertEquals(Integer.valueOf(i), ids.get(keys.get(i)));
+        assertEquals(map.get(keys.get(i)), mapped.get(keys.get(i)));
+      }
+      for (int i = 0; i < 20; i++) {
+        String text = random(random, 200);
+        assertEquals(toStrings(trie.findAll(text)), toStrings(mapped.findAll(text)));
+      }
+      Path broken = Files.createTempFile("corant-dat", ".bin");
+      try {
+        Files.write(broken, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        DoubleArrayTrie.map(broken);
+        fail();
+      } catch (RuntimeException e) {
+        // expected
+      } finally {
+        Files.deleteIfExists(broken);
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+}
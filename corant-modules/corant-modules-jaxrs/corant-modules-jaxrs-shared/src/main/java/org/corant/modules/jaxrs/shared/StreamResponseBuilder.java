@@ -91,8 +91,8 @@ public class StreamResponseBuilder {
         ResponseBuilder responseBuilder = Response.status(outputResult.getStatus());
         outputResult.getHeaders().forEach(responseBuilder::header);
         return responseBuilder.entity((StreamingOutput) os -> {
-          try (InputStream is = resource.openInputStream()) {
-            outputResult.getWriter().accept(is, os);
+          try {
+            outputResult.write(resource, os);
           } catch (IOException e) {
             throw new CorantRuntimeException(e);
           }
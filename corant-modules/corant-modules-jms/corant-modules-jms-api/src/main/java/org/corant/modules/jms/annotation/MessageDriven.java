@@ -57,6 +57,31 @@ public @interface MessageDriven {
    */
   String acknowledge() default "2";
 
+  /**
+   * The number of the worker threads use to handle a batch of messages in batch receiving mode,
+   * default is 0 means the batch receiving mode is disabled.
+   * <p>
+   * In batch receiving mode, up to {@link #receiveThreshold()} messages are drained from the
+   * message consumer per execution and handled by a bounded worker pool with the given number of
+   * threads; the messages with the same JMS message group ({@code JMSXGroupID}) are handled
+   * sequentially in receiving order, the messages without group may be handled in any order. The
+   * replies are sent and the session is committed (SESSION_TRANSACTED) or the messages are
+   * acknowledged (CLIENT_ACKNOWLEDGE) once per batch after all the messages of the batch were
+   * handled; if any message fails, the whole batch is rolled back or recovered. The batch receiving
+   * mode does not support {@link #xa()}, the AUTO_ACKNOWLEDGE and DUPS_OK_ACKNOWLEDGE
+   * {@link #acknowledge()} modes and the receiving method with session parameter.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @return batchParallelism
+   */
+  String batchParallelism() default "0";
+
   /**
    * Returns the Back-off Algorithm, default is {@link BackoffAlgorithm#FIXED}
    * <p>
@@ -49,6 +49,8 @@ public class MessageDrivenMetaData {
 
   private final int acknowledge;
 
+  private final int batchParallelism;
+
   private final BackoffAlgorithm brokenBackoffAlgo;
 
   private final double brokenBackoffFactor;
@@ -85,11 +87,24 @@ public class MessageDrivenMetaData {
       String maxBrokenDuration, int receiveThreshold, long receiveTimeout,
       Collection<MessageReplyMetaData> reply, String selector, String[] specifiedSelectors,
       int tryThreshold, int txTimeout, boolean xa) {
+    this(beanClass, beanQualifiers, beanMethod, acknowledge, 0, brokenBackoffAlgo,
+        brokenBackoffFactor, brokenDuration, cacheLevel, failureThreshold, loopIntervalMs,
+        maxBrokenDuration, receiveThreshold, receiveTimeout, reply, selector, specifiedSelectors,
+        tryThreshold, txTimeout, xa);
+  }
+
+  public MessageDrivenMetaData(Class<?> beanClass, Annotation[] beanQualifiers, Method beanMethod,
+      int acknowledge, int batchParallelism, BackoffAlgorithm brokenBackoffAlgo,
+      double brokenBackoffFactor, String brokenDuration, int cacheLevel, int failureThreshold,
+      long loopIntervalMs, String maxBrokenDuration, int receiveThreshold, long receiveTimeout,
+      Collection<MessageReplyMetaData> reply, String selector, String[] specifiedSelectors,
+      int tryThreshold, int txTimeout, boolean xa) {
     this.beanClass = beanClass;
     this.beanQualifiers =
         beanQualifiers == null ? EMPTY_ARRAY : Arrays.copyOf(beanQualifiers, beanQualifiers.length);
     this.beanMethod = beanMethod;
     this.acknowledge = acknowledge;
+    this.batchParallelism = batchParallelism;
     this.brokenBackoffAlgo = brokenBackoffAlgo;
     this.brokenBackoffFactor = brokenBackoffFactor;
     this.brokenDuration = MetaDataPropertyResolver.get(brokenDuration, String.class);
@@ -115,7 +130,7 @@ public class MessageDrivenMetaData {
     Method beanMethod = shouldNotNull(method);
     MessageDriven annotation = shouldNotNull(method.getAnnotation(MessageDriven.class));
     return new MessageDrivenMetaData(beanMethod.getDeclaringClass(), qualifiers, beanMethod,
-        getInt(annotation.acknowledge()),
+        getInt(annotation.acknowledge()), getInt(annotation.batchParallelism()),
         get(annotation.brokenBackoffAlgo(), BackoffAlgorithm.class),
         getDouble(annotation.brokenBackoffFactor()), getString(annotation.brokenDuration()),
         getInt(annotation.cacheLevel()), getInt(annotation.failureThreshold()),
@@ -130,6 +145,10 @@ public class MessageDrivenMetaData {
     return acknowledge;
   }
 
+  public int getBatchParallelism() {
+    return batchParallelism;
+  }
+
   public Class<?> getBeanClass() {
     return beanClass;
   }
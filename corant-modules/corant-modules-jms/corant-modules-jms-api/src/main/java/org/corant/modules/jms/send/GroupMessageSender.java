@@ -16,6 +16,7 @@ package org.corant.modules.jms.send;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import javax.jms.CompletionListener;
 
 /**
  * corant-modules-jms-api
@@ -66,4 +67,11 @@ public class GroupMessageSender implements MessageSender {
     }
   }
 
+  @Override
+  public void sendAsync(CompletionListener listener, String marshallerName, Object... messages) {
+    for (MessageSender dispatcher : dispatchers) {
+      dispatcher.sendAsync(listener, marshallerName, messages);
+    }
+  }
+
 }
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.util.Map;
+import javax.jms.CompletionListener;
+import org.corant.shared.exception.NotSupportedException;
 
 /**
  * corant-modules-jms-api
@@ -45,4 +47,17 @@ public interface MessageSender {
   void send(String message);
 
   void send(String marshallerName, Object... messages);
+
+  /**
+   * Queue the given messages for asynchronous sending, the messages may be grouped with the
+   * messages of other calls into a transacted batch, the given listener is notified for each
+   * message after the batch is committed or rolled back.
+   *
+   * @param listener the completion listener, can't null
+   * @param marshallerName the marshaller name use to serialize the messages
+   * @param messages the messages to send
+   */
+  default void sendAsync(CompletionListener listener, String marshallerName, Object... messages) {
+    throw new NotSupportedException();
+  }
 }
@@ -16,6 +16,17 @@ package org.corant.modules.jms.shared.receive;
 import static org.corant.context.Beans.resolve;
 import static org.corant.context.Beans.select;
 import static org.corant.shared.util.Strings.isNotBlank;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.jms.Connection;
@@ -35,6 +46,7 @@ import javax.transaction.xa.XAResource;
 import org.corant.modules.jms.receive.ManagedMessageReceiver;
 import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
 import org.corant.modules.jta.shared.TransactionService;
+import org.corant.shared.normal.Names;
 import org.corant.shared.ubiquity.Sortable;
 
 /**
@@ -51,6 +63,13 @@ import org.corant.shared.ubiquity.Sortable;
  * Unfinish: use connection or session pool
  *
  * <p>
+ * If the batch parallelism of the metadata is greater than 0, the receiver drains up to receive
+ * threshold messages per execution and dispatches them to a bounded worker pool, the messages of
+ * the same JMS message group ({@code JMSXGroupID}) are handled sequentially in receiving order by
+ * one worker. The replies, the session commit and the message acknowledgement are performed in the
+ * receiving thread once per batch, since the session is not thread safe.
+ *
+ * <p>
  * <a href = "https://developer.jboss.org/wiki/ShouldICacheJMSConnectionsAndJMSSessions"> Should I
  * cache JMS connections and JMS sessions</a>
  *
@@ -60,11 +79,14 @@ import org.corant.shared.ubiquity.Sortable;
 public class DefaultMessageReceiver implements ManagedMessageReceiver {
 
   protected static final Logger logger = Logger.getLogger(DefaultMessageReceiver.class.getName());
+  protected static final String GROUP_ID_PROPERTY = "JMSXGroupID";
+  protected static final AtomicLong batchWorkerCounter = new AtomicLong(1);
 
   // configuration
   protected final MessageReceivingMetaData meta;
   protected final int receiveThreshold;
   protected final long receiveTimeout;
+  protected final int batchParallelism;
 
   // workhorse
   protected final ManagedMessageReceivingHandler messageHandler;
@@ -72,6 +94,7 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
   protected volatile Connection connection;
   protected volatile Session session;
   protected volatile MessageConsumer messageConsumer;
+  protected volatile ExecutorService batchExecutor;
 
   protected DefaultMessageReceiver(MessageReceivingMetaData metaData,
       ManagedMessageReceivingHandler messageHandler, MessageReceivingMediator mediator) {
@@ -80,7 +103,7 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     this.mediator = mediator;
     receiveThreshold = metaData.getReceiveThreshold();
     receiveTimeout = metaData.getReceiveTimeout();
-
+    batchParallelism = metaData.getBatchParallelism();
   }
 
   @Override
@@ -148,14 +171,18 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     Throwable throwable = null;
     try {
       if (initialize()) {
-        int rt = receiveThreshold;
-        while (--rt >= 0) {
-          preConsume();
-          Message message = consume();
-          postConsume(message);
-          if (message == null) {
-            logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
-            break;
+        if (batchParallelism > 0) {
+          receiveBatch();
+        } else {
+          int rt = receiveThreshold;
+          while (--rt >= 0) {
+            preConsume();
+            Message message = consume();
+            postConsume(message);
+            if (message == null) {
+              logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
+              break;
+            }
           }
         }
       }
@@ -174,8 +201,54 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
       closeMessageConsumerIfNecessary(stop);
       closeSessionIfNecessary(stop);
     } finally {
-      // Noop!
+      if (stop) {
+        shutdownBatchExecutor();
+      }
+    }
+  }
+
+  /**
+   * Handle the batch of messages in the worker pool, the messages are partitioned into lanes by the
+   * message group, the messages of a lane are handled sequentially, returns the handling results in
+   * the order of the batch.
+   *
+   * @param batch the messages to be handled
+   * @throws Exception if any message handling failed
+   */
+  protected Object[] dispatch(List<Message> batch) throws Exception {
+    final Object[] results = new Object[batch.size()];
+    final Map<Object, List<Integer>> lanes = new LinkedHashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      String groupId = batch.get(i).getStringProperty(GROUP_ID_PROPERTY);
+      lanes.computeIfAbsent(groupId != null ? groupId : i, k -> new ArrayList<>()).add(i);
+    }
+    final ExecutorService executor = resolveBatchExecutor();
+    final List<Future<?>> futures = new ArrayList<>(lanes.size());
+    for (List<Integer> lane : lanes.values()) {
+      futures.add(executor.submit(() -> {
+        for (int i : lane) {
+          results[i] = messageHandler.onMessage(batch.get(i), session);
+        }
+        return null;
+      }));
+    }
+    Exception exception = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        if (exception == null) {
+          exception = cause;
+        } else {
+          exception.addSuppressed(cause);
+        }
+      }
     }
+    if (exception != null) {
+      throw exception;
+    }
+    return results;
   }
 
   protected void closeMessageConsumerIfNecessary(boolean forceClose) {
@@ -223,6 +296,26 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     return message;
   }
 
+  /**
+   * Drain up to receive threshold messages from the consumer without handling them, only the first
+   * receiving waits for the receive timeout.
+   *
+   * @throws JMSException if the consumer fails to receive messages
+   */
+  protected List<Message> drain() throws JMSException {
+    final List<Message> batch = new ArrayList<>(Math.min(receiveThreshold, 64));
+    Message message = receiveTimeout <= 0 ? messageConsumer.receiveNoWait()
+        : messageConsumer.receive(receiveTimeout);
+    while (message != null) {
+      batch.add(message);
+      if (batch.size() >= receiveThreshold) {
+        break;
+      }
+      message = messageConsumer.receiveNoWait();
+    }
+    return batch;
+  }
+
   protected JMSException generateJMSException(Exception t) {
     if (t instanceof JMSException) {
       return (JMSException) t;
@@ -292,6 +385,53 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     }
   }
 
+  /**
+   * Receive a batch of messages, handle them in the worker pool and then reply, commit or
+   * acknowledge once for the whole batch.
+   *
+   * @throws Exception if the receiving or any message handling failed
+   */
+  protected void receiveBatch() throws Exception {
+    preConsume();
+    final List<Message> batch = drain();
+    if (batch.isEmpty()) {
+      postConsume(null);
+      logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
+      return;
+    }
+    logger.log(Level.FINE,
+        () -> String.format("Received %s messages start handling, [%s]", batch.size(), meta));
+    final Object[] results = dispatch(batch);
+    for (int i = 0; i < results.length; i++) {
+      mediator.onPostMessageHandled(batch.get(i), session, results[i]);
+    }
+    // acknowledge the last message acknowledges all the messages consumed by the session
+    postConsume(batch.get(batch.size() - 1));
+    logger.log(Level.FINE,
+        () -> String.format("Complete %s messages handling, [%s]", batch.size(), meta));
+  }
+
+  protected ExecutorService resolveBatchExecutor() {
+    ExecutorService executor = batchExecutor;
+    if (executor == null) {
+      final String name = Names.CORANT_PREFIX + "msg-bat-" + meta.getDestination() + "-";
+      ThreadPoolExecutor tpe = new ThreadPoolExecutor(batchParallelism, batchParallelism, 60L,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          r -> new Thread(r, name + batchWorkerCounter.getAndIncrement()));
+      tpe.allowCoreThreadTimeOut(true);
+      batchExecutor = executor = tpe;
+    }
+    return executor;
+  }
+
+  protected void shutdownBatchExecutor() {
+    ExecutorService executor = batchExecutor;
+    if (executor != null) {
+      batchExecutor = null;
+      executor.shutdown();
+    }
+  }
+
   /**
    * Related work before starting to consume, begin transaction if necessary
    *
@@ -27,6 +27,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
+import javax.jms.Session;
 import org.corant.context.proxy.ContextualMethodHandler;
 import org.corant.context.qualifier.Qualifiers;
 import org.corant.modules.jms.annotation.MessageDestination;
@@ -50,6 +51,7 @@ public class MessageReceivingMetaData {
 
   private final ContextualMethodHandler method;
   private final int acknowledge;
+  private final int batchParallelism;
   private final String connectionFactoryId;
   private final String destination;
   private final boolean multicast;
@@ -75,6 +77,7 @@ public class MessageReceivingMetaData {
     multicast = dest.isMulticast();
     // the driven
     acknowledge = driven.getAcknowledge();
+    batchParallelism = max(0, driven.getBatchParallelism());
     selector = driven.getSelector();
     specifiedSelectors = driven.getSpecifiedSelectors();
     cacheLevel = driven.getCacheLevel();
@@ -93,6 +96,19 @@ public class MessageReceivingMetaData {
         .factor(driven.getBrokenBackoffFactor()).build();
     xa = driven.isXa();
     txTimeout = driven.getTxTimeout();
+    if (batchParallelism > 0) {
+      shouldBeFalse(xa, "The message receiving method %s can't use XA in batch receiving mode.",
+          method.getMethod());
+      shouldBeTrue(method.getMethod().getParameterCount() == 1,
+          "The message receiving method %s can't have session parameter in batch receiving mode.",
+          method.getMethod());
+      // the messages are acknowledged once per batch, AUTO_ACKNOWLEDGE and DUPS_OK_ACKNOWLEDGE
+      // acknowledge each message on receiving before the batch was handled.
+      shouldBeTrue(
+          acknowledge == Session.SESSION_TRANSACTED || acknowledge == Session.CLIENT_ACKNOWLEDGE,
+          "The message receiving method %s must use SESSION_TRANSACTED or CLIENT_ACKNOWLEDGE in batch receiving mode.",
+          method.getMethod());
+    }
     replies = driven.getReply();
     shouldBeTrue(setOf(replies).size() == replies.size(),
         "The reply destination in annotation must be unique.");
@@ -187,6 +203,10 @@ public class MessageReceivingMetaData {
     return acknowledge;
   }
 
+  public int getBatchParallelism() {
+    return batchParallelism;
+  }
+
   public BackoffStrategy getBrokenBackoffStrategy() {
     return brokenBackoffStrategy;
   }
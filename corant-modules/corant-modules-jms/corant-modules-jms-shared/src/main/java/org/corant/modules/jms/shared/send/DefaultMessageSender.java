@@ -14,7 +14,9 @@
 package org.corant.modules.jms.shared.send;
 
 import static org.corant.context.Beans.findNamed;
+import static org.corant.context.Beans.resolve;
 import static org.corant.context.Beans.resolveApply;
+import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Conversions.toObject;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Streams.copy;
@@ -22,13 +24,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
+import javax.jms.BytesMessage;
+import javax.jms.CompletionListener;
 import javax.jms.DeliveryMode;
 import javax.jms.Destination;
 import javax.jms.JMSContext;
+import javax.jms.JMSException;
 import javax.jms.JMSProducer;
+import javax.jms.MapMessage;
 import javax.jms.Message;
 import org.corant.modules.jms.marshaller.MessageMarshaller;
 import org.corant.modules.jms.metadata.MessageDestinationMetaData;
@@ -39,6 +47,12 @@ import org.corant.shared.exception.CorantRuntimeException;
 
 /**
  * corant-modules-jms-shared
+ * <p>
+ * The default message sender. If there is no active JTA transaction and the sending pool of the
+ * connection factory is enabled, the messages are sent with a pooled session of the
+ * {@link MessageSendingPool}, otherwise they are sent with the request or transaction scoped JMS
+ * context. The asynchronous sending is delegated to the sending pipeline of the
+ * {@link MessageSendingPool}.
  *
  * @author bingo 下午5:52:36
  *
@@ -106,6 +120,16 @@ public class DefaultMessageSender implements MessageSender {
     doSend(serialSchema, messages);
   }
 
+  @Override
+  public void sendAsync(CompletionListener listener, String marshallerName, Object... messages) {
+    shouldNotNull(listener, "The completion listener can't null!");
+    if (isNotEmpty(messages)) {
+      final MessageMarshaller serializer = marshaller(marshallerName);
+      resolve(MessageSendingPool.class).sendAsync(connectionFactoryId,
+          (jmsc, p) -> doSend(jmsc, p, serializer, messages), listener);
+    }
+  }
+
   protected void configure(JMSContext jmsc, JMSProducer producer) {
     producer.setDeliveryMode(deliveryMode);
     if (deliveryDelay > 0) {
@@ -119,49 +143,54 @@ public class DefaultMessageSender implements MessageSender {
     }
   }
 
-  @SuppressWarnings("unchecked")
-  protected void doSend(JMSContext jmsc, Destination d, JMSProducer p, MessageMarshaller marshaller,
-      Object message) {
+  protected Message doSend(JMSContext jmsc, Destination d, JMSProducer p,
+      MessageMarshaller marshaller, Object message) {
     try {
-      if (marshaller != null) {
-        p.send(d, marshaller.serialize(jmsc, message));
-      } else if (message instanceof String) {
-        p.send(d, (String) message);
-      } else if (message instanceof Message) {
-        p.send(d, (Message) message);
-      } else if (message instanceof Map) {
-        p.send(d, (Map<String, Object>) message);
-      } else if (message instanceof byte[]) {
-        p.send(d, (byte[]) message);
-      } else if (message instanceof Serializable) {
-        p.send(d, (Serializable) message);
+      final Message jmsMsg = toMessage(jmsc, marshaller, message);
+      if (jmsMsg != null) {
+        p.send(d, jmsMsg);
       }
+      return jmsMsg;
     } catch (Exception e) {
       throw new CorantRuntimeException(e);
     }
   }
 
-  protected void doSend(JMSContext jmsc, String marshallerName, Object... messages) {
-    if (isNotEmpty(messages)) {
-      try {
-        final MessageMarshaller serializer = marshaller(marshallerName);
-        Destination d = multicast ? jmsc.createTopic(destination) : jmsc.createQueue(destination);
-        JMSProducer p = jmsc.createProducer();
-        configure(jmsc, p);
-        for (Object message : messages) {
-          doSend(jmsc, d, p, serializer, message);
+  protected List<Message> doSend(JMSContext jmsc, JMSProducer p, MessageMarshaller marshaller,
+      Object... messages) {
+    try {
+      Destination d = multicast ? jmsc.createTopic(destination) : jmsc.createQueue(destination);
+      configure(jmsc, p);
+      List<Message> sent = new ArrayList<>(messages.length);
+      for (Object message : messages) {
+        Message jmsMsg = doSend(jmsc, d, p, marshaller, message);
+        if (jmsMsg != null) {
+          sent.add(jmsMsg);
         }
-      } catch (Exception e) {
-        throw new CorantRuntimeException(e);
       }
+      return sent;
+    } catch (Exception e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  protected void doSend(JMSContext jmsc, String marshallerName, Object... messages) {
+    if (isNotEmpty(messages)) {
+      doSend(jmsc, jmsc.createProducer(), marshaller(marshallerName), messages);
     }
   }
 
   protected void doSend(String marshallerName, Object... messages) {
     if (isNotEmpty(messages)) {
-      final JMSContext jmsc = resolveApply(DefaultJMSContextService.class,
-          b -> b.getJMSContext(connectionFactoryId, dupsOkAck));
-      doSend(jmsc, marshallerName, messages);
+      final MessageSendingPool pool = resolve(MessageSendingPool.class);
+      if (pool.isPooled(connectionFactoryId)) {
+        final MessageMarshaller serializer = marshaller(marshallerName);
+        pool.send(connectionFactoryId, (jmsc, p) -> doSend(jmsc, p, serializer, messages));
+      } else {
+        final JMSContext jmsc = resolveApply(DefaultJMSContextService.class,
+            b -> b.getJMSContext(connectionFactoryId, dupsOkAck));
+        doSend(jmsc, marshallerName, messages);
+      }
     }
   }
 
@@ -181,4 +210,29 @@ public class DefaultMessageSender implements MessageSender {
     return findNamed(MessageMarshaller.class, marshallerName).orElse(null);
   }
 
+  @SuppressWarnings("unchecked")
+  protected Message toMessage(JMSContext jmsc, MessageMarshaller marshaller, Object message)
+      throws JMSException {
+    if (marshaller != null) {
+      return marshaller.serialize(jmsc, message);
+    } else if (message instanceof String) {
+      return jmsc.createTextMessage((String) message);
+    } else if (message instanceof Message) {
+      return (Message) message;
+    } else if (message instanceof Map) {
+      MapMessage mapMsg = jmsc.createMapMessage();
+      for (Map.Entry<String, Object> entry : ((Map<String, Object>) message).entrySet()) {
+        mapMsg.setObject(entry.getKey(), entry.getValue());
+      }
+      return mapMsg;
+    } else if (message instanceof byte[]) {
+      BytesMessage bytesMsg = jmsc.createBytesMessage();
+      bytesMsg.writeBytes((byte[]) message);
+      return bytesMsg;
+    } else if (message instanceof Serializable) {
+      return jmsc.createObjectMessage((Serializable) message);
+    }
+    return null;
+  }
+
 }
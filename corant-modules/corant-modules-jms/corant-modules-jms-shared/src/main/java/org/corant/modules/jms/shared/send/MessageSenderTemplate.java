@@ -36,6 +36,7 @@ import javax.transaction.Transactional.TxType;
 import org.corant.modules.jta.shared.SynchronizationAdapter;
 import org.corant.modules.jta.shared.TransactionService;
 import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.util.Compressors;
 
 /**
@@ -143,6 +144,15 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     return this;
   }
 
+  /**
+   * The pipelined asynchronous sending is not supported by the template, use
+   * {@link #setAsync(CompletionListener)} instead.
+   */
+  @Override
+  public void sendAsync(CompletionListener listener, String marshallerName, Object... messages) {
+    throw new NotSupportedException();
+  }
+
   public MessageSenderTemplate sessionMode(int sessionMode) {
     this.sessionMode = sessionMode;
     return this;
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.send;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.corant.shared.util.Strings.isBlank;
+import java.time.Duration;
+import java.util.Map;
+import org.corant.config.Configs;
+import org.corant.config.declarative.ConfigKeyItem;
+import org.corant.config.declarative.ConfigKeyRoot;
+import org.corant.config.declarative.DeclarativeConfig;
+import org.corant.context.qualifier.Qualifiers;
+import org.corant.context.qualifier.Qualifiers.NamedObject;
+import org.eclipse.microprofile.config.Config;
+
+/**
+ * corant-modules-jms-shared
+ * <p>
+ * The message sending configuration of a connection factory, used by the
+ * {@link MessageSendingPool}.
+ * <ul>
+ * <li>send-pool-size: the maximum number of the pooled sending sessions, the sessions share one
+ * connection, the pool is disabled by default (0), a value less than 1 disables the pool and the
+ * sender uses the request scoped JMS context as before.</li>
+ * <li>send-batch-size: the maximum number of the asynchronous sending tasks that are committed in
+ * one transaction.</li>
+ * <li>send-batch-linger: the maximum time that the asynchronous sending pipeline waits for more
+ * tasks after the first task of a batch arrived.</li>
+ * <li>send-queue-capacity: the capacity of the asynchronous sending queue, the caller is blocked
+ * when the queue is full.</li>
+ * </ul>
+ *
+ * @author bingo 下午3:12:08
+ *
+ */
+@ConfigKeyRoot(value = "corant.jms", keyIndex = 2)
+public class MessageSendingConfig implements NamedObject, DeclarativeConfig {
+
+  private static final long serialVersionUID = -1791532106262960447L;
+
+  public static final MessageSendingConfig DFLT_INST = new MessageSendingConfig();
+
+  public static final Map<String, MessageSendingConfig> CONFIGS =
+      unmodifiableMap(Configs.resolveMulti(MessageSendingConfig.class));
+
+  protected String connectionFactoryId;
+
+  @ConfigKeyItem(name = "send-pool-size", defaultValue = "0")
+  protected Integer poolSize = 0;
+
+  @ConfigKeyItem(name = "send-batch-size", defaultValue = "64")
+  protected Integer batchSize = 64;
+
+  @ConfigKeyItem(name = "send-batch-linger", defaultValue = "PT0.005S")
+  protected Duration batchLinger = Duration.ofMillis(5L);
+
+  @ConfigKeyItem(name = "send-queue-capacity", defaultValue = "4096")
+  protected Integer queueCapacity = 4096;
+
+  public static MessageSendingConfig getSendingConfig(String connectionFactoryId) {
+    return CONFIGS.getOrDefault(connectionFactoryId, DFLT_INST);
+  }
+
+  public Duration getBatchLinger() {
+    return batchLinger;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public String getConnectionFactoryId() {
+    return connectionFactoryId;
+  }
+
+  @Override
+  public String getName() {
+    return connectionFactoryId;
+  }
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  @Override
+  public void onPostConstruct(Config config, String key) {
+    if (isBlank(connectionFactoryId)) {
+      connectionFactoryId = Qualifiers.resolveName(key);
+    }
+  }
+
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.send;
+
+import static java.util.Collections.singletonList;
+import static org.corant.context.Beans.find;
+import static org.corant.context.Beans.findNamed;
+import static org.corant.shared.util.Assertions.shouldBeFalse;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.max;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.jms.CompletionListener;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import org.corant.context.qualifier.Qualifiers;
+import org.corant.context.security.SecurityContext;
+import org.corant.context.security.SecurityContexts;
+import org.corant.modules.jms.shared.AbstractJMSConfig;
+import org.corant.modules.jms.shared.AbstractJMSExtension;
+import org.corant.modules.jms.shared.context.SecurityContextPropagator;
+import org.corant.modules.jms.shared.context.SecurityContextPropagator.SimpleSecurityContextPropagator;
+import org.corant.modules.jta.shared.TransactionService;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.normal.Names;
+
+/**
+ * corant-modules-jms-shared
+ * <p>
+ * The message sending pool of the connection factories. For each connection factory a single
+ * connection is opened lazily and shared by all the sending sessions of the pool.
+ * <p>
+ * The synchronous sending borrows a non-transacted session from the pool, the session is returned
+ * after sending and discarded if the sending fails. Since the JMS providers usually keep one
+ * underlying message producer per session, the producers are pooled with the sessions. The pool is
+ * only used when there is no active JTA transaction, the sending in a transaction still uses the
+ * transaction scoped XA JMS context.
+ * <p>
+ * The asynchronous sending queues the sending tasks in a bounded queue of the connection factory,
+ * a worker thread takes the tasks and sends them in batches with a dedicated transacted session,
+ * each batch is committed once. If a batch fails before committing, its tasks are retried one by
+ * one so that a bad task doesn't fail the others. If the commit itself fails, the outcome is
+ * unknown (the broker may have committed the messages), so the tasks of the batch are failed
+ * without retrying to avoid duplicates, the listener should treat the exception as possibly sent.
+ * The completion listener of each task is notified on the worker thread after the commit or the
+ * rollback, the security context of the caller is propagated to the worker thread when sending the
+ * task.
+ *
+ * @see MessageSendingConfig
+ * @author bingo 下午3:20:46
+ *
+ */
+@ApplicationScoped
+public class MessageSendingPool {
+
+  protected static final Logger logger = Logger.getLogger(MessageSendingPool.class.getName());
+
+  protected static final long PIPELINE_CLOSE_TIMEOUT_MS = 30000L;
+
+  protected final Map<String, PooledSessions> pools = new ConcurrentHashMap<>();
+  protected final Map<String, SendingPipeline> pipelines = new ConcurrentHashMap<>();
+  protected volatile boolean closed;
+
+  /**
+   * Returns whether the synchronous sending of the given connection factory can use the pooled
+   * sessions, the pool is enabled and there is no active JTA transaction.
+   *
+   * @param connectionFactoryId the connection factory id
+   */
+  public boolean isPooled(String connectionFactoryId) {
+    return MessageSendingConfig.getSendingConfig(Qualifiers.resolveName(connectionFactoryId))
+        .getPoolSize() > 0 && !TransactionService.isCurrentTransactionActive();
+  }
+
+  /**
+   * Send with a pooled session of the given connection factory.
+   *
+   * @param <T> the sending result type
+   * @param connectionFactoryId the connection factory id
+   * @param sender the sending function that accept the pooled session and a producer created by
+   *        the session
+   */
+  public <T> T send(String connectionFactoryId,
+      BiFunction<JMSContext, JMSProducer, T> sender) {
+    final PooledSessions sessions = resolveSessions(connectionFactoryId);
+    final JMSContext context = sessions.borrow();
+    boolean broken = true;
+    try {
+      T result = sender.apply(context, sessions.createProducer(context));
+      broken = false;
+      return result;
+    } finally {
+      sessions.release(context, broken);
+    }
+  }
+
+  /**
+   * Queue a sending task to the asynchronous sending pipeline of the given connection factory,
+   * blocks if the queue of the pipeline is full.
+   *
+   * @param connectionFactoryId the connection factory id
+   * @param sender the sending function that accept the transacted session and a producer created by
+   *        the session, returns the sent messages.
+   * @param listener the completion listener of the sent messages
+   */
+  public void sendAsync(String connectionFactoryId,
+      BiFunction<JMSContext, JMSProducer, List<Message>> sender, CompletionListener listener) {
+    resolvePipeline(connectionFactoryId).submit(new SendingTask(shouldNotNull(sender),
+        shouldNotNull(listener), SecurityContexts.getCurrent()));
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    closed = true;
+    pipelines.values().forEach(SendingPipeline::close);
+    pipelines.clear();
+    pools.values().forEach(PooledSessions::close);
+    pools.clear();
+  }
+
+  protected SendingPipeline resolvePipeline(String connectionFactoryId) {
+    final String key = Qualifiers.resolveName(connectionFactoryId);
+    final SendingPipeline pipeline = pipelines.computeIfAbsent(key, k -> {
+      SendingPipeline created =
+          new SendingPipeline(k, resolveSessions(k), MessageSendingConfig.getSendingConfig(k));
+      created.start();
+      return created;
+    });
+    if (closed) {
+      // the pipeline may be created after the pipelines were closed
+      pipelines.remove(key, pipeline);
+      pipeline.close();
+      throw new CorantRuntimeException("The message sending pool %s was closed!", key);
+    }
+    return pipeline;
+  }
+
+  protected PooledSessions resolveSessions(String connectionFactoryId) {
+    final String key = Qualifiers.resolveName(connectionFactoryId);
+    final PooledSessions sessions = pools.computeIfAbsent(key, k -> {
+      AbstractJMSConfig config = AbstractJMSExtension.getConfig(k);
+      return new PooledSessions(k, config != null && config.isPropagateSecurityContext(),
+          MessageSendingConfig.getSendingConfig(k).getPoolSize());
+    });
+    if (closed) {
+      // the sessions may be created after the pools were closed
+      pools.remove(key, sessions);
+      sessions.close();
+      throw new CorantRuntimeException("The message sending pool %s was closed!", key);
+    }
+    return sessions;
+  }
+
+  static void closeQuietly(JMSContext context) {
+    if (context != null) {
+      try {
+        context.close();
+      } catch (RuntimeException e) {
+        logger.log(Level.FINE, e, () -> "Close the sending JMS context occurred error!");
+      }
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   * <p>
+   * The sessions of a connection factory, all the sessions are created from a root JMS context and
+   * share its connection.
+   *
+   * @author bingo 下午3:32:17
+   *
+   */
+  protected static class PooledSessions {
+
+    protected final String connectionFactoryId;
+    protected final boolean propagateSecurityContext;
+    protected final Queue<JMSContext> idles = new ConcurrentLinkedQueue<>();
+    protected final Semaphore permits;
+    protected volatile boolean closed;
+    protected JMSContext root; // guarded by this
+
+    protected PooledSessions(String connectionFactoryId, boolean propagateSecurityContext,
+        int poolSize) {
+      this.connectionFactoryId = connectionFactoryId;
+      this.propagateSecurityContext = propagateSecurityContext;
+      permits = new Semaphore(max(1, poolSize));
+    }
+
+    protected JMSContext borrow() {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CorantRuntimeException(e);
+      }
+      JMSContext context = idles.poll();
+      if (context == null) {
+        try {
+          context = create(JMSContext.AUTO_ACKNOWLEDGE);
+        } catch (RuntimeException e) {
+          permits.release();
+          throw e;
+        }
+      }
+      return context;
+    }
+
+    protected synchronized void close() {
+      closed = true;
+      JMSContext context;
+      while ((context = idles.poll()) != null) {
+        closeQuietly(context);
+      }
+      closeQuietly(root);
+      root = null;
+    }
+
+    protected synchronized JMSContext create(int sessionMode) {
+      shouldBeFalse(closed, "The message sending pool %s was closed!", connectionFactoryId);
+      if (root == null) {
+        root = connectionFactory().createContext(JMSContext.AUTO_ACKNOWLEDGE);
+      }
+      try {
+        return root.createContext(sessionMode);
+      } catch (JMSRuntimeException e) {
+        // the shared connection may be broken, reopen it.
+        logger.log(Level.WARNING, e,
+            () -> String.format("Reopen the sending connection of %s.", connectionFactoryId));
+        closeQuietly(root);
+        root = connectionFactory().createContext(JMSContext.AUTO_ACKNOWLEDGE);
+        return root.createContext(sessionMode);
+      }
+    }
+
+    protected JMSProducer createProducer(JMSContext context) {
+      JMSProducer producer = context.createProducer();
+      if (propagateSecurityContext) {
+        find(SecurityContextPropagator.class).orElse(SimpleSecurityContextPropagator.INSTANCE)
+            .propagate(producer);
+      }
+      return producer;
+    }
+
+    protected void release(JMSContext context, boolean broken) {
+      try {
+        if (broken || closed) {
+          closeQuietly(context);
+        } else {
+          idles.offer(context);
+        }
+      } finally {
+        permits.release();
+      }
+    }
+
+    ConnectionFactory connectionFactory() {
+      return findNamed(ConnectionFactory.class, connectionFactoryId).orElseThrow(
+          () -> new CorantRuntimeException("Can not find any JMS connection factory for %s.",
+              connectionFactoryId));
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   * <p>
+   * The asynchronous sending pipeline of a connection factory.
+   *
+   * @author bingo 下午3:41:05
+   *
+   */
+  protected static class SendingPipeline implements Runnable {
+
+    protected final String connectionFactoryId;
+    protected final PooledSessions sessions;
+    protected final BlockingQueue<SendingTask> queue;
+    protected final int batchSize;
+    protected final long lingerNanos;
+    protected final Thread worker;
+    protected volatile boolean running = true;
+    protected JMSContext context; // only accessed by the worker thread
+
+    protected SendingPipeline(String connectionFactoryId, PooledSessions sessions,
+        MessageSendingConfig config) {
+      this.connectionFactoryId = connectionFactoryId;
+      this.sessions = sessions;
+      queue = new LinkedBlockingQueue<>(max(1, config.getQueueCapacity()));
+      batchSize = max(1, config.getBatchSize());
+      lingerNanos = max(0L, config.getBatchLinger().toNanos());
+      worker = new Thread(this, Names.CORANT_PREFIX + "msg-snd-" + connectionFactoryId);
+      worker.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      final List<SendingTask> batch = new ArrayList<>(batchSize);
+      try {
+        while (running || !queue.isEmpty()) {
+          SendingTask task = queue.poll(100L, TimeUnit.MILLISECONDS);
+          if (task == null) {
+            continue;
+          }
+          batch.add(task);
+          final long deadline = System.nanoTime() + lingerNanos;
+          while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            task = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (task == null) {
+              break;
+            }
+            batch.add(task);
+          }
+          flush(batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        closeQuietly(context);
+        context = null;
+        queue.drainTo(batch);
+        CorantRuntimeException ex = new CorantRuntimeException(
+            "The message sending pipeline %s was closed!", connectionFactoryId);
+        batch.forEach(t -> t.fail(null, ex));
+      }
+    }
+
+    protected void close() {
+      running = false;
+      try {
+        worker.join(PIPELINE_CLOSE_TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (worker.isAlive()) {
+        worker.interrupt();
+      }
+      final List<SendingTask> remains = new ArrayList<>();
+      queue.drainTo(remains);
+      CorantRuntimeException ex = new CorantRuntimeException(
+          "The message sending pipeline %s was closed!", connectionFactoryId);
+      remains.forEach(t -> t.fail(null, ex));
+    }
+
+    /**
+     * Send the given tasks with the transacted session and commit once. If the sending fails before
+     * committing, the uncommitted messages are rolled back and the tasks are retried one by one. If
+     * the commit fails, whether the messages were committed by the broker is unknown, the tasks are
+     * failed without retrying, since the retry may duplicate the messages.
+     *
+     * @param batch the tasks to be sent
+     */
+    protected void flush(List<SendingTask> batch) {
+      final List<List<Message>> sent = new ArrayList<>(batch.size());
+      boolean committing = false;
+      try {
+        if (context == null) {
+          context = sessions.create(JMSContext.SESSION_TRANSACTED);
+        }
+        for (SendingTask task : batch) {
+          sent.add(task.execute(sessions, context));
+        }
+        committing = true;
+        context.commit();
+      } catch (RuntimeException e) {
+        // closing a transacted session rolls back the uncommitted messages
+        closeQuietly(context);
+        context = null;
+        if (!committing && batch.size() > 1) {
+          logger.log(Level.FINE, e, () -> String.format(
+              "Sending batch of %s failed, retry the tasks one by one.", connectionFactoryId));
+          for (SendingTask task : batch) {
+            flush(singletonList(task));
+          }
+        } else {
+          if (committing) {
+            logger.log(Level.WARNING, e, () -> String.format(
+                "Committing batch of %s failed, the messages may have been sent.",
+                connectionFactoryId));
+          }
+          for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).fail(i < sent.size() ? sent.get(i) : null, e);
+          }
+        }
+        return;
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).complete(sent.get(i));
+      }
+    }
+
+    protected void start() {
+      worker.start();
+    }
+
+    /**
+     * Queue the given task, blocks if the queue is full. If the pipeline was closed, throws an
+     * exception and the task is not sent.
+     *
+     * @param task the task to be queued
+     */
+    protected void submit(SendingTask task) {
+      if (!running) {
+        throw new CorantRuntimeException("The message sending pipeline %s was closed!",
+            connectionFactoryId);
+      }
+      try {
+        queue.put(task);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CorantRuntimeException(e);
+      }
+      // the pipeline may be closed and drained before the task was queued, in that case the task
+      // is removed by the caller, otherwise it is completed or failed by the worker or the closer.
+      if (!running && queue.remove(task)) {
+        throw new CorantRuntimeException("The message sending pipeline %s was closed!",
+            connectionFactoryId);
+      }
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午3:52:34
+   *
+   */
+  protected static class SendingTask {
+
+    protected final BiFunction<JMSContext, JMSProducer, List<Message>> sender;
+    protected final CompletionListener listener;
+    protected final SecurityContext securityContext;
+
+    protected SendingTask(BiFunction<JMSContext, JMSProducer, List<Message>> sender,
+        CompletionListener listener, SecurityContext securityContext) {
+      this.sender = sender;
+      this.listener = listener;
+      this.securityContext = securityContext;
+    }
+
+    protected void complete(List<Message> messages) {
+      for (Message message : messages) {
+        try {
+          listener.onCompletion(message);
+        } catch (RuntimeException e) {
+          logger.log(Level.WARNING, e, () -> "Notify the message sending completion error!");
+        }
+      }
+    }
+
+    protected List<Message> execute(PooledSessions sessions, JMSContext context) {
+      SecurityContexts.setCurrent(securityContext);
+      try {
+        return sender.apply(context, sessions.createProducer(context));
+      } finally {
+        SecurityContexts.setCurrent(null);
+      }
+    }
+
+    protected void fail(List<Message> messages, Exception exception) {
+      try {
+        if (messages == null || messages.isEmpty()) {
+          listener.onException(null, exception);
+        } else {
+          for (Message message : messages) {
+            listener.onException(message, exception);
+          }
+        }
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, e, () -> "Notify the message sending exception error!");
+      }
+    }
+  }
+}
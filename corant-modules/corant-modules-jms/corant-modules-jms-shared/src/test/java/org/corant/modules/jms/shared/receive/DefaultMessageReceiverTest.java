@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import org.corant.context.proxy.ContextualMethodHandler;
+import org.corant.modules.jms.metadata.MessageDestinationMetaData;
+import org.corant.modules.jms.metadata.MessageDrivenMetaData;
+import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.retry.BackoffStrategy.BackoffAlgorithm;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * @author bingo 下午6:02:37
+ *
+ */
+public class DefaultMessageReceiverTest extends TestCase {
+
+  static final int GROUPS = 5;
+  static final int MESSAGES = 200;
+
+  static MessageReceivingMetaData meta(int acknowledge, int batchParallelism) throws Exception {
+    Method method = DefaultMessageReceiverTest.class.getDeclaredMethod("onMessage", Message.class);
+    MessageDrivenMetaData driven = new MessageDrivenMetaData(DefaultMessageReceiverTest.class,
+        null, method, acknowledge, batchParallelism, BackoffAlgorithm.FIXED, 2.0, "PT15M", 3, 8,
+        500L, null, 64, 1000L, emptyList(), null, null, 16, 0, false);
+    return new MessageReceivingMetaData(new ContextualMethodHandler(method),
+        new MessageDestinationMetaData("cf", "queue", false, emptyMap()), driven);
+  }
+
+  static Message message(int sequence, String groupId) {
+    return (Message) Proxy.newProxyInstance(DefaultMessageReceiverTest.class.getClassLoader(),
+        new Class<?>[] {Message.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getStringProperty":
+              return DefaultMessageReceiver.GROUP_ID_PROPERTY.equals(args[0]) ? groupId : null;
+            case "getIntProperty":
+              return sequence;
+            case "hashCode":
+              return System.identityHashCode(p);
+            case "equals":
+              return p == args[0];
+            case "toString":
+              return groupId + ":" + sequence;
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  @Test
+  public void testBatchAcknowledgeModes() throws Exception {
+    assertEquals(4, meta(Session.CLIENT_ACKNOWLEDGE, 4).getBatchParallelism());
+    assertEquals(4, meta(Session.SESSION_TRANSACTED, 4).getBatchParallelism());
+    assertEquals(0, meta(Session.AUTO_ACKNOWLEDGE, 0).getBatchParallelism());
+    for (int acknowledge : new int[] {Session.AUTO_ACKNOWLEDGE, Session.DUPS_OK_ACKNOWLEDGE}) {
+      try {
+        meta(acknowledge, 4);
+        fail();
+      } catch (CorantRuntimeException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testDispatchFailure() throws Exception {
+    List<Message> batch = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      batch.add(message(i, "g" + i % 2));
+    }
+    List<Integer> handled = new CopyOnWriteArrayList<>();
+    DefaultMessageReceiver receiver = receiver((message, session) -> {
+      try {
+        int sequence = message.getIntProperty("sequence");
+        if (sequence == 4) {
+          throw new IllegalStateException("Handle " + sequence + " failed");
+        }
+        handled.add(sequence);
+        return sequence;
+      } catch (JMSException e) {
+        throw new CorantRuntimeException(e);
+      }
+    });
+    try {
+      receiver.dispatch(batch);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    } finally {
+      receiver.release(true);
+    }
+    // the lane of the failed message stops, the other lane completes
+    assertFalse(handled.contains(6));
+    for (int i = 1; i < 20; i += 2) {
+      assertTrue(handled.contains(i));
+    }
+  }
+
+  @Test
+  public void testDispatchOrdering() throws Exception {
+    Random random = new Random(11);
+    List<Message> batch = new ArrayList<>(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      batch.add(message(i, "g" + random.nextInt(GROUPS)));
+    }
+    Map<String, List<Integer>> orders = new ConcurrentHashMap<>();
+    Map<String, Thread> running = new ConcurrentHashMap<>();
+    DefaultMessageReceiver receiver = receiver((message, session) -> {
+      try {
+        String groupId = message.getStringProperty(DefaultMessageReceiver.GROUP_ID_PROPERTY);
+        int sequence = message.getIntProperty("sequence");
+        // the messages of a group are never handled concurrently
+        assertNull(running.put(groupId, Thread.currentThread()));
+        LockSupport.parkNanos(10_000L + sequence % 7 * 20_000L);
+        orders.computeIfAbsent(groupId, k -> new CopyOnWriteArrayList<>()).add(sequence);
+        running.remove(groupId);
+        return sequence * 10;
+      } catch (JMSException e) {
+        throw new CorantRuntimeException(e);
+      }
+    });
+    try {
+      Object[] results = receiver.dispatch(batch);
+      assertEquals(MESSAGES, results.length);
+      for (int i = 0; i < MESSAGES; i++) {
+        assertEquals(i * 10, results[i]);
+      }
+    } finally {
+      receiver.release(true);
+    }
+    assertEquals(GROUPS, orders.size());
+    int count = 0;
+    for (List<Integer> order : orders.values()) {
+      for (int i = 1; i < order.size(); i++) {
+        assertTrue(order.get(i - 1) < order.get(i));
+      }
+      count += order.size();
+    }
+    assertEquals(MESSAGES, count);
+  }
+
+  DefaultMessageReceiver receiver(ManagedMessageReceivingHandler handler) throws Exception {
+    return new DefaultMessageReceiver(meta(Session.CLIENT_ACKNOWLEDGE, 4), handler, null);
+  }
+
+  void onMessage(Message message) {}
+}
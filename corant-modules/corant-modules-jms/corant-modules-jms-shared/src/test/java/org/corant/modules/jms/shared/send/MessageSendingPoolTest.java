@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.send;
+
+import static java.util.Collections.singletonList;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import javax.jms.CompletionListener;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import org.corant.context.qualifier.Qualifiers;
+import org.corant.modules.jms.shared.send.MessageSendingPool.PooledSessions;
+import org.corant.modules.jms.shared.send.MessageSendingPool.SendingPipeline;
+import org.corant.modules.jms.shared.send.MessageSendingPool.SendingTask;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jms-shared
+ * <p>
+ * Drives the message sending pool with proxy JMS objects that model the broker costs, a connection
+ * costs 3ms, a session 0.5ms, a non-transacted send 0.5ms, a transacted send 20us and a commit
+ * 0.5ms.
+ *
+ * @author bingo 下午5:16:42
+ *
+ */
+public class MessageSendingPoolTest extends TestCase {
+
+  static final String CF = Qualifiers.resolveName("cf");
+  static final long TIMEOUT_SECONDS = 10;
+
+  ModelledBroker broker;
+  PooledSessions sessions;
+  MessageSendingPool pool;
+
+  static MessageSendingConfig config(int batchSize, int queueCapacity) {
+    MessageSendingConfig config = new MessageSendingConfig();
+    config.connectionFactoryId = CF;
+    config.batchSize = batchSize;
+    config.queueCapacity = queueCapacity;
+    config.batchLinger = Duration.ofMillis(1);
+    return config;
+  }
+
+  @Test
+  public void testAsyncBatching() throws Exception {
+    pool.pipelines.put(CF, started(new SendingPipeline(CF, sessions, config(64, 4096))));
+    Listener listener = new Listener(16 * 100);
+    ExecutorService callers = Executors.newFixedThreadPool(16);
+    try {
+      for (int t = 0; t < 16; t++) {
+        callers.execute(() -> {
+          for (int i = 0; i < 100; i++) {
+            pool.sendAsync(CF, sender(false), listener);
+          }
+        });
+      }
+      listener.await();
+    } finally {
+      callers.shutdownNow();
+    }
+    assertEquals(1600, listener.completed.get());
+    assertEquals(0, listener.failed.get());
+    assertEquals(1600, broker.committed.get());
+    assertTrue(broker.commits.get() < 1600);
+    assertEquals(1, broker.connections.get());
+    assertEquals(1, broker.sessions.get());
+  }
+
+  @Test
+  public void testAsyncFailureIsolated() throws Exception {
+    SendingPipeline pipeline = new SendingPipeline(CF, sessions, config(64, 4096));
+    Listener listener = new Listener(50);
+    // queued before the worker starts so that the tasks are sent in one batch
+    for (int i = 0; i < 50; i++) {
+      pipeline.submit(new SendingTask(sender(i % 10 == 3), listener, null));
+    }
+    started(pipeline);
+    listener.await();
+    assertEquals(45, listener.completed.get());
+    assertEquals(5, listener.failed.get());
+    assertEquals(45, broker.committed.get());
+    assertEquals(1, broker.rollbacks.get());
+    pipeline.close();
+  }
+
+  @Test
+  public void testCommitFailureNotRetried() throws Exception {
+    SendingPipeline pipeline = new SendingPipeline(CF, sessions, config(64, 4096));
+    Listener listener = new Listener(20);
+    for (int i = 0; i < 20; i++) {
+      pipeline.submit(new SendingTask(sender(false), listener, null));
+    }
+    broker.failCommit.set(true);
+    started(pipeline);
+    listener.await();
+    // the commit outcome is unknown, the tasks are failed and not sent again
+    assertEquals(0, listener.completed.get());
+    assertEquals(20, listener.failed.get());
+    assertEquals(20, broker.sends.get());
+    listener = new Listener(1);
+    pipeline.submit(new SendingTask(sender(false), listener, null));
+    listener.await();
+    assertEquals(1, listener.completed.get());
+    assertEquals(1, broker.committed.get());
+    pipeline.close();
+  }
+
+  @Test
+  public void testPooledSessions() throws Exception {
+    ExecutorService callers = Executors.newFixedThreadPool(16);
+    AtomicInteger failures = new AtomicInteger();
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        final int thread = t;
+        futures.add(callers.submit(() -> {
+          for (int i = 0; i < 50; i++) {
+            try {
+              pool.send(CF, sender(thread == 0 && i == 0));
+            } catch (JMSRuntimeException e) {
+              failures.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+    assertEquals(1, failures.get());
+    assertEquals(800, broker.sends.get());
+    assertEquals(1, broker.connections.get());
+    // the broken session is discarded, at most 4 sessions are open at the same time
+    assertTrue(broker.sessions.get() <= 5);
+    assertTrue(broker.maxOpenSessions.get() <= 4);
+    assertEquals(1, broker.closedSessions.get());
+  }
+
+  @Test
+  public void testResolvePipelineAfterClose() {
+    MessageSendingPool closing = new MessageSendingPool() {
+      @Override
+      protected PooledSessions resolveSessions(String connectionFactoryId) {
+        return sessions;
+      }
+    };
+    closing.onPreDestroy();
+    try {
+      closing.sendAsync(CF, sender(false), new Listener(1));
+      fail();
+    } catch (CorantRuntimeException e) {
+      // expected
+    }
+    assertTrue(closing.pipelines.isEmpty());
+  }
+
+  @Test
+  public void testSubmitAndCloseRace() throws Exception {
+    ExecutorService callers = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 20; round++) {
+        SendingPipeline pipeline = started(new SendingPipeline(CF, sessions, config(8, 16)));
+        Listener listener = new Listener(Integer.MAX_VALUE);
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+          futures.add(callers.submit(() -> {
+            ready.countDown();
+            for (int i = 0; i < 100; i++) {
+              try {
+                pipeline.submit(new SendingTask(sender(false), listener, null));
+              } catch (CorantRuntimeException e) {
+                rejected.incrementAndGet();
+              }
+            }
+          }));
+        }
+        ready.await();
+        pipeline.close();
+        for (Future<?> future : futures) {
+          future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        // every task is either rejected by submit, completed or failed by the pipeline
+        assertEquals("round " + round, 400,
+            rejected.get() + listener.completed.get() + listener.failed.get());
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    broker = new ModelledBroker();
+    sessions = new PooledSessions(CF, false, 4) {
+      @Override
+      ConnectionFactory connectionFactory() {
+        return broker.connectionFactory;
+      }
+    };
+    pool = new MessageSendingPool();
+    pool.pools.put(CF, sessions);
+  }
+
+  BiFunction<JMSContext, JMSProducer, List<Message>> sender(boolean bad) {
+    return (context, producer) -> {
+      Message message = broker.message(bad);
+      producer.send(null, message);
+      return singletonList(message);
+    };
+  }
+
+  SendingPipeline started(SendingPipeline pipeline) {
+    pipeline.start();
+    return pipeline;
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    pool.onPreDestroy();
+  }
+
+  static class Listener implements CompletionListener {
+    final AtomicInteger completed = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final CountDownLatch latch;
+
+    Listener(int expected) {
+      latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onCompletion(Message message) {
+      completed.incrementAndGet();
+      latch.countDown();
+    }
+
+    @Override
+    public void onException(Message message, Exception exception) {
+      failed.incrementAndGet();
+      latch.countDown();
+    }
+
+    void await() throws InterruptedException {
+      assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+  }
+
+  /**
+   * Proxy JMS objects that count the broker operations and charge the modelled costs.
+   */
+  static class ModelledBroker {
+    static final long CONNECT_NANOS = 3_000_000L;
+    static final long SESSION_NANOS = 500_000L;
+    static final long SEND_NANOS = 500_000L;
+    static final long TRANSACTED_SEND_NANOS = 20_000L;
+    static final long COMMIT_NANOS = 500_000L;
+
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger sessions = new AtomicInteger();
+    final AtomicInteger openSessions = new AtomicInteger();
+    final AtomicInteger maxOpenSessions = new AtomicInteger();
+    final AtomicInteger closedSessions = new AtomicInteger();
+    final AtomicInteger sends = new AtomicInteger();
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger committed = new AtomicInteger();
+    final AtomicInteger rollbacks = new AtomicInteger();
+    final AtomicBoolean failCommit = new AtomicBoolean();
+    final ConnectionFactory connectionFactory = (ConnectionFactory) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {ConnectionFactory.class}, (p, m, args) -> {
+          if ("createContext".equals(m.getName())) {
+            charge(CONNECT_NANOS);
+            connections.incrementAndGet();
+            return root();
+          }
+          throw new UnsupportedOperationException(m.getName());
+        });
+
+    static void charge(long nanos) {
+      LockSupport.parkNanos(nanos);
+    }
+
+    Message message(boolean bad) {
+      return (Message) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {Message.class}, (p, m, args) -> {
+            switch (m.getName()) {
+              case "toString":
+                return bad ? "bad message" : "message";
+              case "hashCode":
+                return System.identityHashCode(p);
+              case "equals":
+                return p == args[0];
+              case "getJMSType":
+                return bad ? "bad" : null;
+              default:
+                throw new UnsupportedOperationException(m.getName());
+            }
+          });
+    }
+
+    JMSProducer producer(AtomicInteger pending, boolean transacted) {
+      return (JMSProducer) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {JMSProducer.class}, (p, m, args) -> {
+            if ("send".equals(m.getName())) {
+              charge(transacted ? TRANSACTED_SEND_NANOS : SEND_NANOS);
+              sends.incrementAndGet();
+              if ("bad".equals(((Message) args[1]).getJMSType())) {
+                throw new JMSRuntimeException("Bad message");
+              }
+              pending.incrementAndGet();
+              return p;
+            }
+            throw new UnsupportedOperationException(m.getName());
+          });
+    }
+
+    JMSContext root() {
+      return (JMSContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {JMSContext.class}, (p, m, args) -> {
+            switch (m.getName()) {
+              case "createContext":
+                charge(SESSION_NANOS);
+                sessions.incrementAndGet();
+                maxOpenSessions.accumulateAndGet(openSessions.incrementAndGet(), Math::max);
+                return session((Integer) args[0] == JMSContext.SESSION_TRANSACTED);
+              case "close":
+                return null;
+              default:
+                throw new UnsupportedOperationException(m.getName());
+            }
+          });
+    }
+
+    JMSContext session(boolean transacted) {
+      final AtomicInteger pending = new AtomicInteger();
+      return (JMSContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {JMSContext.class}, (p, m, args) -> {
+            switch (m.getName()) {
+              case "createProducer":
+                return producer(pending, transacted);
+              case "commit":
+                charge(COMMIT_NANOS);
+                if (failCommit.compareAndSet(true, false)) {
+                  throw new JMSRuntimeException("Commit failed");
+                }
+                commits.incrementAndGet();
+                committed.addAndGet(pending.getAndSet(0));
+                return null;
+              case "close":
+                if (transacted && pending.getAndSet(0) > 0) {
+                  rollbacks.incrementAndGet();
+                }
+                closedSessions.incrementAndGet();
+                openSessions.decrementAndGet();
+                return null;
+              default:
+                throw new UnsupportedOperationException(m.getName());
+            }
+          });
+    }
+  }
+}
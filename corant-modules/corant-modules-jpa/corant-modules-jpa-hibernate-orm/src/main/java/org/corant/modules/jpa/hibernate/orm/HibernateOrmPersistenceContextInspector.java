@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jpa.hibernate.orm;
+
+import java.io.Serializable;
+import javax.persistence.EntityManager;
+import org.corant.modules.jpa.shared.PersistenceContextInspector;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * corant-modules-jpa-hibernate-orm
+ * <p>
+ * Inspects the Hibernate session persistence context, the entities that have been removed (the
+ * entry status is {@link Status#DELETED} or {@link Status#GONE}) are considered absent.
+ *
+ * @author bingo 下午3:20:17
+ *
+ */
+public class HibernateOrmPersistenceContextInspector implements PersistenceContextInspector {
+
+  @Override
+  public boolean accept(EntityManager entityManager) {
+    return entityManager.getDelegate() instanceof SessionImplementor;
+  }
+
+  @Override
+  public <T> T getManaged(EntityManager entityManager, Class<T> entityClass, Object id) {
+    SessionImplementor session = (SessionImplementor) entityManager.getDelegate();
+    EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+    PersistenceContext context = session.getPersistenceContext();
+    Object entity = context.getEntity(session.generateEntityKey((Serializable) id, persister));
+    if (!entityClass.isInstance(entity)) {
+      return null;
+    }
+    EntityEntry entry = context.getEntry(entity);
+    if (entry == null || entry.getStatus() == Status.DELETED || entry.getStatus() == Status.GONE) {
+      return null;
+    }
+    return entityClass.cast(entity);
+  }
+}
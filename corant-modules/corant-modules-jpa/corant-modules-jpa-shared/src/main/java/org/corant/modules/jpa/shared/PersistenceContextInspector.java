@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jpa.shared;
+
+import javax.persistence.EntityManager;
+import org.corant.shared.ubiquity.Sortable;
+
+/**
+ * corant-modules-jpa-shared
+ * <p>
+ * The JPA provider specific inspector of the persistence context of an entity manager, used to
+ * retrieve the managed entity instances without hitting the database. The implementations are
+ * loaded by {@link java.util.ServiceLoader}.
+ *
+ * @author bingo 下午3:12:46
+ *
+ */
+public interface PersistenceContextInspector extends Sortable {
+
+  /**
+   * Returns whether this inspector can inspect the persistence context of the given entity
+   * manager.
+   *
+   * @param entityManager the entity manager to inspect
+   */
+  boolean accept(EntityManager entityManager);
+
+  /**
+   * Returns the entity instance of the given entity class and identifier that is managed by the
+   * persistence context of the given entity manager, or null if the persistence context doesn't
+   * contain it. The implementation must not hit the database.
+   *
+   * @param <T> the entity type
+   * @param entityManager the entity manager
+   * @param entityClass the entity class
+   * @param id the entity identifier
+   */
+  <T> T getManaged(EntityManager entityManager, Class<T> entityClass, Object id);
+}
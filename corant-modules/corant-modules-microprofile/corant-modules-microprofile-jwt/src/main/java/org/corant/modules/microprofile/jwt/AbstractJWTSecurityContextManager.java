@@ -13,8 +13,10 @@
  */
 package org.corant.modules.microprofile.jwt;
 
+import static java.util.Collections.singletonList;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -24,10 +26,13 @@ import javax.json.JsonObject;
 import javax.json.JsonString;
 import javax.json.JsonValue;
 import org.corant.context.security.SecurityContexts;
-import org.corant.modules.security.Principal;
 import org.corant.modules.security.SecurityContextManager;
+import org.corant.modules.security.Subject;
 import org.corant.modules.security.shared.DefaultSecurityContext;
 import org.corant.modules.security.shared.IdentifiablePrincipal;
+import org.corant.modules.security.shared.SimplePermission;
+import org.corant.modules.security.shared.SimpleRole;
+import org.corant.modules.security.shared.SimpleSubject;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 
 /**
@@ -60,8 +65,14 @@ public abstract class AbstractJWTSecurityContextManager<C> implements SecurityCo
 
       Serializable id = userPrincipal.getSubject();
       String name = userPrincipal.getName();
-      Principal principal = new IdentifiablePrincipal(id, name, map);
-      SecurityContexts.setCurrent(new DefaultSecurityContext(authSchema, principal));
+      IdentifiablePrincipal principal = new IdentifiablePrincipal(id, name, map);
+      // the roles and permissions are compiled by the subject for the authorizers
+      Collection<SimpleRole> roles =
+          principal.getAttribute("groups", ArrayList::new, r -> new SimpleRole(r.toString()));
+      Collection<SimplePermission> perms = principal.getAttribute("permits", ArrayList::new,
+          p -> new SimplePermission(p.toString()));
+      Subject subject = new SimpleSubject(singletonList(principal), roles, perms, null);
+      SecurityContexts.setCurrent(new DefaultSecurityContext(authSchema, subject));
     } else {
       logger.fine(() -> "Bind empty security context to SecurityContexts.");
       SecurityContexts.setCurrent(null);
@@ -31,6 +31,11 @@ import org.corant.shared.ubiquity.Sortable;
 
 /**
  * corant-modules-microprofile-jwt
+ * <p>
+ * The security context bound by the {@link AbstractJWTSecurityContextManager} carries a
+ * {@link org.corant.modules.security.shared.SimpleSubject} of the groups and permits claims, the
+ * access of such context is tested through the compiled indexes of the subject, the other contexts
+ * are tested against the groups and permits attributes of the principal one by one.
  *
  * @author bingo 上午10:23:37
  *
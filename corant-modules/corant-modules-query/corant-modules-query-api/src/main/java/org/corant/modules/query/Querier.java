@@ -93,7 +93,9 @@ public interface Querier {
   <T> List<T> handleResults(List<?> results);
 
   /**
-   * Experiential functions for proof of concept.
+   * Returns whether to execute the fetch queries in parallel, the fetch queries are executed on
+   * the managed executor service configured by {@link QuerierConfig#getParallelFetchExecutorName()}
+   * and bounded by {@link QuerierConfig#getParallelFetchTimeout()}.
    *
    * @return whether to fetch in parallel
    */
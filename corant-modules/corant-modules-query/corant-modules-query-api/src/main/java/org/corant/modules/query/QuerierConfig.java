@@ -24,12 +24,17 @@ import java.time.Duration;
 public interface QuerierConfig {
 
   // Use to cover the global 'corant.query.querier' configuration, they may be assigned in query xml
+  String CTX_KEY_CONTINUATION = ".continuation";
   String CTX_KEY_PARALLEL_FETCH = ".parallel-fetch";
+  String PRO_KEY_PARALLEL_FETCH_TIMEOUT = ".parallel-fetch-timeout";
   int UN_LIMIT_SELECT_SIZE = Integer.MAX_VALUE - 16;
   String PRO_KEY_MAX_SELECT_SIZE = ".max-select-size";
   String PRO_KEY_THROWN_ON_MAX_LIMIT_SIZE = ".thrown-on-max-select-size";
   String PRO_KEY_LIMIT = ".limit";
+  String PRO_KEY_RENDERING_CACHE = ".rendering-cache";
+  String PRO_KEY_RENDERING_CACHE_SIZE = ".rendering-cache-size";
   String PRO_KEY_STREAM_LIMIT = ".stream-limit";
+  String PRO_KEY_STREAM_PREFETCH_DEPTH = ".stream-prefetch-depth";
   String PRO_KEY_TIMEOUT = ".timeout";
 
   int getDefaultLimit();
@@ -42,6 +47,17 @@ public interface QuerierConfig {
 
   int getMaxSelectSize();
 
+  /**
+   * Returns the name of the managed executor service use to execute the fetch queries in parallel,
+   * if the name is blank the default managed executor service is used.
+   */
+  String getParallelFetchExecutorName();
+
+  /**
+   * Returns the default timeout of each fetch query executed in parallel, null means no timeout.
+   */
+  Duration getParallelFetchTimeout();
+
   Duration getTimeout();
 
   boolean isThrownOnMaxSelectSize();
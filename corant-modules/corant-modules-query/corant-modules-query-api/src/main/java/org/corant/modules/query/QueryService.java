@@ -108,6 +108,7 @@ public interface QueryService<Q, P> {
 
     private boolean hasNext;
     private final List<T> results = new ArrayList<>();
+    private String continuation;
 
     Forwarding() {}
 
@@ -120,6 +121,15 @@ public interface QueryService<Q, P> {
       return il.withResults(results).withHasNext(hasNext);
     }
 
+    /**
+     * Returns the opaque continuation token use to fetch the next result set, the token can be put
+     * into the query parameter context with the key {@link QuerierConfig#CTX_KEY_CONTINUATION}.
+     * The under query service implementation may not support it, in this case returns null.
+     */
+    public String getContinuation() {
+      return continuation;
+    }
+
     /**
      * The result list
      */
@@ -151,13 +161,20 @@ public interface QueryService<Q, P> {
       if (other != null) {
         withHasNext(other.hasNext());
         withResults(other.getResults());
+        withContinuation(other.getContinuation());
       } else {
         withHasNext(false);
         withResults(new ArrayList<>());
+        withContinuation(null);
       }
       return this;
     }
 
+    public Forwarding<T> withContinuation(String continuation) {
+      this.continuation = continuation;
+      return this;
+    }
+
     public Forwarding<T> withHasNext(boolean hasNext) {
       this.hasNext = hasNext;
       return this;
@@ -189,6 +206,7 @@ public interface QueryService<Q, P> {
     private int totalPages;
     private int offset;
     private List<T> results = new ArrayList<>();
+    private String continuation;
 
     public static <T> Paging<T> inst() {
       return new Paging<>();
@@ -204,6 +222,15 @@ public interface QueryService<Q, P> {
       return pl.withResults(results).withTotal(total).withOffset(offset).withPageSize(pageSize);
     }
 
+    /**
+     * Returns the opaque continuation token use to fetch the next page, the token can be put into
+     * the query parameter context with the key {@link QuerierConfig#CTX_KEY_CONTINUATION}. The
+     * under query service implementation may not support it, in this case returns null.
+     */
+    public String getContinuation() {
+      return continuation;
+    }
+
     /**
      * @return the currentPage
      */
@@ -244,6 +271,11 @@ public interface QueryService<Q, P> {
       return isNotEmpty(results);
     }
 
+    public Paging<T> withContinuation(String continuation) {
+      this.continuation = continuation;
+      return this;
+    }
+
     public Paging<T> withOffset(int offset) {
       this.offset = offset;
       calPages();
@@ -51,6 +51,8 @@ public class StreamQueryParameter extends DefaultQueryParameter {
 
   protected boolean autoClose = false;
 
+  protected int prefetchDepth = 0;
+
   public StreamQueryParameter() {}
 
   public StreamQueryParameter(QueryParameter other) {
@@ -60,7 +62,8 @@ public class StreamQueryParameter extends DefaultQueryParameter {
   public StreamQueryParameter(StreamQueryParameter other) {
     super(other);
     enhancer(other.enhancer).retryBackoffStrategy(other.retryBackoffStrategy)
-        .retryTimes(other.retryTimes).terminator(other.terminator).autoClose(other.autoClose);
+        .retryTimes(other.retryTimes).terminator(other.terminator).autoClose(other.autoClose)
+        .prefetchDepth(other.prefetchDepth);
   }
 
   public StreamQueryParameter autoClose(boolean autoClose) {
@@ -109,6 +112,15 @@ public class StreamQueryParameter extends DefaultQueryParameter {
     return defaultObject(super.getLimit(), 1);
   }
 
+  /**
+   * @see #prefetchDepth(int)
+   *
+   * @return getPrefetchDepth
+   */
+  public int getPrefetchDepth() {
+    return prefetchDepth;
+  }
+
   /**
    * @see #retryBackoffStrategy(BackoffStrategy)
    */
@@ -164,6 +176,20 @@ public class StreamQueryParameter extends DefaultQueryParameter {
     return this;
   }
 
+  /**
+   * The stream query may be use {@link QueryService#forward(Object, Object)} to fetch data in
+   * batches, this method use to set the maximum number of batches that can be fetched
+   * asynchronously in advance while the current batch is being consumed. The under query service
+   * implementation may not support prefetching.
+   *
+   * @param prefetchDepth the prefetch depth, if given is less than or equal to 0, it means no
+   *        prefetching.
+   */
+  public StreamQueryParameter prefetchDepth(int prefetchDepth) {
+    this.prefetchDepth = max(prefetchDepth, 0);
+    return this;
+  }
+
   /**
    * The stream query may be use {@link QueryService#forward(Object, Object)} to fetch data in
    * batches, in this process the exception may be occurred, the query may retry after exception
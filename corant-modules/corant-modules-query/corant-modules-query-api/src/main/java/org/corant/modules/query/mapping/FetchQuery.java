@@ -51,6 +51,7 @@ public class FetchQuery implements Serializable {
   private Script predicateScript = new Script();
   private Script injectionScript = new Script();
   private boolean eagerInject = true;
+  private int batchSize = 0;
   private final String id = UUID.randomUUID().toString();
 
   public FetchQuery() {}
@@ -106,6 +107,19 @@ public class FetchQuery implements Serializable {
     }
   }
 
+  /**
+   * Returns the batch size of the eager inject fetch query, if the value greater than 0 and all
+   * parameters whose source is parent query results have target names, the fetch query is executed
+   * in batches of parent query results instead of one per parent query result, and the fetched
+   * results are joined back to the parent query results by the target names. Default is 0, means
+   * not batched.
+   *
+   * @see FetchQueryParameter#getTargetName()
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
   /**
    * Returns the fetch query identifier, each fetch query has a unique identifier.
    */
@@ -178,6 +192,31 @@ public class FetchQuery implements Serializable {
     return prime * result + (id == null ? 0 : id.hashCode());
   }
 
+  /**
+   * Returns whether the eager inject fetch query can be executed in batches.
+   *
+   * @see #getBatchSize()
+   */
+  public boolean isBatchable() {
+    if (!eagerInject || batchSize <= 0 || parameters.isEmpty()) {
+      return false;
+    }
+    boolean hasResultParameter = false;
+    for (FetchQueryParameter parameter : parameters) {
+      if (parameter.getSource() == FetchQueryParameterSource.S
+          || Strings.isNotBlank(parameter.getGroup())) {
+        return false;
+      }
+      if (parameter.getSource() == FetchQueryParameterSource.R) {
+        if (parameter.getTargetNamePath().length == 0) {
+          return false;
+        }
+        hasResultParameter = true;
+      }
+    }
+    return hasResultParameter;
+  }
+
   /**
    * Return whether to performance the fetch query eager.
    */
@@ -204,6 +243,10 @@ public class FetchQuery implements Serializable {
         parameters == null ? Collections.emptyList() : Collections.unmodifiableList(parameters);
   }
 
+  protected void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
   protected void setEagerInject(boolean eagerInject) {
     this.eagerInject = eagerInject;
   }
@@ -272,6 +315,8 @@ public class FetchQuery implements Serializable {
     private String name;
     private String sourceName;
     private String[] sourceNamePath = Strings.EMPTY_ARRAY;
+    private String targetName;
+    private String[] targetNamePath = Strings.EMPTY_ARRAY;
     private FetchQueryParameterSource source;
     private String value;
     private Class<?> type;
@@ -350,6 +395,21 @@ public class FetchQuery implements Serializable {
       return sourceNamePath;
     }
 
+    /**
+     * Returns the property name of the fetch query result corresponding to the parameter, usually
+     * used for the source is the parent query result, the batched fetch query uses it to join the
+     * fetched results back to the parent query results.
+     *
+     * @see FetchQuery#getBatchSize()
+     */
+    public String getTargetName() {
+      return targetName;
+    }
+
+    public String[] getTargetNamePath() {
+      return targetNamePath;
+    }
+
     /**
      * Returns the target type of the parameter value, usually the parameter value will undergo type
      * conversion
@@ -410,6 +470,11 @@ public class FetchQuery implements Serializable {
       sourceNamePath = Names.splitNameSpace(sourceName, true, false);
     }
 
+    protected void setTargetName(String targetName) {
+      this.targetName = targetName;
+      targetNamePath = Names.splitNameSpace(targetName, true, false);
+    }
+
     protected void setType(Class<?> type) {
       this.type = type;
     }
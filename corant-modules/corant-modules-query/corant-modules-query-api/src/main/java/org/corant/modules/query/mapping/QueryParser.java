@@ -19,11 +19,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
@@ -39,6 +42,10 @@ import org.xml.sax.XMLReader;
 
 /**
  * corant-modules-query-api
+ * <p>
+ * Parse the query mapping files concurrently. The XML schema is compiled once and shared, since it
+ * is immutable and thread safe; the SAX parsers are created from one factory and reused by the
+ * parsing threads through a pool, since neither the factory nor the parser is thread safe.
  *
  * @author bingo 上午10:56:43
  *
@@ -48,27 +55,47 @@ public class QueryParser {
   public static final String SCHEMA_URL = "org/corant/modules/query/mapping/nqms_1_0.xsd";
 
   static Logger logger = Logger.getLogger(QueryParser.class.getName());
+  static volatile Schema schema;
 
   public List<QueryMapping> parse(String... pathExpresses) {
     List<QueryMapping> qmList = new CopyOnWriteArrayList<>();
     final SAXParserFactory factory = createSAXParserFactory();
+    final Queue<SAXParser> parsers = new ConcurrentLinkedQueue<>();
     final Map<String, Resource> fileMap = getQueryMappingFiles(pathExpresses);
     fileMap.entrySet().stream().parallel().forEach(entry -> {
       logger.fine(() -> String.format("Parse query mapping file %s.", entry.getKey()));
+      SAXParser parser = null;
       try (InputStream is = entry.getValue().openInputStream()) {
+        parser = borrowParser(factory, parsers);
         QueryParseHandler handler = new QueryParseHandler(entry.getKey());
-        XMLReader reader = factory.newSAXParser().getXMLReader();
+        XMLReader reader = parser.getXMLReader();
         reader.setErrorHandler(new QueryParserErrorHandler(entry.getValue().getLocation()));
         reader.setContentHandler(handler);
         reader.parse(new InputSource(is));
         qmList.add(handler.getMapping());
       } catch (IOException | SAXException | ParserConfigurationException ex) {
         throw new QueryRuntimeException(ex, "Parse query mapping file [%s] error!", entry.getKey());
+      } finally {
+        if (parser != null) {
+          parser.reset();
+          parsers.offer(parser);
+        }
       }
     });
     return qmList;
   }
 
+  SAXParser borrowParser(SAXParserFactory factory, Queue<SAXParser> parsers)
+      throws ParserConfigurationException, SAXException {
+    SAXParser parser = parsers.poll();
+    if (parser == null) {
+      synchronized (factory) {
+        parser = factory.newSAXParser();
+      }
+    }
+    return parser;
+  }
+
   SAXParserFactory createSAXParserFactory() {
     SAXParserFactory factory = SAXParserFactory.newInstance();
     factory.setSchema(getSchema());
@@ -93,13 +120,22 @@ public class QueryParser {
   }
 
   Schema getSchema() {
-    try {
-      return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
-          Resources.fromClassPath(SCHEMA_URL).map(ClassPathResource::getURL).findFirst().get());
-    } catch (SAXException | IOException e) {
-      throw new QueryRuntimeException(e, "Can't resolve query mapping XML schema from %s.",
-          SCHEMA_URL);
+    Schema useSchema = schema;
+    if (useSchema == null) {
+      synchronized (QueryParser.class) {
+        if ((useSchema = schema) == null) {
+          try {
+            schema = useSchema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                .newSchema(Resources.fromClassPath(SCHEMA_URL).map(ClassPathResource::getURL)
+                    .findFirst().get());
+          } catch (SAXException | IOException e) {
+            throw new QueryRuntimeException(e, "Can't resolve query mapping XML schema from %s.",
+                SCHEMA_URL);
+          }
+        }
+      }
     }
+    return useSchema;
   }
 
   static class QueryParserErrorHandler implements ErrorHandler {
@@ -52,7 +52,7 @@ public class DefaultCasNamedQuerierResolver extends AbstractNamedQuerierResolver
   @ConfigProperty(name = "corant.query.cassandra.mapping-file.paths")
   protected Optional<String> mappingFilePaths;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
     clearBuilders();
@@ -40,7 +40,7 @@ public class DefaultEsNamedQuerierResolver extends AbstractNamedQuerierResolver<
   @Inject
   protected Logger logger;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
     clearBuilders();
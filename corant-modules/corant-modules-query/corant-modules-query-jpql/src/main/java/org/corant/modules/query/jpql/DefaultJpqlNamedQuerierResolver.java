@@ -44,7 +44,7 @@ public class DefaultJpqlNamedQuerierResolver
   @Inject
   protected Logger logger;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
     clearBuilders();
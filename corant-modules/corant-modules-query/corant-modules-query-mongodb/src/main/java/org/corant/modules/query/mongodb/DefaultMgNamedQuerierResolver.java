@@ -40,7 +40,7 @@ public class DefaultMgNamedQuerierResolver extends AbstractNamedQuerierResolver<
   @Inject
   protected Logger logger;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
     clearBuilders();
@@ -15,14 +15,22 @@ package org.corant.modules.query.shared;
 
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNotBlank;
-import java.util.HashMap;
+import static org.corant.shared.util.Objects.max;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
+import org.corant.config.Configs;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.FetchQuery;
 import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameter;
@@ -35,11 +43,30 @@ import org.corant.modules.query.shared.ScriptProcessor.AbstractScriptProcessor;
  *
  * corant-modules-query-shared
  *
+ * <p>
+ * The compiled script functions are cached process-wide and keyed by the script id, the cache is
+ * invalidated when the query mappings are re-initialized. If the script engine can be shared
+ * between threads, the compiled script is shared, otherwise each script uses a small bounded pool
+ * of evaluation contexts, each context holds its own compiled script and reusable bindings.
+ *
  * @author bingo 下午2:34:03
  *
  */
 public abstract class AbstractCompilableScriptProcessor extends AbstractScriptProcessor {
 
+  public static final String EVALUATION_POOL_SIZE_CFG = "corant.query.script.evaluation-pool-size";
+
+  protected static final int EVALUATION_POOL_SIZE = max(Configs.getValue(EVALUATION_POOL_SIZE_CFG,
+      Integer.class, Runtime.getRuntime().availableProcessors()), 1);
+
+  protected final Map<Object, Function<ParameterAndResult, Object>> paramResultFunctions =
+      new ConcurrentHashMap<>();
+
+  protected final Map<Object, Function<ParameterAndResultPair, Object>> paramResultPairFunctions =
+      new ConcurrentHashMap<>();
+
+  protected volatile long initializedVersion;
+
   @Override
   public Function<ParameterAndResultPair, Object> resolveFetchInjections(FetchQuery fetchQuery) {
     final Script script = fetchQuery.getInjectionScript();
@@ -83,93 +110,174 @@ public abstract class AbstractCompilableScriptProcessor extends AbstractScriptPr
     return null;
   }
 
+  /**
+   * Clear the compiled script functions cache, called when the query mappings are initialized.
+   *
+   * @param initializedVersion the initialized version of the query mappings
+   */
+  protected synchronized void clearCompiledFunctions(long initializedVersion) {
+    this.initializedVersion = initializedVersion;
+    paramResultFunctions.clear();
+    paramResultPairFunctions.clear();
+    logger.fine(() -> String.format(
+        "Clean compiled script functions cache, current initialized version: %s",
+        initializedVersion));
+  }
+
   protected Function<ParameterAndResult, Object> compileFunction(Script script,
       String parameterPName, String resultPName) {
-    return getParamResultFunctions().computeIfAbsent(script.getId(), k -> {
-      try {
-        logger.fine(() -> String.format(
-            "Compile the query consumer script, id is %s, the thread name is %s id is %s",
-            script.getId(), Thread.currentThread().getName(), Thread.currentThread().getId()));
-        final Compilable se = getCompilable(script.getType());
-        final CompiledScript cs = se.compile(shouldNotBlank(script.getCode()));
-        return pns -> {
-          Bindings bindings = new SimpleBindings();
-          try {
-            bindings.put(parameterPName, pns.parameter);
-            bindings.put(resultPName, pns.result);
-            return cs.eval(bindings);
-          } catch (ScriptException e) {
-            throw new QueryRuntimeException(e);
-          } finally {
-            bindings.clear();
-          }
-        };
-      } catch (ScriptException e) {
-        throw new QueryRuntimeException(e);
-      }
+    checkInitializedVersion();
+    return paramResultFunctions.computeIfAbsent(script.getId(), k -> {
+      final CompiledScriptExecution execution = compileExecution(script);
+      return pns -> execution.eval(bindings -> {
+        bindings.put(parameterPName, pns.parameter);
+        bindings.put(resultPName, pns.result);
+      });
     });
   }
 
   protected Function<ParameterAndResultPair, Object> compileFunction(Script script,
       String parameterPName, String parentResultPName, String fetchResultPName) {
-    return getParamResultPairFunctions().computeIfAbsent(script.getId(), k -> {
-      try {
-        logger.fine(() -> String.format(
-            "Compile the query consumer script, id is %s, the thread name is %s id is %s",
-            script.getId(), Thread.currentThread().getName(), Thread.currentThread().getId()));
-        final Compilable se = getCompilable(script.getType());
-        final CompiledScript cs = se.compile(shouldNotBlank(script.getCode()));
-        return pns -> {
-          Bindings bindings = new SimpleBindings();
-          try {
-            if (parameterPName != null) {
-              bindings.put(parameterPName, pns.parameter);
-            }
-            bindings.put(parentResultPName, pns.parentResult);
-            bindings.put(fetchResultPName, pns.fetchedResult);
-            return cs.eval(bindings);
-          } catch (ScriptException e) {
-            throw new QueryRuntimeException(e);
-          } finally {
-            bindings.clear();
-          }
-        };
-      } catch (ScriptException e) {
-        throw new QueryRuntimeException(e);
-      }
+    checkInitializedVersion();
+    return paramResultPairFunctions.computeIfAbsent(script.getId(), k -> {
+      final CompiledScriptExecution execution = compileExecution(script);
+      return pns -> execution.eval(bindings -> {
+        if (parameterPName != null) {
+          bindings.put(parameterPName, pns.parameter);
+        }
+        bindings.put(parentResultPName, pns.parentResult);
+        bindings.put(fetchResultPName, pns.fetchedResult);
+      });
     });
   }
 
-  protected abstract Compilable getCompilable(ScriptType type);
+  protected void checkInitializedVersion() {
+    final long cv = QueryMappingService.getInitializedVersion();
+    if (initializedVersion < cv) {
+      synchronized (this) {
+        if (initializedVersion < cv) {
+          clearCompiledFunctions(cv);
+        }
+      }
+    }
+  }
+
+  protected CompiledScriptExecution compileExecution(Script script) {
+    logger.fine(() -> String.format("Compile the query script, id is %s, the thread name is %s",
+        script.getId(), Thread.currentThread().getName()));
+    final Compilable compilable = getCompilable(script.getType());
+    return new CompiledScriptExecution(compile(compilable, script), isShareable(compilable),
+        () -> compile(getCompilable(script.getType()), script), EVALUATION_POOL_SIZE);
+  }
+
+  protected CompiledScript compile(Compilable compilable, Script script) {
+    try {
+      return compilable.compile(shouldNotBlank(script.getCode()));
+    } catch (ScriptException e) {
+      throw new QueryRuntimeException(e);
+    }
+  }
 
-  protected abstract ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions();
+  protected abstract Compilable getCompilable(ScriptType type);
 
-  protected abstract ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions();
+  /**
+   * Returns whether the compiled script of the given script engine can be evaluated concurrently
+   * by multiple threads, the default implementation checks the {@code THREADING} parameter of the
+   * script engine factory.
+   *
+   * @param compilable the script engine
+   */
+  protected boolean isShareable(Compilable compilable) {
+    if (compilable instanceof ScriptEngine) {
+      Object threading = ((ScriptEngine) compilable).getFactory().getParameter("THREADING");
+      return "MULTITHREADED".equals(threading) || "THREAD-ISOLATED".equals(threading)
+          || "STATELESS".equals(threading);
+    }
+    return false;
+  }
 
   /**
    * corant-modules-query-shared
    *
+   * <p>
+   * The compiled script execution, holds a bounded pool of evaluation contexts. If the compiled
+   * script is shareable, all contexts use the same compiled script and the evaluation never
+   * blocks, otherwise each context compiles the script with its own script engine and the
+   * evaluation waits for an idle context when the pool is exhausted.
+   *
    * @author bingo 下午3:11:18
    *
    */
-  public static class ThreadLocalExecution<K, V> {
-    long initializedVersion;
-    Map<K, V> executions = new HashMap<>();
+  public static class CompiledScriptExecution {
 
-    public void clear() {
-      executions.clear();
+    protected final CompiledScript compiledScript;
+    protected final boolean shareable;
+    protected final Supplier<CompiledScript> compiler;
+    protected final int poolSize;
+    protected final BlockingQueue<EvaluationContext> contexts;
+    protected final AtomicInteger created = new AtomicInteger(1);
+
+    public CompiledScriptExecution(CompiledScript compiledScript, boolean shareable,
+        Supplier<CompiledScript> compiler, int poolSize) {
+      this.compiledScript = compiledScript;
+      this.shareable = shareable;
+      this.compiler = compiler;
+      this.poolSize = max(poolSize, 1);
+      contexts = new ArrayBlockingQueue<>(this.poolSize);
+      contexts.offer(new EvaluationContext(compiledScript));
+    }
+
+    public Object eval(Consumer<Bindings> binder) {
+      final EvaluationContext context = borrow();
+      try {
+        binder.accept(context.bindings);
+        return context.compiledScript.eval(context.bindings);
+      } catch (ScriptException e) {
+        throw new QueryRuntimeException(e);
+      } finally {
+        context.bindings.clear();
+        contexts.offer(context);
+      }
     }
 
-    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
-      final long cv = QueryMappingService.getInitializedVersion();
-      if (initializedVersion < cv) {
-        initializedVersion = cv;
-        executions.clear();
-        logger.info(() -> String.format(
-            "Clean thread local script executions cache, current initialized version: %s",
-            initializedVersion));
+    protected EvaluationContext borrow() {
+      EvaluationContext context = contexts.poll();
+      if (context != null) {
+        return context;
       }
-      return executions.computeIfAbsent(id, mappingFunction);
+      if (shareable) {
+        return new EvaluationContext(compiledScript);
+      }
+      if (created.incrementAndGet() <= poolSize) {
+        try {
+          return new EvaluationContext(compiler.get());
+        } catch (RuntimeException e) {
+          created.decrementAndGet();
+          throw e;
+        }
+      }
+      created.decrementAndGet();
+      try {
+        return contexts.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new QueryRuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:16:42
+   *
+   */
+  protected static class EvaluationContext {
+    final CompiledScript compiledScript;
+    final Bindings bindings = new SimpleBindings();
+
+    EvaluationContext(CompiledScript compiledScript) {
+      this.compiledScript = compiledScript;
     }
   }
 }
@@ -21,7 +21,6 @@ import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.shared.QueryMappingService.BeforeQueryMappingInitializeHandler;
 import org.corant.modules.query.shared.dynamic.DynamicQuerier;
-import net.jcip.annotations.GuardedBy;
 
 /**
  * corant-modules-query-shared
@@ -57,7 +56,6 @@ public abstract class AbstractNamedQuerierResolver<Q extends DynamicQuerier<?, ?
     return queryHandler;
   }
 
-  @GuardedBy("QueryMappingService.rwl.readLock")
   protected Query resolveQuery(String name) {
     Query query = getMappingService().getQuery(name);
     if (query == null) {
@@ -14,39 +14,58 @@
 package org.corant.modules.query.shared;
 
 import static java.util.stream.Collectors.toList;
+import static org.corant.context.Beans.findNamed;
 import static org.corant.context.Beans.resolve;
 import static org.corant.shared.util.Assertions.shouldInstanceOf;
+import static org.corant.shared.util.Conversions.toObject;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
-import static org.corant.shared.util.Objects.areEqual;
 import static org.corant.shared.util.Objects.asStrings;
 import static org.corant.shared.util.Objects.defaultObject;
 import static org.corant.shared.util.Objects.max;
+import static org.corant.shared.util.Objects.min;
+import static org.corant.shared.util.Primitives.wrap;
 import static org.corant.shared.util.Streams.streamOf;
 import static org.corant.shared.util.Strings.isBlank;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import org.corant.Corant;
 import org.corant.modules.query.NamedQuerier;
+import org.corant.modules.query.QuerierConfig;
 import org.corant.modules.query.Querier;
 import org.corant.modules.query.QueryObjectMapper;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.StreamQueryParameter;
 import org.corant.modules.query.mapping.FetchQuery;
+import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameter;
 import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameterSource;
 import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.mapping.Query.QueryType;
 import org.corant.modules.query.shared.dynamic.DynamicQuerier;
 import org.corant.shared.retry.RetryStrategy.MaxAttemptsRetryStrategy;
 import org.corant.shared.ubiquity.Tuple.Pair;
-import org.corant.shared.ubiquity.Tuple.Triple;
 import org.corant.shared.util.Retry;
 
 /**
@@ -57,8 +76,17 @@ import org.corant.shared.util.Retry;
  */
 public abstract class AbstractNamedQueryService implements FetchableNamedQueryService {
 
+  /**
+   * Marks the threads that are executing a parallel fetch task or a stream prefetch task, the
+   * parallel fetch queries issued on these threads are executed inline, so a bounded executor is
+   * not exhausted by tasks that wait for the tasks queued behind them.
+   */
+  protected static final ThreadLocal<Boolean> IN_FETCH_TASK = new ThreadLocal<>();
+
   protected Logger logger = Logger.getLogger(getClass().getName());
 
+  protected volatile FetchQueryMetrics fetchQueryMetrics;
+
   @Override
   public <T> Forwarding<T> forward(String q, Object p) {
     try {
@@ -152,9 +180,100 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
       useQueryParam = new StreamQueryParameter(queryParam);
     }
     useQueryParam.limit(max(querier.resolveStreamLimit(), 1));
+    if (useQueryParam.getPrefetchDepth() <= 0) {
+      useQueryParam.prefetchDepth(
+          querier.resolveProperty(QuerierConfig.PRO_KEY_STREAM_PREFETCH_DEPTH, Integer.class, 0));
+    }
     return doStream(queryName, useQueryParam);
   }
 
+  /**
+   * Waits for the parallel fetch task to complete until the given deadline, if the deadline is
+   * exceeded, the task is cancelled and a {@link QueryRuntimeException} is thrown.
+   *
+   * @param <R> the fetched result type
+   * @param future the parallel fetch task
+   * @param fetchQuery the fetch query
+   * @param deadline the deadline in nanoseconds, {@link Long#MAX_VALUE} means no deadline
+   */
+  protected <R> R awaitParallelFetch(Future<R> future, FetchQuery fetchQuery, long deadline) {
+    try {
+      if (deadline == Long.MAX_VALUE) {
+        return future.get();
+      }
+      return future.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new QueryRuntimeException(e,
+          "The fetch query [%s] was interrupted while executing in parallel!",
+          fetchQuery.getReferenceQuery().getVersionedName());
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new QueryRuntimeException(e, "The fetch query [%s] executing in parallel timed out!",
+          fetchQuery.getReferenceQuery().getVersionedName());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new QueryRuntimeException(e.getCause(),
+          "An error occurred while executing the fetch query [%s] in parallel!",
+          fetchQuery.getReferenceQuery().getVersionedName());
+    }
+  }
+
+  /**
+   * Execute the batchable eager inject fetch query in batches of the parent query results, each
+   * batch uses one fetch query execution, the fetched results of each batch are passed to the given
+   * handler.
+   *
+   * @param <T> the parent query result type
+   * @param results the parent query results
+   * @param fetchQuery the batchable fetch query
+   * @param fetchQueryService the fetch query service
+   * @param parentQuerier the parent querier
+   * @param handler the fetched result handler, the first parameter is the fetched result and the
+   *        second parameter is the parent query results of the batch
+   *
+   * @see FetchQuery#isBatchable()
+   * @see #postBatchFetch(FetchableNamedQueryService, FetchedResult, Querier, List)
+   */
+  protected <T> void batchFetch(List<T> results, FetchQuery fetchQuery,
+      FetchableNamedQueryService fetchQueryService, Querier parentQuerier,
+      BiConsumer<FetchedResult, List<T>> handler) {
+    List<T> decideResults =
+        results.stream().filter(r -> parentQuerier.decideFetch(r, fetchQuery)).collect(toList());
+    final int size = decideResults.size();
+    if (size == 0) {
+      return;
+    }
+    final int batchSize = max(fetchQueryService.resolveFetchBatchSize(fetchQuery), 1);
+    int roundTrips = 0;
+    for (int i = 0; i < size; i += batchSize) {
+      List<T> batch = decideResults.subList(i, min(i + batchSize, size));
+      handler.accept(executeFetch(fetchQueryService, batch, fetchQuery, parentQuerier), batch);
+      roundTrips++;
+    }
+    getFetchQueryMetrics().onBatchFetched(fetchQuery, size, roundTrips);
+  }
+
+  /**
+   * Execute the fetch query through the given fetch query service and record the latency.
+   *
+   * @param service the fetch query service
+   * @param result the parent query result or results
+   * @param fetchQuery the fetch query
+   * @param parentQuerier the parent querier
+   */
+  protected FetchedResult executeFetch(FetchableNamedQueryService service, Object result,
+      FetchQuery fetchQuery, Querier parentQuerier) {
+    final long start = System.nanoTime();
+    try {
+      return service.fetch(result, fetchQuery, parentQuerier);
+    } finally {
+      getFetchQueryMetrics().onFetched(fetchQuery, System.nanoTime() - start);
+    }
+  }
+
   protected abstract <T> Forwarding<T> doForward(String q, Object p) throws Exception;
 
   protected abstract <T> T doGet(String q, Object p) throws Exception;
@@ -172,60 +291,76 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
    * @return stream the query result stream
    */
   protected <T> Stream<T> doStream(String queryName, StreamQueryParameter param) {
-    return streamOf(new Iterator<T>() {
-      Forwarding<T> buffer = null;
-      int counter = 0;
-      T next = null;
-
+    final int prefetchDepth = param.getPrefetchDepth();
+    final ForwardingIterator<T> iterator = new ForwardingIterator<>(param,
+        p -> doStreamForward(queryName, p), prefetchDepth,
+        prefetchDepth > 0 ? getStreamPrefetchExecutor() : null) {
       @Override
-      public boolean hasNext() {
-        initialize();
-        if (!param.terminateIf(counter, next)) {
-          if (!buffer.hasResults()) {
-            if (buffer.hasNext()) {
-              buffer.with(doForward(queryName, param.forward(next)));
-              return buffer.hasResults();
-            }
-          } else {
-            return true;
-          }
-        }
-        return false;
+      protected void prefetch(T last, String lastContinuation) {
+        runAsFetchTask(() -> {
+          super.prefetch(last, lastContinuation);
+          return null;
+        });
       }
+    };
+    return streamOf(iterator).onClose(iterator::close);
+  }
 
-      @Override
-      public T next() {
-        initialize();
-        if (!buffer.hasResults()) {
-          throw new NoSuchElementException();
-        }
-        counter++;
-        next = buffer.getResults().remove(0);
-        return next;
-      }
+  /**
+   * Use {@link #forward(String, Object)} to fetch the next batch data records of the stream query,
+   * retry if necessary.
+   *
+   * @param <T> the result record type
+   * @param queryName the query name
+   * @param parameter the forwarded stream query parameter
+   */
+  protected <T> Forwarding<T> doStreamForward(String queryName, StreamQueryParameter parameter) {
+    if (parameter.needRetry()) {
+      return Retry.synchronousRetryer()
+          .retryStrategy(new MaxAttemptsRetryStrategy(parameter.getRetryTimes() + 1))
+          .backoffStrategy(parameter.getRetryBackoffStrategy())
+          .retryPrecondition(c -> Corant.current() != null && Corant.current().isRunning())
+          .execute(() -> forward(queryName, parameter));
+    } else {
+      return forward(queryName, parameter);
+    }
+  }
 
-      private Forwarding<T> doForward(String queryName, StreamQueryParameter parameter) {
-        if (parameter.needRetry()) {
-          return Retry.synchronousRetryer()
-              .retryStrategy(new MaxAttemptsRetryStrategy(parameter.getRetryTimes() + 1))
-              .backoffStrategy(parameter.getRetryBackoffStrategy())
-              .retryPrecondition(c -> Corant.current() != null && Corant.current().isRunning())
-              .execute(() -> forward(queryName, parameter));
-        } else {
-          return forward(queryName, parameter);
-        }
-      }
+  protected abstract AbstractNamedQuerierResolver<? extends NamedQuerier> getQuerierResolver();
 
-      private void initialize() {
-        if (buffer == null) {
-          buffer = defaultObject(doForward(queryName, param), Forwarding::inst);
-          counter = buffer.hasResults() ? 1 : 0;
-        }
-      }
-    });
+  protected FetchQueryMetrics getFetchQueryMetrics() {
+    FetchQueryMetrics metrics = fetchQueryMetrics;
+    if (metrics == null) {
+      fetchQueryMetrics = metrics = resolve(FetchQueryMetrics.class);
+    }
+    return metrics;
   }
 
-  protected abstract AbstractNamedQuerierResolver<? extends NamedQuerier> getQuerierResolver();
+  /**
+   * Returns the executor service use to execute the fetch queries in parallel, the default
+   * implementation returns the managed executor service named
+   * {@link QuerierConfig#getParallelFetchExecutorName()} or the default managed executor service
+   * if the name is blank.
+   */
+  protected ExecutorService getParallelFetchExecutor() {
+    final String name = getQuerierResolver().getQueryHandler().getQuerierConfig()
+        .getParallelFetchExecutorName();
+    if (isBlank(name)) {
+      return resolve(ExecutorService.class);
+    }
+    return findNamed(ExecutorService.class, name).orElseThrow(() -> new QueryRuntimeException(
+        "Can't find any executor service named [%s] to execute fetch queries in parallel!", name));
+  }
+
+  /**
+   * Returns the executor service use to prefetch the stream query data records, the default
+   * implementation returns the default managed executor service.
+   *
+   * @see StreamQueryParameter#prefetchDepth(int)
+   */
+  protected ExecutorService getStreamPrefetchExecutor() {
+    return resolve(ExecutorService.class);
+  }
 
   protected void log(String name, Object param, String... script) {
     logger.fine(() -> String.format(
@@ -241,71 +376,141 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
         name, String.join(",", asStrings(param)), String.join("\n", script)));
   }
 
+  /**
+   * Runs the given task with the current thread marked as a fetch task thread.
+   *
+   * @param <R> the task result type
+   * @param task the task to run
+   */
+  protected <R> R runAsFetchTask(Supplier<R> task) {
+    final Boolean marked = IN_FETCH_TASK.get();
+    IN_FETCH_TASK.set(Boolean.TRUE);
+    try {
+      return task.get();
+    } finally {
+      if (marked == null) {
+        IN_FETCH_TASK.remove();
+      }
+    }
+  }
+
+  /**
+   * Submits the parallel fetch task to the given executor service, if the current thread is already
+   * executing a fetch task or a stream prefetch task, the given task is executed inline and a
+   * completed future is returned, since waiting for the pool from one of its own threads can
+   * deadlock a bounded pool.
+   *
+   * @param <R> the fetched result type
+   * @param executor the parallel fetch executor service
+   * @param task the parallel fetch task
+   */
+  protected <R> Future<R> submitParallelFetch(ExecutorService executor, Supplier<R> task) {
+    if (IN_FETCH_TASK.get() != null) {
+      FutureTask<R> inline = new FutureTask<>(task::get);
+      inline.run();
+      return inline;
+    }
+    return executor.submit(() -> runAsFetchTask(task));
+  }
+
+  /**
+   * Execute the fetch queries of the parent query results in parallel, each fetch query is
+   * executed as a task of the managed executor service, the fetched results are merged into the
+   * parent query results in the order of the fetch queries by the current thread, the nested fetch
+   * queries are executed level by level.
+   *
+   * @param <T> the parent query result type
+   * @param results the parent query results
+   * @param parentQuerier the parent querier
+   *
+   * @see #getParallelFetchExecutor()
+   * @see #resolveParallelFetchTimeout(Querier)
+   */
   protected <T> void parallelFetch(List<T> results, Querier parentQuerier) {
-    // parallel fetch, experimental features for proof of concept.
-    List<FetchQuery> fetchQueries = new ArrayList<>(parentQuerier.getQuery().getFetchQueries());
-    final Collection<Triple<FetchedResult, Object, FetchableNamedQueryService>> workResults =
-        new LinkedBlockingQueue<>();
-    fetchQueries.parallelStream().forEach(fq -> {
-      final FetchableNamedQueryService fqs = resolveFetchQueryService(fq);
-      if (fq.isEagerInject()) {
-        for (T result : results) {
-          if (parentQuerier.decideFetch(result, fq)) {
-            FetchedResult fr = fqs.fetch(result, fq, parentQuerier);
-            workResults.add(Triple.of(fr, result, fqs));
+    final List<FetchQuery> fetchQueries = parentQuerier.getQuery().getFetchQueries();
+    final int size = fetchQueries.size();
+    final List<FetchableNamedQueryService> services = new ArrayList<>(size);
+    final List<Future<List<Pair<FetchedResult, Object>>>> futures = new ArrayList<>(size);
+    final ExecutorService executor = getParallelFetchExecutor();
+    try {
+      for (FetchQuery fq : fetchQueries) {
+        final FetchableNamedQueryService fqs = resolveFetchQueryService(fq);
+        services.add(fqs);
+        futures.add(submitParallelFetch(executor, () -> {
+          final List<Pair<FetchedResult, Object>> fetched = new ArrayList<>();
+          if (fq.isBatchable()) {
+            batchFetch(results, fq, fqs, parentQuerier,
+                (fr, batch) -> fetched.add(Pair.of(fr, batch)));
+          } else if (fq.isEagerInject()) {
+            for (T result : results) {
+              if (parentQuerier.decideFetch(result, fq)) {
+                fetched.add(Pair.of(executeFetch(fqs, result, fq, parentQuerier), result));
+              }
+            }
+          } else {
+            List<T> decideResults =
+                results.stream().filter(r -> parentQuerier.decideFetch(r, fq)).collect(toList());
+            if (isNotEmpty(decideResults) || isEmpty(fq.getParameters())
+                || fq.getParameters().stream()
+                    .anyMatch(fp -> fp.getSource() == FetchQueryParameterSource.C
+                        || fp.getSource() == FetchQueryParameterSource.P)) {
+              fetched.add(
+                  Pair.of(executeFetch(fqs, decideResults, fq, parentQuerier), decideResults));
+            }
           }
-        }
-      } else {
-        List<T> decideResults =
-            results.stream().filter(r -> parentQuerier.decideFetch(r, fq)).collect(toList());
-        boolean fetch = true;
-        if (isEmpty(decideResults) && isNotEmpty(fq.getParameters())
-            && fq.getParameters().stream()
-                .noneMatch(fp -> fp.getSource() == FetchQueryParameterSource.C
-                    || fp.getSource() == FetchQueryParameterSource.P)) {
-          fetch = false;
-        }
-        if (fetch) {
-          FetchedResult fr = fqs.fetch(decideResults, fq, parentQuerier);
-          workResults.add(Triple.of(fr, decideResults, fqs));
-        }
+          return fetched;
+        }));
       }
-    });
-
-    for (FetchQuery fq : fetchQueries) {
-      Iterator<Triple<FetchedResult, Object, FetchableNamedQueryService>> it =
-          workResults.iterator();
-      while (it.hasNext()) {
-        Triple<FetchedResult, Object, FetchableNamedQueryService> pair = it.next();
-        if (areEqual(pair.left().fetchQuery, fq)) {
-          postFetch(pair.getRight(), pair.left(), parentQuerier, pair.middle());
-          it.remove();
+      final long deadline = resolveParallelFetchDeadline(parentQuerier);
+      for (int i = 0; i < size; i++) {
+        final FetchQuery fq = fetchQueries.get(i);
+        final FetchableNamedQueryService fqs = services.get(i);
+        for (Pair<FetchedResult, Object> fetched : awaitParallelFetch(futures.get(i), fq,
+            deadline)) {
+          if (fq.isBatchable()) {
+            postBatchFetch(fqs, fetched.left(), parentQuerier, (List<?>) fetched.right());
+          } else {
+            postFetch(fqs, fetched.left(), parentQuerier, fetched.right());
+          }
         }
       }
+    } finally {
+      futures.forEach(f -> f.cancel(true));
     }
   }
 
+  /**
+   * Execute the fetch queries of the parent query result in parallel, the fetched results are
+   * merged into the parent query result in the order of the fetch queries by the current thread.
+   *
+   * @param <T> the parent query result type
+   * @param result the parent query result
+   * @param parentQuerier the parent querier
+   *
+   * @see #parallelFetch(List, Querier)
+   */
   protected <T> void parallelFetch(T result, Querier parentQuerier) {
-    // parallel fetch, experimental functions for proof of concept.
-    List<FetchQuery> fetchQueries = new ArrayList<>(parentQuerier.getQuery().getFetchQueries());
-    Collection<Pair<FetchedResult, FetchableNamedQueryService>> workResults =
-        new LinkedBlockingQueue<>();
-    fetchQueries.parallelStream().forEach(fq -> {
-      FetchableNamedQueryService fetchQueryService = resolveFetchQueryService(fq);
-      if (parentQuerier.decideFetch(result, fq)) {
-        FetchedResult fr = fetchQueryService.fetch(result, fq, parentQuerier);
-        workResults.add(Pair.of(fr, fetchQueryService));
+    final List<FetchQuery> fetchQueries = parentQuerier.getQuery().getFetchQueries();
+    final int size = fetchQueries.size();
+    final List<FetchableNamedQueryService> services = new ArrayList<>(size);
+    final List<Future<FetchedResult>> futures = new ArrayList<>(size);
+    final ExecutorService executor = getParallelFetchExecutor();
+    try {
+      for (FetchQuery fq : fetchQueries) {
+        final FetchableNamedQueryService fqs = resolveFetchQueryService(fq);
+        services.add(fqs);
+        futures.add(submitParallelFetch(executor, () -> parentQuerier.decideFetch(result, fq)
+            ? executeFetch(fqs, result, fq, parentQuerier)
+            : null));
       }
-    });
-    for (FetchQuery fq : fetchQueries) {
-      Iterator<Pair<FetchedResult, FetchableNamedQueryService>> it = workResults.iterator();
-      while (it.hasNext()) {
-        Pair<FetchedResult, FetchableNamedQueryService> fr = it.next();
-        if (areEqual(fr.left().fetchQuery, fq)) {
-          postFetch(fr.right(), fr.left(), parentQuerier, result);
-          it.remove();
-        }
+      final long deadline = resolveParallelFetchDeadline(parentQuerier);
+      for (int i = 0; i < size; i++) {
+        FetchedResult fetched =
+            awaitParallelFetch(futures.get(i), fetchQueries.get(i), deadline);
+        postFetch(services.get(i), fetched, parentQuerier, result);
       }
+    } finally {
+      futures.forEach(f -> f.cancel(true));
     }
   }
 
@@ -324,6 +529,176 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
     }
   }
 
+  /**
+   * Handle the fetched result of a batch of parent query results, the fetched records are indexed
+   * by the values of the target names of the parameters whose source is parent query result, then
+   * each parent query result is injected with the records that have the same values of the source
+   * names. A fetched record that matches more than one parent query result is deep copied for each
+   * subsequent parent, so that the parent results don't share the mutable fetched maps. The values
+   * of both sides are converted to the same key type before matching, see
+   * {@link #resolveBatchFetchKeyTypes(QueryObjectMapper, List, List)}.
+   *
+   * @param service the fetch query service
+   * @param fetchedResult the fetched result of the batch
+   * @param parentQuerier the parent querier
+   * @param results the parent query results of the batch
+   */
+  protected void postBatchFetch(FetchableNamedQueryService service, FetchedResult fetchedResult,
+      Querier parentQuerier, List<?> results) {
+    if (fetchedResult == null || isEmpty(fetchedResult.fetchedList)) {
+      return;
+    }
+    final FetchQuery fetchQuery = fetchedResult.fetchQuery;
+    final List<Map<String, Object>> fetchedList = fetchedResult.fetchedList;
+    service.handleFetching(fetchedList, fetchedResult.fetchQuerier);// Next fetch
+    fetchedResult.fetchQuerier.handleResultHints(fetchedList);
+    final QueryObjectMapper objectMapper = getQuerierResolver().getQueryHandler().getObjectMapper();
+    final List<FetchQueryParameter> keyParameters = fetchQuery.getParameters().stream()
+        .filter(p -> p.getSource() == FetchQueryParameterSource.R).collect(toList());
+    final Class<?>[] keyTypes = resolveBatchFetchKeyTypes(objectMapper, results, keyParameters);
+    final Map<Object, List<Map<String, Object>>> index = new HashMap<>();
+    for (Map<String, Object> fetched : fetchedList) {
+      Object key = resolveBatchFetchKey(objectMapper, fetched, keyParameters, keyTypes, false);
+      if (key != null) {
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(fetched);
+      }
+    }
+    final boolean singleKey = keyParameters.size() == 1;
+    final Set<Map<String, Object>> injected = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Object result : results) {
+      Object key = resolveBatchFetchKey(objectMapper, result, keyParameters, keyTypes, true);
+      List<Map<String, Object>> matched = null;
+      if (singleKey && key instanceof Collection) {
+        Set<Map<String, Object>> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+        matched = new ArrayList<>();
+        for (Object k : (Collection<?>) key) {
+          for (Map<String, Object> fetched : index.getOrDefault(k, Collections.emptyList())) {
+            if (merged.add(fetched)) {
+              matched.add(fetched);
+            }
+          }
+        }
+      } else if (key != null) {
+        matched = index.get(key);
+      }
+      if (isNotEmpty(matched)) {
+        List<Map<String, Object>> fetched = new ArrayList<>(matched.size());
+        for (Map<String, Object> m : matched) {
+          fetched.add(injected.add(m) ? m : copyBatchFetched(m));
+        }
+        parentQuerier.handleFetchedResult(result, fetched, fetchQuery);
+      }
+    }
+  }
+
+  /**
+   * Returns a deep copy of the fetched record, the nested maps and collections are copied, the
+   * other values are shared.
+   *
+   * @param fetched the fetched record to copy
+   */
+  @SuppressWarnings("unchecked")
+  protected Map<String, Object> copyBatchFetched(Map<String, Object> fetched) {
+    return (Map<String, Object>) copyBatchFetchedValue(fetched);
+  }
+
+  protected Object copyBatchFetchedValue(Object value) {
+    if (value instanceof Map) {
+      Map<Object, Object> copy = new LinkedHashMap<>();
+      ((Map<?, ?>) value).forEach((k, v) -> copy.put(k, copyBatchFetchedValue(v)));
+      return copy;
+    } else if (value instanceof Collection) {
+      Collection<Object> copy = value instanceof Set ? new LinkedHashSet<>() : new ArrayList<>();
+      for (Object v : (Collection<?>) value) {
+        copy.add(copyBatchFetchedValue(v));
+      }
+      return copy;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the join key of the parent query result or the fetched record for batched fetch query,
+   * if there is only one key parameter the key is the normalized value, otherwise the key is a list
+   * of the normalized values. Returns null if any value is null.
+   *
+   * @param objectMapper the object mapper use to extract the values
+   * @param object the parent query result or the fetched record
+   * @param keyParameters the parameters whose source is parent query result
+   * @param keyTypes the key types of the parameters
+   * @param source whether the given object is the parent query result
+   */
+  protected Object resolveBatchFetchKey(QueryObjectMapper objectMapper, Object object,
+      List<FetchQueryParameter> keyParameters, Class<?>[] keyTypes, boolean source) {
+    final int size = keyParameters.size();
+    Object[] keys = new Object[size];
+    for (int i = 0; i < size; i++) {
+      FetchQueryParameter parameter = keyParameters.get(i);
+      Object value = objectMapper.getMappedValue(object,
+          source ? parameter.getSourceNamePath() : parameter.getTargetNamePath());
+      if (value == null) {
+        return null;
+      }
+      if (value instanceof Collection && size == 1) {
+        List<Object> values = new ArrayList<>(((Collection<?>) value).size());
+        for (Object v : (Collection<?>) value) {
+          if (v != null) {
+            values.add(normalizeBatchFetchKey(v, keyTypes[i]));
+          }
+        }
+        return values;
+      }
+      keys[i] = normalizeBatchFetchKey(value, keyTypes[i]);
+    }
+    return size == 1 ? keys[0] : Arrays.asList(keys);
+  }
+
+  /**
+   * Returns the key types of the batched fetch query parameters whose source is parent query
+   * result, the key type is the declared parameter type, if it is not declared, the type of the
+   * first non-null source value of the parent query results is used. The numeric key types are
+   * widened to {@link BigDecimal}, so that the values of different numeric types or the numeric
+   * strings of both sides can match. Returns null element if the type can't be resolved.
+   *
+   * @param objectMapper the object mapper use to extract the values
+   * @param results the parent query results
+   * @param keyParameters the parameters whose source is parent query result
+   */
+  protected Class<?>[] resolveBatchFetchKeyTypes(QueryObjectMapper objectMapper, List<?> results,
+      List<FetchQueryParameter> keyParameters) {
+    final int size = keyParameters.size();
+    Class<?>[] types = new Class<?>[size];
+    for (int i = 0; i < size; i++) {
+      FetchQueryParameter parameter = keyParameters.get(i);
+      Class<?> type = parameter.getType();
+      for (int r = 0; type == null && r < results.size(); r++) {
+        Object value = objectMapper.getMappedValue(results.get(r), parameter.getSourceNamePath());
+        if (value instanceof Collection) {
+          value = ((Collection<?>) value).stream().filter(v -> v != null).findFirst().orElse(null);
+        }
+        type = value == null ? null : value.getClass();
+      }
+      boolean numeric = type != null && Number.class.isAssignableFrom(wrap(type));
+      types[i] = numeric ? BigDecimal.class : type;
+    }
+    return types;
+  }
+
+  /**
+   * Returns the value converted to the given key type, the {@link BigDecimal} values are stripped
+   * of trailing zeros; if the given key type is null, the numeric values are converted to
+   * {@link BigDecimal} and the other values are returned as is.
+   *
+   * @param value the key value to normalize
+   * @param type the key type, may be null
+   */
+  protected Object normalizeBatchFetchKey(Object value, Class<?> type) {
+    if (type == BigDecimal.class || type == null && value instanceof Number) {
+      return toObject(value, BigDecimal.class).stripTrailingZeros();
+    }
+    return type != null ? toObject(value, type) : value;
+  }
+
   protected FetchableNamedQueryService resolveFetchQueryService(final FetchQuery fq) {
     final Query query =
         resolve(QueryMappingService.class).getQuery(fq.getReferenceQuery().getVersionedName());
@@ -339,13 +714,37 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
     }
   }
 
+  /**
+   * Returns the deadline in nanoseconds of the fetch queries executed in parallel, the timeout is
+   * resolved from the parent querier property {@link QuerierConfig#PRO_KEY_PARALLEL_FETCH_TIMEOUT}
+   * or {@link QuerierConfig#getParallelFetchTimeout()}, if the timeout is not set returns
+   * {@link Long#MAX_VALUE}.
+   *
+   * @param parentQuerier the parent querier
+   */
+  protected long resolveParallelFetchDeadline(Querier parentQuerier) {
+    Duration timeout =
+        getQuerierResolver().getQueryHandler().getQuerierConfig().getParallelFetchTimeout();
+    if (parentQuerier instanceof DynamicQuerier) {
+      timeout = ((DynamicQuerier<?, ?>) parentQuerier)
+          .resolveProperty(QuerierConfig.PRO_KEY_PARALLEL_FETCH_TIMEOUT, Duration.class, timeout);
+    }
+    if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+      return Long.MAX_VALUE;
+    }
+    return System.nanoTime() + timeout.toNanos();
+  }
+
   protected <T> void serialFetch(List<T> results, Querier parentQuerier) {
     for (FetchQuery fq : parentQuerier.getQuery().getFetchQueries()) {
       FetchableNamedQueryService fetchQueryService = resolveFetchQueryService(fq);
-      if (fq.isEagerInject()) {
+      if (fq.isBatchable()) {
+        batchFetch(results, fq, fetchQueryService, parentQuerier,
+            (fr, batch) -> postBatchFetch(fetchQueryService, fr, parentQuerier, batch));
+      } else if (fq.isEagerInject()) {
         for (T result : results) {
           if (parentQuerier.decideFetch(result, fq)) {
-            FetchedResult fr = fetchQueryService.fetch(result, fq, parentQuerier);
+            FetchedResult fr = executeFetch(fetchQueryService, result, fq, parentQuerier);
             postFetch(fetchQueryService, fr, parentQuerier, result);
           }
         }
@@ -358,7 +757,7 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
                     || fp.getSource() == FetchQueryParameterSource.P)) {
           continue;
         }
-        FetchedResult fr = fetchQueryService.fetch(decideResults, fq, parentQuerier);
+        FetchedResult fr = executeFetch(fetchQueryService, decideResults, fq, parentQuerier);
         postFetch(fetchQueryService, fr, parentQuerier, decideResults);
       }
     }
@@ -368,7 +767,7 @@ public abstract class AbstractNamedQueryService implements FetchableNamedQuerySe
     for (FetchQuery fq : parentQuerier.getQuery().getFetchQueries()) {
       FetchableNamedQueryService fetchQueryService = resolveFetchQueryService(fq);
       if (parentQuerier.decideFetch(result, fq)) {
-        FetchedResult fr = fetchQueryService.fetch(result, fq, parentQuerier);
+        FetchedResult fr = executeFetch(fetchQueryService, result, fq, parentQuerier);
         postFetch(fetchQueryService, fr, parentQuerier, result);
       }
     }
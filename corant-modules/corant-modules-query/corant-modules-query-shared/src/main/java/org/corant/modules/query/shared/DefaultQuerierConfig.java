@@ -57,6 +57,10 @@ public class DefaultQuerierConfig implements QuerierConfig, DeclarativeConfig {
 
   protected Duration timeout;
 
+  protected String parallelFetchExecutorName;
+
+  protected Duration parallelFetchTimeout;
+
   public DefaultQuerierConfig() {}
 
   protected DefaultQuerierConfig(int maxSelectSize, int defaultSelectSize, int maxLimit,
@@ -95,6 +99,16 @@ public class DefaultQuerierConfig implements QuerierConfig, DeclarativeConfig {
     return maxSelectSize;
   }
 
+  @Override
+  public String getParallelFetchExecutorName() {
+    return parallelFetchExecutorName;
+  }
+
+  @Override
+  public Duration getParallelFetchTimeout() {
+    return parallelFetchTimeout;
+  }
+
   @Override
   public Duration getTimeout() {
     return timeout;
@@ -170,6 +184,14 @@ public class DefaultQuerierConfig implements QuerierConfig, DeclarativeConfig {
     this.maxSelectSize = maxSelectSize;
   }
 
+  public void setParallelFetchExecutorName(String parallelFetchExecutorName) {
+    this.parallelFetchExecutorName = parallelFetchExecutorName;
+  }
+
+  public void setParallelFetchTimeout(Duration parallelFetchTimeout) {
+    this.parallelFetchTimeout = parallelFetchTimeout;
+  }
+
   public void setThrownOnMaxSelectSize(boolean thrownOnMaxSelectSize) {
     this.thrownOnMaxSelectSize = thrownOnMaxSelectSize;
   }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import static org.corant.shared.normal.Names.applicationName;
+import static org.corant.shared.util.MBeans.deregisterFromMBean;
+import static org.corant.shared.util.MBeans.registerToMBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import org.corant.config.Configs;
+import org.corant.modules.query.mapping.FetchQuery;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * Collects the fetch query execution statistics, if the configuration property
+ * {@code corant.query.fetch-query.metrics.enable-jmx} is true, the statistics are registered to the
+ * platform MBean server.
+ *
+ * @author bingo 下午2:20:05
+ *
+ */
+@ApplicationScoped
+public class FetchQueryMetrics implements FetchQueryMetricsMBean {
+
+  public static final String ENABLE_JMX_CFG = "corant.query.fetch-query.metrics.enable-jmx";
+
+  protected static final Logger logger = Logger.getLogger(FetchQueryMetrics.class.getName());
+
+  protected final LongAdder batchedParentResults = new LongAdder();
+  protected final LongAdder batchedRoundTrips = new LongAdder();
+  protected final LongAdder savedRoundTrips = new LongAdder();
+  protected final Map<String, LongAdder> savedRoundTripsPerQuery = new ConcurrentHashMap<>();
+  protected final Map<String, LatencyHistogram> fetchLatencies = new ConcurrentHashMap<>();
+  protected String mbeanName;
+
+  @Override
+  public long getBatchedParentResults() {
+    return batchedParentResults.sum();
+  }
+
+  @Override
+  public long getBatchedRoundTrips() {
+    return batchedRoundTrips.sum();
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getFetchLatencyHistograms() {
+    Map<String, Map<String, Long>> map = new TreeMap<>();
+    fetchLatencies.forEach((k, v) -> map.put(k, v.snapshot()));
+    return map;
+  }
+
+  @Override
+  public long getSavedRoundTrips() {
+    return savedRoundTrips.sum();
+  }
+
+  @Override
+  public Map<String, Long> getSavedRoundTripsPerQuery() {
+    Map<String, Long> map = new TreeMap<>();
+    savedRoundTripsPerQuery.forEach((k, v) -> map.put(k, v.sum()));
+    return map;
+  }
+
+  /**
+   * Record a batched fetch query execution.
+   *
+   * @param fetchQuery the batched fetch query
+   * @param parentResults the number of parent query results that have been fetched
+   * @param roundTrips the number of fetch query executions
+   */
+  public void onBatchFetched(FetchQuery fetchQuery, int parentResults, int roundTrips) {
+    batchedParentResults.add(parentResults);
+    batchedRoundTrips.add(roundTrips);
+    int saved = parentResults - roundTrips;
+    if (saved > 0) {
+      savedRoundTrips.add(saved);
+      savedRoundTripsPerQuery.computeIfAbsent(
+          fetchQuery.getReferenceQuery().getVersionedName(), k -> new LongAdder()).add(saved);
+    }
+  }
+
+  /**
+   * Record a fetch query execution latency.
+   *
+   * @param fetchQuery the executed fetch query
+   * @param elapsedNanos the execution latency in nanoseconds
+   */
+  public void onFetched(FetchQuery fetchQuery, long elapsedNanos) {
+    fetchLatencies.computeIfAbsent(fetchQuery.getReferenceQuery().getVersionedName(),
+        k -> new LatencyHistogram()).record(elapsedNanos);
+  }
+
+  @Override
+  public void reset() {
+    batchedParentResults.reset();
+    batchedRoundTrips.reset();
+    savedRoundTrips.reset();
+    savedRoundTripsPerQuery.clear();
+    fetchLatencies.clear();
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    if (Configs.getValue(ENABLE_JMX_CFG, Boolean.class, Boolean.FALSE)) {
+      mbeanName = applicationName().concat(":type=query,name=fetch-query-metrics");
+      registerToMBean(mbeanName, this);
+      logger.info(() -> String.format("Register fetch query metrics %s to jmx.", mbeanName));
+    }
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    if (mbeanName != null) {
+      try {
+        deregisterFromMBean(mbeanName);
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e, () -> "Deregister fetch query metrics from jmx error!");
+      }
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   * <p>
+   * A simple fixed buckets latency histogram.
+   *
+   * @author bingo 下午3:05:12
+   *
+   */
+  protected static class LatencyHistogram {
+
+    static final long[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+    final LongAdder total = new LongAdder();
+    final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+    }
+
+    void record(long elapsedNanos) {
+      long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+      int i = 0;
+      while (i < BUCKETS.length && millis > BUCKETS[i]) {
+        i++;
+      }
+      counts[i].increment();
+      total.increment();
+      max.accumulate(millis);
+    }
+
+    Map<String, Long> snapshot() {
+      Map<String, Long> map = new LinkedHashMap<>();
+      for (int i = 0; i < BUCKETS.length; i++) {
+        map.put("le_" + BUCKETS[i] + "ms", counts[i].sum());
+      }
+      map.put("gt_" + BUCKETS[BUCKETS.length - 1] + "ms", counts[BUCKETS.length].sum());
+      map.put("count", total.sum());
+      map.put("max_ms", max.get());
+      return map;
+    }
+  }
+}
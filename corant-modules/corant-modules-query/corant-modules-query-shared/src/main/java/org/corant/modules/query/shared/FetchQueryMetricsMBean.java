@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import java.util.Map;
+
+/**
+ * corant-modules-query-shared
+ *
+ * @author bingo 下午2:16:38
+ *
+ */
+public interface FetchQueryMetricsMBean {
+
+  /**
+   * Number of parent query results that have been fetched by batched fetch queries.
+   */
+  long getBatchedParentResults();
+
+  /**
+   * Number of fetch query executions issued by batched fetch queries.
+   */
+  long getBatchedRoundTrips();
+
+  /**
+   * The latency histograms of the fetch query executions, grouped by the versioned name of the fetch
+   * query reference query. Each histogram contains the execution counts of the latency buckets
+   * (upper bound in milliseconds), the total execution count and the max latency in milliseconds.
+   */
+  Map<String, Map<String, Long>> getFetchLatencyHistograms();
+
+  /**
+   * Number of fetch query executions saved by batched fetch queries, compared to executing the
+   * fetch query once per parent query result.
+   */
+  long getSavedRoundTrips();
+
+  /**
+   * Number of fetch query executions saved by batched fetch queries, grouped by the versioned name
+   * of the fetch query reference query.
+   */
+  Map<String, Long> getSavedRoundTripsPerQuery();
+
+  /**
+   * Reset all statistics.
+   */
+  void reset();
+}
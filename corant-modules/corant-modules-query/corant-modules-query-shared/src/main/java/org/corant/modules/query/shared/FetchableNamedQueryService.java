@@ -35,6 +35,18 @@ public interface FetchableNamedQueryService extends NamedQueryService {
     throw new NotSupportedException();
   }
 
+  /**
+   * Returns the number of parent query results to be fetched by one fetch query execution when the
+   * fetch query is batched, the implementation may reduce the batch size according to the
+   * constraints of the underlying database.
+   *
+   * @param fetchQuery the batchable fetch query
+   * @see FetchQuery#getBatchSize()
+   */
+  default int resolveFetchBatchSize(FetchQuery fetchQuery) {
+    return fetchQuery.getBatchSize();
+  }
+
   class FetchedResult {
     public final FetchQuery fetchQuery;
     public final Querier fetchQuerier;
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import static org.corant.shared.util.Objects.defaultObject;
+import static org.corant.shared.util.Objects.max;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.corant.modules.query.QuerierConfig;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.QueryService.Forwarding;
+import org.corant.modules.query.StreamQueryParameter;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * A cursor based iterator that uses {@link Forwarding} queries to fetch data records in batches,
+ * the records of the current batch are traversed by index and released after they have flowed out,
+ * so each record costs constant time and the consumed records are no longer strongly reachable.
+ *
+ * <p>
+ * If the prefetch depth is greater than 0 and an executor service is given, the next batches are
+ * fetched asynchronously while the caller consumes the current batch, at most prefetch depth
+ * batches are buffered. Since the next forward query parameter is derived from the last record of
+ * the previous batch, the batches are still fetched one after another, the prefetching only
+ * overlaps the query execution with the record consumption.
+ *
+ * <p>
+ * If the forwarding result carries a continuation token, the token is put into the context of the
+ * stream query parameter with the key {@link QuerierConfig#CTX_KEY_CONTINUATION} before fetching the
+ * next batch.
+ *
+ * <p>
+ * The forward queries run on a copy of the given stream query parameter (the map criteria and the
+ * context are copied too), so the caller's parameter is never mutated by the forwarding, neither by
+ * the prefetching thread.
+ *
+ * <p>
+ * Note: The iterator is closed automatically once {@link #hasNext()} returns false; a consumer that
+ * stops early should close the iterator to cancel the prefetching task, otherwise the prefetching
+ * task gives up after it can't hand over a batch for {@link #PREFETCH_OFFER_TIMEOUT_MS}
+ * milliseconds.
+ *
+ * @author bingo 下午3:42:17
+ *
+ */
+public class ForwardingIterator<T> implements Iterator<T>, AutoCloseable {
+
+  public static final long PREFETCH_OFFER_TIMEOUT_MS = 60000L;
+  protected static final long PREFETCH_OFFER_SPIN_MS = 100L;
+
+  protected final StreamQueryParameter parameter;
+  protected final StreamQueryParameter forwardParameter;
+  protected final Function<StreamQueryParameter, Forwarding<T>> forwarder;
+  protected final int prefetchDepth;
+  protected final ExecutorService executor;
+
+  protected List<T> page;
+  protected int cursor;
+  protected boolean pageHasNext;
+  protected int counter;
+  protected T next;
+  protected String continuation;
+
+  protected BlockingQueue<Object> prefetched;
+  protected Future<?> prefetching;
+  protected volatile boolean closed;
+
+  /**
+   * Create a synchronous forwarding iterator
+   *
+   * @param parameter the stream query parameter, a copy of it is forwarded after each batch
+   * @param forwarder the forward query function
+   */
+  public ForwardingIterator(StreamQueryParameter parameter,
+      Function<StreamQueryParameter, Forwarding<T>> forwarder) {
+    this(parameter, forwarder, 0, null);
+  }
+
+  /**
+   * Create a forwarding iterator
+   *
+   * @param parameter the stream query parameter, a copy of it is forwarded after each batch
+   * @param forwarder the forward query function
+   * @param prefetchDepth the maximum number of batches that can be prefetched, if less than or
+   *        equal to 0 or the given executor service is null, the batches are fetched synchronously.
+   * @param executor the executor service use to prefetch the batches
+   */
+  public ForwardingIterator(StreamQueryParameter parameter,
+      Function<StreamQueryParameter, Forwarding<T>> forwarder, int prefetchDepth,
+      ExecutorService executor) {
+    this.parameter = parameter;
+    this.forwarder = forwarder;
+    this.executor = executor;
+    this.prefetchDepth = executor == null ? 0 : max(prefetchDepth, 0);
+    forwardParameter = copy(parameter);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    if (prefetching != null) {
+      prefetching.cancel(true);
+      prefetching = null;
+    }
+    if (prefetched != null) {
+      prefetched.clear();
+    }
+    page = null;
+  }
+
+  @Override
+  public boolean hasNext() {
+    initialize();
+    if (closed) {
+      return false;
+    }
+    boolean hasNext = false;
+    try {
+      if (!parameter.terminateIf(counter, next)) {
+        if (cursor < page.size()) {
+          hasNext = true;
+        } else if (pageHasNext) {
+          accept(nextForwarding());
+          hasNext = cursor < page.size();
+        }
+      }
+    } finally {
+      if (!hasNext) {
+        close();
+      }
+    }
+    return hasNext;
+  }
+
+  @Override
+  public T next() {
+    initialize();
+    if (closed || cursor >= page.size()) {
+      throw new NoSuchElementException();
+    }
+    counter++;
+    next = page.set(cursor++, null);
+    return next;
+  }
+
+  protected void accept(Forwarding<T> forwarding) {
+    page = forwarding.hasResults() ? forwarding.getResults() : Collections.emptyList();
+    pageHasNext = forwarding.hasNext();
+    continuation = forwarding.getContinuation();
+    cursor = 0;
+  }
+
+  /**
+   * Returns a copy of the given stream query parameter for forwarding, the map criteria is copied
+   * since the enhancer usually puts the last record keys into it, and the context is copied since
+   * the continuation token is put into it.
+   *
+   * @param parameter the stream query parameter to copy
+   */
+  @SuppressWarnings("unchecked")
+  protected StreamQueryParameter copy(StreamQueryParameter parameter) {
+    StreamQueryParameter copy = new StreamQueryParameter(parameter);
+    if (parameter.getCriteria() instanceof Map) {
+      copy.criteria(new LinkedHashMap<>((Map<Object, Object>) parameter.getCriteria()));
+    }
+    // the context setter copies the given map
+    return copy.context(parameter.getContext());
+  }
+
+  /**
+   * Forward the stream query parameter with the last record and the continuation token of the
+   * previous batch.
+   *
+   * @param last the last record of the previous batch
+   * @param previousContinuation the continuation token of the previous batch, may be null
+   */
+  protected StreamQueryParameter forward(T last, String previousContinuation) {
+    if (previousContinuation != null) {
+      forwardParameter.getContext().put(QuerierConfig.CTX_KEY_CONTINUATION,
+          previousContinuation);
+    }
+    return forwardParameter.forward(last);
+  }
+
+  protected void initialize() {
+    if (page == null && !closed) {
+      accept(defaultObject(forwarder.apply(forwardParameter), Forwarding::inst));
+      counter = cursor < page.size() ? 1 : 0;
+      if (prefetchDepth > 0 && pageHasNext && !page.isEmpty()) {
+        prefetched = new ArrayBlockingQueue<>(prefetchDepth);
+        final T last = page.get(page.size() - 1);
+        final String lastContinuation = continuation;
+        prefetching = executor.submit(() -> prefetch(last, lastContinuation));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  protected Forwarding<T> nextForwarding() {
+    if (prefetched == null) {
+      return defaultObject(forwarder.apply(forward(next, continuation)), Forwarding::inst);
+    }
+    try {
+      Object fetched;
+      while ((fetched = prefetched.poll(PREFETCH_OFFER_SPIN_MS, TimeUnit.MILLISECONDS)) == null) {
+        if (prefetching == null || prefetching.isDone()) {
+          // the prefetching task may hand over the last batch right before it is done
+          if ((fetched = prefetched.poll()) == null) {
+            throw new QueryRuntimeException("The stream prefetching task was terminated.");
+          }
+          break;
+        }
+      }
+      if (fetched instanceof Throwable) {
+        if (fetched instanceof RuntimeException) {
+          throw (RuntimeException) fetched;
+        }
+        throw new QueryRuntimeException((Throwable) fetched);
+      }
+      return (Forwarding<T>) fetched;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new QueryRuntimeException(e);
+    }
+  }
+
+  protected void prefetch(T last, String lastContinuation) {
+    T current = last;
+    String currentContinuation = lastContinuation;
+    try {
+      while (!closed && !Thread.currentThread().isInterrupted()) {
+        Forwarding<T> forwarding = defaultObject(
+            forwarder.apply(forward(current, currentContinuation)), Forwarding::inst);
+        // the consumer releases the records of a handed over batch, so read the last one before
+        boolean more = forwarding.hasNext() && forwarding.hasResults();
+        if (more) {
+          List<T> results = forwarding.getResults();
+          current = results.get(results.size() - 1);
+          currentContinuation = forwarding.getContinuation();
+        }
+        if (!handOver(forwarding) || !more) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      try {
+        handOver(t);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Hand over the fetched batch or the failure to the consumer, returns false if the iterator was
+   * closed or the consumer didn't take it within {@link #PREFETCH_OFFER_TIMEOUT_MS} milliseconds.
+   *
+   * @param fetched the fetched batch or the failure
+   */
+  protected boolean handOver(Object fetched) throws InterruptedException {
+    long waited = 0;
+    while (!closed) {
+      if (prefetched.offer(fetched, PREFETCH_OFFER_SPIN_MS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+      if ((waited += PREFETCH_OFFER_SPIN_MS) >= PREFETCH_OFFER_TIMEOUT_MS) {
+        break;
+      }
+    }
+    return false;
+  }
+}
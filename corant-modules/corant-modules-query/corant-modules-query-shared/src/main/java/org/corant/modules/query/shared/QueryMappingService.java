@@ -13,7 +13,8 @@
  */
 package org.corant.modules.query.shared;
 
-import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
 import static org.corant.context.Beans.findNamed;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
@@ -32,8 +33,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -60,6 +60,11 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
  * corant-modules-query-shared
+ * <p>
+ * The query mapping service, the queries are kept in an immutable snapshot keyed by the versioned
+ * name, the snapshot is replaced atomically when initializing, so the query lookup never locks. The
+ * new snapshot is parsed and validated in full before the before-initialize handlers are invoked
+ * and the snapshot is swapped, the lookups return the queries of the old snapshot until then.
  *
  * @author bingo 下午12:59:22
  *
@@ -70,10 +75,10 @@ public class QueryMappingService {
   public static final String MAPPING_FILE_PATH_CFG_KEY = "corant.query.mapping-file.paths";
   public static final String DEFAULT_MAPPING_FILE_PATH = "META-INF/**Query.xml";
 
-  protected final static ReadWriteLock rwl = new ReentrantReadWriteLock();
+  protected final static Lock initializeLock = new ReentrantLock();
   protected final static AtomicLong initializedVersion = new AtomicLong(0);
 
-  protected final Map<String, Query> queries = new HashMap<>();
+  protected volatile Map<String, Query> queries = emptyMap();
   protected volatile boolean initialized = false;
 
   @Inject
@@ -108,23 +113,11 @@ public class QueryMappingService {
   }
 
   public Collection<Query> getQueries() {
-    Lock l = rwl.readLock();
-    l.lock();
-    try {
-      return unmodifiableCollection(queries.values());
-    } finally {
-      l.unlock();
-    }
+    return queries.values();
   }
 
   public Query getQuery(String name) {
-    Lock l = rwl.readLock();
-    l.lock();
-    try {
-      return queries.get(name);
-    } finally {
-      l.unlock();
-    }
+    return queries.get(name);
   }
 
   public boolean isInitialized() {
@@ -133,7 +126,7 @@ public class QueryMappingService {
 
   @Experimental // NOTE since the query scripts may be cached in thread local
   public void reinitialize() {
-    Lock l = rwl.writeLock();
+    Lock l = initializeLock;
     l.lock();
     Throwable throwable = null;
     try {
@@ -143,7 +136,7 @@ public class QueryMappingService {
     } catch (Exception ex) {
       throwable = ex;
       initialized = false;
-      queries.clear();
+      queries = emptyMap();
     } finally {
       l.unlock();
       if (throwable != null) {
@@ -153,13 +146,88 @@ public class QueryMappingService {
   }
 
   protected void doInitialize() {
-    initialized = false;
+    final Map<String, Query> resolved = resolveQueries();
     if (!preInitializeHandlers.isUnsatisfied()) {
       final Collection<Query> oldQueries = getQueries();
       final long civn = getInitializedVersion();
       preInitializeHandlers.forEach(l -> l.beforeQueryMappingInitialize(oldQueries, civn));
     }
-    queries.clear();
+    queries = unmodifiableMap(resolved);
+    initialized = true;
+    initializedVersion.incrementAndGet();
+    if (!postInitializedHandlers.isUnsatisfied()) {
+      final Collection<Query> newQueries = getQueries();
+      final long civn = getInitializedVersion();
+      postInitializedHandlers.forEach(l -> l.afterQueryMappingInitialized(newQueries, civn));
+    }
+    logger.info(() -> String.format("Found %s queries from mapping file path %s.",
+        resolved.size(), mappingFilePaths));
+  }
+
+  protected void initialize() {
+    Lock l = initializeLock;
+    Throwable throwable = null;
+    l.lock();
+    try {
+      logger.info("Start query mapping initialization.");
+      doInitialize();
+      logger.info("Complete query mapping initialization.");
+    } catch (Exception ex) {
+      throwable = ex;
+      initialized = false;
+      queries = emptyMap();
+    } finally {
+      l.unlock();
+      if (throwable != null) {
+        rethrow(throwable);
+      }
+    }
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    initialize();
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    uninitialize();
+  }
+
+  protected String[] resolveMappingFilePaths() {
+    Set<String> paths = new LinkedHashSet<>();
+    if (!resolvers.isUnsatisfied()) {
+      resolvers.forEach(s -> {
+        Set<String> ps = s.getMappingFilePaths();
+        if (isNotEmpty(ps)) {
+          for (String p : ps) {
+            if (isNotBlank(p)) {
+              paths.add(p);
+            }
+          }
+        }
+      });
+    } // FIXME still has not figured out
+    if (isEmpty(paths)) {
+      paths.addAll(resolvePaths(mappingFilePaths));
+    }
+    return paths.toArray(new String[paths.size()]);
+  }
+
+  protected Set<String> resolvePaths(String... paths) {
+    Set<String> resolved = new LinkedHashSet<>();
+    for (String path : paths) {
+      Collections.addAll(resolved, split(path, ",", true, true));
+    }
+    return resolved;
+  }
+
+  /**
+   * Parse and validate the query mapping files and returns the new query map keyed by the versioned
+   * name, the current snapshot is not touched.
+   */
+  protected Map<String, Query> resolveQueries() {
+    final Map<String, Query> resolved = new HashMap<>();
     new QueryParser().parse(resolveMappingFilePaths()).forEach(m -> {
       List<String> broken = m.selfValidate();
       if (!broken.isEmpty()) {
@@ -167,13 +235,13 @@ public class QueryMappingService {
       }
       m.getQueries().forEach(q -> {
         // q.setParamMappings(m.getParaMapping());// copy
-        Query repeat = queries.get(q.getVersionedName());
+        Query repeat = resolved.get(q.getVersionedName());
         if (repeat != null) {
           throw new QueryRuntimeException(
               "The 'name' [%s] of query element in query file [%s] can not repeat, the previous query file [%s].",
               q.getVersionedName(), m.getUrl(), repeat.getMappingFilePath());
         } else {
-          queries.put(q.getVersionedName(), q);
+          resolved.put(q.getVersionedName(), q);
         }
         // check script CDI
         if (q.getScript().getType() == ScriptType.CDI
@@ -225,9 +293,9 @@ public class QueryMappingService {
         }
       });
     });
-    queries.keySet().forEach(q -> {
+    resolved.keySet().forEach(q -> {
       List<String> refs = new LinkedList<>();
-      List<String> tmp = new LinkedList<>(queries.get(q).getVersionedFetchQueryNames());
+      List<String> tmp = new LinkedList<>(resolved.get(q).getVersionedFetchQueryNames());
       while (!tmp.isEmpty()) {
         String tq = tmp.remove(0);
         refs.add(tq);
@@ -236,95 +304,30 @@ public class QueryMappingService {
               "The queries in system circular reference occurred on [%s -> %s]", q,
               String.join(" -> ", refs));
         }
-        Query fq = queries.get(tq);
+        Query fq = resolved.get(tq);
         if (fq == null) {
           throw new QueryRuntimeException(
               "The 'name' [%s] of 'fetch-query' in query [%s] in system can not found the referred query!",
               tq, q);
         }
-        tmp.addAll(queries.get(tq).getVersionedFetchQueryNames());
+        tmp.addAll(resolved.get(tq).getVersionedFetchQueryNames());
       }
       refs.clear();
     });
     if (!queryProviders.isUnsatisfied()) {
       // FIXME CIRCULAR NO CHECK!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!! bingo
-      queryProviders.forEach(qp -> qp.provide().forEach(q -> queries.put(q.getVersionedName(), q)));
-    }
-    initialized = true;
-    initializedVersion.incrementAndGet();
-    if (!postInitializedHandlers.isUnsatisfied()) {
-      final Collection<Query> newQueries = getQueries();
-      final long civn = getInitializedVersion();
-      postInitializedHandlers.forEach(l -> l.afterQueryMappingInitialized(newQueries, civn));
-    }
-    logger.info(() -> String.format("Found %s queries from mapping file path %s.", queries.size(),
-        mappingFilePaths));
-  }
-
-  protected void initialize() {
-    Lock l = rwl.writeLock();
-    Throwable throwable = null;
-    l.lock();
-    try {
-      logger.info("Start query mapping initialization.");
-      doInitialize();
-      logger.info("Complete query mapping initialization.");
-    } catch (Exception ex) {
-      throwable = ex;
-      initialized = false;
-      queries.clear();
-    } finally {
-      l.unlock();
-      if (throwable != null) {
-        rethrow(throwable);
-      }
-    }
-  }
-
-  @PostConstruct
-  protected void onPostConstruct() {
-    initialize();
-  }
-
-  @PreDestroy
-  protected void onPreDestroy() {
-    uninitialize();
-  }
-
-  protected String[] resolveMappingFilePaths() {
-    Set<String> paths = new LinkedHashSet<>();
-    if (!resolvers.isUnsatisfied()) {
-      resolvers.forEach(s -> {
-        Set<String> ps = s.getMappingFilePaths();
-        if (isNotEmpty(ps)) {
-          for (String p : ps) {
-            if (isNotBlank(p)) {
-              paths.add(p);
-            }
-          }
-        }
-      });
-    } // FIXME still has not figured out
-    if (isEmpty(paths)) {
-      paths.addAll(resolvePaths(mappingFilePaths));
-    }
-    return paths.toArray(new String[paths.size()]);
-  }
-
-  protected Set<String> resolvePaths(String... paths) {
-    Set<String> resolved = new LinkedHashSet<>();
-    for (String path : paths) {
-      Collections.addAll(resolved, split(path, ",", true, true));
+      queryProviders
+          .forEach(qp -> qp.provide().forEach(q -> resolved.put(q.getVersionedName(), q)));
     }
     return resolved;
   }
 
   protected void uninitialize() {
-    Lock l = rwl.writeLock();
+    Lock l = initializeLock;
     l.lock();
     try {
       logger.info("Start query mapping un-initialization.");
-      queries.clear();
+      queries = emptyMap();
       initialized = false;
       logger.info("Completed query mapping un-initialization.");
     } finally {
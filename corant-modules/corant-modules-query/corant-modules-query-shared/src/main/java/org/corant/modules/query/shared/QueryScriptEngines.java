@@ -41,7 +41,8 @@ public class QueryScriptEngines {
   protected Instance<ScriptProcessor> processors;
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The resolved function is cached by the script processor and can be shared in multi
+   * threads.
    *
    * @see ScriptProcessor#resolveFetchInjections(FetchQuery)
    */
@@ -53,7 +54,8 @@ public class QueryScriptEngines {
   }
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The resolved function is cached by the script processor and can be shared in multi
+   * threads.
    *
    * @see ScriptProcessor#resolveFetchParameter(FetchQueryParameter)
    */
@@ -64,7 +66,8 @@ public class QueryScriptEngines {
   }
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The resolved function is cached by the script processor and can be shared in multi
+   * threads.
    *
    * @see ScriptProcessor#resolveFetchPredicates(FetchQuery)
    */
@@ -76,7 +79,8 @@ public class QueryScriptEngines {
   }
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The resolved function is cached by the script processor and can be shared in multi
+   * threads.
    *
    * @see ScriptProcessor#resolveQueryHintResultScriptMappers(QueryHint)
    */
@@ -14,12 +14,32 @@
 package org.corant.modules.query.shared.dynamic.freemarker;
 
 import static org.corant.context.Beans.select;
+import static org.corant.shared.util.Classes.getAllInterfaces;
+import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
+import static org.corant.shared.util.Objects.defaultObject;
+import static org.corant.shared.util.Objects.forceCast;
+import static org.corant.shared.util.Objects.max;
+import static org.corant.shared.util.Sets.setOf;
 import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.corant.modules.query.FetchQueryHandler;
+import org.corant.modules.query.QuerierConfig;
 import org.corant.modules.query.QueryHandler;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
@@ -31,16 +51,36 @@ import org.corant.shared.ubiquity.Tuple.Pair;
 import org.corant.shared.ubiquity.Tuple.Triple;
 import freemarker.core.Environment;
 import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
 import freemarker.template.SimpleHash;
 import freemarker.template.SimpleNumber;
 import freemarker.template.Template;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateCollectionModelEx;
 import freemarker.template.TemplateException;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModel;
 import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateScalarModel;
+import freemarker.template.TemplateSequenceModel;
+import net.jcip.annotations.GuardedBy;
 
 /**
  * corant-modules-query-shared
  *
+ * <p>
+ * If the query property {@link QuerierConfig#PRO_KEY_RENDERING_CACHE} is true, the rendered script
+ * is cached per parameter shape (see {@link #resolveRenderingShape(QueryParameter)}), and on
+ * subsequent calls with the same shape only the template method invocations are replayed to
+ * extract the parameter values. It is only applicable to templates whose output depends on which
+ * criteria are present, not on their values, and whose template method invocations take the
+ * criteria directly. While recording a shape the criteria and context values are observed, if a
+ * value is read outside a template method invocation (e.g. interpolated with ${...} or tested with
+ * an #if condition), the shape is marked as non-cacheable and is always rendered. The limit and
+ * offset join the shape only after the template was seen to read them outside a template method.
+ * The least recently used shape is evicted when the cache is full.
+ *
  * @author bingo 上午10:00:50
  *
  */
@@ -54,6 +94,17 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
 
   protected final Logger logger = Logger.getLogger(this.getClass().getName());
 
+  @GuardedBy("itself")
+  protected final Map<String, RenderedShape<P>> renderingCache;
+
+  protected final int renderingCacheSize;
+
+  protected final LongAdder renderingCacheHits = new LongAdder();
+
+  protected final LongAdder renderingCacheMisses = new LongAdder();
+
+  protected volatile boolean renderingPagingSensitive;
+
   /**
    * Create a free marker dynamic querier builder
    *
@@ -67,6 +118,19 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
     Pair<Template, String> exes = FreemarkerExecutions.resolveExecution(query);
     execution = exes.left();
     syntheticScript = exes.right();
+    renderingCacheSize = max(
+        query.getProperty(QuerierConfig.PRO_KEY_RENDERING_CACHE_SIZE, Integer.class, 128), 1);
+    renderingCache =
+        query.getProperty(QuerierConfig.PRO_KEY_RENDERING_CACHE, Boolean.class, Boolean.FALSE)
+            ? new LinkedHashMap<>(16, 0.75f, true) {
+              private static final long serialVersionUID = -2472431285447932135L;
+
+              @Override
+              protected boolean removeEldestEntry(Entry<String, RenderedShape<P>> eldest) {
+                return size() > renderingCacheSize;
+              }
+            }
+            : null;
   }
 
   @Override
@@ -77,15 +141,86 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
   protected abstract Q build(Triple<QueryParameter, P, String> processed);
 
   protected Triple<QueryParameter, P, String> execute(QueryParameter param) {
+    final String shape = renderingCache == null ? null : resolveRenderingShape(param);
+    if (shape == null) {
+      return render(param, null);
+    }
+    final RenderedShape<P> rendered;
+    synchronized (renderingCache) {
+      rendered = renderingCache.get(shape);
+    }
+    if (rendered != null && rendered.isCacheable()) {
+      Triple<QueryParameter, P, String> replayed = replay(rendered, param);
+      if (replayed != null) {
+        renderingCacheHits.increment();
+        return replayed;
+      }
+    }
+    renderingCacheMisses.increment();
+    if (rendered != null) {
+      return render(param, null);
+    }
+    final RenderingRecorder recorder = new RenderingRecorder();
+    final Triple<QueryParameter, P, String> result = render(param, recorder);
+    if (recorder.pagingAccessed && !renderingPagingSensitive) {
+      // the shape key lacks the limit and offset, the subsequent shape keys will include them
+      renderingPagingSensitive = true;
+      return result;
+    }
+    cacheRenderedShape(shape, recorder.isCacheable()
+        ? new RenderedShape<>(result.getRight(), recorder.steps)
+        : new RenderedShape<>(null, null));
+    return result;
+  }
+
+  public long getRenderingCacheHits() {
+    return renderingCacheHits.sum();
+  }
+
+  public long getRenderingCacheMisses() {
+    return renderingCacheMisses.sum();
+  }
+
+  /**
+   * Put the rendered shape into the rendering cache, the cache is access ordered, if it is full the
+   * least recently used shape is evicted.
+   *
+   * @param shape the shape key
+   * @param rendered the rendered shape
+   */
+  protected void cacheRenderedShape(String shape, RenderedShape<P> rendered) {
+    synchronized (renderingCache) {
+      renderingCache.putIfAbsent(shape, rendered);
+    }
+  }
+
+  /**
+   * Returns a template method model use for variables handling. The "extended method" template
+   * language data type: Objects that act like functions.
+   */
+  protected abstract DynamicTemplateMethodModelEx<P> getTemplateMethodModelEx();
+
+  /**
+   * Render the template with the given query parameter, if the given rendering recorder is not
+   * null, the criteria accesses and the template method invocations are recorded.
+   *
+   * @param param the query parameter
+   * @param recorder the rendering recorder, may be null
+   */
+  protected Triple<QueryParameter, P, String> render(QueryParameter param,
+      RenderingRecorder recorder) {
     try (StringWriter sw = new StringWriter()) {
       // Inject query criteria
-      Environment e = execution.createProcessingEnvironment(param.getCriteria(), sw);
+      ObjectWrapper ow = execution.getObjectWrapper();
+      Object criteria = recorder == null ? param.getCriteria()
+          : recorder.trace(forceCast(param.getCriteria()), ow);
+      Environment e = execution.createProcessingEnvironment(criteria, sw);
 
       // Inject default template method model
       DynamicTemplateMethodModelEx<P> tmm = getTemplateMethodModelEx();
       String tmmTyp = tmm.getType();
       checkVarNames(e, tmmTyp);
-      e.setVariable(tmmTyp, tmm);
+      e.setVariable(tmmTyp, recorder == null ? tmm : recorder.record(tmm));
 
       // Inject configuration retrieve template method model
       DynamicTemplateMethodModelEx<Object> cmm = DynamicTemplateMethodModelEx.CONFIG_TMM_INST;
@@ -103,7 +238,9 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
       if (param.getLimit() != null
           && !e.getKnownVariableNames().contains(QueryParameter.LIMIT_PARAM_NME)) {
         // For compatibility issues, temporarily use this
-        e.setVariable(QueryParameter.LIMIT_PARAM_NME, new SimpleNumber(param.getLimit()));
+        TemplateModel val = new SimpleNumber(param.getLimit());
+        e.setVariable(QueryParameter.LIMIT_PARAM_NME,
+            recorder == null ? val : recorder.observe(val, true));
       }
 
       // if (param.getOffset() != null) {
@@ -114,16 +251,17 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
       if (param.getOffset() != null
           && !e.getKnownVariableNames().contains(QueryParameter.OFFSET_PARAM_NME)) {
         // For compatibility issues, temporarily use this
-        e.setVariable(QueryParameter.OFFSET_PARAM_NME, new SimpleNumber(param.getOffset()));
+        TemplateModel val = new SimpleNumber(param.getOffset());
+        e.setVariable(QueryParameter.OFFSET_PARAM_NME,
+            recorder == null ? val : recorder.observe(val, true));
       }
 
       // Inject query context
-      ObjectWrapper ow = execution.getObjectWrapper();
       if (isNotEmpty(param.getContext())) {
         for (Entry<String, Object> ctx : param.getContext().entrySet()) {
           checkVarNames(e, ctx.getKey());
           TemplateModel val = ctx.getValue() == null ? new SimpleHash(ow) : ow.wrap(ctx.getValue());
-          e.setVariable(ctx.getKey(), val);
+          e.setVariable(ctx.getKey(), recorder == null ? val : recorder.observe(val, false));
         }
       }
 
@@ -143,10 +281,76 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
   }
 
   /**
-   * Returns a template method model use for variables handling. The "extended method" template
-   * language data type: Objects that act like functions.
+   * Replay the recorded template method invocations with the criteria values of the given query
+   * parameter, returns null if the outputs of the template method invocations are inconsistent
+   * with the recorded outputs.
+   *
+   * @param rendered the rendered shape
+   * @param param the query parameter
    */
-  protected abstract DynamicTemplateMethodModelEx<P> getTemplateMethodModelEx();
+  protected Triple<QueryParameter, P, String> replay(RenderedShape<P> rendered,
+      QueryParameter param) {
+    try {
+      final Map<String, Object> criteria =
+          defaultObject(forceCast(param.getCriteria()), Collections::emptyMap);
+      final ObjectWrapper ow = execution.getObjectWrapper();
+      final DynamicTemplateMethodModelEx<P> tmm = getTemplateMethodModelEx();
+      for (RenderingStep step : rendered.steps) {
+        List<Object> arguments = new ArrayList<>(step.arguments.size() + 1);
+        arguments.add(ow.wrap(criteria.get(step.key)));
+        arguments.addAll(step.arguments);
+        Object output = tmm.exec(arguments);
+        if (!(output instanceof TemplateScalarModel)
+            || !step.output.equals(((TemplateScalarModel) output).getAsString())) {
+          return null;
+        }
+      }
+      return Triple.of(param, tmm.getParameters(), rendered.script);
+    } catch (TemplateModelException e) {
+      logger.log(Level.FINE, e, () -> String.format(
+          "Replay the rendered shape of query [%s] occurred error, fall back to render.",
+          getQuery().getName()));
+      return null;
+    }
+  }
+
+  /**
+   * Returns the rendering shape of the given query parameter, the shape consists of the names of
+   * the non-null criteria with the sizes of the collection or array values, the names of the
+   * non-null context entries and, if the template reads them, the limit and the offset. Returns
+   * null if the criteria is not a map, in this case the rendering is not cacheable.
+   *
+   * @param param the query parameter
+   */
+  protected String resolveRenderingShape(QueryParameter param) {
+    if (param.getCriteria() != null && !(param.getCriteria() instanceof Map)) {
+      return null;
+    }
+    final Map<?, ?> criteria = (Map<?, ?>) param.getCriteria();
+    final StringBuilder shape = new StringBuilder();
+    if (isNotEmpty(criteria)) {
+      Object[] keys = criteria.entrySet().stream().filter(e -> e.getValue() != null)
+          .map(e -> String.valueOf(e.getKey())).sorted().toArray();
+      for (Object key : keys) {
+        shape.append(key);
+        Object value = criteria.get(key);
+        if (value instanceof Collection) {
+          shape.append('#').append(((Collection<?>) value).size());
+        } else if (value != null && value.getClass().isArray()) {
+          shape.append('#').append(Array.getLength(value));
+        }
+        shape.append('\u0000');
+      }
+    }
+    if (renderingPagingSensitive) {
+      shape.append('\u0001').append(param.getLimit()).append('\u0001').append(param.getOffset());
+    }
+    if (isNotEmpty(param.getContext())) {
+      param.getContext().entrySet().stream().filter(e -> e.getValue() != null).map(Entry::getKey)
+          .sorted().forEach(k -> shape.append('\u0001').append(k));
+    }
+    return shape.toString();
+  }
 
   @Deprecated
   protected void setEnvironmentVariables(Environment env, ObjectWrapper ow) {
@@ -187,4 +391,172 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
     }
   }
 
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午4:27:35
+   *
+   */
+  protected static class RenderedShape<P> {
+
+    final String script;
+    final List<RenderingStep> steps;
+
+    RenderedShape(String script, List<RenderingStep> steps) {
+      this.script = script;
+      this.steps = steps;
+    }
+
+    boolean isCacheable() {
+      return steps != null;
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   * <p>
+   * Records the criteria accessed by the template and the template method invocations during
+   * rendering, the rendering is cacheable only if the first argument of each template method
+   * invocation is a criteria value accessed directly from the data model, the remaining arguments
+   * are not criteria values and no criteria or context value is read outside the template method
+   * invocations.
+   *
+   * @author bingo 下午4:31:02
+   *
+   */
+  protected static class RenderingRecorder {
+
+    static final String AMBIGUOUS = new String("<ambiguous>");
+    static final Set<String> SIZE_METHODS = setOf("size", "isEmpty");
+
+    final Map<TemplateModel, String> traces = new IdentityHashMap<>();
+    final List<RenderingStep> steps = new ArrayList<>();
+    boolean cacheable = true;
+    boolean pagingAccessed;
+    boolean inMethod;
+
+    boolean isCacheable() {
+      return cacheable;
+    }
+
+    TemplateMethodModelEx record(TemplateMethodModelEx delegate) {
+      return arguments -> {
+        final Object output;
+        inMethod = true;
+        try {
+          output = delegate.exec(arguments);
+        } finally {
+          inMethod = false;
+        }
+        if (cacheable) {
+          final List<?> args = arguments;
+          String key = isEmpty(args) ? null : traces.get(args.get(0));
+          if (key == null || key == AMBIGUOUS || !(output instanceof TemplateScalarModel)) {
+            cacheable = false;
+          } else {
+            List<Object> remaining = new ArrayList<>(args.subList(1, args.size()));
+            if (remaining.stream().anyMatch(traces::containsKey)) {
+              cacheable = false;
+            } else {
+              steps.add(new RenderingStep(key, remaining,
+                  ((TemplateScalarModel) output).getAsString()));
+            }
+          }
+        }
+        return output;
+      };
+    }
+
+    /**
+     * Returns a proxy of the given model that observes the reading of the value outside the
+     * template method invocations; the size of a sequence or a collection is part of the shape, so
+     * it can be read freely.
+     *
+     * @param model the model to observe
+     * @param paging whether the model is the limit or the offset
+     */
+    TemplateModel observe(TemplateModel model, boolean paging) {
+      if (model == null) {
+        return null;
+      }
+      final boolean sized =
+          model instanceof TemplateSequenceModel || model instanceof TemplateCollectionModelEx;
+      final Class<?>[] interfaces = getAllInterfaces(model).stream()
+          .filter(c -> Modifier.isPublic(c.getModifiers())).toArray(Class<?>[]::new);
+      return (TemplateModel) Proxy.newProxyInstance(model.getClass().getClassLoader(), interfaces,
+          (proxy, method, args) -> {
+            if (!inMethod && method.getDeclaringClass() != Object.class
+                && !(sized && SIZE_METHODS.contains(method.getName()))) {
+              if (paging) {
+                pagingAccessed = true;
+              } else {
+                cacheable = false;
+              }
+            }
+            try {
+              return method.invoke(model, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+
+    TemplateHashModelEx trace(Map<String, Object> criteria, ObjectWrapper ow) {
+      final Map<String, Object> useCriteria = defaultObject(criteria, Collections::emptyMap);
+      return new TemplateHashModelEx() {
+
+        @Override
+        public TemplateModel get(String key) throws TemplateModelException {
+          Object value = useCriteria.get(key);
+          if (value == null) {
+            return null;
+          }
+          TemplateModel model = observe(ow.wrap(value), false);
+          String exists = traces.putIfAbsent(model, key);
+          if (exists != null && !exists.equals(key)) {
+            traces.put(model, AMBIGUOUS);
+          }
+          return model;
+        }
+
+        @Override
+        public boolean isEmpty() {
+          return useCriteria.isEmpty();
+        }
+
+        @Override
+        public TemplateCollectionModel keys() {
+          return new SimpleCollection(useCriteria.keySet(), ow);
+        }
+
+        @Override
+        public int size() {
+          return useCriteria.size();
+        }
+
+        @Override
+        public TemplateCollectionModel values() {
+          return new SimpleCollection(useCriteria.values(), ow);
+        }
+      };
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午4:33:48
+   *
+   */
+  protected static class RenderingStep {
+    final String key;
+    final List<Object> arguments;
+    final String output;
+
+    RenderingStep(String key, List<Object> arguments, String output) {
+      this.key = key;
+      this.arguments = arguments;
+      this.output = output;
+    }
+  }
 }
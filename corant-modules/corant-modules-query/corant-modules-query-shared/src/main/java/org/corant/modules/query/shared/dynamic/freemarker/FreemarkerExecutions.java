@@ -133,7 +133,7 @@ public class FreemarkerExecutions
     return scriptResolver;
   }
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
     executions.clear();
@@ -150,7 +150,7 @@ public class FreemarkerExecutions
     }
   }
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
     executions.clear();
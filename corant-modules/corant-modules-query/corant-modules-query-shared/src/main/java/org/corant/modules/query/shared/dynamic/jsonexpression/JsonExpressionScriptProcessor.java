@@ -105,7 +105,7 @@ public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
   @Inject
   protected QueryObjectMapper mapper;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
     injFuns.clear();
@@ -15,7 +15,6 @@ package org.corant.modules.query.shared.dynamic.kotlin;
 
 import java.util.Collection;
 import java.util.Optional;
-import java.util.function.Function;
 import java.util.logging.Logger;
 import javax.inject.Singleton;
 import javax.script.Compilable;
@@ -41,18 +40,10 @@ public class KotlinScriptProcessor extends AbstractCompilableScriptProcessor {
 
   static final Logger logger = Logger.getLogger(KotlinScriptProcessor.class.getName());
 
-  protected static final ThreadLocal<ThreadLocalExecution<Object, Function<ParameterAndResult, Object>>> PARAM_RESULT_FUNCTIONS =
-      ThreadLocal.withInitial(ThreadLocalExecution::new);
-
-  protected static final ThreadLocal<ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>>> PARAM_RESULT_PAIR_FUNCTIONS =
-      ThreadLocal.withInitial(ThreadLocalExecution::new);
-
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
-    // FIXME TODO the script was cached in thread local
-    PARAM_RESULT_FUNCTIONS.get().clear();
-    PARAM_RESULT_PAIR_FUNCTIONS.get().clear();
+    clearCompiledFunctions(initializedVersion);
     if (QueryExtension.verifyDeployment) {
       logger.info("Start kotlin query scripts pre-compiling.");
       int cs = resolveAll(queries, initializedVersion);
@@ -74,15 +65,4 @@ public class KotlinScriptProcessor extends AbstractCompilableScriptProcessor {
     }
     return (Compilable) service.get().createEngine();
   }
-
-  @Override
-  protected ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions() {
-    return PARAM_RESULT_FUNCTIONS.get();
-  }
-
-  @Override
-  protected ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions() {
-    return PARAM_RESULT_PAIR_FUNCTIONS.get();
-  }
-
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import static org.corant.shared.util.Lists.listOf;
+import static org.corant.shared.util.Maps.mapOf;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.corant.modules.query.Querier;
+import org.corant.modules.query.QueryHandler;
+import org.corant.modules.query.QueryObjectMapper;
+import org.corant.modules.query.QueryService.Forwarding;
+import org.corant.modules.query.QueryService.Paging;
+import org.corant.modules.query.mapping.FetchQuery;
+import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameter;
+import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameterSource;
+import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.shared.FetchableNamedQueryService.FetchedResult;
+import org.corant.modules.query.shared.dynamic.DynamicQuerier;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-shared
+ *
+ * @author bingo 下午2:46:05
+ *
+ */
+public class AbstractNamedQueryServiceTest extends TestCase {
+
+  static final String INJECT = "children";
+
+  final TestService service = new TestService();
+
+  static FetchQuery fetchQuery(FetchQueryParameter... parameters) {
+    return new FetchQuery(null, INJECT, Map.class, -1, Arrays.asList(parameters), true, null,
+        null, true);
+  }
+
+  static FetchQueryParameter parameter(String sourceName, String targetName, Class<?> type) {
+    return new FetchQueryParameter(null, targetName, sourceName, FetchQueryParameterSource.R, null,
+        type, null, false, false) {
+      private static final long serialVersionUID = 1L;
+      {
+        setTargetName(targetName);
+      }
+    };
+  }
+
+  /**
+   * Returns a proxy that injects the fetched records into the parent query result, extracts the
+   * values of the maps by name path and returns the given value for the other methods.
+   */
+  static Object proxy(Class<?> type, Object value) {
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (p, m, args) -> {
+      if ("handleFetchedResult".equals(m.getName())) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = (Map<String, Object>) args[0];
+        result.put(INJECT, args[1]);
+        return null;
+      } else if ("getMappedValue".equals(m.getName())) {
+        Object mapped = args[0];
+        for (String name : (String[]) args[1]) {
+          mapped = mapped instanceof Map ? ((Map<?, ?>) mapped).get(name) : null;
+        }
+        return mapped;
+      }
+      return value;
+    });
+  }
+
+  @Test
+  public void testCompositeKeys() {
+    List<Map<String, Object>> results = listOf(mapOf("a", 1, "b", "x"), mapOf("a", 1L, "b", "y"),
+        mapOf("a", "1", "b", "x"));
+    List<Map<String, Object>> fetchedList = listOf(mapOf("fa", 1, "fb", "x", "n", listOf(1)),
+        mapOf("fa", new BigDecimal("1.0"), "fb", "y"), mapOf("fa", 2, "fb", "x"));
+    postBatchFetch(fetchQuery(parameter("a", "fa", null), parameter("b", "fb", null)), results,
+        fetchedList);
+    assertSame(fetchedList.get(0), injected(results.get(0)).get(0));
+    assertSame(fetchedList.get(1), injected(results.get(1)).get(0));
+    // the shared fetched record is deep copied for the subsequent parent
+    Map<String, Object> copied = injected(results.get(2)).get(0);
+    assertNotSame(fetchedList.get(0), copied);
+    assertEquals(fetchedList.get(0), copied);
+    assertNotSame(fetchedList.get(0).get("n"), copied.get("n"));
+  }
+
+  @Test
+  public void testDeclaredKeyType() {
+    List<Map<String, Object>> results = listOf(mapOf("id", 1L), mapOf("id", "2"));
+    List<Map<String, Object>> fetchedList =
+        listOf(mapOf("pid", "1"), mapOf("pid", 2), mapOf("pid", 2L));
+    postBatchFetch(fetchQuery(parameter("id", "pid", String.class)), results, fetchedList);
+    assertEquals(listOf(fetchedList.get(0)), injected(results.get(0)));
+    assertEquals(listOf(fetchedList.get(1), fetchedList.get(2)), injected(results.get(1)));
+  }
+
+  @Test
+  public void testNumericKeys() {
+    List<Map<String, Object>> results = listOf(mapOf("id", 1), mapOf("id", 2L), mapOf("id", "3"),
+        mapOf("id", 4), mapOf("id", null));
+    List<Map<String, Object>> fetchedList = listOf(mapOf("pid", 1L), mapOf("pid", "2"),
+        mapOf("pid", 3), mapOf("pid", new BigDecimal("3.00")), mapOf("pid", 9));
+    postBatchFetch(fetchQuery(parameter("id", "pid", null)), results, fetchedList);
+    assertEquals(listOf(fetchedList.get(0)), injected(results.get(0)));
+    assertEquals(listOf(fetchedList.get(1)), injected(results.get(1)));
+    assertEquals(listOf(fetchedList.get(2), fetchedList.get(3)), injected(results.get(2)));
+    assertNull(results.get(3).get(INJECT));
+    assertNull(results.get(4).get(INJECT));
+  }
+
+  @Test
+  public void testStringKeys() {
+    // the key type is resolved from the first non-null source value
+    List<Map<String, Object>> results =
+        listOf(mapOf("id", null), mapOf("id", listOf(null, "10", "11")), mapOf("id", "12"));
+    List<Map<String, Object>> fetchedList =
+        listOf(mapOf("pid", 10L), mapOf("pid", "11"), mapOf("pid", 12), mapOf("pid", "12.0"));
+    postBatchFetch(fetchQuery(parameter("id", "pid", null)), results, fetchedList);
+    assertNull(results.get(0).get(INJECT));
+    assertEquals(listOf(fetchedList.get(0), fetchedList.get(1)), injected(results.get(1)));
+    assertEquals(listOf(fetchedList.get(2)), injected(results.get(2)));
+  }
+
+  @SuppressWarnings("unchecked")
+  List<Map<String, Object>> injected(Map<String, Object> result) {
+    return (List<Map<String, Object>>) result.get(INJECT);
+  }
+
+  void postBatchFetch(FetchQuery fetchQuery, List<Map<String, Object>> results,
+      List<Map<String, Object>> fetchedList) {
+    FetchedResult fetched =
+        new FetchedResult(fetchQuery, (Querier) proxy(Querier.class, null), fetchedList);
+    service.postBatchFetch(service, fetched, (Querier) proxy(Querier.class, null), results);
+  }
+
+  static class TestService extends AbstractNamedQueryService {
+
+    final AbstractNamedQuerierResolver<DynamicQuerier<?, ?>> resolver =
+        new AbstractNamedQuerierResolver<>() {
+          {
+            queryHandler = (QueryHandler) proxy(QueryHandler.class,
+                proxy(QueryObjectMapper.class, null));
+          }
+
+          @Override
+          public void beforeQueryMappingInitialize(Collection<Query> queries,
+              long initializedVersion) {}
+
+          @Override
+          public DynamicQuerier<?, ?> resolve(String key, Object param) {
+            throw new UnsupportedOperationException();
+          }
+        };
+
+    @Override
+    public void handleFetching(Object results, Querier parentQuerier) {}
+
+    @Override
+    protected <T> Forwarding<T> doForward(String q, Object p) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected <T> T doGet(String q, Object p) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected <T> Paging<T> doPage(String q, Object p) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected <T> List<T> doSelect(String q, Object p) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected AbstractNamedQuerierResolver<DynamicQuerier<?, ?>> getQuerierResolver() {
+      return resolver;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.corant.modules.query.QuerierConfig;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.QueryService.Forwarding;
+import org.corant.modules.query.StreamQueryParameter;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-shared
+ *
+ * @author bingo 下午5:12:40
+ *
+ */
+public class ForwardingIteratorTest extends TestCase {
+
+  static final int ROWS = 95;
+  static final int LIMIT = 10;
+
+  final List<Integer> offsets = new CopyOnWriteArrayList<>();
+  final List<Object> continuations = new CopyOnWriteArrayList<>();
+  ExecutorService executor;
+
+  static List<Integer> consume(ForwardingIterator<Integer> iterator) {
+    List<Integer> records = new ArrayList<>();
+    while (iterator.hasNext()) {
+      records.add(iterator.next());
+    }
+    return records;
+  }
+
+  static StreamQueryParameter parameter(Map<String, Object> context) {
+    return new StreamQueryParameter().limit(LIMIT).offset(0).context(context);
+  }
+
+  @Test
+  public void testCursor() {
+    StreamQueryParameter parameter = parameter(new HashMap<>());
+    ForwardingIterator<Integer> iterator = new ForwardingIterator<>(parameter, forwarder(-1));
+    assertRecords(consume(iterator));
+    assertFalse(iterator.hasNext());
+    assertNull(iterator.page);
+    // the caller's parameter is neither forwarded nor holds the continuation token
+    assertEquals(Integer.valueOf(0), parameter.getOffset());
+    assertTrue(parameter.getContext().isEmpty());
+    assertContinuations();
+  }
+
+  @Test
+  public void testCursorReleasesConsumed() {
+    ForwardingIterator<Integer> iterator =
+        new ForwardingIterator<>(parameter(null), forwarder(-1));
+    assertTrue(iterator.hasNext());
+    List<Integer> page = iterator.page;
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Integer.valueOf(i), iterator.next());
+    }
+    assertEquals(LIMIT, page.size());
+    for (int i = 0; i < LIMIT; i++) {
+      assertEquals(i < 3 ? null : Integer.valueOf(i), page.get(i));
+    }
+    iterator.close();
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testCursorTerminator() {
+    // the terminator returns false to terminate the stream
+    StreamQueryParameter parameter =
+        parameter(null).terminator((counter, last) -> last == null || (Integer) last < 14);
+    List<Integer> records = consume(new ForwardingIterator<>(parameter, forwarder(-1)));
+    assertEquals(15, records.size());
+    assertEquals(Integer.valueOf(14), records.get(14));
+    assertEquals(2, offsets.size());
+  }
+
+  @Test
+  public void testPrefetch() {
+    Map<String, Object> context = new HashMap<>();
+    context.put("tenant", "t1");
+    StreamQueryParameter parameter = parameter(context);
+    ForwardingIterator<Integer> iterator =
+        new ForwardingIterator<>(parameter, forwarder(-1), 2, executor);
+    assertRecords(consume(iterator));
+    assertEquals(Integer.valueOf(0), parameter.getOffset());
+    assertEquals(1, parameter.getContext().size());
+    assertFalse(parameter.getContext().containsKey(QuerierConfig.CTX_KEY_CONTINUATION));
+    assertContinuations();
+  }
+
+  @Test
+  public void testPrefetchEarlyClose() throws Exception {
+    CountDownLatch fetched = new CountDownLatch(3);
+    ForwardingIterator<Integer> iterator = new ForwardingIterator<>(parameter(null), p -> {
+      fetched.countDown();
+      return forwarder(-1).apply(p);
+    }, 1, executor);
+    assertTrue(iterator.hasNext());
+    assertEquals(Integer.valueOf(0), iterator.next());
+    // the first batch is consumed, the second is buffered and the third waits to be handed over
+    assertTrue(fetched.await(5, TimeUnit.SECONDS));
+    iterator.close();
+    assertFalse(iterator.hasNext());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(offsets.size() <= 4);
+  }
+
+  @Test
+  public void testPrefetchFailure() {
+    ForwardingIterator<Integer> iterator =
+        new ForwardingIterator<>(parameter(null), forwarder(30), 2, executor);
+    List<Integer> records = new ArrayList<>();
+    try {
+      while (iterator.hasNext()) {
+        records.add(iterator.next());
+      }
+      fail();
+    } catch (QueryRuntimeException e) {
+      assertEquals("Fetch 30 failed", e.getMessage());
+    }
+    assertEquals(30, records.size());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  void assertContinuations() {
+    assertEquals((ROWS + LIMIT - 1) / LIMIT, offsets.size());
+    for (int i = 0; i < offsets.size(); i++) {
+      assertEquals(Integer.valueOf(i * LIMIT), offsets.get(i));
+      assertEquals(i == 0 ? "" : "c" + offsets.get(i), continuations.get(i));
+    }
+  }
+
+  void assertRecords(List<Integer> records) {
+    assertEquals(ROWS, records.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(Integer.valueOf(i), records.get(i));
+    }
+  }
+
+  /**
+   * Returns a forwarder that fetches the records by offset and limit, the continuation token of
+   * each batch is the offset of the next batch, fails when fetching the given offset.
+   */
+  Function<StreamQueryParameter, Forwarding<Integer>> forwarder(int failOffset) {
+    return p -> {
+      int offset = p.getOffset();
+      if (offset == failOffset) {
+        throw new QueryRuntimeException("Fetch " + offset + " failed");
+      }
+      offsets.add(offset);
+      Object continuation = p.getContext().get(QuerierConfig.CTX_KEY_CONTINUATION);
+      continuations.add(continuation == null ? "" : continuation);
+      List<Integer> results = new ArrayList<>();
+      for (int i = offset; i < Math.min(offset + p.getLimit(), ROWS); i++) {
+        results.add(i);
+      }
+      boolean hasNext = offset + p.getLimit() < ROWS;
+      return Forwarding.of(results, hasNext)
+          .withContinuation(hasNext ? "c" + (offset + p.getLimit()) : null);
+    };
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared.dynamic.freemarker;
+
+import static java.util.Collections.emptyMap;
+import static org.corant.shared.util.Lists.listOf;
+import static org.corant.shared.util.Maps.mapOf;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.corant.modules.query.QuerierConfig;
+import org.corant.modules.query.QueryHandler;
+import org.corant.modules.query.QueryParameter;
+import org.corant.modules.query.QueryParameter.DefaultQueryParameter;
+import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.mapping.Script;
+import org.corant.modules.query.mapping.Script.ScriptType;
+import org.corant.modules.query.shared.dynamic.DynamicQuerier;
+import org.corant.shared.ubiquity.Tuple.Triple;
+import org.junit.Test;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateModelException;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-shared
+ *
+ * @author bingo 下午3:18:26
+ *
+ */
+public class FreemarkerDynamicQuerierBuilderTest extends TestCase {
+
+  static final String SCRIPT = "SELECT * FROM T WHERE 1=1<#if a??> AND A = ${TM(a)}</#if>"
+      + "<#if b??> AND B IN (${TM(b)})</#if>";
+
+  static Query query(String script, int cacheSize) {
+    Script s = new Script() {
+      private static final long serialVersionUID = 1L;
+      {
+        setCode(script);
+        setType(ScriptType.FM);
+      }
+    };
+    Map<String, String> properties = new HashMap<>();
+    properties.put(QuerierConfig.PRO_KEY_RENDERING_CACHE, "true");
+    properties.put(QuerierConfig.PRO_KEY_RENDERING_CACHE_SIZE, String.valueOf(cacheSize));
+    return new Query("test", Map.class, null, false, false, null, s, null, null, null, emptyMap(),
+        properties, null, null);
+  }
+
+  static Triple<QueryParameter, Object[], String> execute(TestBuilder builder, Object... criteria) {
+    return builder.execute(new DefaultQueryParameter().criteria(mapOf(criteria)));
+  }
+
+  @Test
+  public void testLruEviction() {
+    TestBuilder builder = new TestBuilder(query(SCRIPT, 2));
+    execute(builder, "a", 1); // miss, cache [a]
+    execute(builder, "b", 1); // miss, cache [a, b]
+    execute(builder, "a", 2); // hit, cache [b, a]
+    execute(builder, "a", 3, "b", 3); // miss, evicts b, cache [a, ab]
+    assertEquals(1, builder.getRenderingCacheHits());
+    assertEquals(3, builder.getRenderingCacheMisses());
+    assertEquals(2, builder.renderingCache.size());
+    Triple<QueryParameter, Object[], String> result = execute(builder, "a", 4);
+    assertEquals(2, builder.getRenderingCacheHits());
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ?", result.getRight().trim());
+    assertEquals(listOf(4), listOf(result.getMiddle()));
+    // the evicted shape is rendered again and evicts the least recently used shape ab
+    result = execute(builder, "b", 5);
+    assertEquals(4, builder.getRenderingCacheMisses());
+    assertEquals("SELECT * FROM T WHERE 1=1 AND B IN (?)", result.getRight().trim());
+    assertEquals(listOf(5), listOf(result.getMiddle()));
+    assertEquals(2, builder.renderingCache.size());
+    execute(builder, "b", 6);
+    execute(builder, "a", 6);
+    assertEquals(4, builder.getRenderingCacheHits());
+    execute(builder, "a", 7, "b", 7);
+    assertEquals(5, builder.getRenderingCacheMisses());
+  }
+
+  @Test
+  public void testNonCacheableShape() {
+    TestBuilder builder =
+        new TestBuilder(query("SELECT * FROM T WHERE A = ${TM(a)} AND B = '${b}'", 8));
+    Triple<QueryParameter, Object[], String> result = execute(builder, "a", 1, "b", "x");
+    assertEquals("SELECT * FROM T WHERE A = ? AND B = 'x'", result.getRight().trim());
+    // the criteria b is interpolated, the shape is always rendered
+    result = execute(builder, "a", 2, "b", "y");
+    assertEquals("SELECT * FROM T WHERE A = ? AND B = 'y'", result.getRight().trim());
+    assertEquals(listOf(2), listOf(result.getMiddle()));
+    assertEquals(0, builder.getRenderingCacheHits());
+    assertEquals(2, builder.getRenderingCacheMisses());
+  }
+
+  @Test
+  public void testShapeCache() {
+    TestBuilder builder = new TestBuilder(query(SCRIPT, 8));
+    Triple<QueryParameter, Object[], String> result = execute(builder, "a", 1);
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ?", result.getRight().trim());
+    assertEquals(listOf(1), listOf(result.getMiddle()));
+    result = execute(builder, "a", 2);
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ?", result.getRight().trim());
+    assertEquals(listOf(2), listOf(result.getMiddle()));
+    assertEquals(1, builder.getRenderingCacheHits());
+    // the sizes of the collection criteria are part of the shape
+    result = execute(builder, "a", 1, "b", listOf(1, 2));
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ? AND B IN (?,?)", result.getRight().trim());
+    result = execute(builder, "a", 3, "b", listOf(4, 5));
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ? AND B IN (?,?)", result.getRight().trim());
+    assertEquals(listOf(3, 4, 5), listOf(result.getMiddle()));
+    assertEquals(2, builder.getRenderingCacheHits());
+    result = execute(builder, "a", 3, "b", listOf(4, 5, 6));
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ? AND B IN (?,?,?)", result.getRight().trim());
+    assertEquals(listOf(3, 4, 5, 6), listOf(result.getMiddle()));
+    // the null criteria are not part of the shape
+    result = execute(builder, "a", 7, "b", null);
+    assertEquals("SELECT * FROM T WHERE 1=1 AND A = ?", result.getRight().trim());
+    assertEquals(listOf(7), listOf(result.getMiddle()));
+    assertEquals(3, builder.getRenderingCacheHits());
+    assertEquals(3, builder.getRenderingCacheMisses());
+  }
+
+  static class TestBuilder
+      extends FreemarkerDynamicQuerierBuilder<Object[], String, DynamicQuerier<Object[], String>> {
+
+    TestBuilder(Query query) {
+      super(query, (QueryHandler) Proxy.newProxyInstance(QueryHandler.class.getClassLoader(),
+          new Class<?>[] {QueryHandler.class}, (p, m, args) -> {
+            throw new UnsupportedOperationException(m.getName());
+          }), null);
+    }
+
+    @Override
+    protected DynamicQuerier<Object[], String> build(
+        Triple<QueryParameter, Object[], String> processed) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected DynamicTemplateMethodModelEx<Object[]> getTemplateMethodModelEx() {
+      return new TestTemplateMethodModelEx();
+    }
+  }
+
+  static class TestTemplateMethodModelEx extends AbstractTemplateMethodModelEx<Object[]> {
+    final List<Object> parameters = new ArrayList<>();
+
+    @SuppressWarnings({"rawtypes"})
+    @Override
+    public Object exec(List arguments) throws TemplateModelException {
+      Object arg = getParamValue(arguments);
+      if (arg instanceof List) {
+        List<?> argList = (List<?>) arg;
+        String[] placeHolders = new String[argList.size()];
+        for (int i = 0; i < placeHolders.length; i++) {
+          parameters.add(argList.get(i));
+          placeHolders[i] = "?";
+        }
+        return new SimpleScalar(String.join(",", placeHolders));
+      }
+      parameters.add(arg);
+      return new SimpleScalar("?");
+    }
+
+    @Override
+    public Object[] getParameters() {
+      return parameters.toArray();
+    }
+  }
+}
@@ -13,32 +13,53 @@
  */
 package org.corant.modules.query.sql;
 
+import static org.corant.modules.query.QueryParameter.CTX_QHH_DONT_CONVERT_RESULT;
+import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.sizeOf;
+import static org.corant.shared.util.Maps.getMapBoolean;
 import static org.corant.shared.util.Maps.getMapInteger;
+import static org.corant.shared.util.Maps.getMapString;
+import static org.corant.shared.util.Objects.forceCast;
 import static org.corant.shared.util.Objects.max;
+import static org.corant.shared.util.Primitives.isSimpleClass;
 import static org.corant.shared.util.Streams.batchStream;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import org.corant.modules.query.Querier;
+import org.corant.modules.query.QuerierConfig;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.StreamQueryParameter;
 import org.corant.modules.query.mapping.FetchQuery;
+import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.shared.AbstractNamedQuerierResolver;
 import org.corant.modules.query.shared.AbstractNamedQueryService;
 import org.corant.modules.query.sql.dialect.Dialect;
+import org.corant.modules.query.sql.dialect.Keyset;
+import org.corant.modules.query.sql.dialect.Keyset.KeysetCount;
+import org.corant.shared.ubiquity.Tuple.Pair;
 
 /**
  * corant-modules-query-sql
  *
+ * <p>
+ * If the query property {@link #PRO_KEY_DIRECT_ROW_MAPPING} is true and the query result class is
+ * a bean class and the query has neither fetch queries nor result hints, the select and paging
+ * query results are mapped directly from the result set to the bean instances without the
+ * intermediate row map stage.
+ *
  * @author bingo 下午5:33:21
  *
  */
 public abstract class AbstractSqlNamedQueryService extends AbstractNamedQueryService {
 
+  public static final String PRO_KEY_DIRECT_ROW_MAPPING = ".direct-row-mapping";
+
   @Override
   public FetchedResult fetch(Object result, FetchQuery fetchQuery, Querier parentQuerier) {
     try {
@@ -81,6 +102,10 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
       useQueryParam = new StreamQueryParameter(queryParam);
     }
     useQueryParam.limit(max(querier.resolveStreamLimit(), 1));
+    if (useQueryParam.getPrefetchDepth() <= 0) {
+      useQueryParam.prefetchDepth(
+          querier.resolveProperty(QuerierConfig.PRO_KEY_STREAM_PREFETCH_DEPTH, Integer.class, 0));
+    }
     if (useQueryParam.getOffset() > 0 || useQueryParam.needRetry()
         || useQueryParam.getEnhancer() != null) {
       return doStream(queryName, useQueryParam);
@@ -99,9 +124,25 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The batch size is limited by the {@link Dialect#getMaxInListSize()}.
+   */
+  @Override
+  public int resolveFetchBatchSize(FetchQuery fetchQuery) {
+    int batchSize = fetchQuery.getBatchSize();
+    int maxInListSize = getDialect().getMaxInListSize();
+    return maxInListSize > 0 && batchSize > maxInListSize ? maxInListSize : batchSize;
+  }
+
   @Override
   protected <T> Forwarding<T> doForward(String queryName, Object parameter) throws SQLException {
     SqlNamedQuerier querier = getQuerierResolver().resolve(queryName, parameter);
+    Keyset keyset = Keyset.of(querier.getQuery());
+    if (keyset != null) {
+      return doKeysetForward(queryName, querier, keyset);
+    }
     Object[] scriptParameter = querier.getScriptParameter();
     String sql = querier.getScript();
     int offset = querier.resolveOffset();
@@ -137,9 +178,111 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
 
   }
 
+  /**
+   * Keyset (seek) forward query, the continuation token of the previous result set is retrieved
+   * from the query parameter context with the key {@link QuerierConfig#CTX_KEY_CONTINUATION}, the
+   * offset is ignored.
+   *
+   * @param <T> the result record type
+   * @param queryName the query name
+   * @param querier the resolved querier
+   * @param keyset the keyset declaration of the query
+   * @throws SQLException if a database access error occurs
+   */
+  protected <T> Forwarding<T> doKeysetForward(String queryName, SqlNamedQuerier querier,
+      Keyset keyset) throws SQLException {
+    int limit = querier.resolveLimit();
+    Pair<List<Map<String, Object>>, String> fetched = doKeysetSelect(queryName, querier, keyset,
+        limit + 1, querier.getScript(), querier.getQuery().getProperties());
+    List<Map<String, Object>> list = fetched.left();
+    Forwarding<T> result = Forwarding.inst();
+    int size = sizeOf(list);
+    if (size > 0) {
+      if (size > limit) {
+        list.remove(limit);
+        result.withHasNext(true);
+      }
+      result.withContinuation(keyset.encode(list.get(list.size() - 1)));
+      handleFetching(list, querier);
+    } else {
+      result.withContinuation(fetched.right());
+    }
+    return result.withResults(querier.handleResults(list));
+  }
+
+  /**
+   * Keyset (seek) paging query, the continuation token of the previous page is retrieved from the
+   * query parameter context with the key {@link QuerierConfig#CTX_KEY_CONTINUATION}, the offset is
+   * ignored. The total number of records is counted according to the query property
+   * {@link Keyset#PRO_KEY_KEYSET_COUNT}, default is not counted.
+   *
+   * @param <T> the result record type
+   * @param queryName the query name
+   * @param querier the resolved querier
+   * @param keyset the keyset declaration of the query
+   * @throws SQLException if a database access error occurs
+   *
+   * @see KeysetCount
+   */
+  protected <T> Paging<T> doKeysetPage(String queryName, SqlNamedQuerier querier, Keyset keyset)
+      throws SQLException {
+    int limit = querier.resolveLimit();
+    String sql = querier.getScript();
+    Map<String, String> properties = querier.getQuery().getProperties();
+    Pair<List<Map<String, Object>>, String> fetched =
+        doKeysetSelect(queryName, querier, keyset, limit, sql, properties);
+    List<Map<String, Object>> list = fetched.left();
+    Paging<T> result = Paging.of(0, limit);
+    KeysetCount count = KeysetCount.of(querier.resolveProperty(Keyset.PRO_KEY_KEYSET_COUNT,
+        String.class, null));
+    String countSql = null;
+    if (count == KeysetCount.EXACT) {
+      countSql = getDialect().getCountSql(sql, properties);
+    } else if (count == KeysetCount.APPROXIMATE) {
+      countSql = getDialect().getApproximateCountSql(sql, properties);
+    }
+    if (countSql != null) {
+      Object[] countParameter =
+          count == KeysetCount.EXACT ? querier.getScriptParameter() : new Object[0];
+      log(queryName + " -> total", countParameter, countSql);
+      result.withTotal(getMapInteger(
+          getExecutor().get(countSql, querier.resolveTimeout(), countParameter),
+          Dialect.COUNT_FIELD_NAME));
+    }
+    if (sizeOf(list) > 0) {
+      result.withContinuation(keyset.encode(list.get(list.size() - 1)));
+      handleFetching(list, querier);
+    } else {
+      result.withContinuation(fetched.right());
+    }
+    return result.withResults(querier.handleResults(list));
+  }
+
+  /**
+   * Execute the keyset (seek) query, returns the result records and the continuation token that
+   * used in this query.
+   */
+  protected Pair<List<Map<String, Object>>, String> doKeysetSelect(String queryName,
+      SqlNamedQuerier querier, Keyset keyset, int limit, String sql,
+      Map<String, String> properties) throws SQLException {
+    String continuation = getMapString(querier.getQueryParameter().getContext(),
+        QuerierConfig.CTX_KEY_CONTINUATION);
+    List<Object> parameters = new ArrayList<>(Arrays.asList(querier.getScriptParameter()));
+    String keysetSql = getDialect().getKeysetSql(sql, keyset, keyset.decode(continuation), limit,
+        parameters, properties);
+    Object[] keysetParameter = parameters.toArray();
+    log(queryName, keysetParameter, sql, "Keyset script: " + keysetSql);
+    return Pair.of(getExecutor().select(keysetSql, querier.resolveTimeout(), keysetParameter),
+        continuation);
+  }
+
   @Override
   protected <T> Paging<T> doPage(String queryName, Object parameter) throws SQLException {
     SqlNamedQuerier querier = getQuerierResolver().resolve(queryName, parameter);
+    Keyset keyset = Keyset.of(querier.getQuery());
+    if (keyset != null) {
+      return doKeysetPage(queryName, querier, keyset);
+    }
     Object[] scriptParameter = querier.getScriptParameter();
     String sql = querier.getScript();
     int offset = querier.resolveOffset();
@@ -148,7 +291,11 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     Map<String, String> properties = querier.getQuery().getProperties();
     String limitSql = getDialect().getLimitSql(sql, offset, limit, properties);
     log(queryName, scriptParameter, sql, "Limit script: " + limitSql);
-    List<Map<String, Object>> list = getExecutor().select(limitSql, timeout, scriptParameter);
+    final boolean direct = isDirectRowMapping(querier);
+    List<?> list = direct
+        ? getExecutor().select(limitSql, querier.getQuery().getResultClass(), 0, timeout,
+            scriptParameter)
+        : getExecutor().select(limitSql, timeout, scriptParameter);
     Paging<T> result = Paging.of(offset, limit);
     int size = sizeOf(list);
     if (size > 0) {
@@ -160,7 +307,10 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
         result.withTotal(getMapInteger(getExecutor().get(totalSql, timeout, scriptParameter),
             Dialect.COUNT_FIELD_NAME));
       }
-      handleFetching(list, querier);
+      if (direct) {
+        return result.withResults(forceCast(list));
+      }
+      handleFetching(forceCast(list), querier);
     }
     return result.withResults(querier.handleResults(list));
   }
@@ -174,6 +324,12 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     Duration timeout = querier.resolveTimeout();
     // sql = getDialect().getLimitSql(sql, maxSelectSize + 1);
     log(queryName, scriptParameter, sql);
+    if (isDirectRowMapping(querier)) {
+      List<T> results = getExecutor().select(sql, forceCast(querier.getQuery().getResultClass()),
+          maxSelectSize + 1, timeout, scriptParameter);
+      querier.handleResultSize(results);
+      return results;
+    }
     List<Map<String, Object>> results =
         getExecutor().select(sql, maxSelectSize + 1, timeout, scriptParameter);
     if (querier.handleResultSize(results) > 0) {
@@ -191,4 +347,22 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
   @Override
   protected abstract AbstractNamedQuerierResolver<SqlNamedQuerier> getQuerierResolver();
 
+  /**
+   * Returns whether the query results can be mapped directly from the result set to the result
+   * class instances, the fetch queries and the result hints need the row maps so the queries with
+   * them are excluded.
+   *
+   * @param querier the resolved querier
+   */
+  protected boolean isDirectRowMapping(SqlNamedQuerier querier) {
+    Query query = querier.getQuery();
+    Class<?> resultClass = query.getResultClass();
+    return resultClass != null && !Map.class.isAssignableFrom(resultClass)
+        && !isSimpleClass(resultClass) && isEmpty(query.getFetchQueries())
+        && isEmpty(query.getHints())
+        && !getMapBoolean(querier.getQueryParameter().getContext(), CTX_QHH_DONT_CONVERT_RESULT,
+            false)
+        && querier.resolveProperty(PRO_KEY_DIRECT_ROW_MAPPING, Boolean.class, Boolean.FALSE);
+  }
+
 }
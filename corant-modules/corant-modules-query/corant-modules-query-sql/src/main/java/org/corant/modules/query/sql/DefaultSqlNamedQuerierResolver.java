@@ -52,7 +52,7 @@ public class DefaultSqlNamedQuerierResolver extends AbstractNamedQuerierResolver
   @ConfigProperty(name = "corant.query.sql.mapping-file.paths")
   protected Optional<String> mappingFilePaths;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.initializeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
     clearBuilders();
@@ -24,9 +24,12 @@ import java.util.stream.Stream;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.handlers.MapHandler;
 import org.apache.commons.dbutils.handlers.MapListHandler;
 import org.corant.modules.datasource.shared.util.DbUtilBasicRowProcessor;
+import org.corant.modules.datasource.shared.util.DbUtilBeanRowMapper;
+import org.corant.modules.datasource.shared.util.DbUtilCompactRowProcessor;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.sql.dialect.Dialect;
 import org.corant.shared.exception.CorantRuntimeException;
@@ -42,15 +45,26 @@ public class DefaultSqlQueryExecutor implements SqlQueryExecutor {
   public static final MapHandler MAP_HANDLER = new MapHandler(DbUtilBasicRowProcessor.INST);
   public static final MapListHandler MAP_LIST_HANDLER =
       new MapListHandler(DbUtilBasicRowProcessor.INST);
+  public static final MapHandler COMPACT_MAP_HANDLER =
+      new MapHandler(DbUtilCompactRowProcessor.INST);
 
   protected final SqlQueryConfiguration confiuration;
   protected final DefaultQueryRunner runner;
   protected final Dialect dialect;
+  protected final ResultSetHandler<Map<String, Object>> mapHandler;
+  protected final ResultSetHandler<List<Map<String, Object>>> mapListHandler;
 
   public DefaultSqlQueryExecutor(SqlQueryConfiguration confiuration) {
     this.confiuration = confiuration;
     runner = new DefaultQueryRunner(confiuration);
     dialect = confiuration.getDialect();
+    if (confiuration.isCompactRowMap()) {
+      mapHandler = COMPACT_MAP_HANDLER;
+      mapListHandler = DbUtilCompactRowProcessor.mapListHandler();
+    } else {
+      mapHandler = MAP_HANDLER;
+      mapListHandler = MAP_LIST_HANDLER;
+    }
   }
 
   public static DefaultSqlQueryExecutor of(DataSource ds) {
@@ -76,9 +90,9 @@ public class DefaultSqlQueryExecutor implements SqlQueryExecutor {
   public Map<String, Object> get(String sql, Duration timeout, Object... args) throws SQLException {
     Object result;
     if (args.length > 0) {
-      result = getRunner().select(sql, MAP_HANDLER, 1, timeout, args);
+      result = getRunner().select(sql, mapHandler, 1, timeout, args);
     } else {
-      result = getRunner().select(sql, MAP_HANDLER, 1, timeout);
+      result = getRunner().select(sql, mapHandler, 1, timeout);
     }
     return forceCast(result);
   }
@@ -93,20 +107,32 @@ public class DefaultSqlQueryExecutor implements SqlQueryExecutor {
       Object... args) throws SQLException {
     Object result;
     if (args.length > 0) {
-      result = getRunner().select(sql, MAP_LIST_HANDLER, expectRows, timeout, args);
+      result = getRunner().select(sql, mapListHandler, expectRows, timeout, args);
     } else {
-      result = getRunner().select(sql, MAP_LIST_HANDLER, expectRows, timeout);
+      result = getRunner().select(sql, mapListHandler, expectRows, timeout);
     }
     return forceCast(result);
   }
 
+  @Override
+  public <T> List<T> select(String sql, Class<T> beanClass, int expectRows, Duration timeout,
+      Object... args) throws SQLException {
+    ResultSetHandler<List<T>> handler = DbUtilBeanRowMapper.of(beanClass).listHandler();
+    if (args.length > 0) {
+      return getRunner().select(sql, handler, expectRows, timeout, args);
+    }
+    return getRunner().select(sql, handler, expectRows, timeout);
+  }
+
   @Override
   public Stream<Map<String, Object>> stream(String sql, BiPredicate<Integer, Object> terminater,
       Duration timeout, boolean autoClose, Object... args) {
     try {
       return new StreamableQueryRunner(confiuration, timeout).streamQuery(
-          confiuration.getDataSource().getConnection(), true, sql, MAP_HANDLER, terminater,
-          autoClose, args);
+          confiuration.getDataSource().getConnection(), true, sql,
+          confiuration.isCompactRowMap() ? DbUtilCompactRowProcessor.streamMapHandler()
+              : MAP_HANDLER,
+          terminater, autoClose, args);
     } catch (SQLException e) {
       throw new CorantRuntimeException(e);
     }
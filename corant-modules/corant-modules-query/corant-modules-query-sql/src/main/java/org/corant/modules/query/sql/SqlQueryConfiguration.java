@@ -77,6 +77,16 @@ public interface SqlQueryConfiguration {
     return null;
   }
 
+  /**
+   * Returns whether to materialize the result rows into compact maps that share the column schema
+   * of the result set.
+   *
+   * @see org.corant.modules.datasource.shared.util.DbUtilCompactRowProcessor
+   */
+  default boolean isCompactRowMap() {
+    return false;
+  }
+
   /*************************** Statement Construction Parameters ********************************/
   default Integer getResultSetConcurrency() {
     return null;
@@ -107,6 +117,11 @@ public interface SqlQueryConfiguration {
       return cfg;
     }
 
+    public Builder compactRowMap(boolean compactRowMap) {
+      cfg.compactRowMap = compactRowMap;
+      return this;
+    }
+
     public Builder dataSource(DataSource dataSource) {
       cfg.dataSource = dataSource;
       return this;
@@ -179,6 +194,7 @@ public interface SqlQueryConfiguration {
     protected Integer resultSetType;
     protected Integer resultSetConcurrency;
     protected Integer resultSetHoldability;
+    protected boolean compactRowMap;
 
     @Override
     public DataSource getDataSource() {
@@ -232,5 +248,10 @@ public interface SqlQueryConfiguration {
       return resultSetType;
     }
 
+    @Override
+    public boolean isCompactRowMap() {
+      return compactRowMap;
+    }
+
   }
 }
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.function.BiPredicate;
 import java.util.stream.Stream;
 import org.corant.modules.query.sql.dialect.Dialect;
+import org.corant.shared.exception.NotSupportedException;
 
 /**
  * corant-modules-query-sql
@@ -41,6 +42,23 @@ public interface SqlQueryExecutor {
   List<Map<String, Object>> select(String sql, int expectRows, Duration timeout, Object... args)
       throws SQLException;
 
+  /**
+   * Select and map the rows directly to the instances of the given bean class without the
+   * intermediate row map stage, the default implementation is not supported.
+   *
+   * @param <T> the bean type
+   * @param sql the query script
+   * @param beanClass the bean class
+   * @param expectRows the expected number of rows
+   * @param timeout the query timeout
+   * @param args the query script parameters
+   * @throws SQLException if a database access error occurs
+   */
+  default <T> List<T> select(String sql, Class<T> beanClass, int expectRows, Duration timeout,
+      Object... args) throws SQLException {
+    throw new NotSupportedException();
+  }
+
   Stream<Map<String, Object>> stream(String sql, BiPredicate<Integer, Object> terminater,
       Duration timeout, boolean autoClose, Object... args);
 
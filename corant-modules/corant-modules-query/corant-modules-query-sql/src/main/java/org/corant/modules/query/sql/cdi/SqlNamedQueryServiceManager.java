@@ -83,6 +83,10 @@ public class SqlNamedQueryServiceManager implements NamedQueryServiceManager {
   @ConfigProperty(name = "corant.query.sql.max-field-size", defaultValue = "0")
   protected Integer maxFieldSize;
 
+  @Inject
+  @ConfigProperty(name = "corant.query.sql.compact-row-map", defaultValue = "false")
+  protected Boolean compactRowMap;
+
   @Inject
   @ConfigProperty(name = "corant.query.sql.default-qualifier-value")
   protected Optional<String> defaultQualifierValue;
@@ -189,7 +193,7 @@ public class SqlNamedQueryServiceManager implements NamedQueryServiceManager {
               "Can't build default sql named query, the data source named %s not found.",
               dataSourceName))
           .dialect(Dialects.resolve(dbms)).fetchSize(manager.fetchSize)
-          .maxFieldSize(manager.maxFieldSize);
+          .maxFieldSize(manager.maxFieldSize).compactRowMap(manager.compactRowMap);
       // DON'T CONFIGURE MAX ROWS AND TIME OUT, USE QUERIER since 1.6.2
       /*
        * .maxRows(manager.maxRows).queryTimeout(manager.timeout.orElseGet(() -> { Duration d =
@@ -68,6 +68,11 @@ public class DB2Dialect implements Dialect {
     return true;
   }
 
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
   private String getRowNumber(String sql) {
     StringBuilder rownumber = new StringBuilder(50).append("ROWNUMBER() OVER(");
     String orderBy = SqlHelper.getOrderBy(sql);
@@ -13,6 +13,7 @@
  */
 package org.corant.modules.query.sql.dialect;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,6 +26,18 @@ public class DerbyDialect implements Dialect {
 
   public static final Dialect INSTANCE = new DerbyDialect();
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Use the FETCH FIRST clause that supported since Derby 10.5 to limit the keyset query.
+   */
+  @Override
+  public String getKeysetSql(String sql, Keyset keyset, Object[] lastKeys, int limit,
+      List<Object> parameters, Map<String, ?> hints) {
+    return getKeysetQuerySql(sql, keyset, lastKeys, parameters) + " FETCH FIRST " + limit
+        + " ROWS ONLY";
+  }
+
   @Override
   public String getLimitSql(String sql, int offset, int limit, Map<String, ?> hints) {
     throw new UnsupportedOperationException("The database Derby limit script not supported");
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import org.corant.modules.datasource.shared.SqlStatements;
 import org.corant.modules.query.shared.dynamic.SqlHelper;
+import org.corant.modules.query.sql.dialect.Keyset.KeysetColumn;
 
 /**
  * corant-modules-query-sql
@@ -39,6 +40,20 @@ public interface Dialect {
     return AGGREGATE_FUNCTIONS;
   }
 
+  /**
+   * Returns the SQL statement use to retrieve the approximate number of records from the database
+   * statistics, the table name is specified by the hint {@link Keyset#PRO_KEY_KEYSET_COUNT_TABLE}.
+   * Returns null if the underlying database doesn't support it or the table name is not specified,
+   * default is null.
+   *
+   * @param sql the query SQL statement
+   * @param hints the hints use to improve the execution process
+   * @return the approximate count SQL statement or null
+   */
+  default String getApproximateCountSql(String sql, Map<String, ?> hints) {
+    return null;
+  }
+
   /**
    * Convert SQL statement to Count SQL statement, optimized statements can be reorganized by
    * CCJSqlParserUtil parsing.
@@ -73,6 +88,104 @@ public interface Dialect {
         .append(COUNT_TEMP_TABLE_NAME).toString();
   }
 
+  /**
+   * Returns the maximum number of expressions in an IN-list that the underlying database supports,
+   * used to limit the batch size of the batched fetch queries. Less than 1 means unlimited, default
+   * is unlimited.
+   *
+   * @return getMaxInListSize
+   */
+  default int getMaxInListSize() {
+    return -1;
+  }
+
+  /**
+   * Convert SQL statement to keyset (seek) paging SQL, the keyset query statement is limited by
+   * {@link #getLimitSql(String, int, int, Map)}.
+   *
+   * @param sql to convert SQL
+   * @param keyset the keyset declaration
+   * @param lastKeys the keyset column values of the last record of the previous result set, null
+   *        means the first result set
+   * @param limit the fetched size
+   * @param parameters the parameters of the SQL statement, the predicate parameters will be
+   *        appended to it
+   * @param hints the hints use to improve the execution process
+   * @return keyset paging SQL statement
+   *
+   * @see #getKeysetQuerySql(String, Keyset, Object[], List)
+   */
+  default String getKeysetSql(String sql, Keyset keyset, Object[] lastKeys, int limit,
+      List<Object> parameters, Map<String, ?> hints) {
+    return getLimitSql(getKeysetQuerySql(sql, keyset, lastKeys, parameters), 0, limit, hints);
+  }
+
+  /**
+   * Convert SQL statement to keyset (seek) query SQL without limitation, the original SQL statement
+   * is wrapped as a derived table, the ordering of the original SQL statement is replaced with the
+   * ordering of the keyset columns. If the given last keys is not null, the seek predicate is
+   * appended and the parameters of the predicate are appended to the given parameters.
+   *
+   * @param sql to convert SQL
+   * @param keyset the keyset declaration
+   * @param lastKeys the keyset column values of the last record of the previous result set, null
+   *        means the first result set
+   * @param parameters the parameters of the SQL statement, the predicate parameters will be
+   *        appended to it
+   * @return keyset query SQL statement
+   */
+  default String getKeysetQuerySql(String sql, Keyset keyset, Object[] lastKeys,
+      List<Object> parameters) {
+    StringBuilder sb = new StringBuilder(sql.length() + 128).append("SELECT * FROM ( ")
+        .append(getNonOrderByPart(sql)).append(" ) ").append(Keyset.KEYSET_TEMP_TABLE_NAME);
+    if (lastKeys != null) {
+      sb.append(" WHERE ").append(getKeysetPredicate(keyset, lastKeys, parameters));
+    }
+    return sb.append(" ORDER BY ").append(keyset.getOrderBy()).toString();
+  }
+
+  /**
+   * Returns the seek predicate of the keyset columns. If the underlying database supports the row
+   * value comparison and all keyset columns have the same ordering direction, the row value
+   * comparison is used, for example {@code (a, b) > (?, ?)}; otherwise the expanded OR predicate is
+   * used, for example {@code (a > ?) OR (a = ? AND b < ?)}.
+   *
+   * @param keyset the keyset declaration
+   * @param lastKeys the keyset column values of the last record of the previous result set
+   * @param parameters the parameters of the SQL statement, the predicate parameters will be
+   *        appended to it
+   * @return the seek predicate
+   */
+  default String getKeysetPredicate(Keyset keyset, Object[] lastKeys, List<Object> parameters) {
+    final List<KeysetColumn> columns = keyset.getColumns();
+    final int size = columns.size();
+    final String alias = Keyset.KEYSET_TEMP_TABLE_NAME + ".";
+    StringBuilder sb = new StringBuilder();
+    if (size > 1 && keyset.isUniformDirection() && supportsRowValueComparison()) {
+      sb.append('(');
+      for (int i = 0; i < size; i++) {
+        sb.append(i > 0 ? ", " : "").append(alias).append(columns.get(i).getName());
+        parameters.add(lastKeys[i]);
+      }
+      sb.append(columns.get(0).isDescending() ? ") < (" : ") > (");
+      for (int i = 0; i < size; i++) {
+        sb.append(i > 0 ? ", ?" : "?");
+      }
+      return sb.append(')').toString();
+    }
+    for (int i = 0; i < size; i++) {
+      sb.append(i > 0 ? " OR (" : "(");
+      for (int j = 0; j < i; j++) {
+        sb.append(alias).append(columns.get(j).getName()).append(" = ? AND ");
+        parameters.add(lastKeys[j]);
+      }
+      KeysetColumn column = columns.get(i);
+      sb.append(alias).append(column.getName()).append(column.isDescending() ? " < ?)" : " > ?)");
+      parameters.add(lastKeys[i]);
+    }
+    return size > 1 ? "(" + sb + ")" : sb.toString();
+  }
+
   /**
    * Convert SQL statement to Paging SQL
    *
@@ -107,4 +220,14 @@ public interface Dialect {
    */
   boolean supportsLimit();
 
+  /**
+   * Return whether the underling database supports the row value comparison, for example
+   * {@code (a, b) > (?, ?)}, default is false.
+   *
+   * @return supportsRowValueComparison
+   */
+  default boolean supportsRowValueComparison() {
+    return false;
+  }
+
 }
@@ -13,6 +13,7 @@
  */
 package org.corant.modules.query.sql.dialect;
 
+import java.util.Locale;
 import java.util.Map;
 import org.corant.modules.query.shared.dynamic.SqlHelper;
 
@@ -26,6 +27,22 @@ public class H2Dialect implements Dialect {
 
   public static final Dialect INSTANCE = new H2Dialect();
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Use the estimated number of rows of the table from the information schema.
+   */
+  @Override
+  public String getApproximateCountSql(String sql, Map<String, ?> hints) {
+    String table = Keyset.resolveCountTable(hints);
+    if (table == null) {
+      return null;
+    }
+    return "SELECT ROW_COUNT_ESTIMATE AS " + COUNT_FIELD_NAME
+        + " FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = '"
+        + table.toUpperCase(Locale.ENGLISH) + "'";
+  }
+
   @Override
   public String getLimitSql(String sql, int offset, int limit, Map<String, ?> hints) {
     return getLimitString(sql, offset, Integer.toString(offset), Integer.toString(limit), hints);
@@ -49,6 +66,11 @@ public class H2Dialect implements Dialect {
     return true;
   }
 
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
   /**
    * <pre>
    * dialect.getLimitString("select * from user", 12, ":offset",0,":limit") will return
@@ -64,4 +64,9 @@ public class HSQLDialect implements Dialect {
     return true;
   }
 
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
 }
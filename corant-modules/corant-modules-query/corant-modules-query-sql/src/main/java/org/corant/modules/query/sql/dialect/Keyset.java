@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.sql.dialect;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.corant.shared.util.Strings.isBlank;
+import static org.corant.shared.util.Strings.split;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.mapping.Query;
+
+/**
+ * corant-modules-query-sql
+ *
+ * <p>
+ * The keyset (seek) pagination declaration of a query, consists of the ordering columns of the
+ * query result. The columns are declared in the query property {@link #PRO_KEY_KEYSET_COLUMNS}
+ * and separated by commas, each column may be followed by ASC or DESC, for example:
+ *
+ * <pre>
+ * &lt;properties&gt;
+ *   &lt;property name=".keyset-columns" value="created_time DESC, id DESC"/&gt;
+ * &lt;/properties&gt;
+ * </pre>
+ *
+ * The column names are the labels of the query result columns, the combination of the columns
+ * must be unique and not null. The values of the ordering columns of the last record are encoded
+ * into an opaque continuation token, which is used to seek the next result set. The parsed
+ * declarations are cached by the declaration text, so the query property is parsed once.
+ *
+ * @author bingo 下午3:02:41
+ *
+ */
+public class Keyset {
+
+  public static final String PRO_KEY_KEYSET_COLUMNS = ".keyset-columns";
+  public static final String PRO_KEY_KEYSET_COUNT = ".keyset-count";
+  public static final String PRO_KEY_KEYSET_COUNT_TABLE = ".keyset-count-table";
+  public static final String KEYSET_TEMP_TABLE_NAME = "keyset_";
+
+  protected static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z_][\\w$]*");
+  protected static final Map<String, Keyset> DECLARATIONS = new ConcurrentHashMap<>();
+
+  protected final List<KeysetColumn> columns;
+  protected final boolean uniformDirection;
+
+  protected Keyset(List<KeysetColumn> columns) {
+    this.columns = Collections.unmodifiableList(columns);
+    uniformDirection =
+        columns.stream().allMatch(c -> c.descending == columns.get(0).descending);
+  }
+
+  /**
+   * Returns the keyset declaration of the given query or null if the query doesn't declare the
+   * keyset columns.
+   *
+   * @param query the query
+   */
+  public static Keyset of(Query query) {
+    String declaration = query.getProperty(PRO_KEY_KEYSET_COLUMNS, String.class);
+    if (isBlank(declaration)) {
+      return null;
+    }
+    return DECLARATIONS.computeIfAbsent(declaration, d -> parse(query, d));
+  }
+
+  /**
+   * Parse the keyset columns declaration of the given query.
+   *
+   * @param query the query
+   * @param declaration the keyset columns declaration
+   */
+  protected static Keyset parse(Query query, String declaration) {
+    List<KeysetColumn> columns = new ArrayList<>();
+    for (String column : split(declaration, ",", true, true)) {
+      String[] parts = split(column, true, true, Character::isWhitespace);
+      if (parts.length == 1) {
+        columns.add(new KeysetColumn(parts[0], false));
+      } else if (parts.length == 2 && ("ASC".equalsIgnoreCase(parts[1])
+          || "DESC".equalsIgnoreCase(parts[1]))) {
+        columns.add(new KeysetColumn(parts[0], "DESC".equalsIgnoreCase(parts[1])));
+      } else {
+        throw new QueryRuntimeException("The query [%s] keyset column [%s] is illegal!",
+            query.getVersionedName(), column);
+      }
+    }
+    return new Keyset(columns);
+  }
+
+  /**
+   * Decode the continuation token to the ordering column values of the last record.
+   *
+   * @param token the continuation token
+   * @return the ordering column values or null if the token is blank
+   * @throws QueryRuntimeException if the token is invalid
+   */
+  public Object[] decode(String token) {
+    if (isBlank(token)) {
+      return null;
+    }
+    final String text;
+    try {
+      text = new String(Base64.getUrlDecoder().decode(token), UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new QueryRuntimeException(e, "The keyset continuation token is illegal!");
+    }
+    List<Object> values = new ArrayList<>(columns.size());
+    int pos = 0;
+    try {
+      while (pos < text.length()) {
+        char tag = text.charAt(pos);
+        int colon = text.indexOf(':', pos + 1);
+        if (colon < 0) {
+          throw new QueryRuntimeException("The keyset continuation token is illegal!");
+        }
+        int len = Integer.parseInt(text.substring(pos + 1, colon));
+        if (len < 0 || colon + 1 + len > text.length()) {
+          throw new QueryRuntimeException("The keyset continuation token is illegal!");
+        }
+        values.add(decodeValue(tag, text.substring(colon + 1, colon + 1 + len)));
+        pos = colon + 1 + len;
+      }
+    } catch (QueryRuntimeException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      // malformed numbers, dates or UUIDs in the client supplied token
+      throw new QueryRuntimeException(e, "The keyset continuation token is illegal!");
+    }
+    if (values.size() != columns.size()) {
+      throw new QueryRuntimeException(
+          "The keyset continuation token doesn't match the keyset columns!");
+    }
+    return values.toArray();
+  }
+
+  /**
+   * Encode the ordering column values of the given record to an opaque continuation token.
+   *
+   * @param record the last record of the result set
+   */
+  public String encode(Map<?, ?> record) {
+    StringBuilder sb = new StringBuilder();
+    for (KeysetColumn column : columns) {
+      Object value = record.get(column.name);
+      if (value == null) {
+        throw new QueryRuntimeException(
+            "The keyset column [%s] value can't be null or the column doesn't exist!",
+            column.name);
+      }
+      String text = encodeValue(value);
+      sb.append(text.charAt(0)).append(text.length() - 1).append(':').append(text, 1,
+          text.length());
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(UTF_8));
+  }
+
+  /**
+   * Returns the table name use to retrieve the approximate number of records from the given hints,
+   * returns null if the table name is not specified.
+   *
+   * @param hints the query hints
+   */
+  public static String resolveCountTable(Map<String, ?> hints) {
+    Object table = hints == null ? null : hints.get(PRO_KEY_KEYSET_COUNT_TABLE);
+    if (table == null || isBlank(table.toString())) {
+      return null;
+    }
+    String name = table.toString().trim();
+    if (!TABLE_NAME_PATTERN.matcher(name).matches()) {
+      throw new QueryRuntimeException("The keyset count table name [%s] is illegal!", name);
+    }
+    return name;
+  }
+
+  public List<KeysetColumn> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the order by clause of the keyset columns.
+   */
+  public String getOrderBy() {
+    StringBuilder sb = new StringBuilder();
+    for (KeysetColumn column : columns) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(KEYSET_TEMP_TABLE_NAME).append('.').append(column.name)
+          .append(column.descending ? " DESC" : " ASC");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns whether all keyset columns have the same ordering direction, in this case the row
+   * value comparison can be used.
+   */
+  public boolean isUniformDirection() {
+    return uniformDirection;
+  }
+
+  protected Object decodeValue(char tag, String text) {
+    switch (tag) {
+      case 'S':
+        return text;
+      case 'J':
+        return Long.valueOf(text);
+      case 'I':
+        return Integer.valueOf(text);
+      case 'H':
+        return Short.valueOf(text);
+      case 'D':
+        return new BigDecimal(text);
+      case 'B':
+        return new BigInteger(text);
+      case 'F':
+        return Double.valueOf(text);
+      case 'f':
+        return Float.valueOf(text);
+      case 'T':
+        return Timestamp.valueOf(text);
+      case 'd':
+        return Date.valueOf(text);
+      case 't':
+        return Time.valueOf(text);
+      case 'L':
+        return LocalDateTime.parse(text);
+      case 'l':
+        return LocalDate.parse(text);
+      case 'O':
+        return OffsetDateTime.parse(text);
+      case 'i':
+        return Instant.parse(text);
+      case 'U':
+        return UUID.fromString(text);
+      case 'Z':
+        return Boolean.valueOf(text);
+      default:
+        throw new QueryRuntimeException("The keyset continuation token is illegal!");
+    }
+  }
+
+  protected String encodeValue(Object value) {
+    if (value instanceof String) {
+      return "S" + value;
+    } else if (value instanceof Long) {
+      return "J" + value;
+    } else if (value instanceof Integer) {
+      return "I" + value;
+    } else if (value instanceof Short) {
+      return "H" + value;
+    } else if (value instanceof BigDecimal) {
+      return "D" + ((BigDecimal) value).toPlainString();
+    } else if (value instanceof BigInteger) {
+      return "B" + value;
+    } else if (value instanceof Double) {
+      return "F" + value;
+    } else if (value instanceof Float) {
+      return "f" + value;
+    } else if (value instanceof Timestamp) {
+      return "T" + value;
+    } else if (value instanceof Date) {
+      return "d" + value;
+    } else if (value instanceof Time) {
+      return "t" + value;
+    } else if (value instanceof LocalDateTime) {
+      return "L" + value;
+    } else if (value instanceof LocalDate) {
+      return "l" + value;
+    } else if (value instanceof OffsetDateTime) {
+      return "O" + value;
+    } else if (value instanceof Instant) {
+      return "i" + value;
+    } else if (value instanceof UUID) {
+      return "U" + value;
+    } else if (value instanceof Boolean) {
+      return "Z" + value;
+    }
+    throw new QueryRuntimeException("Can't support keyset column value type [%s]!",
+        value.getClass().getName());
+  }
+
+  /**
+   * corant-modules-query-sql
+   *
+   * @author bingo 下午3:05:17
+   *
+   */
+  public static class KeysetColumn {
+
+    protected final String name;
+    protected final boolean descending;
+
+    protected KeysetColumn(String name, boolean descending) {
+      this.name = name;
+      this.descending = descending;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isDescending() {
+      return descending;
+    }
+
+    @Override
+    public String toString() {
+      return name + (descending ? " DESC" : " ASC");
+    }
+  }
+
+  /**
+   * corant-modules-query-sql
+   *
+   * <p>
+   * The counting mode of the keyset paging query.
+   *
+   * @author bingo 下午3:07:26
+   *
+   */
+  public enum KeysetCount {
+    /**
+     * Don't count the total number of records
+     */
+    NONE,
+    /**
+     * Count the total number of records exactly with the count SQL
+     */
+    EXACT,
+    /**
+     * Count the total number of records approximately from the database statistics, if the
+     * dialect doesn't support it then don't count.
+     *
+     * @see Dialect#getApproximateCountSql(String, Map)
+     */
+    APPROXIMATE;
+
+    public static KeysetCount of(Object value) {
+      if (value == null || isBlank(value.toString())) {
+        return NONE;
+      }
+      return valueOf(value.toString().trim().toUpperCase(Locale.ENGLISH));
+    }
+  }
+}
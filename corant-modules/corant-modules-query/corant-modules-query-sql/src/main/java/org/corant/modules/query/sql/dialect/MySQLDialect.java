@@ -40,6 +40,22 @@ public class MySQLDialect implements Dialect {
     return AGGREGATE_FUNCTIONS;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Use the estimated number of rows of the table from the information schema.
+   */
+  @Override
+  public String getApproximateCountSql(String sql, Map<String, ?> hints) {
+    String table = Keyset.resolveCountTable(hints);
+    if (table == null) {
+      return null;
+    }
+    return "SELECT TABLE_ROWS AS " + COUNT_FIELD_NAME
+        + " FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '"
+        + table + "'";
+  }
+
   @Override
   public String getLimitSql(String sql, int offset, int limit, Map<String, ?> hints) {
     return getLimitString(sql, offset, limit, hints);
@@ -111,4 +127,9 @@ public class MySQLDialect implements Dialect {
     return true;
   }
 
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
 }
@@ -32,6 +32,8 @@ public class OracleDialect implements Dialect {
   public static final Pattern ORDER_SIBLINGS_BY_PATTERN =
       SqlHelper.buildShallowIndexPattern(ORDER_SIBLINGS_BY, true);
 
+  public static final int MAX_IN_LIST_SIZE = 1000;
+
   @Override
   public String getLimitSql(String sql, int offset, int limit, Map<String, ?> hints) {
     return getLimitString(sql, offset, limit, hints);
@@ -65,6 +67,11 @@ public class OracleDialect implements Dialect {
     return pagingSelect.toString();
   }
 
+  @Override
+  public int getMaxInListSize() {
+    return MAX_IN_LIST_SIZE;
+  }
+
   @Override
   public String getNonOrderByPart(String sql) {
     if (sql != null) {
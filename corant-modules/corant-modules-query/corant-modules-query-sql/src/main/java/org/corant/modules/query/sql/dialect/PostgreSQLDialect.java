@@ -26,6 +26,21 @@ public class PostgreSQLDialect implements Dialect {
 
   public static final Dialect INSTANCE = new PostgreSQLDialect();
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Use the estimated number of rows of the table from the planner statistics.
+   */
+  @Override
+  public String getApproximateCountSql(String sql, Map<String, ?> hints) {
+    String table = Keyset.resolveCountTable(hints);
+    if (table == null) {
+      return null;
+    }
+    return "SELECT CAST(reltuples AS BIGINT) AS " + COUNT_FIELD_NAME
+        + " FROM pg_class WHERE oid = to_regclass('" + table + "')";
+  }
+
   @Override
   public String getLimitSql(String sql, int offset, int limit, Map<String, ?> hints) {
     return getLimitString(sql, offset, limit, hints);
@@ -64,4 +79,9 @@ public class PostgreSQLDialect implements Dialect {
   public boolean supportsLimit() {
     return true;
   }
+
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
 }
@@ -23,6 +23,14 @@ public abstract class SQLServerDialect implements Dialect {
 
   public static final String SQL_DFLT_ORDERBY = "ORDER BY CURRENT_TIMESTAMP";
 
+  // The maximum number of parameters of a SQL Server request is 2100
+  public static final int MAX_IN_LIST_SIZE = 2000;
+
+  @Override
+  public int getMaxInListSize() {
+    return MAX_IN_LIST_SIZE;
+  }
+
   @Override
   public boolean supportsLimit() {
     return true;
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.sql;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.corant.modules.datasource.shared.util.DbUtilBeanRowMapper;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-sql
+ *
+ * @author bingo 下午4:12:09
+ *
+ */
+public class DbUtilBeanRowMapperTest extends TestCase {
+
+  /**
+   * Returns a result set of the given column labels and rows.
+   */
+  static ResultSet resultSet(String[] labels, Object[]... rows) {
+    ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+        ResultSetMetaData.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+        (p, m, args) -> {
+          switch (m.getName()) {
+            case "getColumnCount":
+              return labels.length;
+            case "getColumnLabel":
+            case "getColumnName":
+              return labels[(Integer) args[0] - 1];
+            case "getColumnType":
+              return Types.OTHER;
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+    int[] cursor = {-1};
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+        new Class<?>[] {ResultSet.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getMetaData":
+              return metaData;
+            case "next":
+              return ++cursor[0] < rows.length;
+            case "getObject":
+              return rows[cursor[0]][(Integer) args[0] - 1];
+            default:
+              throw new UnsupportedOperationException(m.getName());
+          }
+        });
+  }
+
+  @Test
+  public void testColumnMatching() throws SQLException {
+    String[] labels = {"ID", "name", "Code", "UNMAPPED", "Total_Amount"};
+    Item item = DbUtilBeanRowMapper.of(Item.class).handler()
+        .handle(resultSet(labels, new Object[] {1L, "a", "c", "x", BigDecimal.ONE}));
+    // the column labels are matched case-insensitively, the inherited fields are written too
+    assertEquals(1L, item.id);
+    assertEquals("c", item.code);
+    // the setter takes precedence over the field
+    assertEquals("set:a", item.name);
+    // the columns without matching properties are ignored
+    assertNull(item.totalAmount);
+    assertNull(DbUtilBeanRowMapper.of(Item.class).handler().handle(resultSet(labels)));
+    assertSame(DbUtilBeanRowMapper.of(Item.class), DbUtilBeanRowMapper.of(Item.class));
+  }
+
+  @Test
+  public void testNoArgumentConstructor() {
+    try {
+      DbUtilBeanRowMapper.of(Immutable.class);
+      fail();
+    } catch (CorantRuntimeException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testNullValues() throws SQLException {
+    String[] labels = {"count", "active", "quantity", "name"};
+    List<Item> items = DbUtilBeanRowMapper.of(Item.class).listHandler()
+        .handle(resultSet(labels, new Object[] {null, null, null, null},
+            new Object[] {3, true, 4, "b"}));
+    assertEquals(2, items.size());
+    // the null value is not written to a primitive property
+    Item item = items.get(0);
+    assertEquals(-1, item.count);
+    assertTrue(item.active);
+    assertNull(item.quantity);
+    assertEquals("set:null", item.name);
+    item = items.get(1);
+    assertEquals(3, item.count);
+    assertTrue(item.active);
+    assertEquals(Integer.valueOf(4), item.quantity);
+  }
+
+  @Test
+  public void testTypeConversion() throws SQLException {
+    String[] labels = {"id", "count", "amount", "quantity", "active"};
+    List<Item> items = DbUtilBeanRowMapper.of(Item.class).listHandler()
+        .handle(resultSet(labels, new Object[] {new BigDecimal("7"), 5L, "12.50", "6", 0},
+            new Object[] {8, 6, 13.5d, 7L, "true"}, new Object[] {9L, (short) 7, null, 8, 1}));
+    assertEquals(3, items.size());
+    Item item = items.get(0);
+    assertEquals(7L, item.id);
+    assertEquals(5, item.count);
+    assertEquals(new BigDecimal("12.50"), item.amount);
+    assertEquals(Integer.valueOf(6), item.quantity);
+    assertFalse(item.active);
+    // the cached converters are replaced when the value classes change
+    item = items.get(1);
+    assertEquals(8L, item.id);
+    assertEquals(6, item.count);
+    assertEquals(0, new BigDecimal("13.5").compareTo(item.amount));
+    assertEquals(Integer.valueOf(7), item.quantity);
+    assertTrue(item.active);
+    item = items.get(2);
+    assertEquals(9L, item.id);
+    assertEquals(7, item.count);
+    assertNull(item.amount);
+    assertEquals(Integer.valueOf(8), item.quantity);
+    assertTrue(item.active);
+  }
+
+  public static class AbstractItem {
+    protected long id;
+  }
+
+  public static class Immutable {
+    final long id;
+
+    public Immutable(long id) {
+      this.id = id;
+    }
+  }
+
+  public static class Item extends AbstractItem {
+    String code;
+    String name;
+    String totalAmount;
+    int count = -1;
+    boolean active = true;
+    Integer quantity = -1;
+    BigDecimal amount;
+
+    public void setName(String name) {
+      this.name = "set:" + name;
+    }
+  }
+}
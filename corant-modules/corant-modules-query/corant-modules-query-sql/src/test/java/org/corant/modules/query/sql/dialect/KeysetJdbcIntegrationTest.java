@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.sql.dialect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNoException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.corant.modules.query.mapping.Query;
+import org.junit.Test;
+
+/**
+ * corant-modules-query-sql
+ * <p>
+ * Seeks through a table with duplicate ordering values on the embedded H2 and Derby databases, the
+ * drivers are provided by the 'jdbc-it' profile, the tests are skipped if the driver is absent.
+ *
+ * @author bingo 下午2:41:18
+ *
+ */
+public class KeysetJdbcIntegrationTest {
+
+  static final int ROWS = 53;
+  static final int PAGE_SIZE = 10;
+  static final LocalDateTime BASE_TIME = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+  static Keyset keyset(String declaration) {
+    Query query = new Query();
+    query.getProperties().put(Keyset.PRO_KEY_KEYSET_COLUMNS, declaration);
+    return Keyset.of(query);
+  }
+
+  static Connection connect(String url) {
+    try {
+      return DriverManager.getConnection(url);
+    } catch (SQLException e) {
+      assumeNoException(e);
+      return null;
+    }
+  }
+
+  @Test
+  public void testDerbySeek() throws SQLException {
+    try (Connection conn = connect("jdbc:derby:memory:keyset;create=true")) {
+      testSeek(conn, DerbyDialect.INSTANCE);
+    }
+  }
+
+  @Test
+  public void testH2Seek() throws SQLException {
+    try (Connection conn = connect("jdbc:h2:mem:keyset")) {
+      testSeek(conn, H2Dialect.INSTANCE);
+    }
+  }
+
+  void prepare(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE ks_item (id INT NOT NULL PRIMARY KEY, created TIMESTAMP NOT NULL,"
+          + " name VARCHAR(32) NOT NULL)");
+    }
+    try (PreparedStatement ps =
+        conn.prepareStatement("INSERT INTO ks_item (id, created, name) VALUES (?, ?, ?)")) {
+      for (int i = 0; i < ROWS; i++) {
+        ps.setInt(1, i);
+        // every three rows share the same timestamp, the ties are broken by the id
+        ps.setTimestamp(2, Timestamp.valueOf(BASE_TIME.plusMinutes(i / 3)));
+        ps.setString(3, "item" + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  List<Map<String, Object>> query(Connection conn, String sql, List<Object> parameters)
+      throws SQLException {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+      for (int i = 0; i < parameters.size(); i++) {
+        ps.setObject(i + 1, parameters.get(i));
+      }
+      try (ResultSet rs = ps.executeQuery()) {
+        ResultSetMetaData meta = rs.getMetaData();
+        while (rs.next()) {
+          Map<String, Object> row = new LinkedHashMap<>();
+          for (int c = 1; c <= meta.getColumnCount(); c++) {
+            row.put(meta.getColumnLabel(c).toLowerCase(Locale.ENGLISH), rs.getObject(c));
+          }
+          rows.add(row);
+        }
+      }
+    }
+    return rows;
+  }
+
+  List<Integer> seek(Connection conn, Dialect dialect, Keyset keyset) throws SQLException {
+    List<Integer> ids = new ArrayList<>();
+    String token = null;
+    while (true) {
+      List<Object> parameters = new ArrayList<>();
+      String sql = dialect.getKeysetSql("SELECT id, created, name FROM ks_item ORDER BY name",
+          keyset, keyset.decode(token), PAGE_SIZE, parameters, Collections.emptyMap());
+      List<Map<String, Object>> rows = query(conn, sql, parameters);
+      rows.forEach(r -> ids.add(((Number) r.get("id")).intValue()));
+      if (rows.size() < PAGE_SIZE) {
+        return ids;
+      }
+      token = keyset.encode(rows.get(rows.size() - 1));
+    }
+  }
+
+  void testSeek(Connection conn, Dialect dialect) throws SQLException {
+    prepare(conn);
+    List<Integer> all = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      all.add(i);
+    }
+    Comparator<Integer> byCreated = Comparator.comparingInt(i -> i / 3);
+    // uniform direction, the row value comparison is used if supported
+    List<Integer> expected = new ArrayList<>(all);
+    expected.sort(byCreated.reversed().thenComparing(Comparator.reverseOrder()));
+    assertEquals(expected, seek(conn, dialect, keyset("created DESC, id DESC")));
+    // mixed direction, the expanded predicate is used
+    expected = new ArrayList<>(all);
+    expected.sort(byCreated.reversed().thenComparing(Comparator.naturalOrder()));
+    assertEquals(expected, seek(conn, dialect, keyset("created DESC, id ASC")));
+  }
+}
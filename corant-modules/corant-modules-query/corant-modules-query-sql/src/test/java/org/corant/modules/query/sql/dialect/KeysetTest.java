@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.sql.dialect;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.mapping.Query;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-sql
+ *
+ * @author bingo 下午2:16:40
+ *
+ */
+public class KeysetTest extends TestCase {
+
+  static Query query(String declaration) {
+    Query query = new Query();
+    query.getProperties().put(Keyset.PRO_KEY_KEYSET_COLUMNS, declaration);
+    return query;
+  }
+
+  static String token(String text) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(UTF_8));
+  }
+
+  @Test
+  public void testDeclarationCache() {
+    Keyset keyset = Keyset.of(query("created DESC, id DESC"));
+    assertSame(keyset, Keyset.of(query("created DESC, id DESC")));
+    assertEquals(2, keyset.getColumns().size());
+    assertTrue(keyset.isUniformDirection());
+    assertNull(Keyset.of(query(" ")));
+    try {
+      Keyset.of(query("id SIDEWAYS"));
+      fail();
+    } catch (QueryRuntimeException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testEncodeDecode() {
+    Keyset keyset = Keyset.of(query("s, j, d, t, l, u, b"));
+    Map<String, Object> record = new LinkedHashMap<>();
+    record.put("s", "a:b,c:12:");
+    record.put("j", Long.MIN_VALUE);
+    record.put("d", new BigDecimal("-12.3400"));
+    record.put("t", Timestamp.valueOf("2023-05-06 07:08:09.123456789"));
+    record.put("l", LocalDate.of(2023, 1, 31));
+    record.put("u", UUID.randomUUID());
+    record.put("b", Boolean.TRUE);
+    Object[] decoded = keyset.decode(keyset.encode(record));
+    assertEquals(new ArrayList<>(record.values()), Arrays.asList(decoded));
+    assertNull(keyset.decode(null));
+  }
+
+  @Test
+  public void testIllegalTokens() {
+    Keyset keyset = Keyset.of(query("id, name"));
+    List<String> tokens = Arrays.asList("!!not-base64!!", token("Jx:1S1:a"), token("J3:abcS1:a"),
+        token("J1:1S9:a"), token("J-5:1S1:a"), token("J1:1"), token("X1:1S1:a"),
+        token("U3:abcS1:a"), token("J1:1S1:aS1:b"));
+    for (String token : tokens) {
+      try {
+        keyset.decode(token);
+        fail("Token " + token + " should be rejected");
+      } catch (QueryRuntimeException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testKeysetPredicate() {
+    Keyset uniform = Keyset.of(query("created DESC, id DESC"));
+    Keyset mixed = Keyset.of(query("created DESC, id ASC"));
+    Object[] lastKeys = {1, 2};
+    List<Object> parameters = new ArrayList<>();
+    assertEquals("(keyset_.created, keyset_.id) < (?, ?)",
+        H2Dialect.INSTANCE.getKeysetPredicate(uniform, lastKeys, parameters));
+    assertEquals(Arrays.asList(1, 2), parameters);
+    parameters.clear();
+    assertEquals("((keyset_.created < ?) OR (keyset_.created = ? AND keyset_.id < ?))",
+        DerbyDialect.INSTANCE.getKeysetPredicate(uniform, lastKeys, parameters));
+    assertEquals(Arrays.asList(1, 1, 2), parameters);
+    parameters.clear();
+    assertEquals("((keyset_.created < ?) OR (keyset_.created = ? AND keyset_.id > ?))",
+        H2Dialect.INSTANCE.getKeysetPredicate(mixed, lastKeys, parameters));
+    assertEquals(Arrays.asList(1, 1, 2), parameters);
+  }
+}
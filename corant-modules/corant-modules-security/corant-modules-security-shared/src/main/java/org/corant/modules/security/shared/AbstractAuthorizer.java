@@ -13,6 +13,8 @@
  */
 package org.corant.modules.security.shared;
 
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import org.corant.modules.security.AuthorizationException;
 import org.corant.modules.security.Authorizer;
@@ -30,10 +32,24 @@ public abstract class AbstractAuthorizer implements Authorizer {
 
   @Override
   public void checkAccess(Object context, Object roleOrPermit) throws AuthorizationException {
+    checkAccess(context, roleOrPermit, BooleanSupplier::getAsBoolean);
+  }
+
+  /**
+   * Check access like {@link #checkAccess(Object, Object)}, but the access decision is made by the
+   * given decider, the decider receives the test of {@link #testResolvedAccess(Object, Object)}
+   * and may reuse a decision made before instead of invoking it. The callbacks are always invoked.
+   *
+   * @param context the context to check access
+   * @param roleOrPermit the necessary roles or permissions
+   * @param decider the decider that makes the access decision with the given test
+   */
+  public void checkAccess(Object context, Object roleOrPermit, Predicate<BooleanSupplier> decider)
+      throws AuthorizationException {
     MutableBoolean success = new MutableBoolean(false);
     try {
       resolveCallbacks().forEachOrdered(cb -> cb.preCheckAccess(context, roleOrPermit));
-      if (!testAccess(context, roleOrPermit)) {
+      if (!decider.test(() -> testResolvedAccess(context, roleOrPermit))) {
         throw new AuthorizationException(SecurityMessageCodes.UNAUTHZ_ACCESS);
       }
       success.set(true);
@@ -44,4 +60,59 @@ public abstract class AbstractAuthorizer implements Authorizer {
 
   protected abstract Stream<AuthorizerCallback> resolveCallbacks();
 
+  /**
+   * Returns the simple subject of the given context if the context is a {@link SimpleSubject} or a
+   * {@link DefaultSecurityContext} that built from a {@link SimpleSubject}, otherwise returns null.
+   * The subclasses can override this method to return null so that the access is always tested by
+   * {@link #testAccess(Object, Object)}.
+   *
+   * @param context the context to check access
+   */
+  protected SimpleSubject resolveSubject(Object context) {
+    Object subject = context instanceof DefaultSecurityContext
+        ? ((DefaultSecurityContext) context).getSubject()
+        : context;
+    return subject instanceof SimpleSubject ? (SimpleSubject) subject : null;
+  }
+
+  /**
+   * Tests whether the given context has one of the given roles or permissions, if the given roles
+   * or permissions are {@link SimpleRoles} or {@link SimplePermissions} and the context carries a
+   * {@link SimpleSubject}, they are tested through the compiled indexes of the subject, otherwise
+   * they are tested by {@link #testAccess(Object, Object)}.
+   *
+   * @param context the context to check access
+   * @param roleOrPermit the necessary roles or permissions
+   */
+  protected boolean testResolvedAccess(Object context, Object roleOrPermit) {
+    if (roleOrPermit instanceof SimpleRoles || roleOrPermit instanceof SimplePermissions) {
+      SimpleSubject subject = resolveSubject(context);
+      if (subject != null) {
+        return testSubjectAccess(subject, roleOrPermit);
+      }
+    }
+    return testAccess(context, roleOrPermit);
+  }
+
+  /**
+   * Tests whether the given subject has one of the given roles or permissions through the compiled
+   * indexes of the subject, if the given roles or permissions are empty returns true.
+   *
+   * @param subject the subject to test
+   * @param roleOrPermit the necessary roles or permissions
+   */
+  protected boolean testSubjectAccess(SimpleSubject subject, Object roleOrPermit) {
+    if (subject == null) {
+      return false;
+    }
+    if (roleOrPermit instanceof SimpleRoles) {
+      SimpleRoles roles = (SimpleRoles) roleOrPermit;
+      return roles.isEmpty() || roles.stream().anyMatch(subject::hasRole);
+    } else if (roleOrPermit instanceof SimplePermissions) {
+      SimplePermissions perms = (SimplePermissions) roleOrPermit;
+      return perms.isEmpty() || perms.stream().anyMatch(subject::hasPermission);
+    }
+    return false;
+  }
+
 }
@@ -40,14 +40,18 @@ public class DefaultSecurityContext implements SecurityContext {
 
   protected final Collection<? extends Principal> principals;
 
+  protected final Subject subject;
+
   public DefaultSecurityContext(String authenticationScheme, Principal principal) {
     this.authenticationScheme = authenticationScheme;
     principals = principal == null ? emptySet() : singleton(principal);
+    subject = null;
   }
 
   public DefaultSecurityContext(String authenticationScheme, Subject subject) {
     this.authenticationScheme = authenticationScheme;
     principals = subject == null ? emptySet() : immutableSet(subject.getPrincipals());
+    this.subject = subject;
   }
 
   @Override
@@ -74,6 +78,14 @@ public class DefaultSecurityContext implements SecurityContext {
             .map(p -> p.unwrap(cls)).collect(Collectors.toUnmodifiableSet());
   }
 
+  /**
+   * Returns the subject that this security context was built from, or null if this security context
+   * was built from a single principal.
+   */
+  public Subject getSubject() {
+    return subject;
+  }
+
   @Override
   public String toString() {
     return "DefaultSecurityContext [authenticationScheme=" + authenticationScheme + ", principals="
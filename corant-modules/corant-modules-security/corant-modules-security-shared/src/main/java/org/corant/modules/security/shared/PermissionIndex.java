@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.security.shared;
+
+import static org.corant.shared.util.Strings.asDefaultString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.corant.shared.util.Strings.WildcardMatcher;
+
+/**
+ * corant-modules-security-shared
+ * <p>
+ * A compiled index of role or permission names, the names are compared case-insensitively like
+ * {@link Predication#predicateOf(Object)}. The literal names are kept in a hash set and the wildcard
+ * patterns are compiled into a character trie in which the '?' and '*' are special edges, a name is
+ * matched against all the patterns in a single pass over its characters.
+ * <p>
+ * The index is immutable and thread safe.
+ *
+ * @author bingo 下午3:12:40
+ *
+ */
+public class PermissionIndex {
+
+  public static final PermissionIndex EMPTY_INST = new PermissionIndex(Collections.emptyList());
+
+  protected final Set<String> literals = new HashSet<>();
+  protected final Set<String> names = new HashSet<>();
+  protected final Node root = new Node(false);
+  protected final boolean hasPatterns;
+
+  protected PermissionIndex(Iterable<String> names) {
+    boolean patterns = false;
+    for (String name : names) {
+      if (name == null) {
+        continue;
+      }
+      String folded = fold(name.strip());
+      this.names.add(folded);
+      if (WildcardMatcher.hasWildcard(folded)) {
+        compile(folded);
+        patterns = true;
+      } else {
+        literals.add(folded);
+      }
+    }
+    hasPatterns = patterns;
+  }
+
+  public static PermissionIndex of(Iterable<String> names) {
+    return names == null ? EMPTY_INST : new PermissionIndex(names);
+  }
+
+  static char fold(char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  static String fold(String s) {
+    final int len = s.length();
+    final char[] chars = new char[len];
+    for (int i = 0; i < len; i++) {
+      chars[i] = fold(s.charAt(i));
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Returns whether any indexed name or pattern matches the given name, used to check whether the
+   * indexed permissions imply the given required permission name.
+   *
+   * @param name the name to test
+   */
+  public boolean implies(Object name) {
+    String folded = fold(asDefaultString(name));
+    return literals.contains(folded) || hasPatterns && match(folded);
+  }
+
+  /**
+   * Returns whether the given required name or pattern matches any indexed name, used to check
+   * whether the given required role implies one of the indexed roles.
+   *
+   * @param required the required name or pattern
+   */
+  public boolean impliedBy(String required) {
+    if (required == null) {
+      return !names.isEmpty();
+    }
+    String sut = required.strip();
+    if (!WildcardMatcher.hasWildcard(sut)) {
+      return names.contains(fold(sut));
+    }
+    final WildcardMatcher wm = WildcardMatcher.of(true, sut);
+    for (String name : names) {
+      if (wm.test(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isEmpty() {
+    return names.isEmpty();
+  }
+
+  protected void compile(String pattern) {
+    Node node = root;
+    char prev = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '*') {
+        if (prev != '*') {
+          if (node.star == null) {
+            node.star = new Node(true);
+          }
+          node = node.star;
+        }
+      } else if (c == '?') {
+        if (node.any == null) {
+          node.any = new Node(false);
+        }
+        node = node.any;
+      } else {
+        node = node.literals.computeIfAbsent(c, k -> new Node(false));
+      }
+      prev = c;
+    }
+    node.terminal = true;
+  }
+
+  protected boolean match(String name) {
+    List<Node> actives = new ArrayList<>();
+    List<Node> nexts = new ArrayList<>();
+    root.activate(actives);
+    for (int i = 0; i < name.length() && !actives.isEmpty(); i++) {
+      final char c = name.charAt(i);
+      for (Node node : actives) {
+        if (node.wildcard) {
+          node.activate(nexts);
+        }
+        Node next = node.literals.get(c);
+        if (next != null) {
+          next.activate(nexts);
+        }
+        if (node.any != null) {
+          node.any.activate(nexts);
+        }
+      }
+      List<Node> temp = actives;
+      actives = nexts;
+      nexts = temp;
+      nexts.clear();
+    }
+    for (Node node : actives) {
+      if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * corant-modules-security-shared
+   *
+   * @author bingo 下午3:12:40
+   *
+   */
+  protected static class Node {
+    final Map<Character, Node> literals = new HashMap<>();
+    final boolean wildcard;
+    Node any;
+    Node star;
+    boolean terminal;
+
+    Node(boolean wildcard) {
+      this.wildcard = wildcard;
+    }
+
+    void activate(List<Node> actives) {
+      if (!actives.contains(this)) {
+        actives.add(this);
+        if (star != null) {
+          star.activate(actives);
+        }
+      }
+    }
+  }
+}
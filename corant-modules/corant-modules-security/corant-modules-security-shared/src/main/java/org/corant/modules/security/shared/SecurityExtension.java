@@ -55,6 +55,8 @@ public class SecurityExtension implements Extension {
       .getValue("corant.security.interceptor.compatibility", Boolean.class, ENABLE_INTERCEPTOR);
   public static final boolean DENY_ALL_NO_SECURITY_MANAGER = Configs.getValue(
       "corant.security.interceptor.deny-all-if-no-security-manager", Boolean.class, Boolean.FALSE);
+  public static final int INTERCEPTOR_DECISION_CACHE_SIZE = Configs
+      .getValue("corant.security.interceptor.decision-cache-size", Integer.class, 0);
 
   protected static final Map<Secured, SecuredMetadata> securedMetaDatas = new ConcurrentHashMap<>();
 
@@ -18,7 +18,11 @@ import static org.corant.shared.util.Objects.areEqual;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.corant.modules.security.Permission;
 import org.corant.modules.security.Principal;
 import org.corant.modules.security.Role;
@@ -27,6 +31,12 @@ import org.corant.shared.ubiquity.AttributeSet;
 
 /**
  * corant-modules-security-shared
+ * <p>
+ * A simple immutable subject, the names of the {@link SimpleRole} and {@link SimplePermission} of
+ * the subject are compiled into {@link PermissionIndex} on first use, so that
+ * {@link #hasPermission(Permission)} and {@link #hasRole(Role)} don't need to scan all of them. The
+ * {@link #getDecisionKey()} is derived from the principals, roles and permissions of the subject,
+ * it can be used as a part of the authorization decision cache key.
  *
  * @author bingo 下午4:22:33
  *
@@ -35,6 +45,12 @@ public class SimpleSubject implements Subject, AttributeSet {
 
   private static final long serialVersionUID = -2622944157923465303L;
 
+  protected transient volatile DecisionKey decisionKey;
+
+  protected transient volatile PermissionIndex permissionIndex;
+
+  protected transient volatile PermissionIndex roleIndex;
+
   protected Collection<Principal> principals;
 
   protected Collection<Role> roles = Collections.emptyList();
@@ -70,6 +86,19 @@ public class SimpleSubject implements Subject, AttributeSet {
     return attributes;
   }
 
+  /**
+   * Returns the authorization decision key of this subject, the subjects that have equal
+   * principals, roles and permissions have equal keys, regardless of the instances or the JVMs
+   * they were created in.
+   */
+  public Object getDecisionKey() {
+    DecisionKey key = decisionKey;
+    if (key == null) {
+      decisionKey = key = new DecisionKey(principals, roles, permissions);
+    }
+    return key;
+  }
+
   public Collection<? extends Permission> getPermissions() {
     return permissions;
   }
@@ -88,6 +117,65 @@ public class SimpleSubject implements Subject, AttributeSet {
     return roles;
   }
 
+  /**
+   * Returns whether one of the permissions of this subject implies the given permission, the
+   * {@link SimplePermission} are matched through the compiled permission index, the others are
+   * tested one by one with {@link Permission#implies(Permission)}.
+   *
+   * @param permission the required permission
+   */
+  public boolean hasPermission(Permission permission) {
+    if (permission instanceof SimplePermission
+        && resolvePermissionIndex().implies(((SimplePermission) permission).getName())) {
+      return true;
+    }
+    for (Permission perm : permissions) {
+      if (!(perm instanceof SimplePermission) && perm.implies(permission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the given role implies one of the roles of this subject, the
+   * {@link SimpleRole} are matched through the compiled role index, the others are tested one by
+   * one with {@link Role#implies(Role)}.
+   *
+   * @param role the required role
+   */
+  public boolean hasRole(Role role) {
+    if (role instanceof SimpleRole
+        && resolveRoleIndex().impliedBy(((SimpleRole) role).getName())) {
+      return true;
+    }
+    for (Role r : roles) {
+      if (!(r instanceof SimpleRole) && role.implies(r)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected PermissionIndex resolvePermissionIndex() {
+    PermissionIndex index = permissionIndex;
+    if (index == null) {
+      permissionIndex = index = PermissionIndex.of(permissions.stream()
+          .filter(SimplePermission.class::isInstance).map(p -> ((SimplePermission) p).getName())
+          .collect(Collectors.toList()));
+    }
+    return index;
+  }
+
+  protected PermissionIndex resolveRoleIndex() {
+    PermissionIndex index = roleIndex;
+    if (index == null) {
+      roleIndex = index = PermissionIndex.of(roles.stream().filter(SimpleRole.class::isInstance)
+          .map(r -> ((SimpleRole) r).getName()).collect(Collectors.toList()));
+    }
+    return index;
+  }
+
   @Override
   public <T> T unwrap(Class<T> cls) {
     if (SimpleSubject.class.isAssignableFrom(cls)) {
@@ -95,4 +183,46 @@ public class SimpleSubject implements Subject, AttributeSet {
     }
     return Subject.super.unwrap(cls);
   }
+
+  /**
+   * corant-modules-security-shared
+   * <p>
+   * The authorization decision key of a subject, the hash code is computed once.
+   *
+   * @author bingo 下午4:30:12
+   *
+   */
+  protected static final class DecisionKey {
+
+    final Set<Principal> principals;
+    final Set<Role> roles;
+    final Set<Permission> permissions;
+    final int hash;
+
+    DecisionKey(Collection<Principal> principals, Collection<Role> roles,
+        Collection<Permission> permissions) {
+      this.principals = new HashSet<>(principals);
+      this.roles = new HashSet<>(roles);
+      this.permissions = new HashSet<>(permissions);
+      hash = Objects.hash(this.principals, this.roles, this.permissions);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof DecisionKey)) {
+        return false;
+      }
+      DecisionKey other = (DecisionKey) obj;
+      return hash == other.hash && principals.equals(other.principals)
+          && roles.equals(other.roles) && permissions.equals(other.permissions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
 }
@@ -85,8 +85,7 @@ public class SecuredInterceptor extends AbstractInterceptor {
         throw new AuthorizationException(SecurityMessageCodes.UNAUTHZ_ACCESS);
       }
     } else {
-      securityManagers.get().checkAccess(context.getSecurityContext(),
-          context.getResolvedAllowed());
+      helper.checkAccess(context, securityManagers.get());
     }
   }
 
@@ -16,16 +16,36 @@ package org.corant.modules.security.shared.interceptor;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import org.corant.context.security.SecurityContext;
+import org.corant.modules.security.Authorizer;
 import org.corant.modules.security.annotation.SecuredMetadata;
 import org.corant.modules.security.annotation.SecuredType;
+import org.corant.modules.security.shared.AbstractAuthorizer;
+import org.corant.modules.security.shared.DefaultSecurityContext;
+import org.corant.modules.security.shared.SecurityExtension;
 import org.corant.modules.security.shared.SimplePermissions;
 import org.corant.modules.security.shared.SimpleRoles;
+import org.corant.modules.security.shared.SimpleSubject;
 import org.corant.modules.security.shared.interceptor.SecuredInterceptionContext.DefaultSecuredInterceptionContext;
 import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.ubiquity.Sortable;
+import org.corant.shared.ubiquity.Tuple.Triple;
 
 /**
  * corant-modules-security-shared
+ * <p>
+ * The default helper can cache the authorization decisions, the cache is disabled by default and is
+ * enabled by setting {@link SecurityExtension#INTERCEPTOR_DECISION_CACHE_SIZE} to a positive
+ * number, it holds at most that many decisions and is cleared when full. Only the decisions of the
+ * {@link AbstractAuthorizer} for a {@link DefaultSecurityContext} that built from a
+ * {@link SimpleSubject} are cached, the cache is keyed by the authorizer, the decision key of the
+ * subject (derived from its principals, roles and permissions) and the resolved allowed of the
+ * secured metadata. If the decision is taken from the cache, only the access test is skipped, the
+ * authorizer callbacks are still invoked and a denial is thrown by the authorizer as usual.
+ * <p>
+ * Note: The decision key is built once per subject instance, if the security context manager
+ * builds a new subject for each request (e.g. the microprofile JWT), the key is built per request
+ * and the cache only saves the access test.
  *
  * @author bingo 下午11:48:56
  *
@@ -35,6 +55,36 @@ public interface SecuredInterceptorHelper extends Sortable {
   SecuredInterceptorHelper DEFAULT_INST = new SecuredInterceptorHelper() {
 
     final Map<SecuredMetadata, Serializable> alloweds = new ConcurrentHashMap<>();
+    final Map<Triple<Authorizer, Object, Serializable>, Boolean> decisions = new ConcurrentHashMap<>();
+
+    @Override
+    public void checkAccess(SecuredInterceptionContext context, Authorizer authorizer) {
+      final int maxSize = SecurityExtension.INTERCEPTOR_DECISION_CACHE_SIZE;
+      final SecurityContext securityContext = context.getSecurityContext();
+      if (maxSize <= 0 || !(authorizer instanceof AbstractAuthorizer)
+          || !(securityContext instanceof DefaultSecurityContext)
+          || !(((DefaultSecurityContext) securityContext)
+              .getSubject() instanceof SimpleSubject)) {
+        SecuredInterceptorHelper.super.checkAccess(context, authorizer);
+        return;
+      }
+      final SimpleSubject subject =
+          (SimpleSubject) ((DefaultSecurityContext) securityContext).getSubject();
+      final Triple<Authorizer, Object, Serializable> key =
+          Triple.of(authorizer, subject.getDecisionKey(), context.getResolvedAllowed());
+      ((AbstractAuthorizer) authorizer).checkAccess(securityContext,
+          context.getResolvedAllowed(), test -> {
+            Boolean decision = decisions.get(key);
+            if (decision == null) {
+              decision = test.getAsBoolean();
+              if (decisions.size() >= maxSize) {
+                decisions.clear();
+              }
+              decisions.put(key, decision);
+            }
+            return decision;
+          });
+    }
 
     @Override
     public Serializable resolveAllowed(SecuredMetadata meta) {
@@ -44,6 +94,17 @@ public interface SecuredInterceptorHelper extends Sortable {
     }
   };
 
+  /**
+   * Check whether the caller of the given interception context has access privileges, if not,
+   * throw an authorization exception.
+   *
+   * @param context the secured interception context
+   * @param authorizer the authorizer use to check access
+   */
+  default void checkAccess(SecuredInterceptionContext context, Authorizer authorizer) {
+    authorizer.checkAccess(context.getSecurityContext(), context.getResolvedAllowed());
+  }
+
   default void handleRunAs(String runAs) {
     throw new NotSupportedException(
         "Runas is not currently supported, implementers can implement it themselves");
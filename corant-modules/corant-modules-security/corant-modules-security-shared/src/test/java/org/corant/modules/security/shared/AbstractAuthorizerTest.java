@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.security.shared;
+
+import static java.util.Collections.singletonList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.corant.modules.security.AuthorizationException;
+import org.corant.modules.security.AuthorizerCallback;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-security-shared
+ *
+ * @author bingo 下午4:12:36
+ *
+ */
+public class AbstractAuthorizerTest extends TestCase {
+
+  final List<String> calls = new ArrayList<>();
+  final AbstractAuthorizer authorizer = new AbstractAuthorizer() {
+    @Override
+    protected Stream<AuthorizerCallback> resolveCallbacks() {
+      return Stream.of(new AuthorizerCallback() {
+        @Override
+        public void postCheckAccess(Object context, boolean success) {
+          calls.add("post:" + success);
+        }
+
+        @Override
+        public void preCheckAccess(Object context, Object roleOrPermit) {
+          calls.add("pre");
+        }
+      });
+    }
+  };
+  final DefaultSecurityContext context =
+      new DefaultSecurityContext("test", new SimpleSubject(singletonList(new SimplePrincipal("u")),
+          singletonList(new SimpleRole("admin")), null));
+
+  @Test
+  public void testCheckAccess() {
+    authorizer.checkAccess(context, SimpleRoles.of("admin"));
+    assertEquals(List.of("pre", "post:true"), calls);
+    calls.clear();
+    try {
+      authorizer.checkAccess(context, SimpleRoles.of("guest"));
+      fail();
+    } catch (AuthorizationException e) {
+      // expected
+    }
+    assertEquals(List.of("pre", "post:false"), calls);
+  }
+
+  @Test
+  public void testReusedDecisionInvokesCallbacks() {
+    // the decider doesn't invoke the test, the callbacks are still invoked
+    authorizer.checkAccess(context, SimpleRoles.of("guest"), test -> true);
+    assertEquals(List.of("pre", "post:true"), calls);
+    calls.clear();
+    try {
+      authorizer.checkAccess(context, SimpleRoles.of("admin"), test -> false);
+      fail();
+    } catch (AuthorizationException e) {
+      // expected
+    }
+    assertEquals(List.of("pre", "post:false"), calls);
+    calls.clear();
+    authorizer.checkAccess(context, SimpleRoles.of("admin"), test -> test.getAsBoolean());
+    assertEquals(List.of("pre", "post:true"), calls);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.security.shared;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.corant.shared.util.Serializations;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-security-shared
+ *
+ * @author bingo 下午3:52:18
+ *
+ */
+public class PermissionIndexTest extends TestCase {
+
+  static final List<String> PERMISSIONS = Arrays.asList("order:read", "Order:Write",
+      "invoice:*", "report:?:view", "a*b*c", "*:admin", "user:*:profile:*", " padded ");
+
+  static final List<String> REQUIRED = Arrays.asList("order:read", "ORDER:READ", "order:write",
+      "order:delete", "invoice:", "invoice:123", "report:1:view", "report:12:view", "abc",
+      "aXbYc", "acb", "abcc", "x:admin", ":admin", "admin", "user:1:profile:", "user:1:profile",
+      "user::profile:x", "padded", " padded ", "");
+
+  @Test
+  public void testImpliedBy() {
+    List<String> roles = Arrays.asList("Admin", "user", "ops-team");
+    PermissionIndex index = PermissionIndex.of(roles);
+    for (String required : Arrays.asList("admin", "USER", "ops-*", "*team", "guest", "ad?in",
+        "a?in")) {
+      SimpleRole role = new SimpleRole(required);
+      boolean expected = roles.stream().map(SimpleRole::new).anyMatch(role::implies);
+      assertEquals(required, expected, index.impliedBy(required));
+    }
+    assertFalse(PermissionIndex.EMPTY_INST.impliedBy("admin"));
+  }
+
+  @Test
+  public void testImplies() {
+    PermissionIndex index = PermissionIndex.of(PERMISSIONS);
+    for (String required : REQUIRED) {
+      boolean expected = PERMISSIONS.stream().map(Predication::predicateOf)
+          .anyMatch(p -> p.test(required));
+      assertEquals(required, expected, index.implies(required));
+    }
+    assertFalse(PermissionIndex.of(Collections.emptyList()).implies("order:read"));
+  }
+
+  @Test
+  public void testSubject() {
+    SimpleSubject subject = new SimpleSubject(Collections.emptyList(),
+        Arrays.asList(new SimpleRole("admin")),
+        Arrays.asList(new SimplePermission("order:*"), new SimplePermission("invoice:read")),
+        null);
+    assertTrue(subject.hasPermission(new SimplePermission("order:read")));
+    assertTrue(subject.hasPermission(new SimplePermission("INVOICE:READ")));
+    assertFalse(subject.hasPermission(new SimplePermission("invoice:write")));
+    assertTrue(subject.hasRole(new SimpleRole("adm*")));
+    assertFalse(subject.hasRole(new SimpleRole("user")));
+    assertFalse(subject.getDecisionKey()
+        .equals(new SimpleSubject(Collections.emptyList()).getDecisionKey()));
+  }
+
+  @Test
+  public void testSubjectDecisionKey() {
+    SimpleSubject subject = new SimpleSubject(Arrays.asList(new SimplePrincipal("bingo")),
+        Arrays.asList(new SimpleRole("admin"), new SimpleRole("user")),
+        Arrays.asList(new SimplePermission("order:*")), null);
+    SimpleSubject same = new SimpleSubject(Arrays.asList(new SimplePrincipal("bingo")),
+        Arrays.asList(new SimpleRole("user"), new SimpleRole("admin")),
+        Arrays.asList(new SimplePermission("order:*")), null);
+    SimpleSubject other = new SimpleSubject(Arrays.asList(new SimplePrincipal("bingo")),
+        Arrays.asList(new SimpleRole("user")), Arrays.asList(new SimplePermission("order:*")),
+        null);
+    assertEquals(subject.getDecisionKey(), same.getDecisionKey());
+    assertEquals(subject.getDecisionKey().hashCode(), same.getDecisionKey().hashCode());
+    assertFalse(subject.getDecisionKey().equals(other.getDecisionKey()));
+    SimpleSubject deserialized =
+        (SimpleSubject) Serializations.deserialize(Serializations.serialize(subject));
+    assertEquals(subject.getDecisionKey(), deserialized.getDecisionKey());
+    assertFalse(other.getDecisionKey().equals(deserialized.getDecisionKey()));
+  }
+}
@@ -14,6 +14,7 @@
 package org.corant.modules.servlet;
 
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableMap;
@@ -28,8 +29,15 @@ import static org.corant.shared.util.Strings.defaultString;
 import static org.corant.shared.util.Strings.isBlank;
 import static org.corant.shared.util.Strings.isNotBlank;
 import static org.corant.shared.util.Strings.join;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -43,7 +51,9 @@ import java.util.function.Function;
 import java.util.logging.Logger;
 import org.corant.modules.servlet.HttpRanges.HttpRange;
 import org.corant.shared.normal.Defaults;
+import org.corant.shared.resource.FileSystemResource;
 import org.corant.shared.resource.LimitedStream.RangedInputStream;
+import org.corant.shared.resource.PathResource;
 import org.corant.shared.resource.Resource;
 import org.corant.shared.util.ContentDispositions.ContentDisposition;
 import org.corant.shared.util.FileUtils;
@@ -52,6 +62,15 @@ import org.corant.shared.util.Streams;
 
 /**
  * corant-modules-servlet
+ * <p>
+ * Resolve the HTTP stream output headers and writer, supports single and multipart byte ranges.
+ * <p>
+ * The resolved {@link HttpStreamOutputResult} can write the content from an input stream or from a
+ * file channel, the latter is used for the {@link FileSystemResource} and {@link PathResource},
+ * each range is transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * from its position instead of skipping through the stream. Note: Unless the output stream is a
+ * {@link FileOutputStream}, it is wrapped by {@link Channels#newChannel(OutputStream)} and the
+ * bytes are still copied through a heap buffer.
  *
  * @author bingo 下午4:01:33
  *
@@ -86,6 +105,8 @@ public class HttpStreamOutput {
   public static final String NOT_SATISFIABLE_FMT = HEADER_VALUE_BYTE_RANGE_UNIT + " */%d";
   public static final String EMPTY_LINE = "\r\n";
 
+  protected static final byte[] EMPTY_LINE_BYTES = EMPTY_LINE.getBytes(ISO_8859_1);
+
   protected final static Logger logger = Logger.getLogger(HttpStreamOutput.class.getName());
 
   protected Function<String, String> requestHeaders;
@@ -173,14 +194,7 @@ public class HttpStreamOutput {
 
   public Map<String, Object> resolveOutputHeaders() {
     Map<String, Object> headers = new HashMap<>();
-    String useContentType = contentType;
-    if (isBlank(useContentType)) {
-      if (isNotBlank(fileName)) {
-        useContentType = FileUtils.getContentType(fileName);
-      }
-      useContentType = defaultObject(useContentType, DEFAULT_CONTENT_TYPE);
-    }
-    headers.put(HEADER_NAME_CONTENT_TYPE, useContentType);
+    headers.put(HEADER_NAME_CONTENT_TYPE, resolveContentType());
     if (size != null) {
       headers.put(HEADER_NAME_CONTENT_LENGTH, size.toString());
     }
@@ -227,16 +241,55 @@ public class HttpStreamOutput {
     }
   }
 
+  /**
+   * Transfer the given count bytes from the given position of the file channel to the output
+   * stream, the output stream other than {@link FileOutputStream} is wrapped into a channel that
+   * copies the bytes through a heap buffer.
+   *
+   * @param channel the source file channel
+   * @param position the position of the file channel to start
+   * @param count the bytes to transfer
+   * @param os the target output stream
+   * @throws IOException if an I/O error occurs or the file channel reaches the end prematurely
+   */
+  protected static void transfer(FileChannel channel, long position, long count, OutputStream os)
+      throws IOException {
+    final WritableByteChannel target = os instanceof FileOutputStream
+        ? ((FileOutputStream) os).getChannel() : Channels.newChannel(os);
+    long pos = position;
+    long remaining = count;
+    while (remaining > 0) {
+      long transferred = channel.transferTo(pos, remaining, target);
+      if (transferred <= 0 && pos >= channel.size()) {
+        throw new EOFException("Unexpected end of file channel at position " + pos);
+      }
+      pos += transferred;
+      remaining -= transferred;
+    }
+  }
+
   protected String resolveContentDisposition() {
     return new ContentDisposition(defaultString(outputType, "attachment"), name, fileName, charset,
         size, creationDate, modificationDate, readDate, loose).toString();
   }
 
+  protected String resolveContentType() {
+    String useContentType = contentType;
+    if (isBlank(useContentType)) {
+      if (isNotBlank(fileName)) {
+        useContentType = FileUtils.getContentType(fileName);
+      }
+      useContentType = defaultObject(useContentType, DEFAULT_CONTENT_TYPE);
+    }
+    return useContentType;
+  }
+
   protected HttpStreamOutputResult resolveFullRangeOutputResult() {
     logger.fine("Handle full output result!");
     Map<String, Object> headers = resolveOutputHeaders();
     headers.put(HEADER_NAME_ACCEPT_RANGES, HEADER_VALUE_ACCEPT_RANGES);
-    return new HttpStreamOutputResult(STATUS_OF_OK, headers, uncheckedBiConsumer(Streams::copy));
+    return new HttpStreamOutputResult(STATUS_OF_OK, headers, uncheckedBiConsumer(Streams::copy),
+        uncheckedBiConsumer((fc, os) -> transfer(fc, 0, fc.size(), os)));
   }
 
   protected HttpStreamOutputResult resolveMultiRangesOutputResult(List<HttpRange> ranges) {
@@ -248,20 +301,39 @@ public class HttpStreamOutput {
     if (additionalHeaders != null) {
       headers.putAll(additionalHeaders);
     }
+    // pre-encode the part headers and the closing boundary
+    final int rangeSize = ranges.size();
+    final byte[][] partHeaders = new byte[rangeSize][];
+    final String partContentType = resolveContentType();
+    for (int i = 0; i < rangeSize; i++) {
+      HttpRange range = ranges.get(i);
+      partHeaders[i] = new StringBuilder(128).append("--").append(boundary).append(EMPTY_LINE)
+          .append("Content-Type: ").append(partContentType).append(EMPTY_LINE)
+          .append("Content-Range: ").append(HEADER_VALUE_BYTE_RANGE_UNIT).append(' ')
+          .append(range.start()).append(HEADER_VALUE_BYTE_RANGE_SEPARATOR).append(range.end())
+          .append('/').append(size).append(EMPTY_LINE).append(EMPTY_LINE).toString()
+          .getBytes(ISO_8859_1);
+    }
+    final byte[] closing = ("--" + boundary + "--").getBytes(ISO_8859_1);
     return new HttpStreamOutputResult(STATUS_OF_PARTIAL_CONTENT, headers,
         uncheckedBiConsumer((is, os) -> {
           long lastPos = 0;
-          final String rangeLineFmt = CONTENT_RANGE_LINE_FMT.concat(EMPTY_LINE);
-          for (HttpRange range : ranges) {
-            os.write(format(BOUNDARY_LINE_FMT.concat(EMPTY_LINE), boundary).getBytes());
-            os.write(format(CONTENT_TYPE_LINE_FMT.concat(EMPTY_LINE), contentType).getBytes());
-            os.write(format(rangeLineFmt, range.start(), range.end(), size).getBytes());
-            os.write(EMPTY_LINE.getBytes());
+          for (int i = 0; i < rangeSize; i++) {
+            HttpRange range = ranges.get(i);
+            os.write(partHeaders[i]);
             copy(new RangedInputStream(is, range.start() - lastPos, range.size()), os);
-            os.write(EMPTY_LINE.getBytes());
+            os.write(EMPTY_LINE_BYTES);
             lastPos = range.end() + 1;
           }
-          os.write(format(BOUNDARY_LINE_FMT, boundary + "--").getBytes());
+          os.write(closing);
+        }), uncheckedBiConsumer((fc, os) -> {
+          for (int i = 0; i < rangeSize; i++) {
+            HttpRange range = ranges.get(i);
+            os.write(partHeaders[i]);
+            transfer(fc, range.start(), range.size(), os);
+            os.write(EMPTY_LINE_BYTES);
+          }
+          os.write(closing);
         }));
   }
 
@@ -287,8 +359,10 @@ public class HttpStreamOutput {
     if (additionalHeaders != null) {
       headers.putAll(additionalHeaders);
     }
-    return new HttpStreamOutputResult(STATUS_OF_PARTIAL_CONTENT, headers, uncheckedBiConsumer(
-        (is, os) -> copy(new RangedInputStream(is, range.start(), range.size()), os)));
+    return new HttpStreamOutputResult(STATUS_OF_PARTIAL_CONTENT, headers,
+        uncheckedBiConsumer(
+            (is, os) -> copy(new RangedInputStream(is, range.start(), range.size()), os)),
+        uncheckedBiConsumer((fc, os) -> transfer(fc, range.start(), range.size(), os)));
   }
 
   /**
@@ -402,9 +476,16 @@ public class HttpStreamOutput {
     protected final Map<String, Object> headers;
     protected final int status;
     protected final BiConsumer<InputStream, OutputStream> writer;
+    protected final BiConsumer<FileChannel, OutputStream> channelWriter;
 
     public HttpStreamOutputResult(int status, Map<String, Object> headers,
         BiConsumer<InputStream, OutputStream> writer) {
+      this(status, headers, writer, null);
+    }
+
+    public HttpStreamOutputResult(int status, Map<String, Object> headers,
+        BiConsumer<InputStream, OutputStream> writer,
+        BiConsumer<FileChannel, OutputStream> channelWriter) {
       if (headers != null) {
         this.headers = unmodifiableMap(headers);
       } else {
@@ -416,12 +497,17 @@ public class HttpStreamOutput {
       } else {
         this.writer = emptyBiConsumer();
       }
+      this.channelWriter = channelWriter;
     }
 
     public HttpStreamOutputResult(Map<String, Object> headers, int status) {
       this(status, headers, null);
     }
 
+    public BiConsumer<FileChannel, OutputStream> getChannelWriter() {
+      return channelWriter;
+    }
+
     public Map<String, Object> getHeaders() {
       return headers;
     }
@@ -433,6 +519,32 @@ public class HttpStreamOutput {
     public BiConsumer<InputStream, OutputStream> getWriter() {
       return writer;
     }
+
+    /**
+     * Write the content of the given resource to the given output stream, if the resource is a
+     * {@link FileSystemResource} or a {@link PathResource} and can be opened as a file channel, the
+     * channel writer is used, otherwise the input stream writer is used.
+     *
+     * @param resource the resource to write
+     * @param os the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Resource resource, OutputStream os) throws IOException {
+      if (channelWriter != null
+          && (resource instanceof FileSystemResource || resource instanceof PathResource)) {
+        ReadableByteChannel channel = resource.openReadableChannel();
+        if (channel instanceof FileChannel) {
+          try (FileChannel fc = (FileChannel) channel) {
+            channelWriter.accept(fc, os);
+          }
+          return;
+        }
+        channel.close();
+      }
+      try (InputStream is = resource.openInputStream()) {
+        writer.accept(is, os);
+      }
+    }
   }
 
 }
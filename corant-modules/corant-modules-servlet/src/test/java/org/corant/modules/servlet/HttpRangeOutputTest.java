@@ -14,15 +14,21 @@ package org.corant.modules.servlet;
  */
 
 import static org.corant.shared.ubiquity.Throwing.uncheckedFunction;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import org.corant.modules.servlet.HttpRanges.HttpRange;
+import org.corant.modules.servlet.HttpStreamOutput.HttpStreamOutputResult;
+import org.corant.shared.resource.FileSystemResource;
 import org.corant.shared.resource.LimitedStream.RangedInputStream;
 import org.corant.shared.util.FileUtils;
 import org.corant.shared.util.Streams;
@@ -65,4 +71,31 @@ public class HttpRangeOutputTest extends TestCase {
     new File(md).delete();
   }
 
+  @Test
+  public void testRangeChannelOutput() throws IOException {
+    File file = File.createTempFile("corant-range-", ".bin");
+    try {
+      byte[] data = new byte[64 * 1024 + 17];
+      new Random(17).nextBytes(data);
+      Files.write(file.toPath(), data);
+      for (String range : Arrays.asList(null, "bytes=100-4095", "bytes=-300",
+          "bytes=0-200,201-300,1000-2000,60000-")) {
+        HttpStreamOutputResult result =
+            HttpStreamOutput.builder().fileName(file.getName()).size(file.length())
+                .requestHeaders(h -> HttpStreamOutput.HEADER_NAME_RANGE.equals(h) ? range : null)
+                .build().resolveRangeOutputResult();
+        assertNotNull(result.getChannelWriter());
+        ByteArrayOutputStream streamOutput = new ByteArrayOutputStream();
+        try (InputStream is = new FileInputStream(file)) {
+          result.getWriter().accept(is, streamOutput);
+        }
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        result.write(new FileSystemResource(file), channelOutput);
+        assertTrue(Arrays.equals(streamOutput.toByteArray(), channelOutput.toByteArray()));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
 }
@@ -85,6 +85,8 @@ public interface Names {
     String CFG_ADJUST_PREFIX = CFG_ADJUST_KEY + NAME_SPACE_SEPARATORS;
     String CFG_LOCATION_EXCLUDE_PATTERN =
         CORANT_CFG_PREFIX + NAME_SPACE_SEPARATORS + "location.exclude.pattern";
+    String CFG_VALUE_CACHE_ENABLE =
+        CORANT_CFG_PREFIX + NAME_SPACE_SEPARATORS + "value-cache.enable";
   }
 
   interface JndiNames {
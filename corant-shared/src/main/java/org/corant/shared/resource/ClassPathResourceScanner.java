@@ -23,12 +23,16 @@ import static org.corant.shared.util.Strings.isBlank;
 import static org.corant.shared.util.Strings.isNotBlank;
 import static org.corant.shared.util.Strings.replace;
 import static org.corant.shared.util.Strings.split;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -55,9 +59,20 @@ import java.util.logging.Logger;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.util.FileUtils;
 import org.corant.shared.util.PathMatcher;
+import org.corant.shared.util.Systems;
 
 /**
  * corant-shared
+ * <p>
+ * Scan the class path resources of the given class path entries.
+ * <p>
+ * If the system property {@link #USE_RESOURCE_INDEX_PROPERTY} is true, the scanner reads the
+ * resource names from the build-time resource index {@link #RESOURCE_INDEX} of the jar or the class
+ * path directory instead of enumerating the jar entries or walking the directory tree, if the class
+ * path entry has no index it is scanned as usual. The index is a sorted UTF-8 list of resource
+ * names, one per line, generated by the corant jandex maven plugin from the build output directory,
+ * so the resources that are not in the build output directory when the index is generated are
+ * invisible in index mode.
  *
  * @author bingo 下午3:59:11
  *
@@ -79,6 +94,8 @@ public class ClassPathResourceScanner {
   public static final String FILE_SCHEMA = "file";
   public static final String JAR_SCHEMA = "jar";
   public static final String JRT_SCHEMA = "jrt";// from JDK9
+  public static final String RESOURCE_INDEX = "META-INF/corant-resources.idx";
+  public static final String USE_RESOURCE_INDEX_PROPERTY = "corant.resource.scanner.use-index";
 
   protected static final Logger logger = Logger.getLogger(ClassPathResourceScanner.class.getName());
   protected static final Map<Path, URLClassLoader> cachedClassLoaders = new ConcurrentHashMap<>();// static?
@@ -86,6 +103,8 @@ public class ClassPathResourceScanner {
   protected final Set<ClassPathResource> resources = new LinkedHashSet<>();
   protected final Set<URI> scannedUris = new HashSet<>();
   protected final String root;
+  protected final boolean useIndex =
+      Boolean.parseBoolean(Systems.getProperty(USE_RESOURCE_INDEX_PROPERTY));
 
   protected Predicate<String> filter = emptyPredicate(true);
 
@@ -242,6 +261,9 @@ public class ClassPathResourceScanner {
   protected void scanDirectory(File directory, ClassLoader classLoader, Set<File> ancestors)
       throws IOException {
     String canonical = getRegularFilePath(directory);
+    if (useIndex && scanIndexedDirectory(canonical, classLoader)) {
+      return;
+    }
     if (isBlank(root)) {
       scanDirectory(directory, classLoader, root, ancestors);
     } else {
@@ -330,6 +352,9 @@ public class ClassPathResourceScanner {
       for (URI uri : getClassPathFromManifest(file, jarFile.getManifest())) {
         scan(uri, classloader);
       }
+      if (useIndex && scanIndexedJar(jarPath, jarFile, classloader)) {
+        return;
+      }
       Enumeration<JarEntry> entries = jarFile.entries();
       while (entries.hasMoreElements()) {
         JarEntry entry = entries.nextElement();
@@ -351,6 +376,66 @@ public class ClassPathResourceScanner {
     }
   }
 
+  /**
+   * Scan the class path directory with the resource index, returns false if the class path root
+   * directory of the given directory has no resource index.
+   *
+   * @param canonical the canonical path of the directory to be scanned
+   * @param classLoader the class loader
+   * @throws IOException If I/O errors occur
+   */
+  protected boolean scanIndexedDirectory(String canonical, ClassLoader classLoader)
+      throws IOException {
+    String base = canonical;
+    if (isNotBlank(root)) {
+      String suffix = PATH_SEPARATOR + (root.endsWith(PATH_SEPARATOR_STRING)
+          ? root.substring(0, root.length() - 1)
+          : root);
+      if (!canonical.endsWith(suffix)) {
+        return false;
+      }
+      base = canonical.substring(0, canonical.length() - suffix.length());
+    }
+    File index = new File(base, RESOURCE_INDEX);
+    if (!index.isFile()) {
+      return false;
+    }
+    try (InputStream is = Files.newInputStream(index.toPath())) {
+      for (String resourceName : readIndex(is)) {
+        if (filter.test(resourceName)) {
+          resources.add(ClassPathResource.of(resourceName, classLoader,
+              new File(base, resourceName).toURI().toURL()));
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scan the jar with the resource index, returns false if the jar has no resource index.
+   *
+   * @param jarPath the jar path use to build the resource URLs
+   * @param jarFile the jar file to be scanned
+   * @param classloader the class loader
+   * @throws IOException If I/O errors occur
+   */
+  protected boolean scanIndexedJar(String jarPath, JarFile jarFile, ClassLoader classloader)
+      throws IOException {
+    JarEntry index = jarFile.getJarEntry(RESOURCE_INDEX);
+    if (index == null) {
+      return false;
+    }
+    try (InputStream is = jarFile.getInputStream(index)) {
+      for (String resourceName : readIndex(is)) {
+        if (filter.test(resourceName)) {
+          resources.add(ClassPathResource.of(resourceName, classloader,
+              new URL(jarPath.concat(JAR_URL_SEPARATOR.concat(resourceName)))));
+        }
+      }
+    }
+    return true;
+  }
+
   protected void scanSingleFile(File file, ClassLoader classloader) throws IOException {
     String filePath = replace(file.getCanonicalPath(), File.separator, PATH_SEPARATOR_STRING);
     if (filePath.endsWith(JAR_EXT)) {
@@ -398,6 +483,29 @@ public class ClassPathResourceScanner {
     return null;
   }
 
+  /**
+   * Returns the resource names under the root from the given sorted resource index.
+   */
+  List<String> readIndex(InputStream is) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+      final boolean all = isBlank(root);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (all || line.startsWith(root)) {
+          if (!line.isEmpty() && !JarFile.MANIFEST_NAME.equals(line)) {
+            names.add(line);
+          }
+        } else if (line.compareTo(root) > 0) {
+          // the names are sorted, no more names under the root
+          break;
+        }
+      }
+    }
+    return names;
+  }
+
   String appendPathSeparatorIfNecessarily(String path) {
     if (path == null) {
       return null;
@@ -0,0 +1,620 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource.watch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.defaultObject;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.util.Texts.LocableFileLine;
+import org.corant.shared.util.Threads;
+
+/**
+ * corant-shared
+ * <p>
+ * A tailing reader that follows a growing text file and delivers the complete lines in batches.
+ * <p>
+ * The batches are delivered to the {@link BatchHandler} in the tailer thread, the next batch is not
+ * read until the handler returns, so a slow handler slows down the reading instead of buffering the
+ * lines. When the handler returns normally, the end position of the last line of the batch is
+ * committed to the {@link CheckpointStore}; if the handler throws an exception, the batch is
+ * redelivered after the idle interval, so the delivery is at least once. When started, the reading
+ * resumes from the committed checkpoint.
+ * <p>
+ * The file rotation is detected by the file key (the inode on most file systems), if the path is
+ * bound to a new file, the remainder of the old file is drained (the incomplete last line is
+ * delivered as well) and the new file is read from the beginning; if the checkpointed file has been
+ * rotated away while the tailer was stopped, the file with the checkpointed key in the same
+ * directory is drained first. If the file size shrinks below the read position, the file is
+ * considered truncated and read from the beginning.
+ * <p>
+ * If watching is enabled and the parent directory exists, a {@link DirectoryWatcher} on the parent
+ * directory wakes the tailer on the file change events, the idle interval is only used as a
+ * fallback for the file systems that do not report the changes timely.
+ * <p>
+ * Note: Only the '\n' and '\r\n' line terminators are recognized.
+ *
+ * @author bingo 下午2:37:16
+ *
+ */
+public class FileTailer implements Runnable, Closeable {
+
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+  public static final long DEFAULT_IDLE_MILLIS = 1000L;
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  static final byte CR = '\r';
+  static final byte LF = '\n';
+
+  protected final Logger logger = Logger.getLogger(this.getClass().getName());
+  protected final Path path;
+  protected final CharsetDecoder decoder;
+  protected final int batchSize;
+  protected final long idleMillis;
+  protected final CheckpointStore checkpointStore;
+  protected final BatchHandler handler;
+  protected final boolean watch;
+  protected final Semaphore signal = new Semaphore(0);
+
+  protected volatile boolean running = true;
+  protected volatile Watcher watcher;
+  protected volatile long committedPosition;
+  protected FileChannel channel;
+  protected String fileKey;
+  protected long position;
+  protected ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE).flip();
+
+  public FileTailer(Path path, BatchHandler handler) {
+    this(path, UTF_8, DEFAULT_BATCH_SIZE, DEFAULT_IDLE_MILLIS, new MemoryCheckpointStore(), true,
+        handler);
+  }
+
+  /**
+   * Create a file tailer
+   *
+   * @param path the file path to be tailed, the file may not exist yet
+   * @param charset the file charset, default is UTF-8
+   * @param batchSize the maximum number of lines of a batch
+   * @param idleMillis the maximum time to wait for the file changes before checking again
+   * @param checkpointStore the checkpoint store use to commit and resume the read position
+   * @param watch whether to watch the parent directory to wake on the file change events
+   * @param handler the batch handler
+   */
+  public FileTailer(Path path, Charset charset, int batchSize, long idleMillis,
+      CheckpointStore checkpointStore, boolean watch, BatchHandler handler) {
+    shouldBeTrue(batchSize > 0 && idleMillis > 0,
+        "The batch size and the idle millis must be greater than 0");
+    this.path = shouldNotNull(path, "The path to be tailed can't null").toAbsolutePath();
+    decoder = defaultObject(charset, UTF_8).newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.batchSize = batchSize;
+    this.idleMillis = idleMillis;
+    this.checkpointStore = shouldNotNull(checkpointStore, "The checkpoint store can't null");
+    this.watch = watch;
+    this.handler = shouldNotNull(handler, "The batch handler can't null");
+  }
+
+  static void close(FileChannel opened, Exception cause) {
+    try {
+      opened.close();
+    } catch (IOException e) {
+      cause.addSuppressed(e);
+    }
+  }
+
+  static String fileKeyOf(BasicFileAttributes attributes) {
+    Object key = attributes.fileKey();
+    return key != null ? key.toString() : attributes.creationTime().toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    running = false;
+    signal.release();
+    Watcher useWatcher = watcher;
+    if (useWatcher != null) {
+      useWatcher.close();
+    }
+  }
+
+  /**
+   * Returns the position of the last committed line end, can be called from any thread.
+   */
+  public long getPosition() {
+    return committedPosition;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public void run() {
+    try {
+      if (watch && Files.isDirectory(path.getParent())) {
+        final Path fileName = path.getFileName();
+        final Watcher useWatcher = new DirectoryWatcher(path.getParent(), false,
+            p -> fileName.equals(p.getFileName()), e -> signal.release());
+        Threads.runInDaemon(Watchers.DAEMON_THREAD_PREFIX.concat(fileName.toString()), useWatcher);
+        watcher = useWatcher;
+      }
+      boolean resumed = false;
+      while (running) {
+        try {
+          if (!resumed) {
+            resume();
+            resumed = true;
+          } else if (channel == null) {
+            open(0);
+          }
+          if (channel == null || pump(false) == 0 && !checkRotation()) {
+            await();
+          }
+        } catch (IOException e) {
+          logger.log(Level.WARNING, e,
+              () -> String.format("Tail the file %s occurred error, retry later!", path));
+          if (!resumed) {
+            // resume again from the checkpoint
+            closeChannel();
+          }
+          await();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      running = false;
+      closeChannel();
+      Watcher useWatcher = watcher;
+      if (useWatcher != null) {
+        try {
+          useWatcher.close();
+        } catch (IOException e) {
+          logger.log(Level.WARNING, e, () -> "Close the file tailer watcher occurred error!");
+        }
+      }
+    }
+  }
+
+  /**
+   * Wait for the file change events or the idle interval.
+   */
+  protected void await() throws InterruptedException {
+    signal.tryAcquire(idleMillis, TimeUnit.MILLISECONDS);
+    signal.drainPermits();
+  }
+
+  /**
+   * Check whether the file was rotated or truncated, returns true if the channel was switched or
+   * the position was reset.
+   */
+  protected boolean checkRotation() throws IOException, InterruptedException {
+    final BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      // the file was moved away and not yet recreated, keep the current channel
+      return false;
+    }
+    if (!fileKeyOf(attributes).equals(fileKey)) {
+      logger.fine(() -> String.format("The tailing file %s was rotated.", path));
+      drain();
+      closeChannel();
+      open(0);
+      return true;
+    } else if (attributes.size() < position) {
+      logger.fine(() -> String.format("The tailing file %s was truncated.", path));
+      position = 0;
+      buffer.clear().flip();
+      commit();
+      return true;
+    }
+    return false;
+  }
+
+  protected void closeChannel() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, e, () -> "Close the tailing file occurred error!");
+      }
+      channel = null;
+    }
+  }
+
+  protected void commit() {
+    checkpointStore.save(path, new Checkpoint(fileKey, position));
+    committedPosition = position;
+  }
+
+  /**
+   * Deliver the batch to the handler until it succeeds, returns false if the tailer was closed
+   * before the batch was handled.
+   */
+  protected boolean deliver(List<LocableFileLine> lines) throws InterruptedException {
+    while (running) {
+      try {
+        handler.handle(lines);
+        position = lines.get(lines.size() - 1).getEndPosition();
+        commit();
+        return true;
+      } catch (InterruptedException e) {
+        throw e;
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e,
+            () -> String.format("Handle the tailing file %s lines occurred error, retry later!",
+                path));
+        Thread.sleep(idleMillis);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Deliver the remainder of the current channel, including the incomplete last line.
+   */
+  protected void drain() throws IOException, InterruptedException {
+    while (running && pump(true) > 0) {
+      // until the channel is exhausted
+    }
+  }
+
+  /**
+   * Fill the buffer from the channel, returns the number of bytes read or -1 if end of the file.
+   */
+  protected int fill() throws IOException {
+    if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+      // a line longer than the buffer, grow up
+      ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() << 1);
+      grown.put(buffer).flip();
+      buffer = grown;
+    }
+    final long readPosition = position + buffer.remaining();
+    buffer.compact();
+    int read;
+    try {
+      read = channel.read(buffer, readPosition);
+    } finally {
+      buffer.flip();
+    }
+    return read;
+  }
+
+  protected void open(long resumePosition) throws IOException {
+    final FileChannel opened;
+    try {
+      opened = FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      channel = null;
+      return;
+    }
+    final String openedKey;
+    try {
+      openedKey = fileKeyOf(Files.readAttributes(path, BasicFileAttributes.class));
+    } catch (IOException | RuntimeException e) {
+      close(opened, e);
+      if (e instanceof NoSuchFileException) {
+        // the file was moved away right after opened
+        channel = null;
+        return;
+      }
+      throw e;
+    }
+    open(opened, openedKey, resumePosition);
+  }
+
+  /**
+   * Switch to the given opened channel, the channel is closed if it can't be switched to.
+   */
+  protected void open(FileChannel opened, String openedKey, long resumePosition)
+      throws IOException {
+    final long size;
+    try {
+      size = opened.size();
+    } catch (IOException | RuntimeException e) {
+      close(opened, e);
+      throw e;
+    }
+    channel = opened;
+    fileKey = openedKey;
+    position = resumePosition > size ? 0 : resumePosition;
+    buffer.clear().flip();
+    commit();
+  }
+
+  /**
+   * Read and deliver at most one batch of lines from the current channel, returns the number of
+   * delivered lines.
+   *
+   * @param flush whether to deliver the incomplete last line at the end of the channel
+   */
+  protected int pump(boolean flush) throws IOException, InterruptedException {
+    final List<LocableFileLine> lines = new ArrayList<>(Math.min(batchSize, 64));
+    int start = buffer.position();
+    int scan = start;
+    while (lines.size() < batchSize) {
+      if (scan >= buffer.limit()) {
+        final int shift = buffer.position();
+        final int read = fill();
+        start -= shift;
+        scan -= shift;
+        if (read <= 0) {
+          if (flush && scan > start) {
+            lines.add(toLine(start, scan));
+            start = scan;
+          }
+          break;
+        }
+      } else if (buffer.get(scan++) == LF) {
+        lines.add(toLine(start, scan));
+        start = scan;
+      }
+    }
+    if (lines.isEmpty() || !deliver(lines)) {
+      return 0;
+    }
+    buffer.position(start);
+    return lines.size();
+  }
+
+  /**
+   * Resume from the checkpoint, if the checkpointed file was rotated away and still exists in the
+   * same directory, drain it first.
+   */
+  protected void resume() throws IOException, InterruptedException {
+    Checkpoint checkpoint = checkpointStore.load(path);
+    if (checkpoint == null || checkpoint.getFileKey() == null) {
+      open(0);
+      return;
+    }
+    BasicFileAttributes attributes = null;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      // not yet created
+    }
+    if (attributes != null && checkpoint.getFileKey().equals(fileKeyOf(attributes))) {
+      open(checkpoint.getPosition());
+      return;
+    }
+    Path rotated = null;
+    try (DirectoryStream<Path> siblings = Files.newDirectoryStream(path.getParent())) {
+      for (Path sibling : siblings) {
+        if (!sibling.equals(path) && Files.isRegularFile(sibling) && checkpoint.getFileKey()
+            .equals(fileKeyOf(Files.readAttributes(sibling, BasicFileAttributes.class)))) {
+          rotated = sibling;
+          break;
+        }
+      }
+    }
+    if (rotated != null) {
+      final Path drained = rotated;
+      logger.fine(() -> String.format("Drain the rotated file %s of %s.", drained, path));
+      open(FileChannel.open(rotated, StandardOpenOption.READ), checkpoint.getFileKey(),
+          checkpoint.getPosition());
+      drain();
+      closeChannel();
+    }
+    open(0);
+  }
+
+  /**
+   * Returns the line of the given buffer range, the line terminator is excluded from the content.
+   */
+  protected LocableFileLine toLine(int start, int end) {
+    final long begin = position + start - buffer.position();
+    int contentEnd = end;
+    if (contentEnd > start && buffer.get(contentEnd - 1) == LF) {
+      contentEnd--;
+      if (contentEnd > start && buffer.get(contentEnd - 1) == CR) {
+        contentEnd--;
+      }
+    }
+    ByteBuffer content = buffer.duplicate();
+    content.limit(contentEnd).position(start);
+    try {
+      return new LocableFileLine(begin, begin + end - start, decoder.decode(content).toString());
+    } catch (IOException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The batch handler, the batch is committed when the handler returns normally.
+   *
+   * @author bingo 下午2:40:05
+   *
+   */
+  @FunctionalInterface
+  public interface BatchHandler {
+
+    void handle(List<LocableFileLine> lines) throws Exception;
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The committed read position of a file identified by the file key.
+   *
+   * @author bingo 下午2:41:17
+   *
+   */
+  public static class Checkpoint implements Serializable {
+
+    private static final long serialVersionUID = 5311232916541539574L;
+
+    protected final String fileKey;
+    protected final long position;
+
+    public Checkpoint(String fileKey, long position) {
+      this.fileKey = fileKey;
+      this.position = position;
+    }
+
+    public String getFileKey() {
+      return fileKey;
+    }
+
+    public long getPosition() {
+      return position;
+    }
+
+    @Override
+    public String toString() {
+      return "Checkpoint [fileKey=" + fileKey + ", position=" + position + "]";
+    }
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The pluggable checkpoint store
+   *
+   * @author bingo 下午2:42:30
+   *
+   */
+  public interface CheckpointStore {
+
+    /**
+     * Returns the committed checkpoint of the given tailing file or null if not found.
+     *
+     * @param path the tailing file path
+     */
+    Checkpoint load(Path path);
+
+    /**
+     * Commit the checkpoint of the given tailing file
+     *
+     * @param path the tailing file path
+     * @param checkpoint the checkpoint to commit
+     */
+    void save(Path path, Checkpoint checkpoint);
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The checkpoint store that persists the checkpoints of the tailing files to a file, one line per
+   * tailing file in the form of 'file key TAB position TAB absolute path', so that one store can be
+   * shared by several tailers. The checkpoints are loaded from the file on first use and the file
+   * is replaced atomically on each commit.
+   *
+   * @author bingo 下午2:44:51
+   *
+   */
+  public static class FileCheckpointStore implements CheckpointStore {
+
+    protected final Path file;
+    protected Map<Path, Checkpoint> checkpoints;
+
+    public FileCheckpointStore(Path file) {
+      this.file = shouldNotNull(file, "The checkpoint file can't null").toAbsolutePath();
+    }
+
+    @Override
+    public synchronized Checkpoint load(Path path) {
+      return resolveCheckpoints().get(path.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void save(Path path, Checkpoint checkpoint) {
+      Map<Path, Checkpoint> saved = resolveCheckpoints();
+      saved.put(path.toAbsolutePath(), checkpoint);
+      List<String> lines = new ArrayList<>(saved.size());
+      saved.forEach((p, c) -> lines.add(defaultObject(c.getFileKey(), "") + '\t'
+          + c.getPosition() + '\t' + p));
+      try {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, lines, UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        throw new CorantRuntimeException(e);
+      }
+    }
+
+    protected Map<Path, Checkpoint> resolveCheckpoints() {
+      if (checkpoints == null) {
+        Map<Path, Checkpoint> loaded = new LinkedHashMap<>();
+        try {
+          if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, UTF_8)) {
+              String[] parts = line.split("\t", 3);
+              if (parts.length == 3) {
+                loaded.put(Path.of(parts[2]), new Checkpoint(
+                    parts[0].isEmpty() ? null : parts[0], Long.parseLong(parts[1])));
+              }
+            }
+          }
+        } catch (IOException | RuntimeException e) {
+          throw new CorantRuntimeException(e);
+        }
+        checkpoints = loaded;
+      }
+      return checkpoints;
+    }
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The in memory checkpoint store, the checkpoints are lost when the process exits.
+   *
+   * @author bingo 下午2:46:08
+   *
+   */
+  public static class MemoryCheckpointStore implements CheckpointStore {
+
+    protected final Map<Path, Checkpoint> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public Checkpoint load(Path path) {
+      return checkpoints.get(path);
+    }
+
+    @Override
+    public void save(Path path, Checkpoint checkpoint) {
+      checkpoints.put(path, checkpoint);
+    }
+  }
+}
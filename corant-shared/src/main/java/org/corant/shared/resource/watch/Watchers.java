@@ -13,6 +13,7 @@
  */
 package org.corant.shared.resource.watch;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import java.io.File;
@@ -31,6 +32,25 @@ public class Watchers {
 
   public static final String DAEMON_THREAD_PREFIX = Names.CORANT.concat("-fsw-dae-");
 
+  /**
+   * Tail the given file in a daemon thread with the default settings and the given checkpoint
+   * store, returns the tailer that can be used to stop the tailing.
+   *
+   * @param file the file to be tailed
+   * @param checkpointStore the checkpoint store use to resume the read position
+   * @param handler the batch handler
+   *
+   * @see FileTailer
+   */
+  public static FileTailer tailFileInDaemon(Path file, FileTailer.CheckpointStore checkpointStore,
+      FileTailer.BatchHandler handler) {
+    final FileTailer tailer = new FileTailer(file, UTF_8, FileTailer.DEFAULT_BATCH_SIZE,
+        FileTailer.DEFAULT_IDLE_MILLIS, checkpointStore, true, handler);
+    Threads.runInDaemon(DAEMON_THREAD_PREFIX.concat("tail-").concat(file.getFileName().toString()),
+        tailer);
+    return tailer;
+  }
+
   public static Watcher watchDirectoryInDaemon(File fileDir, boolean recursive,
       Predicate<Path> filter, FileChangeListener listeners) {
     shouldBeTrue(fileDir != null && fileDir.exists() && fileDir.isDirectory(),
@@ -1,5 +1,6 @@
 package org.corant.shared.ubiquity;
 
+import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNoneNull;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import java.util.HashSet;
@@ -9,8 +10,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.util.Systems;
@@ -26,6 +29,17 @@ public class Locks {
    * corant-shared
    * <p>
    * A lock use to lock/unlock on a specific key.
+   * <p>
+   * Each key is associated with a reference counted semaphore, the reference count records the
+   * number of threads that are holding or waiting for the key, the semaphore is created when the
+   * first thread arrives and is removed when the last holder unlocks, so locking on high
+   * cardinality keys (for example order ids or user ids) does not grow the underlying map without
+   * bound. The reference count is only changed inside the atomic map compute operations, and only
+   * the successful acquisitions can be released, unlocking a key that is not locked throws an
+   * {@link IllegalMonitorStateException}.
+   * <p>
+   * Note: The lock is not reentrant, if the memory must be bounded regardless of the number of
+   * concurrently locked keys, consider using {@link StripedKeyLock}.
    *
    * @author bingo 上午11:09:35
    */
@@ -39,6 +53,7 @@ public class Locks {
     }
 
     public KeyLock(int permits) {
+      shouldBeTrue(permits > 0, "The permits must be greater than 0");
       this.permits = permits;
     }
 
@@ -46,29 +61,111 @@ public class Locks {
       return new LockInstance(shouldNotNull(key, "The key to be locked can't null"));
     }
 
+    /**
+     * Returns the keys that are currently held or waited on.
+     */
     public Set<K> keySet() {
       return new HashSet<>(getSemaphores().keySet());
     }
 
+    /**
+     * Removes the semaphore of the given key forcibly, since the semaphore is removed
+     * automatically when the last holder unlocks, this method is generally not needed. Note: If
+     * the key is still held, the holders and the subsequent lockers no longer exclude each other.
+     *
+     * @param key the key to be removed
+     * @return the removed semaphore or null if not found
+     */
     public Semaphore remove(K key) {
       return getSemaphores().remove(shouldNotNull(key, "The key to be removed can't null"));
     }
 
     public <T> T withLock(K key, Supplier<T> supply) {
       shouldNoneNull(key, supply);
-      final Lock lock = get(key);
-      lock.lock();
+      acquire(key);
       try {
         return supply.get();
       } finally {
-        lock.unlock();
+        release(key);
+      }
+    }
+
+    protected void acquire(K key) {
+      KeySemaphore semaphore = retain(key);
+      semaphore.acquireUninterruptibly();
+      semaphore.holds.incrementAndGet();
+    }
+
+    protected void acquireInterruptibly(K key) throws InterruptedException {
+      KeySemaphore semaphore = retain(key);
+      try {
+        semaphore.acquire();
+      } catch (InterruptedException e) {
+        unretain(key);
+        throw e;
       }
+      semaphore.holds.incrementAndGet();
     }
 
     protected Map<K, Semaphore> getSemaphores() {
       return semaphores;
     }
 
+    protected void release(K key) {
+      final boolean[] released = new boolean[1];
+      getSemaphores().computeIfPresent(key, (k, v) -> {
+        KeySemaphore semaphore = (KeySemaphore) v;
+        if (semaphore.holds.getAndUpdate(h -> h > 0 ? h - 1 : h) == 0) {
+          return semaphore;
+        }
+        released[0] = true;
+        semaphore.release();
+        return --semaphore.references > 0 ? semaphore : null;
+      });
+      if (!released[0]) {
+        throw new IllegalMonitorStateException();
+      }
+    }
+
+    protected KeySemaphore retain(K key) {
+      return (KeySemaphore) getSemaphores().compute(key, (k, v) -> {
+        KeySemaphore semaphore = v == null ? new KeySemaphore(permits) : (KeySemaphore) v;
+        semaphore.references++;
+        return semaphore;
+      });
+    }
+
+    protected boolean tryAcquire(K key) {
+      KeySemaphore semaphore = retain(key);
+      if (semaphore.tryAcquire()) {
+        semaphore.holds.incrementAndGet();
+        return true;
+      }
+      unretain(key);
+      return false;
+    }
+
+    protected boolean tryAcquire(K key, long time, TimeUnit unit) throws InterruptedException {
+      boolean acquired = false;
+      try {
+        KeySemaphore semaphore = retain(key);
+        acquired = semaphore.tryAcquire(time, unit);
+        if (acquired) {
+          semaphore.holds.incrementAndGet();
+        }
+      } finally {
+        if (!acquired) {
+          unretain(key);
+        }
+      }
+      return acquired;
+    }
+
+    protected void unretain(K key) {
+      getSemaphores().computeIfPresent(key,
+          (k, v) -> --((KeySemaphore) v).references > 0 ? v : null);
+    }
+
     /**
      * corant-shared
      * <p>
@@ -86,9 +183,7 @@ public class Locks {
 
       @Override
       public void lock() {
-        Semaphore semaphore =
-            getSemaphores().compute(key, (k, v) -> v == null ? new Semaphore(permits) : v);
-        semaphore.acquireUninterruptibly();
+        acquire(key);
       }
 
       @Override
@@ -96,7 +191,7 @@ public class Locks {
         if (Thread.interrupted()) {
           throw new InterruptedException();
         }
-        this.lock();
+        acquireInterruptibly(key);
       }
 
       @Override
@@ -106,26 +201,41 @@ public class Locks {
 
       @Override
       public boolean tryLock() {
-        Semaphore semaphore =
-            getSemaphores().compute(key, (k, v) -> v == null ? new Semaphore(permits) : v);
-        return semaphore.tryAcquire();
+        return tryAcquire(key);
       }
 
       @Override
       public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-        Semaphore semaphore =
-            getSemaphores().compute(key, (k, v) -> v == null ? new Semaphore(permits) : v);
-        return semaphore.tryAcquire(time, unit);
+        return tryAcquire(key, time, unit);
       }
 
       @Override
       public void unlock() {
-        Semaphore semaphore = getSemaphores().get(key);
-        if (semaphore != null) {
-          semaphore.release();
-          return;
-        }
-        throw new IllegalMonitorStateException();
+        release(key);
+      }
+    }
+
+    /**
+     * corant-shared
+     * <p>
+     * The semaphore with the number of threads that are holding or waiting for the key and the
+     * number of the acquired permits.
+     *
+     * @author bingo 下午4:12:05
+     */
+    protected static class KeySemaphore extends Semaphore {
+
+      private static final long serialVersionUID = -3012265712463491093L;
+
+      protected final AtomicInteger holds = new AtomicInteger();
+      protected volatile int references;
+
+      protected KeySemaphore(int permits) {
+        super(permits);
+      }
+
+      public int getReferences() {
+        return references;
       }
     }
   }
@@ -206,4 +316,66 @@ public class Locks {
 
   }
 
+  /**
+   * corant-shared
+   * <p>
+   * A fixed size striped lock use to lock/unlock on a specific key, the keys are mapped to a fixed
+   * number of reentrant locks by their hash codes, so the memory is bounded regardless of the key
+   * cardinality and no object is allocated when locking. Different keys may share the same stripe
+   * and therefore exclude each other, the more stripes, the less false contention.
+   *
+   * @author bingo 下午4:20:37
+   */
+  public static class StripedKeyLock<K> {
+
+    protected final Lock[] stripes;
+    protected final int mask;
+
+    public StripedKeyLock() {
+      this(Systems.getCPUs() << 4);
+    }
+
+    /**
+     * Create a striped lock
+     *
+     * @param stripes the number of stripes, will be rounded up to the power of two.
+     */
+    public StripedKeyLock(int stripes) {
+      shouldBeTrue(stripes > 0 && stripes <= 1 << 30, "The stripes must be between 1 and 2^30");
+      int size = 1;
+      while (size < stripes) {
+        size <<= 1;
+      }
+      this.stripes = new Lock[size];
+      for (int i = 0; i < size; i++) {
+        this.stripes[i] = new ReentrantLock();
+      }
+      mask = size - 1;
+    }
+
+    public Lock get(K key) {
+      return stripes[indexOf(shouldNotNull(key, "The key to be locked can't null"))];
+    }
+
+    public int size() {
+      return stripes.length;
+    }
+
+    public <T> T withLock(K key, Supplier<T> supply) {
+      shouldNoneNull(key, supply);
+      final Lock lock = get(key);
+      lock.lock();
+      try {
+        return supply.get();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    protected int indexOf(K key) {
+      int h = key.hashCode();
+      return (h ^ h >>> 16) & mask;
+    }
+  }
+
 }
@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.defaultObject;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.normal.Defaults;
+
+/**
+ * corant-shared
+ * <p>
+ * A memory mapped CSV reader that supports parallel parsing, the field format is the same as
+ * {@link Texts#readCSVFields(String)}, the quoted fields can span multiple lines, the records are
+ * separated by '\n', '\r\n' or '\r'.
+ * <p>
+ * When opening, the file is divided into chunks of the given size and the chunks are scanned in
+ * parallel, each scan counts the quotes of the chunk and finds the first record terminator under
+ * both the even and the odd quote parity assumptions, the real quote parity at the start of each
+ * chunk is then resolved sequentially by the quote counts of the preceding chunks, so that the
+ * chunks are aligned to the record boundaries that respect quotes. The aligned chunks are mapped
+ * and parsed by a {@link Spliterator} that supports {@link Spliterator#trySplit()} on the chunk
+ * granularity.
+ * <p>
+ * Each spliterator reuses one {@link Record} whose fields are {@link CharSequence} views of a
+ * reusable char buffer, the record and its field views are only valid in the action callback, use
+ * {@link Record#toList()} or {@link CharSequence#toString()} to retain them.
+ * <p>
+ * Note: The charset must encode the delimiter, the quote, '\r' and '\n' into their single ASCII
+ * bytes and these bytes must not appear in other multibyte sequences, for example UTF-8, GBK and
+ * ISO-8859-1; a single record must be smaller than 2GB.
+ *
+ * @author bingo 下午3:18:52
+ *
+ */
+public class MappedCSVReader implements Closeable {
+
+  public static final int DEFAULT_CHUNK_SIZE = (int) (64 * Defaults.ONE_MB);
+  public static final int MIN_CHUNK_SIZE = 4096;
+
+  static final byte CR = '\r';
+  static final byte LF = '\n';
+
+  protected final FileChannel channel;
+  protected final long size;
+  protected final Charset charset;
+  protected final byte delimiter;
+  protected final byte quote;
+  protected final long[] boundaries;
+
+  protected MappedCSVReader(FileChannel channel, Charset charset, char delimiter, char quote,
+      int chunkSize) throws IOException {
+    this.channel = channel;
+    this.charset = charset;
+    this.delimiter = asciiByte(charset, delimiter);
+    this.quote = asciiByte(charset, quote);
+    asciiByte(charset, (char) CR);
+    asciiByte(charset, (char) LF);
+    size = channel.size();
+    boundaries = resolveBoundaries(chunkSize);
+  }
+
+  /**
+   * Open the given UTF-8 CSV file.
+   *
+   * @param path the CSV file path
+   */
+  public static MappedCSVReader open(Path path) {
+    return open(path, UTF_8, Texts.CSV_FIELD_DELIMITER, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Open the given CSV file with the given charset and field delimiter.
+   *
+   * @param path the CSV file path
+   * @param charset the file charset, default is UTF-8
+   * @param delimiter the field delimiter
+   * @param chunkSize the number of bytes of a chunk use for splitting, the chunks are aligned to
+   *        the record boundaries, each chunk is mapped separately, so the size less than
+   *        {@link #MIN_CHUNK_SIZE} is raised to it.
+   */
+  public static MappedCSVReader open(Path path, Charset charset, char delimiter, int chunkSize) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(shouldNotNull(path), StandardOpenOption.READ);
+      return new MappedCSVReader(channel, defaultObject(charset, UTF_8), delimiter,
+          Texts.CSV_FIELD_QUOTES, Math.max(chunkSize, MIN_CHUNK_SIZE));
+    } catch (IOException | RuntimeException e) {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ex) {
+          e.addSuppressed(ex);
+        }
+      }
+      throw e instanceof RuntimeException ? (RuntimeException) e : new CorantRuntimeException(e);
+    }
+  }
+
+  static byte asciiByte(Charset charset, char c) {
+    ByteBuffer encoded = charset.encode(String.valueOf(c));
+    shouldBeTrue(c < 0x80 && encoded.remaining() == 1 && encoded.get(0) == (byte) c,
+        "The charset %s is not supported by mapped CSV reader", charset);
+    return (byte) c;
+  }
+
+  /**
+   * Returns the number of the aligned chunks
+   */
+  public int chunks() {
+    return boundaries.length - 1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Returns a record spliterator over all chunks.
+   */
+  public Spliterator<Record> spliterator() {
+    return new RecordSpliterator(0, chunks());
+  }
+
+  /**
+   * Returns a record stream, the stream closes this reader when it is closed.
+   *
+   * @param parallel whether the stream is parallel
+   */
+  public Stream<Record> stream(boolean parallel) {
+    return StreamSupport.stream(spliterator(), parallel).onClose(() -> {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new CorantRuntimeException(e);
+      }
+    });
+  }
+
+  protected MappedByteBuffer map(long position, long length) {
+    shouldBeTrue(length <= Integer.MAX_VALUE, "The CSV record is too large at position %s",
+        position);
+    try {
+      return channel.map(MapMode.READ_ONLY, position, length);
+    } catch (IOException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Resolve the record boundaries of the chunks, the first is 0 and the last is the file size.
+   */
+  protected long[] resolveBoundaries(int chunkSize) {
+    final int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+    final long[][] scans = new long[chunks][];
+    IntStream.range(0, chunks).parallel().forEach(i -> scans[i] =
+        scanChunk((long) i * chunkSize, Math.min(size, (long) (i + 1) * chunkSize)));
+    final long[] resolved = new long[chunks + 1];
+    int count = 0;
+    resolved[count++] = 0;
+    int parity = 0;
+    for (int i = 0; i < chunks - 1; i++) {
+      long boundary = scans[i][parity + 1];
+      if (boundary > resolved[count - 1] && boundary < size) {
+        resolved[count++] = boundary;
+      }
+      parity = (int) ((parity + scans[i][0]) & 1);
+    }
+    resolved[count++] = size;
+    return Arrays.copyOf(resolved, count);
+  }
+
+  /**
+   * Scan the chunk, returns the number of quotes and the first record boundaries in the chunk
+   * under the even and the odd quote parity assumptions, the boundary is -1 if not found.
+   */
+  protected long[] scanChunk(long start, long end) {
+    final long[] result = {0, -1, -1};
+    if (end <= start) {
+      return result;
+    }
+    // map one more byte to check whether the '\r' is followed by a '\n'
+    final long mapped = Math.min(size, end + 1) - start;
+    final MappedByteBuffer buffer = map(start, mapped);
+    final int length = (int) (end - start);
+    long quotes = 0;
+    for (int i = 0; i < length; i++) {
+      byte b = buffer.get(i);
+      if (b == quote) {
+        quotes++;
+      } else if (b == LF || b == CR && (i + 1 >= mapped || buffer.get(i + 1) != LF)) {
+        int parity = (int) (quotes & 1);
+        if (result[parity + 1] < 0) {
+          result[parity + 1] = start + i + 1;
+        }
+      }
+    }
+    result[0] = quotes;
+    return result;
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The reusable CSV record
+   *
+   * @author bingo 下午3:42:10
+   *
+   */
+  public static class Record {
+
+    protected char[] chars = new char[256];
+    protected int[] offsets = new int[32];
+    protected Field[] fields = new Field[16];
+    protected int size;
+    protected long position;
+
+    /**
+     * Returns the field view at the given index, the view is reused by the subsequent records.
+     *
+     * @param index the field index
+     */
+    public CharSequence get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      Field field = fields[index];
+      if (field == null) {
+        fields[index] = field = new Field(this, index);
+      }
+      return field;
+    }
+
+    /**
+     * Returns the byte position of the record in the file.
+     */
+    public long getPosition() {
+      return position;
+    }
+
+    /**
+     * Returns the field string at the given index
+     *
+     * @param index the field index
+     */
+    public String getString(int index) {
+      return get(index).toString();
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the field strings of the record.
+     */
+    public List<String> toList() {
+      List<String> list = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        list.add(new String(chars, offsets[i << 1], offsets[(i << 1) + 1] - offsets[i << 1]));
+      }
+      return list;
+    }
+
+    @Override
+    public String toString() {
+      return toList().toString();
+    }
+
+    void addField(int start, int end) {
+      if (size << 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length << 1);
+        fields = Arrays.copyOf(fields, fields.length << 1);
+      }
+      offsets[size << 1] = start;
+      offsets[(size << 1) + 1] = end;
+      size++;
+    }
+
+    char[] ensureCapacity(int capacity) {
+      if (capacity > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(capacity, chars.length << 1));
+      }
+      return chars;
+    }
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The field view of a record
+   *
+   * @author bingo 下午3:46:33
+   *
+   */
+  protected static class Field implements CharSequence {
+
+    protected final Record record;
+    protected final int index;
+
+    protected Field(Record record, int index) {
+      this.record = record;
+      this.index = index;
+    }
+
+    @Override
+    public char charAt(int i) {
+      if (i < 0 || i >= length()) {
+        throw new IndexOutOfBoundsException(String.valueOf(i));
+      }
+      return record.chars[record.offsets[index << 1] + i];
+    }
+
+    @Override
+    public int length() {
+      return record.offsets[(index << 1) + 1] - record.offsets[index << 1];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      int start = record.offsets[index << 1];
+      return new String(record.chars, start, record.offsets[(index << 1) + 1] - start);
+    }
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * The record spliterator over a range of the aligned chunks, the chunks are mapped one by one.
+   *
+   * @author bingo 下午3:51:20
+   *
+   */
+  protected class RecordSpliterator implements Spliterator<Record> {
+
+    protected final Record record = new Record();
+    protected final CharsetDecoder decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    protected int chunk;
+    protected int chunkEnd;
+    protected MappedByteBuffer buffer;
+    protected int position;
+    protected int limit;
+
+    protected RecordSpliterator(int chunk, int chunkEnd) {
+      this.chunk = chunk;
+      this.chunkEnd = chunkEnd;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
+
+    @Override
+    public long estimateSize() {
+      long remaining = boundaries[chunkEnd] - boundaries[chunk];
+      return buffer == null ? remaining : remaining - position;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Record> action) {
+      while (buffer == null || position >= limit) {
+        if (buffer != null) {
+          buffer = null;
+          chunk++;
+        }
+        if (chunk >= chunkEnd) {
+          return false;
+        }
+        limit = (int) (boundaries[chunk + 1] - boundaries[chunk]);
+        buffer = map(boundaries[chunk], limit);
+        position = 0;
+      }
+      parseRecord();
+      action.accept(record);
+      return true;
+    }
+
+    @Override
+    public Spliterator<Record> trySplit() {
+      if (buffer != null || chunkEnd - chunk < 2) {
+        return null;
+      }
+      int mid = (chunk + chunkEnd) >>> 1;
+      Spliterator<Record> prefix = new RecordSpliterator(chunk, mid);
+      chunk = mid;
+      return prefix;
+    }
+
+    protected void appendField(int start, int end, boolean ascii, boolean escaped, int charEnd) {
+      int length = end - start;
+      int offset = charEnd;
+      char[] chars;
+      if (ascii) {
+        chars = record.ensureCapacity(offset + length);
+        for (int i = start; i < end; i++) {
+          byte b = buffer.get(i);
+          chars[offset++] = (char) b;
+          if (escaped && b == quote) {
+            i++;// skip the second quote of the escaped double quotes
+          }
+        }
+      } else {
+        chars = record.ensureCapacity(
+            offset + (int) Math.ceil(length * (double) decoder.maxCharsPerByte()));
+        ByteBuffer in = buffer.duplicate();
+        in.limit(end).position(start);
+        CharBuffer out = CharBuffer.wrap(chars, offset, chars.length - offset);
+        // the malformed and unmappable inputs are replaced, the output capacity is sufficient
+        decoder.reset();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+        int decodedEnd = out.position();
+        if (escaped) {
+          for (int i = offset; i < decodedEnd; i++) {
+            char c = chars[i];
+            chars[offset++] = c;
+            if (c == quote) {
+              i++;
+            }
+          }
+        } else {
+          offset = decodedEnd;
+        }
+      }
+      record.addField(charEnd, offset);
+    }
+
+    protected IllegalArgumentException error(String message, int at) {
+      return new IllegalArgumentException(
+          String.format("%s, position: [%d]", message, boundaries[chunk] + at));
+    }
+
+    /**
+     * Parse the record at the current position, the state transitions are the same as
+     * {@link Texts#readCSVFields(String)}.
+     */
+    protected void parseRecord() {
+      final MappedByteBuffer buf = buffer;
+      int p = position;
+      record.size = 0;
+      record.position = boundaries[chunk] + p;
+      int charEnd = 0;
+      for (;;) {
+        int start;
+        int end;
+        boolean ascii = true;
+        boolean escaped = false;
+        if (p < limit && buf.get(p) == quote) {
+          start = ++p;
+          for (;;) {
+            if (p >= limit) {
+              throw error("Unclosed csv quote", start - 1);
+            }
+            byte b = buf.get(p);
+            if (b == quote) {
+              if (p + 1 < limit && buf.get(p + 1) == quote) {
+                escaped = true;
+                p += 2;
+                continue;
+              }
+              break;
+            }
+            if (b < 0) {
+              ascii = false;
+            }
+            p++;
+          }
+          end = p++;
+          if (p < limit) {
+            byte b = buf.get(p);
+            if (b != delimiter && b != LF && b != CR) {
+              throw error("Extra csv character after quoted string", p);
+            }
+          }
+        } else {
+          start = p;
+          while (p < limit) {
+            byte b = buf.get(p);
+            if (b == delimiter || b == LF || b == CR) {
+              break;
+            }
+            if (b == quote) {
+              throw error("Unexpected csv quote", p);
+            }
+            if (b < 0) {
+              ascii = false;
+            }
+            p++;
+          }
+          end = p;
+        }
+        appendField(start, end, ascii, escaped, charEnd);
+        charEnd = record.offsets[(record.size << 1) - 1];
+        if (p >= limit) {
+          break;
+        }
+        byte b = buf.get(p++);
+        if (b == CR) {
+          if (p < limit && buf.get(p) == LF) {
+            p++;
+          }
+          break;
+        } else if (b == LF) {
+          break;
+        }
+      }
+      position = p;
+    }
+  }
+}
@@ -33,6 +33,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.management.MBeanServer;
@@ -50,8 +52,24 @@ public class Systems {
 
   public static final Pattern ENV_KEY_PATTERN = Pattern.compile("[^a-zA-Z0-9_]");
 
+  static final CopyOnWriteArrayList<BiConsumer<String, String>> propertyChangeListeners =
+      new CopyOnWriteArrayList<>();
+
   private Systems() {}
 
+  /**
+   * Register a system property change listener, the listener is invoked with the property name and
+   * the new value after the system property was set through {@link #setProperty(String, String)}.
+   * <p>
+   * Note: The system properties set directly through {@link System#setProperty(String, String)}
+   * are not notified.
+   *
+   * @param listener the listener to register
+   */
+  public static void addPropertyChangeListener(BiConsumer<String, String> listener) {
+    propertyChangeListeners.addIfAbsent(shouldNotNull(listener));
+  }
+
   public static void dumpHeap(String filePath, boolean live) throws IOException {
     MBeanServer server = ManagementFactory.getPlatformMBeanServer();
     HotSpotDiagnosticMXBean mxBean = ManagementFactory.newPlatformMXBeanProxy(server,
@@ -429,6 +447,10 @@ public class Systems {
     return detectOS("Windows", "5.1");
   }
 
+  public static void removePropertyChangeListener(BiConsumer<String, String> listener) {
+    propertyChangeListeners.remove(listener);
+  }
+
   public static String setProperty(final String name, final String value) {
     String preValue = null;
     try {
@@ -444,6 +466,10 @@ public class Systems {
         });
       }
     } catch (final Exception ignore) {
+      return preValue;
+    }
+    for (BiConsumer<String, String> listener : propertyChangeListeners) {
+      listener.accept(name, value);
     }
     return preValue;
   }
@@ -49,6 +49,7 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -162,6 +163,25 @@ public class Texts {
     return lines(reader, offset, terminator, Texts::readCSVFields);
   }
 
+  /**
+   * Memory mapped CSV records from file, the file is split at the record boundaries that respect
+   * quotes so that the records can be parsed in parallel, the quoted fields can span multiple
+   * lines. The stream closes the mapped reader when it is closed.
+   * <p>
+   * Note: The record and its field views are reused, they are only valid in the stream operation
+   * that receives them.
+   *
+   * @param path the CSV file path
+   * @param charset the CSV file charset, default is UTF-8
+   * @param parallel whether to parse the records in parallel
+   * @see MappedCSVReader
+   */
+  public static Stream<MappedCSVReader.Record> asCSVRecords(final Path path, final Charset charset,
+      final boolean parallel) {
+    return MappedCSVReader.open(path, charset, CSV_FIELD_DELIMITER,
+        MappedCSVReader.DEFAULT_CHUNK_SIZE).stream(parallel);
+  }
+
   /**
    * Convert string to byte array input stream.
    *
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.corant.shared.util.FileUtils;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午3:26:47
+ *
+ */
+public class ClassPathResourceScannerTest extends TestCase {
+
+  static final List<String> INDEXED = Arrays.asList("META-INF/a-config.properties",
+      ClassPathResourceScanner.RESOURCE_INDEX, "META-INF/jandex.idx", "org/A.class");
+  static final List<String> UNINDEXED = Arrays.asList("META-INF/extra.idx", "org/B.class");
+
+  Path dir;
+
+  static String index(List<String> names) {
+    return String.join("\n", new TreeSet<>(names)) + "\n";
+  }
+
+  static URI jarUri(Path jar) {
+    return URI.create("jar:" + jar.toUri() + ClassPathResourceScanner.JAR_URL_SEPARATOR);
+  }
+
+  static Set<String> scan(URI uri, String root, Predicate<String> filter, boolean useIndex)
+      throws IOException {
+    System.setProperty(ClassPathResourceScanner.USE_RESOURCE_INDEX_PROPERTY,
+        String.valueOf(useIndex));
+    ClassPathResourceScanner scanner = new ClassPathResourceScanner(root, filter);
+    scanner.scan(uri, ClassPathResourceScannerTest.class.getClassLoader());
+    Set<String> names = new TreeSet<>();
+    scanner.getResources().forEach(r -> names.add(r.getClassPath()));
+    return names;
+  }
+
+  @Test
+  public void testReadIndex() throws IOException {
+    String index = "META-INF/MANIFEST.MF\nMETA-INF/a\n\nMETA-INF/b\norg/A.class\nMETA-INF/c\n";
+    ClassPathResourceScanner scanner = new ClassPathResourceScanner("META-INF");
+    // the names are sorted, the reading stops at the first name after the root
+    assertEquals(Arrays.asList("META-INF/a", "META-INF/b"),
+        scanner.readIndex(new ByteArrayInputStream(index.getBytes(UTF_8))));
+    scanner = new ClassPathResourceScanner("");
+    assertEquals(Arrays.asList("META-INF/a", "META-INF/b", "org/A.class", "META-INF/c"),
+        scanner.readIndex(new ByteArrayInputStream(index.getBytes(UTF_8))));
+  }
+
+  @Test
+  public void testScanIndexedDirectory() throws IOException {
+    Path classes = dir.resolve("classes");
+    for (String name : INDEXED) {
+      write(classes.resolve(name), name.equals(ClassPathResourceScanner.RESOURCE_INDEX)
+          ? index(INDEXED)
+          : name);
+    }
+    for (String name : UNINDEXED) {
+      write(classes.resolve(name), name);
+    }
+    URI uri = classes.resolve("META-INF").toUri();
+    Predicate<String> idx = n -> n.endsWith(".idx");
+    assertEquals(new TreeSet<>(Arrays.asList("META-INF/a-config.properties",
+        ClassPathResourceScanner.RESOURCE_INDEX, "META-INF/jandex.idx")),
+        scan(uri, "META-INF", null, true));
+    assertEquals(new TreeSet<>(Arrays.asList(ClassPathResourceScanner.RESOURCE_INDEX,
+        "META-INF/jandex.idx")), scan(uri, "META-INF", idx, true));
+    // the files that are not in the index are only visible when scanning
+    assertEquals(new TreeSet<>(Arrays.asList("META-INF/extra.idx",
+        ClassPathResourceScanner.RESOURCE_INDEX, "META-INF/jandex.idx")),
+        scan(uri, "META-INF", idx, false));
+    assertEquals(new TreeSet<>(INDEXED), scan(classes.toUri(), "", null, true));
+    // the directory without the index is scanned
+    Files.delete(classes.resolve(ClassPathResourceScanner.RESOURCE_INDEX));
+    assertEquals(new TreeSet<>(Arrays.asList("META-INF/extra.idx", "META-INF/jandex.idx")),
+        scan(uri, "META-INF", idx, true));
+  }
+
+  @Test
+  public void testScanIndexedJar() throws IOException {
+    Path jar = dir.resolve("indexed.jar");
+    writeJar(jar, true);
+    URI uri = jarUri(jar);
+    assertEquals(new TreeSet<>(Arrays.asList("META-INF/a-config.properties",
+        ClassPathResourceScanner.RESOURCE_INDEX, "META-INF/jandex.idx")),
+        scan(uri, "META-INF", null, true));
+    assertEquals(new TreeSet<>(Arrays.asList("org/A.class")), scan(uri, "org", null, true));
+    assertEquals(new TreeSet<>(Arrays.asList("org/A.class", "org/B.class")),
+        scan(uri, "org", null, false));
+    // the resource URLs point to the jar entries
+    System.setProperty(ClassPathResourceScanner.USE_RESOURCE_INDEX_PROPERTY, "true");
+    ClassPathResourceScanner scanner =
+        new ClassPathResourceScanner("META-INF", n -> n.endsWith(".properties"));
+    scanner.scan(uri, getClass().getClassLoader());
+    ClassPathResource resource = scanner.getResources().iterator().next();
+    assertEquals("META-INF/a-config.properties",
+        new String(resource.openInputStream().readAllBytes(), UTF_8));
+    // the jar without the index is scanned
+    jar = dir.resolve("unindexed.jar");
+    writeJar(jar, false);
+    assertEquals(new TreeSet<>(Arrays.asList("org/A.class", "org/B.class")),
+        scan(jarUri(jar), "org", null, true));
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    dir = Files.createTempDirectory("corant-resource-scanner");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.clearProperty(ClassPathResourceScanner.USE_RESOURCE_INDEX_PROPERTY);
+    FileUtils.deleteRecursive(dir);
+  }
+
+  void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(UTF_8));
+  }
+
+  void writeJar(Path jar, boolean indexed) throws IOException {
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (String name : INDEXED) {
+        if (indexed || !name.equals(ClassPathResourceScanner.RESOURCE_INDEX)) {
+          jos.putNextEntry(new JarEntry(name));
+          write(jos, name.equals(ClassPathResourceScanner.RESOURCE_INDEX) ? index(INDEXED) : name);
+        }
+      }
+      for (String name : UNINDEXED) {
+        jos.putNextEntry(new JarEntry(name));
+        write(jos, name);
+      }
+    }
+  }
+
+  void write(OutputStream os, String content) throws IOException {
+    os.write(content.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource.watch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.corant.shared.resource.watch.FileTailer.Checkpoint;
+import org.corant.shared.resource.watch.FileTailer.CheckpointStore;
+import org.corant.shared.resource.watch.FileTailer.FileCheckpointStore;
+import org.corant.shared.util.FileUtils;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午5:12:36
+ *
+ */
+public class FileTailerTest extends TestCase {
+
+  static final long TIMEOUT_MILLIS = 5000L;
+
+  Path dir;
+
+  static void append(Path file, String text) throws IOException {
+    Files.write(file, text.getBytes(UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  static List<String> take(BlockingQueue<String> lines, int count) throws InterruptedException {
+    List<String> taken = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String line = lines.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      assertNotNull("Timeout, taken " + taken, line);
+      taken.add(line);
+    }
+    return taken;
+  }
+
+  @Test
+  public void testAppend() throws Exception {
+    Path file = dir.resolve("append.log");
+    append(file, "a\nb\n");
+    BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    try (Tailing tailing = new Tailing(file, new FileTailer.MemoryCheckpointStore(), lines)) {
+      assertEquals(Arrays.asList("a", "b"), take(lines, 2));
+      append(file, "c\r\nd");
+      assertEquals(Arrays.asList("c"), take(lines, 1));
+      // the incomplete last line is not delivered until it is terminated
+      assertNull(lines.poll(200, TimeUnit.MILLISECONDS));
+      append(file, "\n");
+      assertEquals(Arrays.asList("d"), take(lines, 1));
+      tailing.awaitPosition(Files.size(file));
+    }
+  }
+
+  @Test
+  public void testCheckpointStorePerPath() {
+    Path storeFile = dir.resolve("checkpoints");
+    FileCheckpointStore store = new FileCheckpointStore(storeFile);
+    store.save(dir.resolve("a.log"), new Checkpoint("key-a", 10));
+    store.save(dir.resolve("b.log"), new Checkpoint("key-b", 20));
+    store.save(dir.resolve("a.log"), new Checkpoint("key-a", 11));
+    store.save(dir.resolve("c.log"), new Checkpoint(null, 0));
+    FileCheckpointStore reloaded = new FileCheckpointStore(storeFile);
+    assertEquals("key-a", reloaded.load(dir.resolve("a.log")).getFileKey());
+    assertEquals(11, reloaded.load(dir.resolve("a.log")).getPosition());
+    assertEquals("key-b", reloaded.load(dir.resolve("b.log")).getFileKey());
+    assertEquals(20, reloaded.load(dir.resolve("b.log")).getPosition());
+    assertNull(reloaded.load(dir.resolve("c.log")).getFileKey());
+    assertNull(reloaded.load(dir.resolve("d.log")));
+  }
+
+  @Test
+  public void testResumeFromFileCheckpointStore() throws Exception {
+    Path file = dir.resolve("resume.log");
+    Path storeFile = dir.resolve("resume.checkpoints");
+    append(file, "a\nb\n");
+    BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    try (Tailing tailing = new Tailing(file, new FileCheckpointStore(storeFile), lines)) {
+      assertEquals(Arrays.asList("a", "b"), take(lines, 2));
+      tailing.awaitPosition(Files.size(file));
+    }
+    append(file, "c\n");
+    try (Tailing tailing = new Tailing(file, new FileCheckpointStore(storeFile), lines)) {
+      assertEquals(Arrays.asList("c"), take(lines, 1));
+      assertNull(lines.poll(200, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  public void testRotationWhileStopped() throws Exception {
+    Path file = dir.resolve("rotate.log");
+    Path storeFile = dir.resolve("rotate.checkpoints");
+    append(file, "a\nb\n");
+    BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    try (Tailing tailing = new Tailing(file, new FileCheckpointStore(storeFile), lines)) {
+      assertEquals(Arrays.asList("a", "b"), take(lines, 2));
+      tailing.awaitPosition(Files.size(file));
+    }
+    // written after stopped then rotated away, the remainder must be drained first
+    append(file, "c\nd");
+    Files.move(file, dir.resolve("rotate.log.1"));
+    append(file, "e\n");
+    try (Tailing tailing = new Tailing(file, new FileCheckpointStore(storeFile), lines)) {
+      assertEquals(Arrays.asList("c", "d", "e"), take(lines, 3));
+      assertNull(lines.poll(200, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  public void testTransientError() throws Exception {
+    Path file = dir.resolve("transient.log");
+    append(file, "a\n");
+    BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    final int[] failures = {2};
+    FileTailer tailer = new FileTailer(file, UTF_8, 16, 20L, new FileTailer.MemoryCheckpointStore(),
+        false, batch -> batch.forEach(l -> lines.add(l.getContent()))) {
+      @Override
+      protected int pump(boolean flush) throws IOException, InterruptedException {
+        if (failures[0]-- > 0) {
+          throw new IOException("Transient error");
+        }
+        return super.pump(flush);
+      }
+    };
+    // the tailer thread survives the transient errors and retries later
+    try (Tailing tailing = new Tailing(tailer)) {
+      assertEquals(Arrays.asList("a"), take(lines, 1));
+      append(file, "b\n");
+      assertEquals(Arrays.asList("b"), take(lines, 1));
+      assertTrue(tailer.isRunning());
+    }
+  }
+
+  @Test
+  public void testTruncate() throws Exception {
+    Path file = dir.resolve("truncate.log");
+    append(file, "first line\nsecond line\n");
+    BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    try (Tailing tailing = new Tailing(file, new FileTailer.MemoryCheckpointStore(), lines)) {
+      assertEquals(Arrays.asList("first line", "second line"), take(lines, 2));
+      tailing.awaitPosition(Files.size(file));
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(0);
+      }
+      append(file, "x\n");
+      assertEquals(Arrays.asList("x"), take(lines, 1));
+      tailing.awaitPosition(2);
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    dir = Files.createTempDirectory("corant-file-tailer");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtils.deleteRecursive(dir);
+  }
+
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午5:14:02
+   *
+   */
+  static class Tailing implements AutoCloseable {
+
+    final FileTailer tailer;
+    final Thread thread;
+
+    Tailing(FileTailer tailer) {
+      this.tailer = tailer;
+      thread = new Thread(tailer);
+      thread.start();
+    }
+
+    Tailing(Path file, CheckpointStore store, BlockingQueue<String> lines) {
+      tailer = new FileTailer(file, UTF_8, 16, 20L, store, false,
+          batch -> batch.forEach(l -> lines.add(l.getContent())));
+      thread = new Thread(tailer);
+      thread.start();
+    }
+
+    void awaitPosition(long position) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (tailer.getPosition() != position && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(position, tailer.getPosition());
+    }
+
+    @Override
+    public void close() throws Exception {
+      tailer.close();
+      thread.join(TIMEOUT_MILLIS);
+      assertFalse(thread.isAlive());
+    }
+  }
+}
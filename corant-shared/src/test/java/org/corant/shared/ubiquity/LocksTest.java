@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.ubiquity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.corant.shared.ubiquity.Locks.KeyLock;
+import org.corant.shared.ubiquity.Locks.StripedKeyLock;
+import org.junit.Test;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午4:35:18
+ *
+ */
+public class LocksTest {
+
+  @Test
+  public void testKeyLockEviction() throws InterruptedException {
+    final KeyLock<Integer> keyLock = new KeyLock<>();
+    final int workers = 4;
+    final int iterates = 10000;
+    final int[] counters = new int[8];
+    final CountDownLatch latch = new CountDownLatch(workers);
+    final ExecutorService es = Executors.newFixedThreadPool(workers);
+    for (int i = 0; i < workers; i++) {
+      es.submit(() -> {
+        try {
+          for (int j = 0; j < iterates; j++) {
+            final int key = j % counters.length;
+            keyLock.withLock(key, () -> counters[key]++);
+            keyLock.withLock(iterates + j, () -> null);
+          }
+        } finally {
+          latch.countDown();
+        }
+      });
+    }
+    latch.await();
+    es.shutdown();
+    int sum = 0;
+    for (int c : counters) {
+      sum += c;
+    }
+    assertEquals(workers * iterates, sum);
+    assertTrue(keyLock.keySet().isEmpty());
+  }
+
+  @Test
+  public void testKeyLockTryLock() throws InterruptedException {
+    final KeyLock<String> keyLock = new KeyLock<>();
+    Lock lock = keyLock.get("a");
+    lock.lock();
+    final boolean[] acquired = new boolean[2];
+    Thread t = new Thread(() -> {
+      Lock other = keyLock.get("a");
+      acquired[0] = other.tryLock();
+      try {
+        acquired[1] = other.tryLock(10, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    t.start();
+    t.join();
+    assertFalse(acquired[0]);
+    assertFalse(acquired[1]);
+    assertEquals(1, keyLock.keySet().size());
+    lock.unlock();
+    assertTrue(keyLock.keySet().isEmpty());
+  }
+
+  @Test
+  public void testKeyLockUnbalancedUnlock() {
+    final KeyLock<String> keyLock = new KeyLock<>();
+    Lock lock = keyLock.get("a");
+    assertThrows(IllegalMonitorStateException.class, lock::unlock);
+    lock.lock();
+    keyLock.get("b").lock();
+    lock.unlock();
+    // the redundant unlock doesn't release the key locked by the others
+    assertThrows(IllegalMonitorStateException.class, lock::unlock);
+    assertThrows(IllegalMonitorStateException.class, lock::unlock);
+    assertEquals(Set.of("b"), keyLock.keySet());
+    assertFalse(keyLock.get("b").tryLock());
+    keyLock.get("b").unlock();
+    assertThrows(IllegalMonitorStateException.class, keyLock.get("b")::unlock);
+    assertTrue(keyLock.keySet().isEmpty());
+  }
+
+  @Test
+  public void testStripedKeyLock() {
+    StripedKeyLock<String> keyLock = new StripedKeyLock<>(10);
+    assertEquals(16, keyLock.size());
+    assertSame(keyLock.get("a"), keyLock.get("a"));
+    assertEquals("x", keyLock.withLock("a", () -> keyLock.withLock("a", () -> "x")));
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013-2023, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.util;
+
+import static org.corant.shared.util.Lists.listOf;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.corant.shared.util.MappedCSVReader.Record;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午4:28:07
+ *
+ */
+public class MappedCSVReaderTest extends TestCase {
+
+  @Test
+  public void testMappedCSVRecords() throws IOException {
+    File testFile = FileUtils.createTempFile("corant-testing-mapped-csv", ".csv");
+    List<List<String>> lines = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      lines.add(listOf(String.valueOf(i), "", "\"", ",", "厦门China", "\r\n", "\r\r\r\r",
+          "\n\n\r", "\"\n\"" + i, "x" + i));
+      lines.add(listOf("a" + i, "b\rc", "d"));
+    }
+    for (Charset charset : new Charset[] {StandardCharsets.UTF_8, Charset.forName("GBK")}) {
+      Texts.writeCSVFile(testFile, false, charset, lines);
+      List<List<String>> expected;
+      try (Stream<List<String>> stream = Texts.asCSVLines(testFile, charset)) {
+        expected = stream.collect(Collectors.toList());
+      }
+      assertEquals(lines, expected);
+      for (int chunkSize : new int[] {1, 4099, 8192, 1 << 20}) {
+        for (boolean parallel : new boolean[] {false, true}) {
+          MappedCSVReader reader =
+              MappedCSVReader.open(testFile.toPath(), charset, ',', chunkSize);
+          try (Stream<Record> stream = reader.stream(parallel)) {
+            assertEquals(expected, stream.map(Record::toList).collect(Collectors.toList()));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMappedCSVFieldViews() throws IOException {
+    File testFile = FileUtils.createTempFile("corant-testing-mapped-csv-view", ".csv");
+    Texts.writeCSVFile(testFile, false, null, listOf(listOf("ab", "c\"d"), listOf("", "e")));
+    List<String> fields = new ArrayList<>();
+    try (Stream<Record> stream = MappedCSVReader.open(testFile.toPath()).stream(false)) {
+      stream.forEach(r -> {
+        for (int i = 0; i < r.size(); i++) {
+          CharSequence field = r.get(i);
+          fields.add(field.length() + ":" + field);
+        }
+      });
+    }
+    assertEquals(listOf("2:ab", "3:c\"d", "0:", "1:e"), fields);
+  }
+}